@@ -1,10 +1,14 @@
 package com.example.demo.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.example.demo.service.IdempotencyService;
+import com.example.demo.utils.KeysetResponses;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
@@ -12,8 +16,10 @@ public class WebConfig implements WebMvcConfigurer {
   public void addCorsMappings(CorsRegistry registry) {
     registry.addMapping("/**")
         .allowedOrigins("http://localhost:3000", "http://207.180.212.53:3000")
-        .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+        .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
         .allowedHeaders("*")
+        .exposedHeaders(KeysetResponses.NEXT_CURSOR_HEADER, IdempotencyService.REPLAYED_HEADER, HttpHeaders.ETAG,
+            HttpHeaders.CONTENT_RANGE, HttpHeaders.ACCEPT_RANGES)
         .allowCredentials(true)
         .maxAge(3600);
   }
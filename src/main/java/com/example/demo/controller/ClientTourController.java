@@ -1,8 +1,12 @@
 package com.example.demo.controller;
 
 import java.util.List;
+import java.util.Locale;
 
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,15 +14,24 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.demo.dto.ClientTourDto;
+import com.example.demo.dto.TourTransferDto;
 import com.example.demo.service.ClientTourService;
+import com.example.demo.service.IdempotencyService;
+import com.example.demo.service.NoAvailableSlotsException;
+import com.example.demo.service.TourRosterService;
+import com.example.demo.utils.KeysetResponses;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
@@ -29,10 +42,22 @@ import lombok.RequiredArgsConstructor;
 public class ClientTourController {
 
   private final ClientTourService clientTourService;
+  private final IdempotencyService idempotencyService;
+  private final TourRosterService tourRosterService;
 
   @GetMapping
-  @Operation(summary = "Получить все связи клиент-тур")
-  public ResponseEntity<List<ClientTourDto>> getAllClientTours() {
+  @Operation(summary = "Получить все связи клиент-тур", description = "Если передан sort, cursor или limit, возвращается одна страница, курсор следующей страницы передается в заголовке X-Next-Cursor")
+  public ResponseEntity<List<ClientTourDto>> getAllClientTours(
+      @Parameter(description = "Сортировка: id, createdAt; минус в начале - по убыванию") @RequestParam(required = false) String sort,
+      @Parameter(description = "Курсор следующей страницы из заголовка X-Next-Cursor") @RequestParam(required = false) String cursor,
+      @Parameter(description = "Размер страницы (по умолчанию 50, не больше 500)") @RequestParam(required = false) Integer limit) {
+    if (KeysetResponses.isRequested(sort, cursor, limit)) {
+      try {
+        return KeysetResponses.ok(clientTourService.getClientToursPage(sort, cursor, limit));
+      } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().build();
+      }
+    }
     return ResponseEntity.ok(clientTourService.getAllClientTours());
   }
 
@@ -63,11 +88,54 @@ public class ClientTourController {
     return ResponseEntity.ok(clientTourService.getClientToursByTourId(tourId));
   }
 
+  @GetMapping("/tour/{tourId}/roster")
+  @Operation(summary = "Выгрузить список участников тура", description = "Передает потоком активных участников тура с контактами и статусом заявки в формате CSV или JSON Lines (по одному JSON-объекту в строке)")
+  public ResponseEntity<StreamingResponseBody> exportRoster(
+      @Parameter(description = "ID тура") @PathVariable Long tourId,
+      @Parameter(description = "Формат: csv или jsonl") @RequestParam(defaultValue = "csv") String format) {
+    TourRosterService.Format rosterFormat;
+    try {
+      rosterFormat = TourRosterService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+    try {
+      StreamingResponseBody body = tourRosterService.exportRoster(tourId, rosterFormat);
+      return ResponseEntity.ok()
+          .contentType(MediaType.parseMediaType(rosterFormat.getContentType()))
+          .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+              .filename("tour-" + tourId + "-roster." + rosterFormat.getExtension()).build().toString())
+          .body(body);
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+
   @PostMapping
   @Operation(summary = "Создать новую связь клиент-тур")
-  public ResponseEntity<ClientTourDto> createClientTour(
-      @Parameter(description = "Данные для создания связи клиент-тур") @Valid @RequestBody ClientTourDto clientTourDto) {
-    return ResponseEntity.status(HttpStatus.CREATED).body(clientTourService.createClientTour(clientTourDto));
+  public ResponseEntity<?> createClientTour(
+      @Parameter(description = "Данные для создания связи клиент-тур") @Valid @RequestBody ClientTourDto clientTourDto,
+      @Parameter(description = "Ключ идемпотентности: повтор запроса с тем же ключом вернет исходный ответ") @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+    if (idempotencyKey == null) {
+      return ResponseEntity.status(HttpStatus.CREATED).body(clientTourService.createClientTour(clientTourDto));
+    }
+    return idempotencyService.execute("client-tours", idempotencyKey, clientTourDto,
+        () -> ResponseEntity.status(HttpStatus.CREATED).body(clientTourService.createClientTour(clientTourDto)));
+  }
+
+  @PostMapping("/transfer")
+  @Operation(summary = "Перенести клиентов в другой тур", description = "Переносит все или указанные связи исходного тура в новый тур одной операцией. Если в новом туре не хватает мест на всех активных клиентов, ничего не переносится (409). Связи контактов, уже записанных на новый тур, возвращаются в списке конфликтов")
+  public ResponseEntity<?> transferClients(
+      @Parameter(description = "Исходный тур, новый тур и, при необходимости, ID связей") @Valid @RequestBody TourTransferDto request) {
+    try {
+      return ResponseEntity.ok(clientTourService.transferClients(request));
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    } catch (NoAvailableSlotsException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
   }
 
   @PutMapping("/{id}")
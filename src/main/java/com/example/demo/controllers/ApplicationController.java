@@ -2,28 +2,47 @@ package com.example.demo.controllers;
 
 import java.util.List;
 
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.demo.dto.ApplicationDto;
+import com.example.demo.dto.ApplicationIntakeDto;
+import com.example.demo.dto.ApplicationListItemDto;
+import com.example.demo.dto.ApplicationSearchCriteria;
+import com.example.demo.dto.BulkStatusUpdateDto;
+import com.example.demo.dto.GroupApplicationDto;
 import com.example.demo.dto.StatusUpdateDto;
+import com.example.demo.dto.StatusUpdateResultDto;
+import com.example.demo.dto.WaitlistEntryDto;
 import com.example.demo.models.ApplicationStatus;
+import com.example.demo.service.ApplicationIntakeService;
 import com.example.demo.service.ApplicationService;
+import com.example.demo.service.IdempotencyService;
+import com.example.demo.service.IntakeQueueFullException;
+import com.example.demo.service.IntakeStoppedException;
+import com.example.demo.service.NoAvailableSlotsException;
+import com.example.demo.service.WaitlistService;
+import com.example.demo.utils.KeysetResponses;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -36,19 +55,43 @@ import lombok.extern.slf4j.Slf4j;
 public class ApplicationController {
 
   private final ApplicationService applicationService;
+  private final WaitlistService waitlistService;
+  private final IdempotencyService idempotencyService;
+  private final ApplicationIntakeService applicationIntakeService;
 
   @GetMapping
-  @Operation(summary = "Получение списка всех заявок", description = "Возвращает список всех заявок на туры", security = @SecurityRequirement(name = "bearerAuth"))
-  public ResponseEntity<List<ApplicationDto>> getAllApplications() {
-    List<ApplicationDto> applications = applicationService.getAllApplications();
+  @Operation(summary = "Получение списка всех заявок", description = "Возвращает список всех заявок на туры с краткими сведениями о туре, контакте и связи клиент-тур. Полная информация о туре загружается отдельно через /tours/{id}. Если передан sort, cursor или limit, возвращается одна страница, курсор следующей страницы передается в заголовке X-Next-Cursor", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<List<ApplicationListItemDto>> getAllApplications(
+      @Parameter(description = "Сортировка: id, createdAt; минус в начале - по убыванию") @RequestParam(required = false) String sort,
+      @Parameter(description = "Курсор следующей страницы из заголовка X-Next-Cursor") @RequestParam(required = false) String cursor,
+      @Parameter(description = "Размер страницы (по умолчанию 50, не больше 500)") @RequestParam(required = false) Integer limit) {
+    if (KeysetResponses.isRequested(sort, cursor, limit)) {
+      try {
+        return KeysetResponses.ok(applicationService.getApplicationsPage(sort, cursor, limit));
+      } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().build();
+      }
+    }
+    List<ApplicationListItemDto> applications = applicationService.getAllApplications();
     return ResponseEntity.ok(applications);
   }
 
+  @GetMapping("/search")
+  @Operation(summary = "Поиск заявок", description = "Возвращает страницу заявок, отобранных по статусу, туру, почте, началу ФИО и дате создания. Курсор следующей страницы передается в заголовке X-Next-Cursor", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<List<ApplicationListItemDto>> searchApplications(
+      @ParameterObject @ModelAttribute ApplicationSearchCriteria criteria) {
+    try {
+      return KeysetResponses.ok(applicationService.searchApplications(criteria));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
   @GetMapping("/by-email")
-  @Operation(summary = "Получение списка всех заявок по почте", description = "Возвращает список всех заявок на туры по указанной почте", security = @SecurityRequirement(name = "bearerAuth"))
-  public ResponseEntity<List<ApplicationDto>> getAllApplicationsByEmail(
+  @Operation(summary = "Получение списка всех заявок по почте", description = "Возвращает список всех заявок на туры по указанной почте с краткими сведениями о туре, контакте и связи клиент-тур", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<List<ApplicationListItemDto>> getAllApplicationsByEmail(
       @Parameter(description = "Почта", required = true) @RequestParam String email) {
-    List<ApplicationDto> applications = applicationService.getAllApplicationsByEmail(email);
+    List<ApplicationListItemDto> applications = applicationService.getAllApplicationsByEmail(email);
     return ResponseEntity.ok(applications);
   }
 
@@ -61,11 +104,79 @@ public class ApplicationController {
   }
 
   @PostMapping
-  @Operation(summary = "Создание новой заявки на тур", description = "Создает новую заявку на тур. Если в системе есть пользователь с указанным email, связывает заявку с ним")
-  public ResponseEntity<ApplicationDto> createApplication(
-      @Parameter(description = "Данные для создания заявки", required = true) @Valid @RequestBody ApplicationDto applicationDto) {
-    ApplicationDto createdApplication = applicationService.createApplication(applicationDto);
-    return ResponseEntity.status(HttpStatus.CREATED).body(createdApplication);
+  @Operation(summary = "Создание новой заявки на тур", description = "Создает новую заявку на тур. Если в системе есть пользователь с указанным email, связывает заявку с ним. Если мест нет, заявитель ставится в лист ожидания (202 с записью листа ожидания) или, при waitlist=false, возвращается 409. При async=true заявка только ставится в очередь: возвращается 202 с идентификатором для отслеживания, а при заполненной очереди или неработающем обработчике очереди - 503")
+  public ResponseEntity<?> createApplication(
+      @Parameter(description = "Данные для создания заявки", required = true) @Valid @RequestBody ApplicationDto applicationDto,
+      @Parameter(description = "Ставить в лист ожидания, если мест нет") @RequestParam(defaultValue = "true") boolean waitlist,
+      @Parameter(description = "Обработать заявку асинхронно") @RequestParam(defaultValue = "false") boolean async,
+      @Parameter(description = "Ключ идемпотентности: повтор запроса с тем же ключом вернет исходный ответ") @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+    if (idempotencyKey == null) {
+      return async ? submitApplication(applicationDto, waitlist) : createOrWaitlist(applicationDto, waitlist);
+    }
+    return idempotencyService.execute("applications", idempotencyKey, List.of(applicationDto, waitlist, async),
+        () -> async ? submitApplication(applicationDto, waitlist) : createOrWaitlist(applicationDto, waitlist));
+  }
+
+  @GetMapping("/intake/{trackingId}")
+  @Operation(summary = "Состояние асинхронной заявки", description = "Возвращает результат обработки заявки, принятой с async=true: QUEUED, CREATED, WAITLISTED, REJECTED или FAILED")
+  public ResponseEntity<ApplicationIntakeDto> getIntakeStatus(
+      @Parameter(description = "Идентификатор для отслеживания", required = true) @PathVariable String trackingId) {
+    try {
+      return ResponseEntity.ok(applicationIntakeService.getStatus(trackingId));
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+
+  private ResponseEntity<?> submitApplication(ApplicationDto applicationDto, boolean waitlist) {
+    try {
+      ApplicationIntakeDto status = applicationIntakeService.submit(applicationDto, waitlist);
+      return ResponseEntity.status(HttpStatus.ACCEPTED)
+          .header(HttpHeaders.LOCATION, "/api/applications/intake/" + status.getTrackingId())
+          .body(status);
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IntakeQueueFullException | IntakeStoppedException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+  }
+
+  private ResponseEntity<?> createOrWaitlist(ApplicationDto applicationDto, boolean waitlist) {
+    try {
+      ApplicationDto createdApplication = applicationService.createApplication(applicationDto);
+      return ResponseEntity.status(HttpStatus.CREATED).body(createdApplication);
+    } catch (NoAvailableSlotsException e) {
+      if (!waitlist) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+      }
+    } catch (IllegalStateException e) {
+      // Заявитель уже записан на тур
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+    try {
+      WaitlistEntryDto entry = waitlistService.join(applicationDto);
+      if (entry.getApplicationId() != null) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(applicationService.getApplicationById(entry.getApplicationId()));
+      }
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body(entry);
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+  }
+
+  @PostMapping("/group")
+  @Operation(summary = "Создание групповой заявки", description = "Создает по заявке на каждого участника группы. Места занимаются для всей группы сразу: если их не хватает, не создается ни одной заявки (409)")
+  public ResponseEntity<List<ApplicationDto>> createGroupApplication(
+      @Parameter(description = "Тур и участники группы", required = true) @Valid @RequestBody GroupApplicationDto groupDto) {
+    try {
+      return ResponseEntity.status(HttpStatus.CREATED).body(applicationService.createGroupApplication(groupDto));
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
   }
 
   @PutMapping("/{id}")
@@ -77,6 +188,17 @@ public class ApplicationController {
     return ResponseEntity.ok(updatedApplication);
   }
 
+  @PutMapping("/status")
+  @Operation(summary = "Массовое обновление статуса заявок", description = "Устанавливает статус всем переданным заявкам по тем же правилам, что и обновление статуса одной заявки. Возвращает результат по каждой заявке: UPDATED, UNCHANGED, NOT_FOUND или NO_SLOTS (в туре нет мест для восстановления заявки)", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<List<StatusUpdateResultDto>> updateApplicationStatuses(
+      @Parameter(description = "ID заявок и новый статус", required = true) @Valid @RequestBody BulkStatusUpdateDto request) {
+    try {
+      return ResponseEntity.ok(applicationService.updateApplicationStatuses(request.getIds(), request.getStatus()));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
   @PutMapping("/{id}/status/{status}")
   @Operation(summary = "Обновление статуса заявки", description = "Обновляет статус заявки с указанным ID. При смене статуса на REJECTED, освобождается место в туре и деактивируется связь клиент-тур", security = @SecurityRequirement(name = "bearerAuth"))
   public ResponseEntity<ApplicationDto> updateApplicationStatus(
@@ -2,6 +2,7 @@ package com.example.demo.controllers;
 
 import java.util.List;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -22,6 +23,8 @@ import com.example.demo.dto.UserInfoDto;
 import com.example.demo.models.ApplicationStatus;
 import com.example.demo.service.ApplicationService;
 import com.example.demo.service.ContactService;
+import com.example.demo.service.SearchIndexNotReadyException;
+import com.example.demo.utils.KeysetResponses;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -41,12 +44,36 @@ public class ContactController {
   private final ContactService contactService;
 
   @GetMapping("/all")
-  @Operation(summary = "Получение всех контактов", description = "Возвращает всех контактов", security = @SecurityRequirement(name = "bearerAuth"))
-  public ResponseEntity<List<ContactDto>> getAllContacts() {
+  @Operation(summary = "Получение всех контактов", description = "Возвращает всех контактов. Если передан sort, cursor или limit, возвращается одна страница, курсор следующей страницы передается в заголовке X-Next-Cursor", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<List<ContactDto>> getAllContacts(
+      @Parameter(description = "Сортировка: id, createdAt; минус в начале - по убыванию") @RequestParam(required = false) String sort,
+      @Parameter(description = "Курсор следующей страницы из заголовка X-Next-Cursor") @RequestParam(required = false) String cursor,
+      @Parameter(description = "Размер страницы (по умолчанию 50, не больше 500)") @RequestParam(required = false) Integer limit) {
+    if (KeysetResponses.isRequested(sort, cursor, limit)) {
+      try {
+        return KeysetResponses.ok(contactService.getContactsPage(sort, cursor, limit));
+      } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().build();
+      }
+    }
     List<ContactDto> contacts = contactService.getAllContacts();
     return ResponseEntity.ok(contacts);
   }
 
+  @GetMapping("/search")
+  @Operation(summary = "Поиск контактов", description = "Нечеткий поиск по ФИО, телефону и email с учетом опечаток. Контакты возвращаются по убыванию сходства с запросом", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<List<ContactDto>> searchContacts(
+      @Parameter(description = "Строка поиска: часть ФИО, номера телефона или email", required = true) @RequestParam String q,
+      @Parameter(description = "Сколько контактов вернуть (по умолчанию 20, не больше 100)") @RequestParam(defaultValue = "20") int limit) {
+    try {
+      return ResponseEntity.ok(contactService.searchContacts(q, limit));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (SearchIndexNotReadyException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+  }
+
   @PostMapping("/create")
   @Operation(summary = "Создание контакта", description = "Создает новый контакт", security = @SecurityRequirement(name = "bearerAuth"))
   public ResponseEntity<ContactDto> createContact(@RequestBody ContactDto contactDto) {
@@ -77,8 +104,18 @@ public class ContactController {
   }
 
   @GetMapping("/orphaned")
-  @Operation(summary = "Получение осиротевших контактов", description = "Возвращает контакты без связанного пользователя", security = @SecurityRequirement(name = "bearerAuth"))
-  public ResponseEntity<List<ContactDto>> getOrphanedContacts() {
+  @Operation(summary = "Получение осиротевших контактов", description = "Возвращает контакты без связанного пользователя. Если передан sort, cursor или limit, возвращается одна страница, курсор следующей страницы передается в заголовке X-Next-Cursor", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<List<ContactDto>> getOrphanedContacts(
+      @Parameter(description = "Сортировка: id, createdAt; минус в начале - по убыванию") @RequestParam(required = false) String sort,
+      @Parameter(description = "Курсор следующей страницы из заголовка X-Next-Cursor") @RequestParam(required = false) String cursor,
+      @Parameter(description = "Размер страницы (по умолчанию 50, не больше 500)") @RequestParam(required = false) Integer limit) {
+    if (KeysetResponses.isRequested(sort, cursor, limit)) {
+      try {
+        return KeysetResponses.ok(contactService.getOrphanedContactsPage(sort, cursor, limit));
+      } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().build();
+      }
+    }
     List<ContactDto> orphanedContacts = contactService.getOrphanedContacts();
     return ResponseEntity.ok(orphanedContacts);
   }
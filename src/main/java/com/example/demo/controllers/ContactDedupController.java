@@ -0,0 +1,47 @@
+package com.example.demo.controllers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.dto.ContactDedupReportDto;
+import com.example.demo.service.ContactDedupService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/admin/contacts")
+@Tag(name = "Администрирование", description = "Служебные операции")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+public class ContactDedupController {
+
+  private final ContactDedupService contactDedupService;
+
+  @GetMapping("/dedup")
+  @Operation(summary = "Результат последнего поиска дубликатов контактов", description = "Возвращает отчет последнего планового или ручного поиска дубликатов; 204, если поиск еще не выполнялся", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<ContactDedupReportDto> getLastReport() {
+    ContactDedupReportDto report = contactDedupService.getLastReport();
+    return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+  }
+
+  @PostMapping("/dedup")
+  @Operation(summary = "Поиск и слияние дубликатов контактов", description = "Находит контакты с совпадающими email или телефоном (без учета регистра и формата) и похожими ФИО. При dryRun=false дубликаты сливаются: заявки и записи на туры переносятся на остающийся контакт, дубликаты удаляются", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<?> run(
+      @Parameter(description = "Только найти дубликаты, не сливая их") @RequestParam(defaultValue = "true") boolean dryRun) {
+    try {
+      return ResponseEntity.ok(contactDedupService.run(dryRun));
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+  }
+}
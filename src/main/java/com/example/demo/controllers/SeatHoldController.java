@@ -0,0 +1,86 @@
+package com.example.demo.controllers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.dto.ApplicationDto;
+import com.example.demo.dto.SeatHoldDto;
+import com.example.demo.dto.SeatHoldRequestDto;
+import com.example.demo.service.SeatHoldService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/holds")
+@Tag(name = "Брони мест", description = "API временных броней мест на время оформления заявки")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+public class SeatHoldController {
+
+  private final SeatHoldService seatHoldService;
+
+  @PostMapping
+  @Operation(summary = "Создание брони места", description = "Занимает место в туре на ограниченное время. Возвращает ID брони и время ее окончания; 409, если мест нет")
+  public ResponseEntity<SeatHoldDto> createHold(
+      @Parameter(description = "Тур для брони", required = true) @Valid @RequestBody SeatHoldRequestDto request) {
+    try {
+      return ResponseEntity.status(HttpStatus.CREATED).body(seatHoldService.createHold(request.getTourId()));
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+  }
+
+  @GetMapping("/{id}")
+  @Operation(summary = "Получение брони", description = "Возвращает статус брони и время ее окончания")
+  public ResponseEntity<SeatHoldDto> getHold(
+      @Parameter(description = "ID брони", required = true) @PathVariable Long id) {
+    try {
+      return ResponseEntity.ok(seatHoldService.getHold(id));
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+
+  @PostMapping("/{id}/confirm")
+  @Operation(summary = "Подтверждение брони", description = "Создает заявку на удерживаемое место. Тур заявки берется из брони; 409, если бронь истекла, снята или уже подтверждена")
+  public ResponseEntity<ApplicationDto> confirmHold(
+      @Parameter(description = "ID брони", required = true) @PathVariable Long id,
+      @Parameter(description = "Данные заявки", required = true) @RequestBody ApplicationDto applicationDto) {
+    try {
+      return ResponseEntity.status(HttpStatus.CREATED).body(seatHoldService.confirmHold(id, applicationDto));
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+  }
+
+  @DeleteMapping("/{id}")
+  @Operation(summary = "Снятие брони", description = "Возвращает удерживаемое место в тур")
+  public ResponseEntity<Void> releaseHold(
+      @Parameter(description = "ID брони", required = true) @PathVariable Long id) {
+    try {
+      seatHoldService.releaseHold(id);
+      return ResponseEntity.noContent().build();
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+  }
+}
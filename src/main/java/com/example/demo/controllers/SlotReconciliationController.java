@@ -0,0 +1,42 @@
+package com.example.demo.controllers;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.dto.SlotReconciliationReportDto;
+import com.example.demo.service.SlotReconciliationService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/admin/slots")
+@Tag(name = "Администрирование", description = "Служебные операции")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+public class SlotReconciliationController {
+
+  private final SlotReconciliationService slotReconciliationService;
+
+  @GetMapping("/reconciliation")
+  @Operation(summary = "Результат последней сверки мест", description = "Возвращает результат последней плановой или ручной сверки счетчиков свободных мест; 204, если сверка еще не выполнялась", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<SlotReconciliationReportDto> getLastReport() {
+    SlotReconciliationReportDto report = slotReconciliationService.getLastReport();
+    return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+  }
+
+  @PostMapping("/reconciliation")
+  @Operation(summary = "Сверка мест", description = "Сверяет счетчики свободных мест всех туров с активными записями на туры и бронями и при repair=true исправляет расхождения", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<SlotReconciliationReportDto> reconcile(
+      @Parameter(description = "Исправить найденные расхождения") @RequestParam(defaultValue = "false") boolean repair) {
+    return ResponseEntity.ok(slotReconciliationService.reconcile(repair));
+  }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.controllers;
+
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.service.SlotShardService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/admin/slots/shards")
+@Tag(name = "Администрирование", description = "Служебные операции")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+public class SlotShardController {
+
+  private final SlotShardService slotShardService;
+
+  @GetMapping("/{tourId}")
+  @Operation(summary = "Счетчики мест тура", description = "Возвращает количество счетчиков, между которыми разделены свободные места тура (1 - тур не разделен)", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<Map<String, Object>> getShardCount(
+      @Parameter(description = "ID тура", required = true) @PathVariable Long tourId) {
+    try {
+      return ResponseEntity.ok(Map.of("tourId", tourId, "shards", slotShardService.getShardCount(tourId)));
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+
+  @PutMapping("/{tourId}")
+  @Operation(summary = "Разделение мест тура", description = "Делит свободные места популярного тура между несколькими счетчиками, чтобы параллельные бронирования не ждали друг друга; count=1 возвращает тур к одному счетчику", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<?> configure(
+      @Parameter(description = "ID тура", required = true) @PathVariable Long tourId,
+      @Parameter(description = "Количество счетчиков", required = true) @RequestParam int count) {
+    try {
+      slotShardService.configure(tourId, count);
+      return ResponseEntity.ok(Map.of("tourId", tourId, "shards", count));
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+  }
+}
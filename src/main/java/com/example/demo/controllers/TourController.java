@@ -1,33 +1,61 @@
 package com.example.demo.controllers;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.demo.dto.TourDetailsDto;
 import com.example.demo.dto.TourDto;
+import com.example.demo.dto.TourMediaInfo;
+import com.example.demo.dto.TourSearchCriteria;
+import com.example.demo.dto.TourSearchResult;
+import com.example.demo.dto.TourSummaryDto;
+import com.example.demo.models.TourMediaKind;
+import com.example.demo.service.SearchIndexNotReadyException;
+import com.example.demo.service.TourMediaService;
+import com.example.demo.service.TourSearchService;
 import com.example.demo.service.TourService;
+import com.example.demo.storage.BlobTooLargeException;
+import com.example.demo.utils.KeysetResponses;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
@@ -38,15 +66,49 @@ import lombok.RequiredArgsConstructor;
 @CrossOrigin(origins = "http://localhost:3000")
 public class TourController {
 
+  // Атрибуты запроса, через которые Tomcat передает файл с помощью sendfile
+  private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+  private static final Pattern ENTITY_TAG = Pattern.compile("\\*|(?:W/)?\"[^\"]*\"");
+
   private final TourService tourService;
+  private final TourMediaService tourMediaService;
+  private final TourSearchService tourSearchService;
+
+  @Value("${media.cache-max-age:10m}")
+  private Duration mediaCacheMaxAge;
 
   @GetMapping
-  @Operation(summary = "Получение списка всех туров", description = "Возвращает список всех доступных туров")
-  public ResponseEntity<List<TourDto>> getAllTours() {
-    List<TourDto> tours = tourService.getAllTours();
+  @Operation(summary = "Получение списка всех туров", description = "Возвращает список всех доступных туров без изображений и файлов. Медиа загружаются по ссылкам imageUrl и fileUrl. Если передан sort, cursor или limit, возвращается одна страница, курсор следующей страницы передается в заголовке X-Next-Cursor")
+  public ResponseEntity<List<TourSummaryDto>> getAllTours(
+      @Parameter(description = "Сортировка: id, createdAt, startDate, price; минус в начале - по убыванию") @RequestParam(required = false) String sort,
+      @Parameter(description = "Курсор следующей страницы из заголовка X-Next-Cursor") @RequestParam(required = false) String cursor,
+      @Parameter(description = "Размер страницы (по умолчанию 50, не больше 500)") @RequestParam(required = false) Integer limit) {
+    if (KeysetResponses.isRequested(sort, cursor, limit)) {
+      try {
+        return KeysetResponses.ok(tourService.getToursPage(sort, cursor, limit));
+      } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().build();
+      }
+    }
+    List<TourSummaryDto> tours = tourService.getAllTours();
     return ResponseEntity.ok(tours);
   }
 
+  @GetMapping("/search")
+  @Operation(summary = "Поиск туров", description = "Полнотекстовый поиск по названию и описанию с фильтрами, сортировкой и постраничным выводом. Возвращает также количество туров по значениям страны, сезона, типа и признака закрытия регистрации")
+  public ResponseEntity<TourSearchResult> searchTours(@ParameterObject @ModelAttribute TourSearchCriteria criteria) {
+    try {
+      return ResponseEntity.ok(tourSearchService.search(criteria));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (SearchIndexNotReadyException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+  }
+
   @GetMapping("/{id}")
   @Operation(summary = "Получение информации о туре по ID", description = "Возвращает информацию о туре по указанному ID")
   public ResponseEntity<?> getTourById(
@@ -54,111 +116,121 @@ public class TourController {
       @Parameter(description = "Тип содержимого для возврата (data, image, file)", required = false) @RequestParam(required = false, defaultValue = "data") String contentType) {
 
     try {
-      TourDto tour = tourService.getTourById(id);
-
-      // Возвращаем изображение, если запрошено
-      if ("image".equals(contentType)) {
-        if (tour.getImageData() == null) {
-          return ResponseEntity.notFound().build();
-        }
-
-        return ResponseEntity.ok()
-            .contentType(MediaType
-                .parseMediaType(tour.getImageType() != null ? tour.getImageType() : "application/octet-stream"))
-            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" +
-                (tour.getImageName() != null ? tour.getImageName() : "image.jpg") + "\"")
-            .body(tour.getImageData());
-      }
-
-      // Возвращаем файл, если запрошен
-      if ("file".equals(contentType)) {
-        if (tour.getFileData() == null) {
-          return ResponseEntity.notFound().build();
-        }
-
-        return ResponseEntity.ok()
-            .contentType(
-                MediaType.parseMediaType(tour.getFileType() != null ? tour.getFileType() : "application/octet-stream"))
-            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" +
-                (tour.getFileName() != null ? tour.getFileName() : "document.pdf") + "\"")
-            .body(tour.getFileData());
-      }
-
       // По умолчанию возвращаем данные тура
-      return ResponseEntity.ok(tour);
+      return ResponseEntity.ok(tourService.getTourById(id));
     } catch (EntityNotFoundException e) {
       return ResponseEntity.notFound().build();
     }
   }
 
+  // Изображение и файл по старым ссылкам (?contentType=image|file) передаются
+  // потоком так же, как через отдельные эндпоинты
+  @GetMapping(value = "/{id}", params = "contentType=image")
+  @Operation(hidden = true)
+  public ResponseEntity<StreamingResponseBody> getTourImageByContentType(@PathVariable Long id,
+      @RequestParam(required = false) Integer size, @RequestHeader HttpHeaders requestHeaders,
+      HttpServletRequest request) {
+    return mediaResponse(id, TourMediaKind.IMAGE, size, requestHeaders, request);
+  }
+
+  @GetMapping(value = "/{id}", params = "contentType=file")
+  @Operation(hidden = true)
+  public ResponseEntity<StreamingResponseBody> getTourFileByContentType(@PathVariable Long id,
+      @RequestHeader HttpHeaders requestHeaders, HttpServletRequest request) {
+    return mediaResponse(id, TourMediaKind.FILE, null, requestHeaders, request);
+  }
+
+  @GetMapping("/{id}/image")
+  @Operation(summary = "Загрузка изображения тура", description = "Передает изображение тура потоком. Поддерживает заголовки Range, If-Range и If-None-Match. С параметром size возвращается уменьшенная копия (160, 480 или 1024 пикселей по ширине)")
+  public ResponseEntity<StreamingResponseBody> getTourImage(
+      @Parameter(description = "ID тура", required = true) @PathVariable Long id,
+      @Parameter(description = "Нужная ширина изображения в пикселях", example = "480") @RequestParam(required = false) Integer size,
+      @Parameter(hidden = true) @RequestHeader HttpHeaders requestHeaders, HttpServletRequest request) {
+    return mediaResponse(id, TourMediaKind.IMAGE, size, requestHeaders, request);
+  }
+
+  @GetMapping("/{id}/file")
+  @Operation(summary = "Загрузка файла с описанием тура", description = "Передает файл с описанием тура потоком. Поддерживает заголовки Range, If-Range и If-None-Match")
+  public ResponseEntity<StreamingResponseBody> getTourFile(
+      @Parameter(description = "ID тура", required = true) @PathVariable Long id,
+      @Parameter(hidden = true) @RequestHeader HttpHeaders requestHeaders, HttpServletRequest request) {
+    return mediaResponse(id, TourMediaKind.FILE, null, requestHeaders, request);
+  }
+
   @PostMapping
   @Operation(summary = "Создание нового тура", description = "Создает новый тур и возвращает информацию о нем", security = @SecurityRequirement(name = "bearerAuth"))
-  public ResponseEntity<TourDto> createTour(
+  public ResponseEntity<TourDetailsDto> createTour(
       @Parameter(description = "Данные для создания тура", required = true) @Valid @RequestPart("tour") TourDto tourDto,
       @Parameter(description = "Изображение тура") @RequestPart(value = "image", required = false) MultipartFile imageFile,
       @Parameter(description = "Файл с описанием тура") @RequestPart(value = "file", required = false) MultipartFile descFile) {
 
     try {
-      // Добавляем файлы, если они были переданы
-      if (imageFile != null && !imageFile.isEmpty()) {
-        tourDto.setImageData(imageFile.getBytes());
-        tourDto.setImageName(imageFile.getOriginalFilename());
-        tourDto.setImageType(imageFile.getContentType());
-      }
-
-      if (descFile != null && !descFile.isEmpty()) {
-        tourDto.setFileData(descFile.getBytes());
-        tourDto.setFileName(descFile.getOriginalFilename());
-        tourDto.setFileType(descFile.getContentType());
-      }
-
-      TourDto createdTour = tourService.createTour(tourDto);
+      TourDetailsDto createdTour = tourService.createTour(tourDto, imageFile, descFile);
       return ResponseEntity.status(HttpStatus.CREATED).body(createdTour);
+    } catch (BlobTooLargeException e) {
+      return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
     } catch (IOException e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
     }
   }
 
   @PutMapping("/{id}")
-  @Operation(summary = "Обновление информации о туре", description = "Обновляет информацию о туре с указанным ID", security = @SecurityRequirement(name = "bearerAuth"))
-  public ResponseEntity<TourDto> updateTour(
+  @Operation(summary = "Обновление информации о туре", description = "Обновляет информацию о туре с указанным ID. Количество свободных мест меняется только бронированиями; при изменении totalSlots оно сдвигается на ту же величину", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<TourSummaryDto> updateTour(
       @Parameter(description = "ID тура", required = true) @PathVariable Long id,
       @Parameter(description = "Обновленные данные тура", required = true) @Valid @RequestPart("tour") TourDto tourDto,
       @Parameter(description = "Изображение тура") @RequestPart(value = "image", required = false) MultipartFile imageFile,
       @Parameter(description = "Файл с описанием тура") @RequestPart(value = "file", required = false) MultipartFile descFile) {
 
     try {
-      // Получаем текущие данные тура
-      TourDto existingTour = tourService.getTourById(id);
-
-      // Если новые файлы не предоставлены, сохраняем существующие
-      if (imageFile == null || imageFile.isEmpty()) {
-        tourDto.setImageData(existingTour.getImageData());
-        tourDto.setImageName(existingTour.getImageName());
-        tourDto.setImageType(existingTour.getImageType());
-      } else {
-        tourDto.setImageData(imageFile.getBytes());
-        tourDto.setImageName(imageFile.getOriginalFilename());
-        tourDto.setImageType(imageFile.getContentType());
-      }
-
-      if (descFile == null || descFile.isEmpty()) {
-        tourDto.setFileData(existingTour.getFileData());
-        tourDto.setFileName(existingTour.getFileName());
-        tourDto.setFileType(existingTour.getFileType());
-      } else {
-        tourDto.setFileData(descFile.getBytes());
-        tourDto.setFileName(descFile.getOriginalFilename());
-        tourDto.setFileType(descFile.getContentType());
-      }
-
-      TourDto updatedTour = tourService.updateTour(id, tourDto);
+      // Изображение и файл заменяются, только если переданы новые
+      TourSummaryDto updatedTour = tourService.updateTour(id, tourDto, imageFile, descFile);
       return ResponseEntity.ok(updatedTour);
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    } catch (BlobTooLargeException e) {
+      return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
     } catch (IOException e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
     }
   }
 
+  @PatchMapping(value = "/{id}", consumes = { "application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE })
+  @Operation(summary = "Частичное обновление тура", description = "Изменяет только переданные поля тура (JSON Merge Patch). Изображение и файл не затрагиваются, количество свободных мест меняется только бронированиями; при изменении totalSlots оно сдвигается на ту же величину", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<?> patchTour(
+      @Parameter(description = "ID тура", required = true) @PathVariable Long id,
+      @Parameter(description = "Изменяемые поля тура", required = true) @RequestBody JsonNode patch) {
+    try {
+      return ResponseEntity.ok(tourService.patchTour(id, patch));
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+  }
+
+  @PutMapping("/{id}/image")
+  @Operation(summary = "Замена изображения тура", description = "Заменяет изображение тура, остальные данные тура не изменяются", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<Void> replaceTourImage(
+      @Parameter(description = "ID тура", required = true) @PathVariable Long id,
+      @Parameter(description = "Новое изображение тура", required = true) @RequestPart("image") MultipartFile imageFile) {
+    return replaceMedia(id, TourMediaKind.IMAGE, imageFile);
+  }
+
+  @PutMapping("/{id}/file")
+  @Operation(summary = "Замена файла с описанием тура", description = "Заменяет файл с описанием тура, остальные данные тура не изменяются", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<Void> replaceTourFile(
+      @Parameter(description = "ID тура", required = true) @PathVariable Long id,
+      @Parameter(description = "Новый файл с описанием тура", required = true) @RequestPart("file") MultipartFile descFile) {
+    return replaceMedia(id, TourMediaKind.FILE, descFile);
+  }
+
   @DeleteMapping("/{id}")
   @Operation(summary = "Удаление тура", description = "Удаляет тур с указанным ID", security = @SecurityRequirement(name = "bearerAuth"))
   public ResponseEntity<Void> deleteTour(
@@ -166,4 +238,144 @@ public class TourController {
     tourService.deleteTour(id);
     return ResponseEntity.noContent().build();
   }
-}
\ No newline at end of file
+
+  /**
+   * Заменяет изображение или файл тура
+   */
+  private ResponseEntity<Void> replaceMedia(Long id, TourMediaKind kind, MultipartFile file) {
+    try {
+      tourService.replaceMedia(id, kind, file);
+      return ResponseEntity.noContent().build();
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (BlobTooLargeException e) {
+      return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+    } catch (IOException e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    }
+  }
+
+  /**
+   * Формирует ответ с изображением или файлом тура.
+   * Поддерживает условные запросы по ETag и один диапазон байт (206 Partial
+   * Content); при нескольких диапазонах возвращается весь файл.
+   * Медиа из хранилища файлов передается Tomcat через sendfile - данные идут из
+   * файла в сокет без копирования через приложение
+   */
+  private ResponseEntity<StreamingResponseBody> mediaResponse(Long id, TourMediaKind kind, Integer width,
+      HttpHeaders requestHeaders, HttpServletRequest request) {
+    TourMediaInfo media;
+    try {
+      media = kind == TourMediaKind.IMAGE
+          ? tourMediaService.getImageInfo(id, width)
+          : tourMediaService.getMediaInfo(id, kind);
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    }
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag(media.getEtag());
+    headers.setCacheControl(CacheControl.maxAge(mediaCacheMaxAge).cachePublic());
+    headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+    // У клиента уже есть актуальная версия
+    if (matchesIfNoneMatch(requestHeaders, media.getEtag())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+    }
+
+    boolean isImage = kind == TourMediaKind.IMAGE;
+    headers.setContentType(MediaType.parseMediaType(
+        media.getContentType() != null ? media.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE));
+    String fileName = media.getName() != null ? media.getName() : (isImage ? "image.jpg" : "document.pdf");
+    ContentDisposition.Builder disposition = ContentDisposition.builder(isImage ? "inline" : "attachment");
+    headers.setContentDisposition(StandardCharsets.US_ASCII.newEncoder().canEncode(fileName)
+        ? disposition.filename(fileName).build()
+        : disposition.filename(fileName, StandardCharsets.UTF_8).build());
+
+    long size = media.getSize();
+    long start = 0;
+    long length = size;
+    HttpStatus status = HttpStatus.OK;
+
+    List<HttpRange> ranges = requestedRanges(requestHeaders, media.getEtag());
+    if (ranges.size() == 1 && size > 0) {
+      long end;
+      try {
+        start = ranges.get(0).getRangeStart(size);
+        end = ranges.get(0).getRangeEnd(size);
+      } catch (IllegalArgumentException e) {
+        start = size;
+        end = size - 1;
+      }
+      if (start >= size || end < start) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+            .build();
+      }
+      length = end - start + 1;
+      status = HttpStatus.PARTIAL_CONTENT;
+      headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+    }
+    headers.setContentLength(length);
+
+    Optional<Path> localFile = tourMediaService.getLocalFile(media);
+    if (localFile.isPresent() && length > 0 && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+      request.setAttribute(SENDFILE_FILENAME, localFile.get().toString());
+      request.setAttribute(SENDFILE_START, start);
+      request.setAttribute(SENDFILE_END, start + length);
+      return ResponseEntity.status(status).headers(headers).build();
+    }
+
+    long from = start;
+    long count = length;
+    return ResponseEntity.status(status)
+        .headers(headers)
+        .body(out -> tourMediaService.writeMedia(media, from, count, out));
+  }
+
+  /**
+   * Проверка If-None-Match по RFC 9110: заголовок может содержать список
+   * ETag через запятую (в том числе в нескольких заголовках) или "*", ETag
+   * сравниваются без учета признака слабого валидатора W/
+   */
+  private static boolean matchesIfNoneMatch(HttpHeaders requestHeaders, String etag) {
+    List<String> values = requestHeaders.get(HttpHeaders.IF_NONE_MATCH);
+    if (values == null || etag == null) {
+      return false;
+    }
+    String opaqueTag = weakComparable(etag);
+    for (String value : values) {
+      Matcher matcher = ENTITY_TAG.matcher(value);
+      while (matcher.find()) {
+        String candidate = matcher.group();
+        if (candidate.equals("*") || weakComparable(candidate).equals(opaqueTag)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static String weakComparable(String etag) {
+    return etag.startsWith("W/") ? etag.substring(2) : etag;
+  }
+
+  /**
+   * Диапазоны из заголовка Range. Некорректный заголовок и If-Range с
+   * устаревшим или слабым ETag (If-Range требует строгого сравнения)
+   * игнорируются - тогда отдается весь файл
+   */
+  private List<HttpRange> requestedRanges(HttpHeaders requestHeaders, String etag) {
+    String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+    if (ifRange != null && !ifRange.equals(etag)) {
+      return List.of();
+    }
+    try {
+      return requestHeaders.getRange();
+    } catch (IllegalArgumentException e) {
+      return List.of();
+    }
+  }
+}
@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestBody;
 
@@ -22,6 +23,7 @@ import com.example.demo.repository.ContactRepository;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.service.ContactService;
 import com.example.demo.service.UserService;
+import com.example.demo.utils.KeysetResponses;
 import org.springframework.web.bind.annotation.PostMapping;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -69,15 +71,35 @@ public class UserController {
   }
 
   @GetMapping("/all-tourists")
-  @Operation(summary = "Получение всех туристов", description = "Возвращает всех туристов", security = @SecurityRequirement(name = "bearerAuth"))
-  public ResponseEntity<List<UserInfoDto>> getAllTourists() {
+  @Operation(summary = "Получение всех туристов", description = "Возвращает всех туристов. Если передан sort, cursor или limit, возвращается одна страница, курсор следующей страницы передается в заголовке X-Next-Cursor", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<List<UserInfoDto>> getAllTourists(
+      @Parameter(description = "Сортировка: id, createdAt; минус в начале - по убыванию") @RequestParam(required = false) String sort,
+      @Parameter(description = "Курсор следующей страницы из заголовка X-Next-Cursor") @RequestParam(required = false) String cursor,
+      @Parameter(description = "Размер страницы (по умолчанию 50, не больше 500)") @RequestParam(required = false) Integer limit) {
+    if (KeysetResponses.isRequested(sort, cursor, limit)) {
+      try {
+        return KeysetResponses.ok(userService.getUsersPage(UserRole.TOURIST, sort, cursor, limit));
+      } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().build();
+      }
+    }
     List<UserInfoDto> tourists = userService.getAllTourists();
     return ResponseEntity.ok(tourists);
   }
 
   @GetMapping("/all-employees")
-  @Operation(summary = "Получение всех сотрудников", description = "Возвращает всех сотрудников", security = @SecurityRequirement(name = "bearerAuth"))
-  public ResponseEntity<List<UserInfoDto>> getAllEmployees() {
+  @Operation(summary = "Получение всех сотрудников", description = "Возвращает всех сотрудников. Если передан sort, cursor или limit, возвращается одна страница, курсор следующей страницы передается в заголовке X-Next-Cursor", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<List<UserInfoDto>> getAllEmployees(
+      @Parameter(description = "Сортировка: id, createdAt; минус в начале - по убыванию") @RequestParam(required = false) String sort,
+      @Parameter(description = "Курсор следующей страницы из заголовка X-Next-Cursor") @RequestParam(required = false) String cursor,
+      @Parameter(description = "Размер страницы (по умолчанию 50, не больше 500)") @RequestParam(required = false) Integer limit) {
+    if (KeysetResponses.isRequested(sort, cursor, limit)) {
+      try {
+        return KeysetResponses.ok(userService.getUsersPage(UserRole.EMPLOYEE, sort, cursor, limit));
+      } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().build();
+      }
+    }
     List<UserInfoDto> employees = userService.getAllEmployees();
     return ResponseEntity.ok(employees);
   }
@@ -0,0 +1,62 @@
+package com.example.demo.controllers;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.dto.WaitlistEntryDto;
+import com.example.demo.service.WaitlistService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/waitlist")
+@Tag(name = "Лист ожидания", description = "API для работы с листом ожидания туров")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+public class WaitlistController {
+
+  private final WaitlistService waitlistService;
+
+  @GetMapping
+  @Operation(summary = "Лист ожидания тура", description = "Возвращает ожидающие записи тура в порядке очереди", security = @SecurityRequirement(name = "bearerAuth"))
+  public ResponseEntity<List<WaitlistEntryDto>> getWaitlist(
+      @Parameter(description = "ID тура", required = true) @RequestParam Long tourId) {
+    return ResponseEntity.ok(waitlistService.getWaitlist(tourId));
+  }
+
+  @GetMapping("/{id}")
+  @Operation(summary = "Запись листа ожидания", description = "Возвращает статус записи и, если она ожидает, ее место в очереди")
+  public ResponseEntity<WaitlistEntryDto> getEntry(
+      @Parameter(description = "ID записи", required = true) @PathVariable Long id) {
+    try {
+      return ResponseEntity.ok(waitlistService.getEntry(id));
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+
+  @DeleteMapping("/{id}")
+  @Operation(summary = "Отмена записи листа ожидания", description = "Убирает ожидающую запись из очереди")
+  public ResponseEntity<Void> cancel(
+      @Parameter(description = "ID записи", required = true) @PathVariable Long id) {
+    try {
+      waitlistService.cancel(id);
+      return ResponseEntity.noContent().build();
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Состояние заявки, принятой в асинхронную обработку")
+public class ApplicationIntakeDto {
+
+  @Schema(description = "Идентификатор для отслеживания", example = "3f6c1a52-8d0e-4a4b-9d8e-2b1f0c7a9e11")
+  private String trackingId;
+
+  @Schema(description = "Состояние обработки", example = "QUEUED")
+  private Status status;
+
+  @Schema(description = "ID тура", example = "1")
+  private Long tourId;
+
+  @Schema(description = "ID созданной заявки", example = "1")
+  private Long applicationId;
+
+  @Schema(description = "ID записи листа ожидания", example = "1")
+  private Long waitlistEntryId;
+
+  @Schema(description = "Причина отказа или ошибки", example = "В туре нет доступных мест")
+  private String message;
+
+  @Schema(description = "Дата и время приема заявки")
+  private LocalDateTime submittedAt;
+
+  @Schema(description = "Дата и время завершения обработки")
+  private LocalDateTime completedAt;
+
+  @Schema(description = "Состояния асинхронной обработки заявки")
+  public enum Status {
+    QUEUED, // Ожидает обработки
+    CREATED, // Заявка создана
+    WAITLISTED, // Мест нет, заявитель в листе ожидания
+    REJECTED, // Мест нет, лист ожидания не запрошен
+    FAILED // Заявку не удалось создать
+  }
+}
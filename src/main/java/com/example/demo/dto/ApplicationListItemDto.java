@@ -0,0 +1,80 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.demo.models.ApplicationStatus;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Заявка в списке заявок: поля заявки и краткие сведения о туре, контакте и связи клиент-тур. "
+    + "Полная информация о туре загружается отдельно по tourId")
+public class ApplicationListItemDto {
+
+  @Schema(description = "Уникальный идентификатор заявки", example = "1")
+  private Long id;
+
+  @Schema(description = "ФИО заявителя", example = "Иванов Иван Иванович")
+  private String fullName;
+
+  @Schema(description = "Номер телефона", example = "+79001234567")
+  private String phoneNumber;
+
+  @Schema(description = "Email", example = "ivan@example.com")
+  private String email;
+
+  @Schema(description = "ID пользователя, если заявка от зарегистрированного пользователя", example = "1")
+  private Long userId;
+
+  @Schema(description = "Статус заявки", example = "PENDING")
+  private ApplicationStatus status;
+
+  @Schema(description = "Дата и время создания")
+  private LocalDateTime createdAt;
+
+  @Schema(description = "Дата и время последнего обновления")
+  private LocalDateTime updatedAt;
+
+  @Schema(description = "ID тура", example = "1")
+  private Long tourId;
+
+  @Schema(description = "Название тура", example = "Пляжный отдых в Турции")
+  private String tourName;
+
+  @Schema(description = "Дата начала тура", example = "2023-06-15T00:00:00")
+  private LocalDateTime tourStartDate;
+
+  @Schema(description = "Дата окончания тура", example = "2023-06-25T00:00:00")
+  private LocalDateTime tourEndDate;
+
+  @Schema(description = "Цена тура", example = "10000")
+  private Double tourPrice;
+
+  @Schema(description = "ID контакта", example = "1")
+  private Long contactId;
+
+  @Schema(description = "ФИО контакта", example = "Иванов Иван Иванович")
+  private String contactFullName;
+
+  @Schema(description = "Email контакта", example = "ivan@example.com")
+  private String contactEmail;
+
+  @Schema(description = "Номер телефона контакта", example = "+79001234567")
+  private String contactPhoneNumber;
+
+  @Schema(description = "Признак, что контакт является клиентом", example = "true")
+  private Boolean contactIsClient;
+
+  @Schema(description = "ID связи клиент-тур, созданной по заявке", example = "1")
+  private Long clientTourId;
+
+  @Schema(description = "Признак активности связи клиент-тур", example = "true")
+  private Boolean clientTourActive;
+}
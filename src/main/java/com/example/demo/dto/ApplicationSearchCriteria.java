@@ -0,0 +1,51 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import com.example.demo.models.ApplicationStatus;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Параметры поиска заявок")
+public class ApplicationSearchCriteria {
+
+  @Schema(description = "Статусы заявки (любой из перечисленных)", example = "PENDING")
+  private List<ApplicationStatus> status;
+
+  @Schema(description = "ID тура", example = "1")
+  private Long tourId;
+
+  @Schema(description = "Email заявителя", example = "ivan@example.com")
+  private String email;
+
+  @Schema(description = "Начало ФИО заявителя (без учета регистра)", example = "иванов")
+  private String fullName;
+
+  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+  @Schema(description = "Заявка создана не раньше даты", example = "2025-06-01")
+  private LocalDate createdFrom;
+
+  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+  @Schema(description = "Заявка создана не позже даты", example = "2025-06-30")
+  private LocalDate createdTo;
+
+  @Schema(description = "Сортировка: id, createdAt, updatedAt; минус в начале - по убыванию", example = "-createdAt")
+  private String sort;
+
+  @Schema(description = "Курсор следующей страницы из заголовка X-Next-Cursor")
+  private String cursor;
+
+  @Schema(description = "Размер страницы (по умолчанию 50, не больше 500)", example = "50")
+  private Integer limit;
+}
@@ -0,0 +1,29 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import com.example.demo.models.ApplicationStatus;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO для изменения статуса нескольких заявок")
+public class BulkStatusUpdateDto {
+
+  @NotEmpty(message = "Список заявок не может быть пустым")
+  @Schema(description = "ID заявок", example = "[1, 2, 3]", required = true)
+  private List<Long> ids;
+
+  @NotNull(message = "Статус обязателен")
+  @Schema(description = "Новый статус заявок", example = "REJECTED", required = true)
+  private ApplicationStatus status;
+}
@@ -0,0 +1,51 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Результат поиска и слияния дубликатов контактов")
+public class ContactDedupReportDto {
+
+  @Schema(description = "Дата и время начала")
+  private LocalDateTime startedAt;
+
+  @Schema(description = "Длительность в миллисекундах", example = "5400")
+  private long durationMs;
+
+  @Schema(description = "Пробный запуск: дубликаты только найдены, но не слиты", example = "true")
+  private boolean dryRun;
+
+  @Schema(description = "Количество проверенных контактов", example = "1000000")
+  private long checkedContacts;
+
+  @Schema(description = "Количество контактов с общим email или телефоном", example = "42000")
+  private int candidateContacts;
+
+  @Schema(description = "Количество пропущенных слишком больших групп с общим email или телефоном", example = "2")
+  private int oversizedBuckets;
+
+  @Schema(description = "Количество групп дубликатов", example = "20000")
+  private int groupCount;
+
+  @Schema(description = "Количество дубликатов, которые можно слить", example = "21000")
+  private int duplicateCount;
+
+  @Schema(description = "Количество слитых и удаленных дубликатов", example = "21000")
+  private int mergedCount;
+
+  @Schema(description = "Количество похожих контактов, которые нельзя слить", example = "15")
+  private int skippedCount;
+
+  @Schema(description = "Группы дубликатов (не больше заданного количества)")
+  private List<ContactMergeGroupDto> groups;
+}
@@ -0,0 +1,32 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Группа дубликатов контакта")
+public class ContactMergeGroupDto {
+
+  @Schema(description = "ID контакта, который остается после слияния", example = "1")
+  private Long survivorId;
+
+  @Schema(description = "ID дубликатов, сливаемых с контактом", example = "[15, 342]")
+  private List<Long> duplicateIds;
+
+  @Schema(description = "ID похожих контактов, которые нельзя слить: связаны с другим пользователем или записаны на тот же тур", example = "[]")
+  private List<Long> skippedIds;
+
+  @Schema(description = "Наименьшая оценка сходства пар группы от 0 до 1", example = "0.85")
+  private double score;
+
+  @Schema(description = "Слиты ли дубликаты", example = "true")
+  private boolean merged;
+}
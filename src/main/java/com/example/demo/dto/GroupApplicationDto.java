@@ -0,0 +1,29 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO групповой заявки: по одной заявке на каждого участника")
+public class GroupApplicationDto {
+
+  @NotNull(message = "ID тура обязателен")
+  @Schema(description = "ID тура", example = "1", required = true)
+  private Long tourId;
+
+  @Valid
+  @NotEmpty(message = "Список участников не может быть пустым")
+  @Schema(description = "Участники группы", required = true)
+  private List<TravellerDto> travellers;
+}
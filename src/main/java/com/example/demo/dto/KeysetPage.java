@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Страница списка при постраничном выводе по ключу сортировки
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeysetPage<T> {
+
+  private List<T> items;
+
+  // Курсор следующей страницы, null - страница последняя
+  private String nextCursor;
+
+  public <R> KeysetPage<R> map(Function<T, R> mapper) {
+    return new KeysetPage<>(items.stream().map(mapper).toList(), nextCursor);
+  }
+}
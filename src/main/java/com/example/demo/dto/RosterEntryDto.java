@@ -0,0 +1,49 @@
+package com.example.demo.dto;
+
+import com.example.demo.models.AgeGroup;
+import com.example.demo.models.ApplicationStatus;
+import com.example.demo.models.Gender;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Участник тура в списке участников")
+public class RosterEntryDto {
+
+  @Schema(description = "ID связи клиент-тур", example = "1")
+  private Long clientTourId;
+
+  @Schema(description = "ID контакта", example = "1")
+  private Long contactId;
+
+  @Schema(description = "ФИО участника", example = "Иванов Иван Иванович")
+  private String fullName;
+
+  @Schema(description = "Номер телефона", example = "+79001234567")
+  private String phoneNumber;
+
+  @Schema(description = "Email", example = "ivan@example.com")
+  private String email;
+
+  @Schema(description = "Возрастная группа", example = "AGE_26_35")
+  private AgeGroup ageGroup;
+
+  @Schema(description = "Пол", example = "MALE")
+  private Gender gender;
+
+  @Schema(description = "Процент скидки", example = "10")
+  private Integer discountPercent;
+
+  @Schema(description = "ID заявки, если участник добавлен через заявку", example = "1")
+  private Long applicationId;
+
+  @Schema(description = "Статус заявки", example = "APPROVED")
+  private ApplicationStatus applicationStatus;
+}
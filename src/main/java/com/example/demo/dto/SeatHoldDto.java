@@ -0,0 +1,37 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.demo.models.SeatHoldStatus;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO временной брони места в туре")
+public class SeatHoldDto {
+
+  @Schema(description = "Уникальный идентификатор брони", example = "1")
+  private Long id;
+
+  @Schema(description = "ID тура", example = "1")
+  private Long tourId;
+
+  @Schema(description = "Статус брони", example = "HELD")
+  private SeatHoldStatus status;
+
+  @Schema(description = "Дата и время окончания брони")
+  private LocalDateTime expiresAt;
+
+  @Schema(description = "ID заявки, созданной при подтверждении брони", example = "1")
+  private Long applicationId;
+
+  @Schema(description = "Дата и время создания брони")
+  private LocalDateTime createdAt;
+}
@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Запрос на временную бронь места в туре")
+public class SeatHoldRequestDto {
+
+  @NotNull(message = "ID тура обязателен")
+  @Schema(description = "ID тура", example = "1", required = true)
+  private Long tourId;
+}
@@ -0,0 +1,30 @@
+package com.example.demo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Расхождение счетчика свободных мест тура с фактическими бронированиями")
+public class SlotMismatchDto {
+
+  @Schema(description = "ID тура", example = "1")
+  private Long tourId;
+
+  @Schema(description = "Общее количество мест", example = "30")
+  private Integer totalSlots;
+
+  @Schema(description = "Количество свободных мест в туре", example = "12")
+  private Integer availableSlots;
+
+  @Schema(description = "Количество свободных мест по активным записям на тур и броням", example = "10")
+  private Integer expectedAvailableSlots;
+
+  @Schema(description = "Исправлено ли расхождение", example = "true")
+  private boolean repaired;
+}
@@ -0,0 +1,36 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Результат сверки счетчиков свободных мест")
+public class SlotReconciliationReportDto {
+
+  @Schema(description = "Дата и время начала сверки")
+  private LocalDateTime startedAt;
+
+  @Schema(description = "Длительность сверки в миллисекундах", example = "420")
+  private long durationMs;
+
+  @Schema(description = "Количество проверенных туров", example = "100000")
+  private long checkedTours;
+
+  @Schema(description = "Количество туров с расхождением", example = "3")
+  private int mismatchCount;
+
+  @Schema(description = "Количество исправленных туров", example = "3")
+  private int repairedCount;
+
+  @Schema(description = "Туры с расхождением (не больше заданного количества)")
+  private List<SlotMismatchDto> mismatches;
+}
@@ -0,0 +1,40 @@
+package com.example.demo.dto;
+
+import com.example.demo.models.ApplicationStatus;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Результат изменения статуса одной заявки")
+public class StatusUpdateResultDto {
+
+  @Schema(description = "Результат изменения статуса")
+  public enum Outcome {
+    UPDATED, // Статус изменен
+    UNCHANGED, // Заявка уже в этом статусе
+    NOT_FOUND, // Заявка не найдена
+    NO_SLOTS // В туре нет мест для восстановления заявки
+  }
+
+  @Schema(description = "ID заявки", example = "1")
+  private Long id;
+
+  @Schema(description = "Результат", example = "UPDATED")
+  private Outcome outcome;
+
+  @Schema(description = "Статус до изменения", example = "PENDING")
+  private ApplicationStatus previousStatus;
+
+  @Schema(description = "Статус после изменения", example = "REJECTED")
+  private ApplicationStatus status;
+
+  @Schema(description = "Пояснение, если статус не изменен")
+  private String message;
+}
@@ -0,0 +1,35 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.demo.models.Season;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@Schema(description = "Информация о туре с описанием (без изображения и файла)")
+public class TourDetailsDto extends TourSummaryDto {
+
+  @Schema(description = "Описание тура", example = "Прекрасный отдых на пляжах Турции с системой 'все включено'")
+  private String description;
+
+  /**
+   * Конструктор для JPQL-проекции: ссылки на медиа заполняются в сервисе
+   */
+  public TourDetailsDto(Long id, String name, String description, String country, Season season, String type,
+      LocalDateTime startDate, LocalDateTime endDate, Integer duration, Double price,
+      Integer totalSlots, Integer availableSlots, Boolean isRegistrationClosed,
+      String imageName, String imageType, Long imageSize,
+      String fileName, String fileType, Long fileSize) {
+    super(id, name, country, season, type, startDate, endDate, duration, price, totalSlots, availableSlots,
+        isRegistrationClosed, imageName, imageType, imageSize, fileName, fileType, fileSize);
+    this.description = description;
+  }
+}
@@ -43,9 +43,6 @@ public class TourDto {
   @Schema(description = "Тип тура", example = "BEACH", required = true)
   private String type;
 
-  @Schema(description = "Двоичные данные изображения тура")
-  private byte[] imageData;
-
   @Schema(description = "Имя файла изображения", example = "tour_photo.jpg")
   private String imageName;
 
@@ -55,9 +52,6 @@ public class TourDto {
   @Schema(description = "Город проведения тура", example = "Анталия")
   private String city;
 
-  @Schema(description = "Двоичные данные файла с описанием тура")
-  private byte[] fileData;
-
   @Schema(description = "Имя файла с описанием", example = "tour_description.pdf")
   private String fileName;
 
@@ -0,0 +1,37 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.demo.models.TourMediaKind;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Метаданные изображения или файла тура без самих данных
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TourMediaInfo {
+
+  private Long tourId;
+
+  private TourMediaKind kind;
+
+  private String name;
+
+  private String contentType;
+
+  private long size;
+
+  private LocalDateTime updatedAt;
+
+  // Ключ в хранилище файлов; null, если данные лежат в таблице tours
+  private String blobKey;
+
+  private String etag;
+}
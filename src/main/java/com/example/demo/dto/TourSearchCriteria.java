@@ -0,0 +1,66 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import com.example.demo.models.Season;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Параметры поиска туров")
+public class TourSearchCriteria {
+
+  @Schema(description = "Слова для поиска по названию и описанию", example = "пляж турция")
+  private String q;
+
+  @Schema(description = "Страны (любая из перечисленных)", example = "Турция")
+  private List<String> country;
+
+  @Schema(description = "Сезоны (любой из перечисленных)", example = "SUMMER")
+  private List<Season> season;
+
+  @Schema(description = "Типы тура (любой из перечисленных)", example = "BEACH")
+  private List<String> type;
+
+  @Schema(description = "Признак закрытия регистрации", example = "false")
+  private Boolean registrationClosed;
+
+  @Schema(description = "Минимальная цена", example = "5000")
+  private Double minPrice;
+
+  @Schema(description = "Максимальная цена", example = "50000")
+  private Double maxPrice;
+
+  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+  @Schema(description = "Начало тура не раньше даты", example = "2025-06-01")
+  private LocalDate startFrom;
+
+  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+  @Schema(description = "Начало тура не позже даты", example = "2025-08-31")
+  private LocalDate startTo;
+
+  @Schema(description = "Минимальная продолжительность в днях", example = "7")
+  private Integer minDuration;
+
+  @Schema(description = "Максимальная продолжительность в днях", example = "14")
+  private Integer maxDuration;
+
+  @Schema(description = "Сортировка: id, price, startDate, duration, name; минус в начале - по убыванию", example = "-price")
+  private String sort;
+
+  @Schema(description = "Номер страницы (с нуля)", example = "0")
+  private Integer page;
+
+  @Schema(description = "Размер страницы (не больше 100)", example = "20")
+  private Integer size;
+}
@@ -0,0 +1,34 @@
+package com.example.demo.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Результат поиска туров")
+public class TourSearchResult {
+
+  @Schema(description = "Общее количество найденных туров", example = "42")
+  private long total;
+
+  @Schema(description = "Номер страницы (с нуля)", example = "0")
+  private int page;
+
+  @Schema(description = "Размер страницы", example = "20")
+  private int size;
+
+  @Schema(description = "Туры на странице")
+  private List<TourSummaryDto> items;
+
+  @Schema(description = "Количество туров по значениям полей country, season, type и registrationClosed. "
+      + "Для каждого поля учитываются все фильтры, кроме фильтра по самому полю")
+  private Map<String, Map<String, Integer>> facets;
+}
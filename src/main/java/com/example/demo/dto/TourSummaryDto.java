@@ -0,0 +1,107 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.demo.models.Season;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Краткая информация о туре для каталога (без изображения и файла)")
+public class TourSummaryDto {
+
+  @Schema(description = "Уникальный идентификатор тура", example = "1")
+  private Long id;
+
+  @Schema(description = "Название тура", example = "Пляжный отдых в Турции")
+  private String name;
+
+  @Schema(description = "Страна проведения тура", example = "Турция")
+  private String country;
+
+  @Schema(description = "Сезон тура", example = "SUMMER")
+  private Season season;
+
+  @Schema(description = "Тип тура", example = "BEACH")
+  private String type;
+
+  @Schema(description = "Дата начала тура", example = "2023-06-15T00:00:00")
+  private LocalDateTime startDate;
+
+  @Schema(description = "Дата окончания тура", example = "2023-06-25T00:00:00")
+  private LocalDateTime endDate;
+
+  @Schema(description = "Продолжительность тура в днях", example = "10")
+  private Integer duration;
+
+  @Schema(description = "Цена тура", example = "10000")
+  private Double price;
+
+  @Schema(description = "Общее количество мест", example = "30")
+  private Integer totalSlots;
+
+  @Schema(description = "Количество свободных мест", example = "15")
+  private Integer availableSlots;
+
+  @Schema(description = "Признак закрытия регистрации", example = "false")
+  private Boolean isRegistrationClosed;
+
+  @Schema(description = "Имя файла изображения", example = "tour_photo.jpg")
+  private String imageName;
+
+  @Schema(description = "MIME-тип изображения", example = "image/jpeg")
+  private String imageType;
+
+  @Schema(description = "Размер изображения в байтах", example = "524288")
+  private Long imageSize;
+
+  @Schema(description = "Ссылка для загрузки изображения", example = "/api/tours/1/image")
+  private String imageUrl;
+
+  @Schema(description = "Имя файла с описанием", example = "tour_description.pdf")
+  private String fileName;
+
+  @Schema(description = "MIME-тип файла", example = "application/pdf")
+  private String fileType;
+
+  @Schema(description = "Размер файла с описанием в байтах", example = "2097152")
+  private Long fileSize;
+
+  @Schema(description = "Ссылка для загрузки файла с описанием", example = "/api/tours/1/file")
+  private String fileUrl;
+
+  /**
+   * Конструктор для JPQL-проекции: ссылки на медиа заполняются в сервисе
+   */
+  public TourSummaryDto(Long id, String name, String country, Season season, String type,
+      LocalDateTime startDate, LocalDateTime endDate, Integer duration, Double price,
+      Integer totalSlots, Integer availableSlots, Boolean isRegistrationClosed,
+      String imageName, String imageType, Long imageSize,
+      String fileName, String fileType, Long fileSize) {
+    this.id = id;
+    this.name = name;
+    this.country = country;
+    this.season = season;
+    this.type = type;
+    this.startDate = startDate;
+    this.endDate = endDate;
+    this.duration = duration;
+    this.price = price;
+    this.totalSlots = totalSlots;
+    this.availableSlots = availableSlots;
+    this.isRegistrationClosed = isRegistrationClosed;
+    this.imageName = imageName;
+    this.imageType = imageType;
+    this.imageSize = imageSize;
+    this.fileName = fileName;
+    this.fileType = fileType;
+    this.fileSize = fileSize;
+  }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO для переноса клиентов из одного тура в другой")
+public class TourTransferDto {
+
+  @NotNull(message = "ID исходного тура обязателен")
+  @Schema(description = "ID тура, из которого переносятся клиенты", example = "1", required = true)
+  private Long sourceTourId;
+
+  @NotNull(message = "ID нового тура обязателен")
+  @Schema(description = "ID тура, в который переносятся клиенты", example = "2", required = true)
+  private Long targetTourId;
+
+  @Schema(description = "ID связей клиент-тур для переноса; если не указаны, переносятся все связи исходного тура", example = "[1, 2, 3]")
+  private List<Long> clientTourIds;
+}
@@ -0,0 +1,32 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Результат переноса клиентов между турами")
+public class TourTransferResultDto {
+
+  @Schema(description = "ID исходного тура", example = "1")
+  private Long sourceTourId;
+
+  @Schema(description = "ID нового тура", example = "2")
+  private Long targetTourId;
+
+  @Schema(description = "ID перенесенных связей клиент-тур", example = "[1, 2]")
+  private List<Long> movedIds;
+
+  @Schema(description = "Количество мест, перенесенных вместе с активными связями", example = "2")
+  private Integer movedSeats;
+
+  @Schema(description = "Связи, которые не удалось перенести")
+  private List<TransferConflictDto> conflicts;
+}
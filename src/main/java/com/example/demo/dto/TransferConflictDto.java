@@ -0,0 +1,30 @@
+package com.example.demo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Связь клиент-тур, которую не удалось перенести")
+public class TransferConflictDto {
+
+  @Schema(description = "Причина, по которой связь не перенесена")
+  public enum Reason {
+    NOT_IN_SOURCE_TOUR, // Связь не найдена в исходном туре
+    ALREADY_IN_TARGET_TOUR // Контакт уже записан на новый тур
+  }
+
+  @Schema(description = "ID связи клиент-тур", example = "1")
+  private Long clientTourId;
+
+  @Schema(description = "ID контакта", example = "1")
+  private Long contactId;
+
+  @Schema(description = "Причина", example = "ALREADY_IN_TARGET_TOUR")
+  private Reason reason;
+}
@@ -0,0 +1,42 @@
+package com.example.demo.dto;
+
+import com.example.demo.models.AgeGroup;
+import com.example.demo.models.Gender;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Участник групповой заявки")
+public class TravellerDto {
+
+  @NotBlank(message = "ФИО обязательно")
+  @Schema(description = "ФИО участника", example = "Иванов Иван Иванович", required = true)
+  private String fullName;
+
+  @NotBlank(message = "Номер телефона обязателен")
+  @Schema(description = "Номер телефона", example = "+79001234567", required = true)
+  private String phoneNumber;
+
+  @NotBlank(message = "Email обязателен")
+  @Email(message = "Email должен быть корректным")
+  @Schema(description = "Email", example = "ivan@example.com", required = true)
+  private String email;
+
+  @NotNull(message = "Пол обязателен")
+  @Schema(description = "Пол", example = "MALE", required = true)
+  private Gender gender;
+
+  @NotNull(message = "Возрастная группа обязательна")
+  @Schema(description = "Возрастная группа", example = "AGE_26_35", required = true)
+  private AgeGroup ageGroup;
+}
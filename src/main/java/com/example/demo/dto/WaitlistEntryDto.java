@@ -0,0 +1,46 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.demo.models.WaitlistStatus;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO записи листа ожидания тура")
+public class WaitlistEntryDto {
+
+  @Schema(description = "Уникальный идентификатор записи", example = "1")
+  private Long id;
+
+  @Schema(description = "ID тура", example = "1")
+  private Long tourId;
+
+  @Schema(description = "ФИО заявителя", example = "Иванов Иван Иванович")
+  private String fullName;
+
+  @Schema(description = "Email", example = "ivan@example.com")
+  private String email;
+
+  @Schema(description = "Статус записи", example = "WAITING")
+  private WaitlistStatus status;
+
+  @Schema(description = "Место в очереди (с единицы), только для ожидающих записей", example = "3")
+  private Long position;
+
+  @Schema(description = "ID заявки, созданной при выделении места", example = "1")
+  private Long applicationId;
+
+  @Schema(description = "Дата и время постановки в лист ожидания")
+  private LocalDateTime createdAt;
+
+  @Schema(description = "Дата и время выделения места")
+  private LocalDateTime promotedAt;
+}
@@ -0,0 +1,14 @@
+package com.example.demo.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Событие изменения контакта: создание, обновление или удаление
+ */
+@Data
+@AllArgsConstructor
+public class ContactChangedEvent {
+
+  private Long contactId;
+}
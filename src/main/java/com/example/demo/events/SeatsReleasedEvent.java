@@ -0,0 +1,17 @@
+package com.example.demo.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Событие освобождения мест в туре. Публикуется внутри транзакции, в которой
+ * места возвращены, и обрабатывается синхронно в ней же. Количество мест
+ * равно 0, если изменилась вместимость тура и оно заранее неизвестно
+ */
+@Data
+@AllArgsConstructor
+public class SeatsReleasedEvent {
+
+  private Long tourId;
+  private int seats;
+}
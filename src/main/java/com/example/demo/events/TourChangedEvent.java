@@ -0,0 +1,14 @@
+package com.example.demo.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Событие изменения тура: создание, обновление, замена медиа или удаление
+ */
+@Data
+@AllArgsConstructor
+public class TourChangedEvent {
+
+  private Long tourId;
+}
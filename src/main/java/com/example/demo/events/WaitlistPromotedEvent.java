@@ -0,0 +1,18 @@
+package com.example.demo.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Событие выделения места записи листа ожидания
+ */
+@Data
+@AllArgsConstructor
+public class WaitlistPromotedEvent {
+
+  private Long entryId;
+  private Long applicationId;
+  private Long tourId;
+  private String email;
+  private String fullName;
+}
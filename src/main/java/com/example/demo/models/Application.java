@@ -1,6 +1,7 @@
 package com.example.demo.models;
 
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -17,9 +18,12 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -34,7 +38,12 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "applications")
+@Table(name = "applications", indexes = {
+    @Index(name = "idx_applications_created_at", columnList = "created_at, id"),
+    @Index(name = "idx_applications_status_created_at", columnList = "status, created_at, id"),
+    @Index(name = "idx_applications_tour_created_at", columnList = "tour_id, created_at, id"),
+    @Index(name = "idx_applications_email_created_at", columnList = "email, created_at, id")
+})
 @Schema(description = "Модель заявки на тур")
 public class Application {
 
@@ -48,6 +57,12 @@ public class Application {
   @Schema(description = "ФИО заявителя", example = "Иванов Иван Иванович", required = true)
   private String fullName;
 
+  // ФИО в нижнем регистре для поиска по началу ФИО. Индекс для условия
+  // LIKE 'начало%' (varchar_pattern_ops) создается в schema.sql
+  @JsonIgnore
+  @Column(name = "full_name_search", columnDefinition = "varchar(255) COLLATE \"C\"")
+  private String fullNameSearch;
+
   @NotBlank(message = "Номер телефона обязателен")
   @Column(name = "phone_number", nullable = false)
   @Schema(description = "Номер телефона", example = "+79001234567", required = true)
@@ -106,4 +121,17 @@ public class Application {
   @Column(name = "updated_at")
   @Schema(description = "Дата и время последнего обновления", accessMode = Schema.AccessMode.READ_ONLY)
   private LocalDateTime updatedAt;
-}
\ No newline at end of file
+
+  @PrePersist
+  @PreUpdate
+  private void beforeSave() {
+    fullNameSearch = normalizeFullName(fullName);
+  }
+
+  /**
+   * Приведение ФИО к виду, в котором оно хранится в full_name_search
+   */
+  public static String normalizeFullName(String fullName) {
+    return fullName != null ? fullName.trim().toLowerCase(Locale.ROOT) : null;
+  }
+}
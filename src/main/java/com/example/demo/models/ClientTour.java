@@ -14,6 +14,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
@@ -32,6 +33,9 @@ import lombok.NoArgsConstructor;
 @Entity
 @Table(name = "client_tours", uniqueConstraints = {
     @UniqueConstraint(columnNames = { "contact_id", "tour_id" })
+}, indexes = {
+    @Index(name = "idx_client_tours_created_at", columnList = "created_at, id"),
+    @Index(name = "idx_client_tours_tour_active", columnList = "tour_id, is_active")
 })
 @Schema(description = "Модель связи клиента с туром")
 public class ClientTour {
@@ -0,0 +1,59 @@
+package com.example.demo.models;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат запроса, выполненного с ключом идемпотентности. Пока запрос
+ * выполняется, статус ответа не заполнен
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "idempotency_keys", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_idempotency_keys_scope_key", columnNames = { "scope", "idempotency_key" })
+}, indexes = {
+    @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at")
+})
+public class IdempotencyRecord {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  // Операция, к которой относится ключ
+  @Column(nullable = false, length = 64)
+  private String scope;
+
+  @Column(name = "idempotency_key", nullable = false)
+  private String idempotencyKey;
+
+  // SHA-256 тела запроса: повтор ключа с другим запросом отклоняется
+  @Column(name = "request_hash", nullable = false, length = 64)
+  private String requestHash;
+
+  @Column(name = "response_status")
+  private Integer responseStatus;
+
+  @Column(name = "response_body", columnDefinition = "text")
+  private String responseBody;
+
+  // Время, когда ключ занят запросом (обновляется, если ключ занят заново
+  // после истечения аренды)
+  @Column(name = "created_at", nullable = false)
+  private LocalDateTime createdAt;
+}
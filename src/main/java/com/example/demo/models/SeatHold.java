@@ -0,0 +1,59 @@
+package com.example.demo.models;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "seat_holds", indexes = {
+    @Index(name = "idx_seat_holds_status_expires", columnList = "status, expires_at")
+})
+@Schema(description = "Временная бронь места в туре")
+public class SeatHold {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Schema(description = "Уникальный идентификатор брони", example = "1")
+  private Long id;
+
+  @Column(name = "tour_id", nullable = false)
+  @Schema(description = "ID тура", example = "1")
+  private Long tourId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  @Schema(description = "Статус брони", example = "HELD")
+  private SeatHoldStatus status;
+
+  @Column(name = "expires_at", nullable = false)
+  @Schema(description = "Дата и время окончания брони")
+  private LocalDateTime expiresAt;
+
+  @Column(name = "application_id")
+  @Schema(description = "ID заявки, созданной при подтверждении брони", example = "1")
+  private Long applicationId;
+
+  @CreationTimestamp
+  @Column(name = "created_at", updatable = false)
+  @Schema(description = "Дата и время создания брони")
+  private LocalDateTime createdAt;
+}
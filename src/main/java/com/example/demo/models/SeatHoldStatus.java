@@ -0,0 +1,11 @@
+package com.example.demo.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Статусы временных броней мест")
+public enum SeatHoldStatus {
+  HELD, // Место удерживается
+  CONFIRMED, // Бронь подтверждена, заявка создана
+  RELEASED, // Бронь снята клиентом
+  EXPIRED // Время брони истекло
+}
@@ -18,6 +18,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
@@ -36,7 +37,11 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "tours")
+@Table(name = "tours", indexes = {
+    @Index(name = "idx_tours_created_at", columnList = "created_at, id"),
+    @Index(name = "idx_tours_start_date", columnList = "start_date, id"),
+    @Index(name = "idx_tours_price", columnList = "price, id")
+})
 @Schema(description = "Модель тура")
 public class Tour {
 
@@ -83,6 +88,15 @@ public class Tour {
   @Schema(description = "MIME-тип изображения", example = "image/jpeg")
   private String imageType;
 
+  @Column(name = "image_size")
+  @Schema(description = "Размер изображения в байтах", example = "524288", accessMode = Schema.AccessMode.READ_ONLY)
+  private Long imageSize;
+
+  @JsonIgnore
+  @Column(name = "image_key", length = 64)
+  @Schema(description = "Ключ изображения в хранилище файлов", accessMode = Schema.AccessMode.READ_ONLY)
+  private String imageKey;
+
   @Column(name = "file_data", columnDefinition = "BYTEA")
   @Schema(description = "Файл с описанием тура", accessMode = Schema.AccessMode.WRITE_ONLY)
   private byte[] fileData;
@@ -95,6 +109,15 @@ public class Tour {
   @Schema(description = "MIME-тип файла", example = "application/pdf")
   private String fileType;
 
+  @Column(name = "file_size")
+  @Schema(description = "Размер файла с описанием в байтах", example = "2097152", accessMode = Schema.AccessMode.READ_ONLY)
+  private Long fileSize;
+
+  @JsonIgnore
+  @Column(name = "file_key", length = 64)
+  @Schema(description = "Ключ файла с описанием в хранилище файлов", accessMode = Schema.AccessMode.READ_ONLY)
+  private String fileKey;
+
   @NotNull(message = "Дата начала тура обязательна")
   @Column(name = "start_date", nullable = false)
   @Schema(description = "Дата начала тура", example = "2023-06-15T00:00:00", required = true)
@@ -120,6 +143,12 @@ public class Tour {
   @Schema(description = "Количество свободных мест", example = "15", required = true)
   private Integer availableSlots;
 
+  // Для популярного тура свободные места хранятся в нескольких счетчиках
+  // tour_slot_shards, а availableSlots периодически обновляется их суммой
+  @Column(name = "slot_shards")
+  @Schema(description = "Количество счетчиков свободных мест (пусто - один счетчик в туре)", example = "8")
+  private Integer slotShards;
+
   @Min(value = 0, message = "Цена тура не может быть отрицательной")
   @Column(name = "price", nullable = false)
   @Schema(description = "Цена тура", example = "10000", required = true)
@@ -153,6 +182,26 @@ public class Tour {
 
   @PrePersist
   @PreUpdate
+  private void beforeSave() {
+    calculateDuration();
+    calculateMediaSizes();
+  }
+
+  // Размеры медиа хранятся отдельно, чтобы каталог не читал BYTEA-колонки.
+  // Для медиа в хранилище файлов размер заполняется при сохранении
+  private void calculateMediaSizes() {
+    if (imageData != null) {
+      this.imageSize = Long.valueOf(imageData.length);
+    } else if (imageKey == null) {
+      this.imageSize = null;
+    }
+    if (fileData != null) {
+      this.fileSize = Long.valueOf(fileData.length);
+    } else if (fileKey == null) {
+      this.fileSize = null;
+    }
+  }
+
   private void calculateDuration() {
     if (startDate != null && endDate != null) {
       // Вычисление продолжительности в днях
@@ -0,0 +1,69 @@
+package com.example.demo.models;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "tour_image_variants", uniqueConstraints = {
+    @UniqueConstraint(columnNames = { "source_key", "width" })
+})
+@Schema(description = "Уменьшенная копия изображения тура")
+public class TourImageVariant {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Schema(description = "Уникальный идентификатор копии", example = "1")
+  private Long id;
+
+  @Column(name = "source_key", nullable = false, length = 64)
+  @Schema(description = "Ключ исходного изображения в хранилище файлов")
+  private String sourceKey;
+
+  @Column(nullable = false)
+  @Schema(description = "Ширина копии в пикселях", example = "480")
+  private Integer width;
+
+  // Совпадает с sourceKey, если исходное изображение не нужно уменьшать
+  // или его нельзя прочитать - тогда отдается оригинал
+  @Column(name = "blob_key", nullable = false, length = 64)
+  @Schema(description = "Ключ копии в хранилище файлов")
+  private String blobKey;
+
+  @Column(name = "content_type")
+  @Schema(description = "MIME-тип копии", example = "image/jpeg")
+  private String contentType;
+
+  @Column(name = "size")
+  @Schema(description = "Размер копии в байтах", example = "24576")
+  private Long size;
+
+  @CreationTimestamp
+  @Column(name = "created_at", updatable = false)
+  @Schema(description = "Дата и время создания", accessMode = Schema.AccessMode.READ_ONLY)
+  private LocalDateTime createdAt;
+
+  /**
+   * Признак того, что вместо копии используется исходное изображение
+   */
+  public boolean isOriginal() {
+    return blobKey.equals(sourceKey);
+  }
+}
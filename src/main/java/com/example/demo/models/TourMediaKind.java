@@ -0,0 +1,9 @@
+package com.example.demo.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Виды медиа тура")
+public enum TourMediaKind {
+  IMAGE, // Изображение тура
+  FILE // Файл с описанием тура
+}
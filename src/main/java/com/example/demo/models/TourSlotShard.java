@@ -0,0 +1,42 @@
+package com.example.demo.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Счетчик части свободных мест популярного тура. Бронирования распределяются
+ * по счетчикам, поэтому не ждут блокировку одной строки тура
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "tour_slot_shards", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_tour_slot_shards_tour_shard", columnNames = { "tour_id", "shard" })
+})
+public class TourSlotShard {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "tour_id", nullable = false)
+  private Long tourId;
+
+  // Номер счетчика от 0 до slot_shards - 1
+  @Column(nullable = false)
+  private Integer shard;
+
+  @Column(name = "available_slots", nullable = false)
+  private Integer availableSlots;
+}
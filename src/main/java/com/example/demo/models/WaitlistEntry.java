@@ -0,0 +1,85 @@
+package com.example.demo.models;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "tour_waitlist", indexes = {
+    @Index(name = "idx_tour_waitlist_tour_status", columnList = "tour_id, status, id"),
+    @Index(name = "idx_tour_waitlist_status", columnList = "status, id")
+})
+@Schema(description = "Запись листа ожидания тура")
+public class WaitlistEntry {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Schema(description = "Уникальный идентификатор записи", example = "1")
+  private Long id;
+
+  @Column(name = "tour_id", nullable = false)
+  @Schema(description = "ID тура", example = "1")
+  private Long tourId;
+
+  @Column(name = "full_name", nullable = false)
+  @Schema(description = "ФИО заявителя", example = "Иванов Иван Иванович")
+  private String fullName;
+
+  @Column(name = "phone_number", nullable = false)
+  @Schema(description = "Номер телефона", example = "+79001234567")
+  private String phoneNumber;
+
+  @Column(nullable = false)
+  @Schema(description = "Email", example = "ivan@example.com")
+  private String email;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "age_group")
+  @Schema(description = "Возрастная группа", example = "AGE_26_35")
+  private AgeGroup ageGroup;
+
+  @Enumerated(EnumType.STRING)
+  @Schema(description = "Пол", example = "MALE")
+  private Gender gender;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  @Schema(description = "Статус записи", example = "WAITING")
+  private WaitlistStatus status;
+
+  @Column(name = "seat_held", nullable = false, columnDefinition = "boolean NOT NULL DEFAULT false")
+  @Schema(description = "За ожидающей записью закреплено освободившееся место, заявка еще не создана", example = "false")
+  private boolean seatHeld;
+
+  @Column(name = "application_id")
+  @Schema(description = "ID заявки, созданной при выделении места", example = "1")
+  private Long applicationId;
+
+  @CreationTimestamp
+  @Column(name = "created_at", updatable = false)
+  @Schema(description = "Дата и время постановки в лист ожидания")
+  private LocalDateTime createdAt;
+
+  @Column(name = "promoted_at")
+  @Schema(description = "Дата и время выделения места")
+  private LocalDateTime promotedAt;
+}
@@ -0,0 +1,10 @@
+package com.example.demo.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Статусы записей листа ожидания")
+public enum WaitlistStatus {
+  WAITING, // Ожидает места
+  PROMOTED, // Место выделено, заявка создана
+  CANCELLED // Запись отменена
+}
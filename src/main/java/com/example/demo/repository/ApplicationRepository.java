@@ -1,25 +1,45 @@
 package com.example.demo.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.LockModeType;
+
+import com.example.demo.dto.ApplicationListItemDto;
 import com.example.demo.models.Application;
+import com.example.demo.models.ApplicationStatus;
 
 @Repository
 public interface ApplicationRepository extends JpaRepository<Application, Long> {
 
   /**
-   * Находит все заявки с загрузкой связанных сущностей
+   * Выражение SELECT для списка заявок: поля заявки и краткие сведения о
+   * туре, контакте и связи клиент-тур без загрузки сущностей. Ожидает
+   * псевдонимы a (заявка), t (тур), c (контакт) и ct (связь клиент-тур)
    */
-  @Query("SELECT a FROM Application a LEFT JOIN FETCH a.tour LEFT JOIN FETCH a.clientTour")
-  List<Application> findAllWithDetails();
+  String LIST_ITEM_SELECT = "SELECT new com.example.demo.dto.ApplicationListItemDto("
+      + "a.id, a.fullName, a.phoneNumber, a.email, a.userId, a.status, a.createdAt, a.updatedAt, "
+      + "t.id, t.name, t.startDate, t.endDate, t.price, "
+      + "c.id, c.fullName, c.email, c.phoneNumber, c.isClient, "
+      + "ct.id, ct.isActive)";
+
+  String LIST_ITEM_FROM = "FROM Application a LEFT JOIN a.tour t LEFT JOIN a.contact c LEFT JOIN a.clientTour ct";
+
+  /**
+   * Находит все заявки для списка заявок одним запросом
+   */
+  @Query(LIST_ITEM_SELECT + " " + LIST_ITEM_FROM + " ORDER BY a.id")
+  List<ApplicationListItemDto> findAllListItems();
 
   /**
    * Находит заявку по ID с загрузкой связанных сущностей
@@ -29,11 +49,31 @@ public interface ApplicationRepository extends JpaRepository<Application, Long>
 
   // Дополнительные методы при необходимости
 
-  @Query("SELECT a FROM Application a LEFT JOIN FETCH a.tour LEFT JOIN FETCH a.clientTour WHERE a.email = :email")
-  List<Application> findAllByEmail(@Param("email") String email);
+  /**
+   * Находит заявки с указанной почтой для списка заявок одним запросом
+   */
+  @Query(LIST_ITEM_SELECT + " " + LIST_ITEM_FROM + " WHERE a.email = :email ORDER BY a.id")
+  List<ApplicationListItemDto> findListItemsByEmail(@Param("email") String email);
 
   @Modifying
   @Transactional
   @Query("UPDATE Application a SET a.user = null WHERE a.user.id = :userId")
   void nullifyUserInApplications(@Param("userId") Long userId);
-}
\ No newline at end of file
+
+  /**
+   * Находит заявки по списку ID и блокирует их до конца транзакции.
+   * Строки блокируются в порядке ID, чтобы параллельные массовые изменения не
+   * приводили к взаимной блокировке
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT a FROM Application a WHERE a.id IN :ids ORDER BY a.id")
+  List<Application> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Устанавливает статус заявкам с указанными ID одним UPDATE
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("UPDATE Application a SET a.status = :status, a.updatedAt = :updatedAt WHERE a.id IN :ids")
+  int updateStatuses(@Param("ids") Collection<Long> ids, @Param("status") ApplicationStatus status,
+      @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,53 @@
+package com.example.demo.repository;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Заполнение колонки full_name_search заявок напрямую через JDBC: сущности
+ * не загружаются, поэтому updated_at не меняется, а Bean Validation не
+ * проверяет старые строки
+ */
+@Repository
+@RequiredArgsConstructor
+public class ApplicationSearchRepository {
+
+  /**
+   * ФИО заявки без заполненного full_name_search
+   */
+  public record Entry(Long id, String fullName) {
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Очередная партия заявок без full_name_search с ID больше указанного, по
+   * возрастанию ID
+   */
+  public List<Entry> findWithoutFullNameSearch(long afterId, int limit) {
+    return jdbcTemplate.query(
+        "SELECT id, full_name FROM applications WHERE full_name_search IS NULL AND id > ? ORDER BY id LIMIT ?",
+        (rs, rowNum) -> new Entry(rs.getLong("id"), rs.getString("full_name")),
+        afterId, limit);
+  }
+
+  /**
+   * Устанавливает full_name_search партии заявок одним пакетом UPDATE,
+   * остальные колонки не меняются
+   *
+   * @param values ID заявки - значение full_name_search
+   */
+  public void updateFullNameSearch(List<Entry> values) {
+    jdbcTemplate.batchUpdate(
+        "UPDATE applications SET full_name_search = ? WHERE id = ?",
+        values, values.size(),
+        (ps, value) -> {
+          ps.setString(1, value.fullName());
+          ps.setLong(2, value.id());
+        });
+  }
+}
@@ -1,13 +1,17 @@
 package com.example.demo.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.demo.dto.ClientTourDto;
 import com.example.demo.models.ClientTour;
 
 @Repository
@@ -39,14 +43,57 @@ public interface ClientTourRepository extends JpaRepository<ClientTour, Long> {
   Optional<ClientTour> findByContactIdAndTourId(Long contactId, Long tourId);
 
   /**
-   * Находит все связи клиент-тур с загрузкой связанных сущностей
+   * Находит связи тура с любым из контактов, включая неактивные
    */
-  @Query("SELECT ct FROM ClientTour ct LEFT JOIN FETCH ct.contact LEFT JOIN FETCH ct.tour LEFT JOIN FETCH ct.application WHERE ct.isActive = true")
-  List<ClientTour> findAllActiveWithDetails();
+  List<ClientTour> findByTourIdAndContactIdIn(Long tourId, Collection<Long> contactIds);
 
   /**
-   * Находит связь по ID с загрузкой связанных сущностей
+   * Выражение SELECT для связей клиент-тур: поля связи, имя контакта и
+   * название тура без загрузки сущностей. Ожидает псевдонимы ct (связь),
+   * c (контакт) и t (тур)
    */
-  @Query("SELECT ct FROM ClientTour ct LEFT JOIN FETCH ct.contact LEFT JOIN FETCH ct.tour LEFT JOIN FETCH ct.application WHERE ct.id = :id")
-  Optional<ClientTour> findByIdWithDetails(@Param("id") Long id);
-}
\ No newline at end of file
+  String DETAILS_SELECT = "SELECT new com.example.demo.dto.ClientTourDto("
+      + "ct.id, ct.contactId, ct.tourId, ct.applicationId, ct.isActive, ct.createdAt, ct.updatedAt, "
+      + "c.fullName, t.name)";
+
+  String DETAILS_FROM = "FROM ClientTour ct LEFT JOIN ct.contact c LEFT JOIN ct.tour t";
+
+  /**
+   * Находит все связи клиент-тур одним запросом
+   */
+  @Query(DETAILS_SELECT + " " + DETAILS_FROM + " ORDER BY ct.id")
+  List<ClientTourDto> findAllDetails();
+
+  /**
+   * Находит все активные связи клиент-тур одним запросом
+   */
+  @Query(DETAILS_SELECT + " " + DETAILS_FROM + " WHERE ct.isActive = true ORDER BY ct.id")
+  List<ClientTourDto> findAllActiveDetails();
+
+  /**
+   * Находит связь по ID вместе с именем контакта и названием тура
+   */
+  @Query(DETAILS_SELECT + " " + DETAILS_FROM + " WHERE ct.id = :id")
+  Optional<ClientTourDto> findDetailsById(@Param("id") Long id);
+
+  /**
+   * Находит все связи контакта одним запросом
+   */
+  @Query(DETAILS_SELECT + " " + DETAILS_FROM + " WHERE ct.contactId = :contactId ORDER BY ct.id")
+  List<ClientTourDto> findDetailsByContactId(@Param("contactId") Long contactId);
+
+  /**
+   * Находит все связи тура одним запросом
+   */
+  @Query(DETAILS_SELECT + " " + DETAILS_FROM + " WHERE ct.tourId = :tourId ORDER BY ct.id")
+  List<ClientTourDto> findDetailsByTourId(@Param("tourId") Long tourId);
+
+  /**
+   * Активирует или деактивирует связи, созданные по указанным заявкам, одним
+   * UPDATE
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("UPDATE ClientTour ct SET ct.isActive = :active, ct.updatedAt = :updatedAt WHERE ct.applicationId IN :applicationIds")
+  int updateActiveByApplicationIds(@Param("applicationIds") Collection<Long> applicationIds,
+      @Param("active") boolean active, @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,86 @@
+package com.example.demo.repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Перенос связей клиент-тур между турами набором строк, а не по одной
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClientTourTransferRepository {
+
+  /**
+   * Связь клиент-тур, выбранная для переноса
+   *
+   * @param inTargetTour записан ли контакт уже на новый тур
+   */
+  public record Candidate(Long id, Long contactId, boolean active, boolean inTargetTour) {
+  }
+
+  /**
+   * Перенесенная связь клиент-тур
+   */
+  public record Moved(Long id, boolean active) {
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Блокирует связи исходного тура (все или только указанные) и отмечает
+   * контакты, уже записанные на новый тур
+   *
+   * @param ids ID связей или null - все связи исходного тура
+   */
+  public List<Candidate> lockCandidates(Long sourceTourId, Long targetTourId, Collection<Long> ids) {
+    String sql = "SELECT ct.id, ct.contact_id, ct.is_active,"
+        + " EXISTS (SELECT 1 FROM client_tours o WHERE o.tour_id = ? AND o.contact_id = ct.contact_id) AS in_target"
+        + " FROM client_tours ct WHERE ct.tour_id = ?"
+        + (ids != null ? " AND ct.id = ANY (?)" : "")
+        + " ORDER BY ct.id FOR UPDATE OF ct";
+    return jdbcTemplate.query(connection -> {
+      PreparedStatement statement = connection.prepareStatement(sql);
+      statement.setLong(1, targetTourId);
+      statement.setLong(2, sourceTourId);
+      if (ids != null) {
+        statement.setArray(3, connection.createArrayOf("bigint", ids.toArray()));
+      }
+      return statement;
+    }, (rs, rowNum) -> new Candidate(rs.getLong("id"), rs.getLong("contact_id"),
+        rs.getBoolean("is_active"), rs.getBoolean("in_target")));
+  }
+
+  /**
+   * Переносит связи в новый тур одним UPDATE вместе с заявками, по которым
+   * они созданы. Связь пропускается, если контакт уже записан на новый тур,
+   * поэтому ограничение уникальности (contact_id, tour_id) не нарушается
+   *
+   * @return перенесенные связи
+   */
+  public List<Moved> moveToTour(Long sourceTourId, Long targetTourId, Collection<Long> ids) {
+    return jdbcTemplate.query(connection -> {
+      PreparedStatement statement = connection.prepareStatement(
+          "WITH moved AS ("
+              + " UPDATE client_tours ct SET tour_id = ?, updated_at = LOCALTIMESTAMP"
+              + " WHERE ct.id = ANY (?) AND ct.tour_id = ?"
+              + " AND NOT EXISTS (SELECT 1 FROM client_tours o WHERE o.tour_id = ? AND o.contact_id = ct.contact_id)"
+              + " RETURNING ct.id, ct.is_active, ct.application_id),"
+              + " applications_moved AS ("
+              + " UPDATE applications a SET tour_id = ?, updated_at = LOCALTIMESTAMP"
+              + " FROM moved WHERE a.id = moved.application_id)"
+              + " SELECT id, is_active FROM moved ORDER BY id");
+      statement.setLong(1, targetTourId);
+      statement.setArray(2, connection.createArrayOf("bigint", ids.toArray()));
+      statement.setLong(3, sourceTourId);
+      statement.setLong(4, targetTourId);
+      statement.setLong(5, targetTourId);
+      return statement;
+    }, (rs, rowNum) -> new Moved(rs.getLong("id"), rs.getBoolean("is_active")));
+  }
+}
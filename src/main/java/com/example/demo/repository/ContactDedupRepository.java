@@ -0,0 +1,160 @@
+package com.example.demo.repository;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.search.ContactDuplicateFinder;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Поиск и слияние дубликатов контактов запросами по набору строк
+ */
+@Repository
+@RequiredArgsConstructor
+public class ContactDedupRepository {
+
+  private static final int FETCH_SIZE = 1000;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public long countContacts() {
+    Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM contacts", Long.class);
+    return count != null ? count : 0;
+  }
+
+  /**
+   * Передает email и телефоны всех контактов для отбора возможных
+   * дубликатов. Строки читаются курсором порциями по FETCH_SIZE, это
+   * возможно только внутри транзакции
+   */
+  @Transactional(readOnly = true)
+  public void collectKeys(ContactDuplicateFinder finder) {
+    jdbcTemplate.query(connection -> {
+      PreparedStatement statement = connection.prepareStatement("SELECT id, email, phone_number FROM contacts");
+      statement.setFetchSize(FETCH_SIZE);
+      return statement;
+    }, rs -> {
+      finder.addKeys(rs.getLong("id"), rs.getString("email"), rs.getString("phone_number"));
+    });
+  }
+
+  /**
+   * Поля контактов для сравнения (удаленные контакты пропускаются)
+   */
+  public List<ContactDuplicateFinder.Candidate> findCandidates(List<Long> contactIds) {
+    List<ContactDuplicateFinder.Candidate> candidates = new ArrayList<>(contactIds.size());
+    for (int from = 0; from < contactIds.size(); from += FETCH_SIZE) {
+      List<Long> chunk = contactIds.subList(from, Math.min(from + FETCH_SIZE, contactIds.size()));
+      candidates.addAll(jdbcTemplate.query(connection -> {
+        PreparedStatement statement = connection.prepareStatement(
+            "SELECT id, full_name, phone_number, email, user_id FROM contacts WHERE id = ANY (?)");
+        statement.setArray(1, connection.createArrayOf("bigint", chunk.toArray()));
+        return statement;
+      }, (rs, rowNum) -> new ContactDuplicateFinder.Candidate(rs.getLong("id"), rs.getString("full_name"),
+          rs.getString("phone_number"), rs.getString("email"), (Long) rs.getObject("user_id"))));
+    }
+    return candidates;
+  }
+
+  /**
+   * Блокирует контакты до конца транзакции: пока идет слияние, к ним нельзя
+   * привязать новые заявки и записи на туры
+   *
+   * @return ID контактов, которые еще существуют
+   */
+  public Set<Long> lockContacts(Collection<Long> contactIds) {
+    return new HashSet<>(jdbcTemplate.query(connection -> {
+      PreparedStatement statement = connection.prepareStatement(
+          "SELECT id FROM contacts WHERE id = ANY (?) ORDER BY id FOR UPDATE");
+      statement.setArray(1, connection.createArrayOf("bigint", contactIds.toArray()));
+      return statement;
+    }, (rs, rowNum) -> rs.getLong("id")));
+  }
+
+  /**
+   * Туры, на которые записаны контакты (ID контакта - ID туров)
+   */
+  public Map<Long, Set<Long>> findTourIds(Collection<Long> contactIds) {
+    Map<Long, Set<Long>> tourIds = new HashMap<>();
+    jdbcTemplate.query(connection -> {
+      PreparedStatement statement = connection.prepareStatement(
+          "SELECT contact_id, tour_id FROM client_tours WHERE contact_id = ANY (?)");
+      statement.setArray(1, connection.createArrayOf("bigint", contactIds.toArray()));
+      return statement;
+    }, rs -> {
+      tourIds.computeIfAbsent(rs.getLong("contact_id"), key -> new HashSet<>()).add(rs.getLong("tour_id"));
+    });
+    return tourIds;
+  }
+
+  /**
+   * Сливает дубликаты с остающимися контактами: заявки, записи на туры и
+   * связи с турами переносятся одним UPDATE на таблицу, признак клиента,
+   * скидка и незаполненные поля остающегося контакта дополняются из
+   * дубликатов, после чего дубликаты удаляются. Дубликаты не должны быть
+   * записаны на те же туры, что и остающийся контакт
+   *
+   * @param survivorIds ID остающегося контакта для каждого дубликата
+   * @return количество удаленных дубликатов
+   */
+  public int merge(Map<Long, Long> survivorIds) {
+    Long[] duplicates = survivorIds.keySet().toArray(new Long[0]);
+    Long[] survivors = new Long[duplicates.length];
+    for (int i = 0; i < duplicates.length; i++) {
+      survivors[i] = survivorIds.get(duplicates[i]);
+    }
+
+    update("UPDATE contacts s SET is_client = s.is_client OR d.is_client,"
+        + " discount_percent = GREATEST(s.discount_percent, d.discount_percent),"
+        + " preferred_tour_type = COALESCE(s.preferred_tour_type, d.preferred_tour_type),"
+        + " additional_info = COALESCE(s.additional_info, d.additional_info),"
+        + " updated_at = LOCALTIMESTAMP"
+        + " FROM (SELECT m.survivor, bool_or(c.is_client) AS is_client,"
+        + " max(c.discount_percent) AS discount_percent, max(c.preferred_tour_type) AS preferred_tour_type,"
+        + " max(c.additional_info) AS additional_info"
+        + " FROM unnest(?, ?) AS m(duplicate, survivor) JOIN contacts c ON c.id = m.duplicate"
+        + " GROUP BY m.survivor) d"
+        + " WHERE s.id = d.survivor", duplicates, survivors);
+    update("UPDATE applications a SET contact_id = m.survivor"
+        + " FROM unnest(?, ?) AS m(duplicate, survivor) WHERE a.contact_id = m.duplicate", duplicates, survivors);
+    update("UPDATE client_tours ct SET contact_id = m.survivor"
+        + " FROM unnest(?, ?) AS m(duplicate, survivor) WHERE ct.contact_id = m.duplicate", duplicates, survivors);
+    update("UPDATE contacts_tours ct SET contacts_id = m.survivor"
+        + " FROM unnest(?, ?) AS m(duplicate, survivor) WHERE ct.contacts_id = m.duplicate", duplicates, survivors);
+    // Связь с туром, которая была и у дубликата, и у остающегося контакта,
+    // остается одна
+    jdbcTemplate.update(connection -> {
+      PreparedStatement statement = connection.prepareStatement(
+          "DELETE FROM contacts_tours a USING contacts_tours b"
+              + " WHERE a.contacts_id = ANY (?) AND b.contacts_id = a.contacts_id"
+              + " AND b.tours_id = a.tours_id AND a.ctid > b.ctid");
+      statement.setArray(1, connection.createArrayOf("bigint", survivors));
+      return statement;
+    });
+    return jdbcTemplate.update(connection -> {
+      PreparedStatement statement = connection.prepareStatement("DELETE FROM contacts WHERE id = ANY (?)");
+      statement.setArray(1, connection.createArrayOf("bigint", duplicates));
+      return statement;
+    });
+  }
+
+  private void update(String sql, Long[] duplicates, Long[] survivors) {
+    jdbcTemplate.update(connection -> {
+      PreparedStatement statement = connection.prepareStatement(sql);
+      statement.setArray(1, connection.createArrayOf("bigint", duplicates));
+      statement.setArray(2, connection.createArrayOf("bigint", survivors));
+      return statement;
+    });
+  }
+}
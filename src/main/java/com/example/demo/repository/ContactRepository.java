@@ -1,5 +1,7 @@
 package com.example.demo.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -12,6 +14,8 @@ import com.example.demo.models.Contact;
 public interface ContactRepository extends JpaRepository<Contact, Long> {
   Optional<Contact> findByEmail(String email);
 
+  List<Contact> findAllByEmailIn(Collection<String> emails);
+
   boolean existsByEmail(String email);
 
   @Query("SELECT c FROM Contact c WHERE c.user.id = :userId")
@@ -21,5 +25,5 @@ public interface ContactRepository extends JpaRepository<Contact, Long> {
   void deleteByUserId(Long userId);
 
   @Query("SELECT c FROM Contact c WHERE c.user IS NULL")
-  java.util.List<Contact> findOrphanedContacts();
+  List<Contact> findOrphanedContacts();
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.example.demo.repository;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.search.ContactSearchIndex;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Чтение полей контактов для поискового индекса без загрузки сущностей
+ */
+@Repository
+@RequiredArgsConstructor
+public class ContactSearchRepository {
+
+  private static final int FETCH_SIZE = 1000;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Передает все контакты порциями по FETCH_SIZE строк. Драйвер PostgreSQL
+   * читает результат порциями только внутри транзакции
+   */
+  @Transactional(readOnly = true)
+  public void forEachEntry(Consumer<ContactSearchIndex.Entry> consumer) {
+    jdbcTemplate.query(connection -> {
+      PreparedStatement statement = connection.prepareStatement(
+          "SELECT id, full_name, phone_number, email FROM contacts");
+      statement.setFetchSize(FETCH_SIZE);
+      return statement;
+    }, rs -> {
+      consumer.accept(new ContactSearchIndex.Entry(rs.getLong("id"), rs.getString("full_name"),
+          rs.getString("phone_number"), rs.getString("email")));
+    });
+  }
+
+  /**
+   * Поля контакта (пусто, если контакт удален)
+   */
+  public Optional<ContactSearchIndex.Entry> findEntry(Long contactId) {
+    List<ContactSearchIndex.Entry> entries = jdbcTemplate.query(
+        "SELECT id, full_name, phone_number, email FROM contacts WHERE id = ?",
+        (rs, rowNum) -> new ContactSearchIndex.Entry(rs.getLong("id"), rs.getString("full_name"),
+            rs.getString("phone_number"), rs.getString("email")),
+        contactId);
+    return entries.stream().findFirst();
+  }
+}
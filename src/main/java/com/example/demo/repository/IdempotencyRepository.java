@@ -0,0 +1,78 @@
+package com.example.demo.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.models.IdempotencyRecord;
+
+@Repository
+public interface IdempotencyRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+  Optional<IdempotencyRecord> findByScopeAndIdempotencyKey(String scope, String idempotencyKey);
+
+  /**
+   * Занимает ключ за текущим запросом
+   *
+   * @return 1, если ключ занят этим запросом; 0, если он уже использован
+   */
+  @Transactional
+  @Modifying
+  @Query(value = "INSERT INTO idempotency_keys (scope, idempotency_key, request_hash, created_at) "
+      + "VALUES (:scope, :key, :requestHash, :createdAt) "
+      + "ON CONFLICT (scope, idempotency_key) DO NOTHING", nativeQuery = true)
+  int claim(@Param("scope") String scope, @Param("key") String key, @Param("requestHash") String requestHash,
+      @Param("createdAt") LocalDateTime createdAt);
+
+  /**
+   * Занимает заново ключ, запрос по которому не завершился до истечения
+   * аренды: выполнявший его экземпляр мог упасть. Занять ключ можно только
+   * тем же запросом
+   *
+   * @return 1, если ключ занят этим запросом
+   */
+  @Transactional
+  @Modifying
+  @Query("UPDATE IdempotencyRecord r SET r.createdAt = :claimedAt "
+      + "WHERE r.scope = :scope AND r.idempotencyKey = :key AND r.requestHash = :requestHash "
+      + "AND r.responseStatus IS NULL AND r.createdAt < :leaseExpiredBefore")
+  int reclaim(@Param("scope") String scope, @Param("key") String key, @Param("requestHash") String requestHash,
+      @Param("claimedAt") LocalDateTime claimedAt, @Param("leaseExpiredBefore") LocalDateTime leaseExpiredBefore);
+
+  /**
+   * Сохраняет ответ на запрос, если ключ все еще занят им
+   *
+   * @param claimedAt время, когда запрос занял ключ
+   */
+  @Transactional
+  @Modifying
+  @Query("UPDATE IdempotencyRecord r SET r.responseStatus = :status, r.responseBody = :body "
+      + "WHERE r.scope = :scope AND r.idempotencyKey = :key AND r.createdAt = :claimedAt")
+  int complete(@Param("scope") String scope, @Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt,
+      @Param("status") int status, @Param("body") String body);
+
+  /**
+   * Освобождает ключ, если запрос завершился ошибкой и ключ все еще занят им
+   *
+   * @param claimedAt время, когда запрос занял ключ
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM IdempotencyRecord r "
+      + "WHERE r.scope = :scope AND r.idempotencyKey = :key AND r.createdAt = :claimedAt")
+  int release(@Param("scope") String scope, @Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt);
+
+  /**
+   * Удаляет ключи, созданные раньше указанного момента
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :before")
+  int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,49 @@
+package com.example.demo.repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Описание JPQL-запроса для постраничного вывода по ключу сортировки
+ */
+@Getter
+@Builder
+public class KeysetQuery<T> {
+
+  // Сущность, по полям которой выполняется сортировка
+  private final Class<?> entityType;
+
+  // Псевдоним сущности в запросе
+  private final String alias;
+
+  // Выражение SELECT без ключей сортировки, например "SELECT c"
+  private final String select;
+
+  // FROM с JOIN, например "FROM Contact c"
+  private final String from;
+
+  // Дополнительное условие отбора без WHERE (может отсутствовать)
+  private final String where;
+
+  // Параметры запроса по именам
+  private final Map<String, Object> parameters;
+
+  private final Class<T> resultType;
+
+  // Поля сущности, по которым разрешена сортировка
+  private final Set<String> sortFields;
+
+  public static class KeysetQueryBuilder<T> {
+
+    private Map<String, Object> parameters = new LinkedHashMap<>();
+
+    public KeysetQueryBuilder<T> parameter(String name, Object value) {
+      parameters.put(name, value);
+      return this;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.KeysetPage;
+import com.example.demo.utils.KeysetCursor;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Постраничный вывод списков по ключу сортировки (keyset pagination).
+ * Следующая страница выбирается условием "ключ больше последнего выданного"
+ * вместо OFFSET, поэтому время ответа не зависит от номера страницы. При
+ * равных ключах порядок определяется по ID.
+ * Помечен @Component, а не @Repository: при трансляции исключений Spring
+ * заменил бы IllegalArgumentException о неверных параметрах страницы на
+ * InvalidDataAccessApiUsageException
+ */
+@Component
+@RequiredArgsConstructor
+public class KeysetRepository {
+
+  private final EntityManager entityManager;
+
+  @Value("${pagination.default-limit:50}")
+  private int defaultLimit;
+
+  @Value("${pagination.max-limit:500}")
+  private int maxLimit;
+
+  /**
+   * Выбирает страницу записей
+   *
+   * @param sort   поле сортировки, минус в начале - по убыванию (по умолчанию
+   *               id или сортировка из курсора)
+   * @param cursor курсор, полученный с предыдущей страницей
+   * @param limit  размер страницы
+   * @throws IllegalArgumentException при недопустимой сортировке, размере
+   *                                  страницы или курсоре
+   */
+  public <T> KeysetPage<T> findPage(KeysetQuery<T> query, String sort, String cursor, Integer limit) {
+    KeysetCursor after = cursor != null && !cursor.isBlank() ? KeysetCursor.decode(cursor) : null;
+    String sortParam = sort != null && !sort.isBlank() ? sort : after != null ? after.getSort() : "id";
+    boolean descending = sortParam.startsWith("-");
+    String field = descending ? sortParam.substring(1) : sortParam;
+    if (!query.getSortFields().contains(field)) {
+      throw new IllegalArgumentException("Сортировка по полю " + field + " не поддерживается");
+    }
+    if (after != null && !after.getSort().equals(sortParam)) {
+      throw new IllegalArgumentException("Курсор получен для другой сортировки");
+    }
+    int pageSize = limit != null ? limit : defaultLimit;
+    if (pageSize < 1 || pageSize > maxLimit) {
+      throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + maxLimit);
+    }
+
+    String key = query.getAlias() + "." + field;
+    String id = query.getAlias() + ".id";
+    String comparison = descending ? " < " : " > ";
+    String direction = descending ? " DESC" : " ASC";
+
+    List<String> conditions = new ArrayList<>();
+    if (query.getWhere() != null) {
+      conditions.add("(" + query.getWhere() + ")");
+    }
+    if (after != null) {
+      conditions.add(field.equals("id")
+          ? id + comparison + ":lastId"
+          : "(" + key + comparison + ":lastKey OR (" + key + " = :lastKey AND " + id + comparison + ":lastId))");
+    }
+
+    StringBuilder jpql = new StringBuilder(query.getSelect())
+        .append(", ").append(key).append(", ").append(id)
+        .append(" ").append(query.getFrom());
+    if (!conditions.isEmpty()) {
+      jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+    }
+    jpql.append(" ORDER BY ").append(key).append(direction);
+    if (!field.equals("id")) {
+      jpql.append(", ").append(id).append(direction);
+    }
+
+    TypedQuery<Object[]> typedQuery = entityManager.createQuery(jpql.toString(), Object[].class);
+    query.getParameters().forEach(typedQuery::setParameter);
+    if (after != null) {
+      typedQuery.setParameter("lastId", after.getId());
+      if (!field.equals("id")) {
+        typedQuery.setParameter("lastKey", parseKey(query.getEntityType(), field, after.getValue()));
+      }
+    }
+    // Лишняя запись показывает, есть ли следующая страница
+    List<Object[]> rows = typedQuery.setMaxResults(pageSize + 1).getResultList();
+
+    boolean hasMore = rows.size() > pageSize;
+    List<Object[]> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+    List<T> items = pageRows.stream().map(row -> query.getResultType().cast(row[0])).toList();
+    String nextCursor = null;
+    if (hasMore) {
+      Object[] last = pageRows.get(pageRows.size() - 1);
+      nextCursor = new KeysetCursor(field, descending, String.valueOf(last[1]), (Long) last[2]).encode();
+    }
+    return new KeysetPage<>(items, nextCursor);
+  }
+
+  private Object parseKey(Class<?> entityType, String field, String value) {
+    Class<?> type = entityManager.getMetamodel().entity(entityType).getAttribute(field).getJavaType();
+    try {
+      if (type == Long.class) {
+        return Long.valueOf(value);
+      }
+      if (type == Integer.class) {
+        return Integer.valueOf(value);
+      }
+      if (type == Double.class) {
+        return Double.valueOf(value);
+      }
+      if (type == LocalDateTime.class) {
+        return LocalDateTime.parse(value);
+      }
+      return value;
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Некорректный курсор", e);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.example.demo.repository;
+
+import java.sql.PreparedStatement;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.dto.RosterEntryDto;
+import com.example.demo.models.AgeGroup;
+import com.example.demo.models.ApplicationStatus;
+import com.example.demo.models.Gender;
+
+/**
+ * Чтение списка участников тура курсором JDBC: строки читаются порциями по
+ * roster.fetch-size и сразу передаются дальше, не накапливаясь в памяти
+ */
+@Repository
+public class RosterRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final int fetchSize;
+
+  public RosterRepository(JdbcTemplate jdbcTemplate, @Value("${roster.fetch-size:500}") int fetchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * Передает активных участников тура в порядке ФИО. Драйвер PostgreSQL
+   * читает результат порциями только внутри транзакции
+   */
+  public void forEachActiveParticipant(Long tourId, Consumer<RosterEntryDto> consumer) {
+    jdbcTemplate.query(connection -> {
+      PreparedStatement statement = connection.prepareStatement(
+          "SELECT ct.id, c.id AS contact_id, c.full_name, c.phone_number, c.email, c.age_group, c.gender,"
+              + " c.discount_percent, a.id AS application_id, a.status"
+              + " FROM client_tours ct"
+              + " JOIN contacts c ON c.id = ct.contact_id"
+              + " LEFT JOIN applications a ON a.id = ct.application_id"
+              + " WHERE ct.tour_id = ? AND ct.is_active"
+              + " ORDER BY c.full_name, ct.id");
+      statement.setFetchSize(fetchSize);
+      statement.setLong(1, tourId);
+      return statement;
+    }, rs -> {
+      String ageGroup = rs.getString("age_group");
+      String gender = rs.getString("gender");
+      String status = rs.getString("status");
+      consumer.accept(RosterEntryDto.builder()
+          .clientTourId(rs.getLong("id"))
+          .contactId(rs.getLong("contact_id"))
+          .fullName(rs.getString("full_name"))
+          .phoneNumber(rs.getString("phone_number"))
+          .email(rs.getString("email"))
+          .ageGroup(ageGroup != null ? AgeGroup.valueOf(ageGroup) : null)
+          .gender(gender != null ? Gender.valueOf(gender) : null)
+          .discountPercent((Integer) rs.getObject("discount_percent"))
+          .applicationId((Long) rs.getObject("application_id"))
+          .applicationStatus(status != null ? ApplicationStatus.valueOf(status) : null)
+          .build());
+    });
+  }
+}
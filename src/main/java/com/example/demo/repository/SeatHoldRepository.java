@@ -0,0 +1,50 @@
+package com.example.demo.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.models.SeatHold;
+import com.example.demo.models.SeatHoldStatus;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface SeatHoldRepository extends JpaRepository<SeatHold, Long> {
+
+  /**
+   * Находит бронь и блокирует ее до конца транзакции
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT h FROM SeatHold h WHERE h.id = :id")
+  Optional<SeatHold> findByIdForUpdate(@Param("id") Long id);
+
+  /**
+   * Находит брони с указанным статусом и блокирует их до конца транзакции.
+   * Строки блокируются в порядке ID, чтобы параллельные транзакции не
+   * взаимоблокировались
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT h FROM SeatHold h WHERE h.id IN :ids AND h.status = :status ORDER BY h.id")
+  List<SeatHold> findAllByIdAndStatusForUpdate(@Param("ids") Collection<Long> ids,
+      @Param("status") SeatHoldStatus status);
+
+  /**
+   * Находит брони с указанным статусом (для восстановления таймеров при запуске)
+   */
+  List<SeatHold> findByStatus(SeatHoldStatus status);
+
+  /**
+   * Устанавливает статус указанным броням
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("UPDATE SeatHold h SET h.status = :status WHERE h.id IN :ids")
+  int updateStatuses(@Param("ids") Collection<Long> ids, @Param("status") SeatHoldStatus status);
+}
@@ -0,0 +1,92 @@
+package com.example.demo.repository;
+
+import java.sql.Types;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.dto.SlotMismatchDto;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Сверка счетчика свободных мест туров с фактическими бронированиями: место
+ * занимают активные записи на тур, действующие временные брони и места,
+ * закрепленные за записями листа ожидания. Для туров с
+ * разделенными счетчиками сверяется сумма счетчиков
+ */
+@Repository
+@RequiredArgsConstructor
+public class SlotReconciliationRepository {
+
+  // Ожидаемое количество свободных мест; отрицательное значение означает,
+  // что тур продан сверх вместимости
+  private static final String EXPECTED_AVAILABLE = "t.total_slots"
+      + " - (SELECT count(*) FROM client_tours ct WHERE ct.tour_id = t.id AND ct.is_active)"
+      + " - (SELECT count(*) FROM seat_holds h WHERE h.tour_id = t.id AND h.status = 'HELD')"
+      + " - (SELECT count(*) FROM tour_waitlist w WHERE w.tour_id = t.id AND w.status = 'WAITING' AND w.seat_held)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public long countTours() {
+    Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM tours", Long.class);
+    return count != null ? count : 0;
+  }
+
+  /**
+   * Туры, у которых счетчик свободных мест не совпадает с бронированиями.
+   * Все туры сверяются одним запросом с агрегатами по записям и броням
+   */
+  public List<SlotMismatchDto> findMismatches() {
+    return jdbcTemplate.query(
+        "SELECT t.id, t.total_slots, COALESCE(sh.available, t.available_slots) AS available_slots,"
+            + " t.total_slots - COALESCE(ct.taken, 0) - COALESCE(h.taken, 0) - COALESCE(w.taken, 0) AS expected"
+            + " FROM tours t"
+            + " LEFT JOIN (SELECT tour_id, count(*) AS taken FROM client_tours WHERE is_active GROUP BY tour_id) ct"
+            + " ON ct.tour_id = t.id"
+            + " LEFT JOIN (SELECT tour_id, count(*) AS taken FROM seat_holds WHERE status = 'HELD' GROUP BY tour_id) h"
+            + " ON h.tour_id = t.id"
+            + " LEFT JOIN (SELECT tour_id, count(*) AS taken FROM tour_waitlist WHERE status = 'WAITING' AND seat_held"
+            + " GROUP BY tour_id) w"
+            + " ON w.tour_id = t.id"
+            + " LEFT JOIN (SELECT tour_id, sum(available_slots)::int AS available FROM tour_slot_shards GROUP BY tour_id) sh"
+            + " ON sh.tour_id = t.id"
+            + " WHERE COALESCE(sh.available, t.available_slots) IS DISTINCT FROM"
+            + " t.total_slots - COALESCE(ct.taken, 0) - COALESCE(h.taken, 0) - COALESCE(w.taken, 0)"
+            + " ORDER BY t.id",
+        (rs, rowNum) -> SlotMismatchDto.builder()
+            .tourId(rs.getLong("id"))
+            .totalSlots(rs.getInt("total_slots"))
+            .availableSlots((Integer) rs.getObject("available_slots"))
+            .expectedAvailableSlots(rs.getInt("expected"))
+            .build());
+  }
+
+  /**
+   * Пересчитывает свободные места туров одним пакетом UPDATE. Тур обновляется, только
+   * если его счетчик не изменился с момента сверки, иначе параллельное
+   * бронирование было бы затерто; счетчик не опускается ниже нуля. Туры с
+   * разделенными счетчиками только попадают в отчет и не исправляются
+   *
+   * @return признак обновления для каждого тура
+   */
+  public boolean[] repair(List<SlotMismatchDto> mismatches) {
+    int[][] counts = jdbcTemplate.batchUpdate(
+        "UPDATE tours t SET available_slots = GREATEST(0, " + EXPECTED_AVAILABLE + "), updated_at = LOCALTIMESTAMP"
+            + " WHERE t.id = ? AND t.available_slots IS NOT DISTINCT FROM ? AND t.slot_shards IS NULL",
+        mismatches, mismatches.size(),
+        (ps, mismatch) -> {
+          ps.setLong(1, mismatch.getTourId());
+          ps.setObject(2, mismatch.getAvailableSlots(), Types.INTEGER);
+        });
+    boolean[] repaired = new boolean[mismatches.size()];
+    int index = 0;
+    for (int[] batch : counts) {
+      for (int count : batch) {
+        repaired[index++] = count == 1;
+      }
+    }
+    return repaired;
+  }
+}
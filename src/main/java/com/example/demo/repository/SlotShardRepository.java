@@ -0,0 +1,128 @@
+package com.example.demo.repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Счетчики свободных мест популярных туров (таблица tour_slot_shards)
+ */
+@Repository
+@RequiredArgsConstructor
+public class SlotShardRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Количество счетчиков тура (null - тур не разделен или не найден)
+   */
+  public Integer findShardCount(Long tourId) {
+    List<Integer> counts = jdbcTemplate.queryForList(
+        "SELECT slot_shards FROM tours WHERE id = ?", Integer.class, tourId);
+    return counts.isEmpty() ? null : counts.get(0);
+  }
+
+  /**
+   * Количество счетчиков всех разделенных туров
+   */
+  public Map<Long, Integer> findAllShardCounts() {
+    return jdbcTemplate.query("SELECT id, slot_shards FROM tours WHERE slot_shards IS NOT NULL",
+        rs -> {
+          Map<Long, Integer> counts = new HashMap<>();
+          while (rs.next()) {
+            counts.put(rs.getLong("id"), rs.getInt("slot_shards"));
+          }
+          return counts;
+        });
+  }
+
+  /**
+   * Занимает места в одном счетчике, если в нем их достаточно
+   */
+  public boolean decrement(Long tourId, int shard, int seats) {
+    return jdbcTemplate.update(
+        "UPDATE tour_slot_shards SET available_slots = available_slots - ?"
+            + " WHERE tour_id = ? AND shard = ? AND available_slots >= ?",
+        seats, tourId, shard, seats) > 0;
+  }
+
+  /**
+   * Возвращает места в счетчик; если такого счетчика нет - в первый счетчик тура
+   *
+   * @return false, если у тура нет счетчиков
+   */
+  public boolean increment(Long tourId, int shard, int seats) {
+    if (jdbcTemplate.update("UPDATE tour_slot_shards SET available_slots = available_slots + ?"
+        + " WHERE tour_id = ? AND shard = ?", seats, tourId, shard) > 0) {
+      return true;
+    }
+    return jdbcTemplate.update("UPDATE tour_slot_shards SET available_slots = available_slots + ?"
+        + " WHERE tour_id = ? AND shard = (SELECT min(shard) FROM tour_slot_shards WHERE tour_id = ?)",
+        seats, tourId, tourId) > 0;
+  }
+
+  /**
+   * Блокирует все счетчики тура и возвращает их остатки по порядку номеров
+   */
+  public List<int[]> lockShards(Long tourId) {
+    return jdbcTemplate.query(
+        "SELECT shard, available_slots FROM tour_slot_shards WHERE tour_id = ? ORDER BY shard FOR UPDATE",
+        (rs, rowNum) -> new int[] { rs.getInt("shard"), rs.getInt("available_slots") }, tourId);
+  }
+
+  public void setShardSlots(Long tourId, int shard, int slots) {
+    jdbcTemplate.update("UPDATE tour_slot_shards SET available_slots = ? WHERE tour_id = ? AND shard = ?",
+        slots, tourId, shard);
+  }
+
+  /**
+   * Блокирует строку тура и возвращает количество свободных мест в ней
+   */
+  public Integer lockTourSlots(Long tourId) {
+    List<Integer> slots = jdbcTemplate.queryForList(
+        "SELECT available_slots FROM tours WHERE id = ? FOR UPDATE", Integer.class, tourId);
+    return slots.isEmpty() ? null : slots.get(0);
+  }
+
+  /**
+   * Заменяет счетчики тура: места поровну делятся между shardCount
+   * счетчиками, остаток достается первым. При shardCount = null счетчики
+   * удаляются и тур возвращается к одному счетчику
+   */
+  public void replaceShards(Long tourId, Integer shardCount, int availableSlots) {
+    jdbcTemplate.update("DELETE FROM tour_slot_shards WHERE tour_id = ?", tourId);
+    if (shardCount != null) {
+      jdbcTemplate.batchUpdate(
+          "INSERT INTO tour_slot_shards (tour_id, shard, available_slots) VALUES (?, ?, ?)",
+          IntStream.range(0, shardCount)
+              .mapToObj(shard -> new Object[] { tourId, shard,
+                  availableSlots / shardCount + (shard < availableSlots % shardCount ? 1 : 0) })
+              .toList());
+    }
+    jdbcTemplate.update("UPDATE tours SET slot_shards = ?, available_slots = ? WHERE id = ?",
+        shardCount, availableSlots, tourId);
+  }
+
+  /**
+   * Записывает в строку тура сумму его счетчиков. Счетчики читаются под
+   * разделяемой блокировкой, поэтому сумма не затирает изменение,
+   * зафиксированное параллельно
+   */
+  @Transactional
+  public void syncTotal(Long tourId) {
+    Integer total = jdbcTemplate.queryForObject(
+        "SELECT sum(available_slots) FROM (SELECT available_slots FROM tour_slot_shards WHERE tour_id = ? FOR SHARE) s",
+        Integer.class, tourId);
+    if (total != null) {
+      jdbcTemplate.update("UPDATE tours SET available_slots = ? WHERE id = ? AND available_slots <> ?",
+          total, tourId, total);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.models.TourImageVariant;
+
+@Repository
+public interface TourImageVariantRepository extends JpaRepository<TourImageVariant, Long> {
+
+  /**
+   * Находит копию изображения указанной ширины
+   */
+  Optional<TourImageVariant> findBySourceKeyAndWidth(String sourceKey, Integer width);
+
+  /**
+   * Находит все копии изображения
+   */
+  List<TourImageVariant> findBySourceKey(String sourceKey);
+
+  /**
+   * Удаляет все копии изображения
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM TourImageVariant v WHERE v.sourceKey = :sourceKey")
+  int deleteBySourceKey(@Param("sourceKey") String sourceKey);
+}
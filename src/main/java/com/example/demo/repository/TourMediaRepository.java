@@ -0,0 +1,191 @@
+package com.example.demo.repository;
+
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.dto.TourMediaInfo;
+import com.example.demo.models.TourMediaKind;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Доступ к изображениям и файлам туров в таблице tours.
+ * Медиа хранится либо ссылкой на хранилище файлов (image_key, file_key), либо
+ * в BYTEA-колонках. Данные из колонок читаются частями через substring,
+ * поэтому в память никогда не загружается весь файл
+ */
+@Repository
+@RequiredArgsConstructor
+public class TourMediaRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Находит метаданные медиа тура. Пустой результат, если тура или медиа нет
+   */
+  public Optional<TourMediaInfo> findInfo(Long tourId, TourMediaKind kind) {
+    String prefix = columnPrefix(kind);
+    List<TourMediaInfo> result = jdbcTemplate.query(
+        "SELECT " + prefix + "_name, " + prefix + "_type, " + prefix + "_key, "
+            + "COALESCE(" + prefix + "_size, octet_length(" + prefix + "_data)) AS size, updated_at "
+            + "FROM tours WHERE id = ? AND (" + prefix + "_key IS NOT NULL OR " + prefix + "_data IS NOT NULL)",
+        (rs, rowNum) -> {
+          Timestamp updatedAt = rs.getTimestamp("updated_at");
+          return TourMediaInfo.builder()
+              .tourId(tourId)
+              .kind(kind)
+              .name(rs.getString(1))
+              .contentType(rs.getString(2))
+              .blobKey(rs.getString(3))
+              .size(rs.getLong("size"))
+              .updatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null)
+              .build();
+        },
+        tourId);
+    return result.stream().findFirst();
+  }
+
+  /**
+   * Читает часть медиа тура из BYTEA-колонки начиная с offset (с нуля) длиной
+   * не более length байт
+   */
+  public byte[] readChunk(Long tourId, TourMediaKind kind, long offset, int length) {
+    String prefix = columnPrefix(kind);
+    List<byte[]> result = jdbcTemplate.query(
+        "SELECT substring(" + prefix + "_data FROM CAST(? AS integer) FOR CAST(? AS integer)) "
+            + "FROM tours WHERE id = ?",
+        (rs, rowNum) -> rs.getBytes(1),
+        offset + 1, length, tourId);
+    return result.isEmpty() || result.get(0) == null ? new byte[0] : result.get(0);
+  }
+
+  /**
+   * Читает часть медиа тура, только если строка тура не менялась после
+   * updatedAt - версии, по которой построен ETag ответа. Пустой массив, если
+   * медиа было заменено или удалено
+   */
+  public byte[] readChunk(Long tourId, TourMediaKind kind, LocalDateTime updatedAt, long offset, int length) {
+    String prefix = columnPrefix(kind);
+    List<byte[]> result = jdbcTemplate.query(
+        "SELECT substring(" + prefix + "_data FROM CAST(? AS integer) FOR CAST(? AS integer)) "
+            + "FROM tours WHERE id = ? AND updated_at IS NOT DISTINCT FROM CAST(? AS timestamp)",
+        (rs, rowNum) -> rs.getBytes(1),
+        offset + 1, length, tourId, updatedAt != null ? Timestamp.valueOf(updatedAt) : null);
+    return result.isEmpty() || result.get(0) == null ? new byte[0] : result.get(0);
+  }
+
+  /**
+   * Находит ключ медиа тура в хранилище файлов
+   */
+  public Optional<String> findKey(Long tourId, TourMediaKind kind) {
+    String prefix = columnPrefix(kind);
+    List<String> result = jdbcTemplate.query(
+        "SELECT " + prefix + "_key FROM tours WHERE id = ? AND " + prefix + "_key IS NOT NULL",
+        (rs, rowNum) -> rs.getString(1),
+        tourId);
+    return result.stream().findFirst();
+  }
+
+  /**
+   * Сохраняет ссылку на данные в хранилище файлов и очищает BYTEA-колонку.
+   * Возвращает количество обновленных строк (0 - тур не найден)
+   */
+  public int updateBlobReference(Long tourId, TourMediaKind kind, String key, long size, String name,
+      String contentType) {
+    String prefix = columnPrefix(kind);
+    return jdbcTemplate.update(
+        "UPDATE tours SET " + prefix + "_key = ?, " + prefix + "_size = ?, " + prefix + "_name = ?, "
+            + prefix + "_type = ?, " + prefix + "_data = NULL, updated_at = LOCALTIMESTAMP WHERE id = ?",
+        key, size, name, contentType, tourId);
+  }
+
+  /**
+   * Сохраняет данные в BYTEA-колонку потоком, без промежуточного массива байт.
+   * Возвращает количество обновленных строк (0 - тур не найден)
+   */
+  public int updateData(Long tourId, TourMediaKind kind, InputStream content, long size, String name,
+      String contentType) {
+    String prefix = columnPrefix(kind);
+    return jdbcTemplate.update(
+        "UPDATE tours SET " + prefix + "_data = ?, " + prefix + "_size = ?, " + prefix + "_name = ?, "
+            + prefix + "_type = ?, " + prefix + "_key = NULL, updated_at = LOCALTIMESTAMP WHERE id = ?",
+        ps -> {
+          ps.setBinaryStream(1, content, size);
+          ps.setLong(2, size);
+          ps.setString(3, name);
+          ps.setString(4, contentType);
+          ps.setLong(5, tourId);
+        });
+  }
+
+  /**
+   * Находит идентификаторы туров (больше afterId), медиа которых еще хранится
+   * в BYTEA-колонке
+   */
+  public List<Long> findIdsWithData(TourMediaKind kind, long afterId, int limit) {
+    String prefix = columnPrefix(kind);
+    return jdbcTemplate.queryForList(
+        "SELECT id FROM tours WHERE id > ? AND " + prefix + "_data IS NOT NULL AND " + prefix + "_key IS NULL "
+            + "ORDER BY id LIMIT ?",
+        Long.class, afterId, limit);
+  }
+
+  /**
+   * Переключает медиа тура с BYTEA-колонки на хранилище файлов.
+   * Строка обновляется, только если данные в колонке совпадают с перенесенными
+   * (ключ хранилища - SHA-256 содержимого), поэтому параллельная замена медиа
+   * не теряется. Возвращает количество обновленных строк
+   */
+  public int completeMigration(Long tourId, TourMediaKind kind, String key, long size) {
+    String prefix = columnPrefix(kind);
+    return jdbcTemplate.update(
+        "UPDATE tours SET " + prefix + "_key = ?, " + prefix + "_size = ?, " + prefix + "_data = NULL "
+            + "WHERE id = ? AND " + prefix + "_key IS NULL AND " + prefix + "_data IS NOT NULL "
+            + "AND encode(sha256(" + prefix + "_data), 'hex') = ?",
+        key, size, tourId, key);
+  }
+
+  /**
+   * Количество ссылок на данные с указанным ключом из туров и уменьшенных
+   * копий других изображений
+   */
+  public long countKeyReferences(String key) {
+    Long count = jdbcTemplate.queryForObject(
+        "SELECT (SELECT count(*) FROM tours WHERE image_key = ? OR file_key = ?) "
+            + "+ (SELECT count(*) FROM tour_image_variants WHERE blob_key = ? AND source_key <> ?)",
+        Long.class, key, key, key, key);
+    return count != null ? count : 0;
+  }
+
+  /**
+   * Разделяемая блокировка данных с указанным ключом до конца транзакции.
+   * Ее держит транзакция, которая ссылается на данные, пока ссылка не
+   * зафиксирована: удаление данных в это время пропускается
+   */
+  public void lockKeyShared(String key) {
+    jdbcTemplate.query("SELECT pg_advisory_xact_lock_shared(hashtextextended(?, 0))", rs -> {
+    }, key);
+  }
+
+  /**
+   * Исключительная блокировка данных с указанным ключом до конца транзакции
+   * без ожидания
+   *
+   * @return false, если данные заблокированы другой транзакцией
+   */
+  public boolean tryLockKey(String key) {
+    Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(hashtextextended(?, 0))",
+        Boolean.class, key);
+    return Boolean.TRUE.equals(locked);
+  }
+
+  private String columnPrefix(TourMediaKind kind) {
+    return kind == TourMediaKind.IMAGE ? "image" : "file";
+  }
+}
@@ -1,12 +1,83 @@
 package com.example.demo.repository;
 
+import java.util.List;
+import java.util.Optional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.demo.dto.TourDetailsDto;
+import com.example.demo.dto.TourSummaryDto;
 import com.example.demo.models.Tour;
 
 @Repository
 public interface TourRepository extends JpaRepository<Tour, Long> {
   // Здесь можно добавить дополнительные методы для поиска туров
   // например, поиск по стране, сезону и т.д.
-}
\ No newline at end of file
+
+  /**
+   * Находит краткую информацию обо всех турах для каталога.
+   * Колонки image_data и file_data не выбираются, размеры берутся из
+   * image_size и file_size
+   */
+  @Query("SELECT new com.example.demo.dto.TourSummaryDto(t.id, t.name, t.country, t.season, t.type, "
+      + "t.startDate, t.endDate, t.duration, t.price, t.totalSlots, t.availableSlots, t.isRegistrationClosed, "
+      + "t.imageName, t.imageType, t.imageSize, "
+      + "t.fileName, t.fileType, t.fileSize) "
+      + "FROM Tour t ORDER BY t.id")
+  List<TourSummaryDto> findAllSummaries();
+
+  /**
+   * Находит краткую информацию о туре без изображения и файла
+   */
+  @Query("SELECT new com.example.demo.dto.TourSummaryDto(t.id, t.name, t.country, t.season, t.type, "
+      + "t.startDate, t.endDate, t.duration, t.price, t.totalSlots, t.availableSlots, t.isRegistrationClosed, "
+      + "t.imageName, t.imageType, t.imageSize, "
+      + "t.fileName, t.fileType, t.fileSize) "
+      + "FROM Tour t WHERE t.id = :id")
+  Optional<TourSummaryDto> findSummaryById(@Param("id") Long id);
+
+  /**
+   * Находит тур с описанием, но без изображения и файла
+   */
+  @Query("SELECT new com.example.demo.dto.TourDetailsDto(t.id, t.name, t.description, t.country, t.season, t.type, "
+      + "t.startDate, t.endDate, t.duration, t.price, t.totalSlots, t.availableSlots, t.isRegistrationClosed, "
+      + "t.imageName, t.imageType, t.imageSize, "
+      + "t.fileName, t.fileType, t.fileSize) "
+      + "FROM Tour t WHERE t.id = :id")
+  Optional<TourDetailsDto> findDetailsById(@Param("id") Long id);
+
+  /**
+   * Заполняет image_size и file_size для туров, сохраненных до появления этих
+   * колонок. Возвращает количество обновленных строк
+   */
+  @Modifying
+  @Transactional
+  @Query(value = "UPDATE tours SET image_size = octet_length(image_data), file_size = octet_length(file_data) "
+      + "WHERE (image_data IS NOT NULL AND image_size IS NULL) OR (file_data IS NOT NULL AND file_size IS NULL)", nativeQuery = true)
+  int backfillMediaSizes();
+
+  /**
+   * Атомарно занимает места в туре, если их достаточно.
+   * Туры с разделенными счетчиками мест не обновляются.
+   * Возвращает количество обновленных строк (0 - мест нет, тур не найден или
+   * разделен)
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE Tour t SET t.availableSlots = t.availableSlots - :seats WHERE t.id = :tourId AND t.availableSlots >= :seats AND t.slotShards IS NULL")
+  int decrementAvailableSlots(@Param("tourId") Long tourId, @Param("seats") int seats);
+
+  /**
+   * Атомарно возвращает места в тур.
+   * Возвращает количество обновленных строк (0 - тур не найден или разделен)
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE Tour t SET t.availableSlots = t.availableSlots + :seats WHERE t.id = :tourId AND t.slotShards IS NULL")
+  int incrementAvailableSlots(@Param("tourId") Long tourId, @Param("seats") int seats);
+}
@@ -0,0 +1,55 @@
+package com.example.demo.repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Чтение данных туров для поискового индекса, которых нет в краткой
+ * информации о туре
+ */
+@Repository
+@RequiredArgsConstructor
+public class TourSearchRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Описания всех туров по ID
+   */
+  public Map<Long, String> findAllDescriptions() {
+    Map<Long, String> descriptions = new HashMap<>();
+    jdbcTemplate.query("SELECT id, description FROM tours",
+        rs -> {
+          descriptions.put(rs.getLong(1), rs.getString(2));
+        });
+    return descriptions;
+  }
+
+  /**
+   * Описание тура
+   */
+  public Optional<String> findDescription(Long tourId) {
+    List<String> result = jdbcTemplate.query("SELECT description FROM tours WHERE id = ?",
+        (rs, rowNum) -> rs.getString(1), tourId);
+    return result.stream().findFirst();
+  }
+
+  /**
+   * Количество свободных мест всех туров по ID
+   */
+  public Map<Long, Integer> findAllAvailableSlots() {
+    Map<Long, Integer> slots = new HashMap<>();
+    jdbcTemplate.query("SELECT id, available_slots FROM tours",
+        rs -> {
+          slots.put(rs.getLong(1), rs.getInt(2));
+        });
+    return slots;
+  }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Точечное обновление скалярных колонок тура одним UPDATE без загрузки
+ * сущности, поэтому изображение и файл тура не читаются и не перезаписываются
+ */
+@Repository
+@RequiredArgsConstructor
+public class TourUpdateRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Обновляет указанные колонки тура (имя колонки - новое значение).
+   * При изменении дат пересчитывается duration, при изменении total_slots без
+   * явного available_slots количество свободных мест сдвигается на ту же
+   * величину. Строка не обновляется, если дата окончания окажется раньше даты
+   * начала или свободных мест станет меньше нуля
+   *
+   * @return количество обновленных строк (0 - тур не найден или нарушены
+   *         ограничения)
+   */
+  public int updateColumns(Long tourId, Map<String, Object> columns) {
+    List<String> assignments = new ArrayList<>();
+    List<Object> assignmentParams = new ArrayList<>();
+    List<String> conditions = new ArrayList<>();
+    List<Object> conditionParams = new ArrayList<>();
+
+    columns.forEach((column, value) -> {
+      assignments.add(column + " = ?");
+      assignmentParams.add(value);
+    });
+
+    if (columns.containsKey("start_date") || columns.containsKey("end_date")) {
+      // В SET колонки ссылаются на старые значения строки, поэтому новые даты
+      // подставляются параметрами
+      String startDate = columns.containsKey("start_date") ? "CAST(? AS timestamp)" : "start_date";
+      String endDate = columns.containsKey("end_date") ? "CAST(? AS timestamp)" : "end_date";
+      assignments.add("duration = (CAST(" + endDate + " AS date) - CAST(" + startDate + " AS date)) + 1");
+      conditions.add(endDate + " >= " + startDate);
+      for (List<Object> params : List.of(assignmentParams, conditionParams)) {
+        if (columns.containsKey("end_date")) {
+          params.add(columns.get("end_date"));
+        }
+        if (columns.containsKey("start_date")) {
+          params.add(columns.get("start_date"));
+        }
+      }
+    }
+
+    if (columns.containsKey("total_slots") && !columns.containsKey("available_slots")) {
+      assignments.add("available_slots = available_slots + (? - total_slots)");
+      assignmentParams.add(columns.get("total_slots"));
+      conditions.add("available_slots + (? - total_slots) >= 0");
+      conditionParams.add(columns.get("total_slots"));
+    }
+
+    assignments.add("updated_at = LOCALTIMESTAMP");
+
+    StringBuilder sql = new StringBuilder("UPDATE tours SET ")
+        .append(String.join(", ", assignments))
+        .append(" WHERE id = ?");
+    conditions.forEach(condition -> sql.append(" AND ").append(condition));
+
+    List<Object> params = new ArrayList<>(assignmentParams);
+    params.add(tourId);
+    params.addAll(conditionParams);
+    return jdbcTemplate.update(sql.toString(), params.toArray());
+  }
+
+  /**
+   * Занимает до max свободных мест тура одним UPDATE: сколько есть, но не
+   * больше max. Туры с разделенными счетчиками мест не обновляются
+   *
+   * @return количество занятых мест (0 - мест нет, тур не найден или разделен)
+   */
+  public int takeAvailableSlots(Long tourId, int max) {
+    List<Integer> taken = jdbcTemplate.queryForList(
+        "UPDATE tours t SET available_slots = t.available_slots - LEAST(old.available_slots, ?) "
+            + "FROM (SELECT id, available_slots FROM tours WHERE id = ? AND slot_shards IS NULL FOR UPDATE) old "
+            + "WHERE t.id = old.id AND old.available_slots > 0 "
+            + "RETURNING LEAST(old.available_slots, ?)",
+        Integer.class, max, tourId, max);
+    return taken.isEmpty() ? 0 : taken.get(0);
+  }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +21,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
   Optional<User> findByEmail(String email);
 
+  List<User> findAllByEmailIn(Collection<String> emails);
+
   boolean existsByFullName(String fullName);
 
   boolean existsByEmail(String email);
@@ -0,0 +1,51 @@
+package com.example.demo.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.models.WaitlistEntry;
+import com.example.demo.models.WaitlistStatus;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Long> {
+
+  /**
+   * Находит запись с указанным статусом и блокирует ее до конца транзакции
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT w FROM WaitlistEntry w WHERE w.id = :id AND w.status = :status")
+  Optional<WaitlistEntry> findByIdAndStatusForUpdate(@Param("id") Long id, @Param("status") WaitlistStatus status);
+
+  /**
+   * Находит первую после указанной запись тура с указанным статусом без
+   * закрепленного места и блокирует ее до конца транзакции
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  Optional<WaitlistEntry> findFirstByTourIdAndStatusAndSeatHeldFalseAndIdGreaterThanOrderById(Long tourId,
+      WaitlistStatus status, Long id);
+
+  /**
+   * Находит записи с указанным статусом в порядке постановки в очередь
+   */
+  List<WaitlistEntry> findByStatusOrderById(WaitlistStatus status);
+
+  /**
+   * Находит записи листа ожидания тура в порядке постановки в очередь
+   */
+  List<WaitlistEntry> findByTourIdAndStatusOrderById(Long tourId, WaitlistStatus status);
+
+  boolean existsByTourIdAndEmailIgnoreCaseAndStatus(Long tourId, String email, WaitlistStatus status);
+
+  /**
+   * Количество записей, стоящих в очереди перед указанной
+   */
+  long countByTourIdAndStatusAndIdLessThan(Long tourId, WaitlistStatus status, Long id);
+}
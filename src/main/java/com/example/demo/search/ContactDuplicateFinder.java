@@ -0,0 +1,342 @@
+package com.example.demo.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Поиск дубликатов контактов.
+ * Email приводится к нижнему регистру, телефон - к цифрам номера, как в
+ * поисковом индексе. Сначала по ключам всех контактов (addKeys) отбираются
+ * контакты, у которых хеш email или телефона совпадает с другим контактом:
+ * корзина - контакты с одинаковым хешем. Затем среди отобранных контактов
+ * (findGroups) сравниваются только пары внутри корзины: каждой паре
+ * выставляется оценка по совпадению email, телефона и похожести ФИО. Пары с
+ * оценкой не ниже порога объединяются в группы (транзитивно), в каждой группе
+ * выбирается контакт, который останется после слияния
+ */
+public final class ContactDuplicateFinder {
+
+  /**
+   * Контакт, проверяемый на дубликаты
+   *
+   * @param userId пользователь, связанный с контактом (может быть null)
+   */
+  public record Candidate(Long contactId, String fullName, String phoneNumber, String email, Long userId) {
+  }
+
+  /**
+   * Группа дубликатов
+   *
+   * @param survivorId   контакт, который останется после слияния
+   * @param duplicateIds контакты, которые будут слиты с ним
+   * @param skippedIds   похожие контакты, которые нельзя слить: они связаны
+   *                     с другим пользователем
+   * @param score        наименьшая оценка пар, по которым собрана группа
+   */
+  public record Group(Long survivorId, List<Long> duplicateIds, List<Long> skippedIds, double score) {
+  }
+
+  // Вес совпадения ФИО (доля общих троек символов), email и телефона
+  private static final double NAME_WEIGHT = 0.5;
+  private static final double EMAIL_WEIGHT = 0.3;
+  private static final double PHONE_WEIGHT = 0.2;
+  // Контакты с непохожими ФИО не сливаются даже при общих email и телефоне:
+  // это могут быть родственники
+  private static final double MIN_NAME_SIMILARITY = 0.5;
+  // Номера короче не считаются телефоном (заглушки вроде "0" или "000")
+  private static final int MIN_PHONE_DIGITS = 7;
+  // Ключ корзины: в старших битах хеш значения, в младших номер контакта,
+  // поэтому после сортировки контакты одной корзины идут подряд. Совпадение
+  // хешей разных значений дает лишь лишнюю пару: при оценке сравниваются
+  // сами значения
+  private static final int INDEX_BITS = 26;
+  private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+  private static final int MAX_CONTACTS = 1 << INDEX_BITS;
+  private static final int EMAIL = 0;
+  private static final int PHONE = 1;
+  private static final double NO_GROUP = Double.MAX_VALUE;
+
+  private final double minScore;
+  private final int maxBucketSize;
+  // Хеши значений, общих для слишком многих контактов
+  private final Set<Long> oversizedBuckets = new HashSet<>();
+  private long[] contactIds = new long[1024];
+  private long[] keys = new long[2048];
+  private int contactCount;
+  private int keyCount;
+
+  /**
+   * @param minScore      порог оценки пары от 0 до 1
+   * @param maxBucketSize корзины крупнее не проверяются: общий email или
+   *                      телефон у такого числа контактов - заглушка, а не
+   *                      признак одного человека
+   */
+  public ContactDuplicateFinder(double minScore, int maxBucketSize) {
+    this.minScore = minScore;
+    this.maxBucketSize = maxBucketSize;
+  }
+
+  /**
+   * Количество пропущенных из-за размера корзин
+   */
+  public int getOversizedBuckets() {
+    return oversizedBuckets.size();
+  }
+
+  /**
+   * Добавление ключей контакта для отбора возможных дубликатов. В памяти
+   * хранятся только ID и хеши, поэтому ключи всех контактов занимают
+   * около 24 байт на контакт
+   */
+  public void addKeys(long contactId, String email, String phoneNumber) {
+    if (contactCount == MAX_CONTACTS) {
+      throw new IllegalStateException("Слишком много контактов для поиска дубликатов");
+    }
+    if (contactCount == contactIds.length) {
+      contactIds = Arrays.copyOf(contactIds, contactCount * 2);
+      keys = Arrays.copyOf(keys, contactCount * 4);
+    }
+    int index = contactCount++;
+    contactIds[index] = contactId;
+    String normalizedEmail = normalizeEmail(email);
+    if (normalizedEmail != null) {
+      keys[keyCount++] = bucketKey(normalizedEmail, EMAIL, index);
+    }
+    String normalizedPhone = normalizePhone(phoneNumber);
+    if (normalizedPhone != null) {
+      keys[keyCount++] = bucketKey(normalizedPhone, PHONE, index);
+    }
+  }
+
+  /**
+   * ID контактов, у которых email или телефон (по хешу) совпадает хотя бы с
+   * одним другим контактом, по возрастанию. Добавленные ключи сбрасываются
+   */
+  public List<Long> candidateIds() {
+    Arrays.sort(keys, 0, keyCount);
+    BitSet candidates = new BitSet(contactCount);
+    forEachBucket(keys, keyCount, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        candidates.set((int) (keys[i] & INDEX_MASK));
+      }
+    });
+    List<Long> ids = new ArrayList<>(candidates.cardinality());
+    for (int index = candidates.nextSetBit(0); index >= 0; index = candidates.nextSetBit(index + 1)) {
+      ids.add(contactIds[index]);
+    }
+    Collections.sort(ids);
+    contactIds = new long[1024];
+    keys = new long[2048];
+    contactCount = 0;
+    keyCount = 0;
+    return ids;
+  }
+
+  /**
+   * Группы дубликатов среди контактов, по возрастанию ID остающегося контакта.
+   * Email и телефоны из пропущенных корзин не сравниваются
+   */
+  public List<Group> findGroups(List<Candidate> candidates) {
+    int count = candidates.size();
+    if (count > MAX_CONTACTS) {
+      throw new IllegalArgumentException("Слишком много контактов для поиска дубликатов: " + count);
+    }
+    String[] emails = new String[count];
+    String[] phones = new String[count];
+    long[] candidateKeys = new long[count * 2];
+    int candidateKeyCount = 0;
+    for (int i = 0; i < count; i++) {
+      Candidate candidate = candidates.get(i);
+      emails[i] = normalizeEmail(candidate.email());
+      phones[i] = normalizePhone(candidate.phoneNumber());
+      if (emails[i] != null) {
+        long key = bucketKey(emails[i], EMAIL, i);
+        if (oversizedBuckets.contains(key >>> INDEX_BITS)) {
+          emails[i] = null;
+        } else {
+          candidateKeys[candidateKeyCount++] = key;
+        }
+      }
+      if (phones[i] != null) {
+        long key = bucketKey(phones[i], PHONE, i);
+        if (oversizedBuckets.contains(key >>> INDEX_BITS)) {
+          phones[i] = null;
+        } else {
+          candidateKeys[candidateKeyCount++] = key;
+        }
+      }
+    }
+    Arrays.sort(candidateKeys, 0, candidateKeyCount);
+
+    // Тройки ФИО считаются только для контактов, попавших в пары
+    long[][] names = new long[count][];
+    int[] parents = new int[count];
+    double[] groupScores = new double[count];
+    for (int i = 0; i < count; i++) {
+      parents[i] = i;
+      groupScores[i] = NO_GROUP;
+    }
+    forEachBucket(candidateKeys, candidateKeyCount, (from, to) -> {
+      for (int a = from; a < to; a++) {
+        for (int b = a + 1; b < to; b++) {
+          int first = (int) (candidateKeys[a] & INDEX_MASK);
+          int second = (int) (candidateKeys[b] & INDEX_MASK);
+          double nameSimilarity = similarity(nameGrams(names, candidates, first), nameGrams(names, candidates, second));
+          if (nameSimilarity < MIN_NAME_SIMILARITY) {
+            continue;
+          }
+          double score = NAME_WEIGHT * nameSimilarity
+              + (emails[first] != null && emails[first].equals(emails[second]) ? EMAIL_WEIGHT : 0)
+              + (phones[first] != null && phones[first].equals(phones[second]) ? PHONE_WEIGHT : 0);
+          if (score >= minScore) {
+            // Оценка группы - наименьшая оценка пар, по которым она собрана
+            int firstRoot = find(parents, first);
+            int secondRoot = find(parents, second);
+            int root = Math.min(firstRoot, secondRoot);
+            parents[Math.max(firstRoot, secondRoot)] = root;
+            groupScores[root] = Math.min(score, Math.min(groupScores[firstRoot], groupScores[secondRoot]));
+          }
+        }
+      }
+    });
+
+    Map<Integer, List<Candidate>> members = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      int root = find(parents, i);
+      if (groupScores[root] != NO_GROUP) {
+        members.computeIfAbsent(root, key -> new ArrayList<>(2)).add(candidates.get(i));
+      }
+    }
+    List<Group> groups = new ArrayList<>(members.size());
+    members.forEach((root, group) -> groups.add(toGroup(group, groupScores[root])));
+    groups.sort(Comparator.comparing(Group::survivorId));
+    return groups;
+  }
+
+  /**
+   * Email без пробелов по краям в нижнем регистре (null, если пуст)
+   */
+  public static String normalizeEmail(String email) {
+    if (email == null || email.isBlank()) {
+      return null;
+    }
+    return email.strip().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Цифры номера телефона (null, если цифр слишком мало)
+   */
+  public static String normalizePhone(String phone) {
+    String digits = ContactSearchIndex.normalizePhone(phone);
+    return digits != null && digits.length() >= MIN_PHONE_DIGITS ? digits : null;
+  }
+
+  /**
+   * Остается контакт, связанный с пользователем, иначе самый старый (с
+   * наименьшим ID). Контакты другого пользователя не сливаются
+   */
+  private static Group toGroup(List<Candidate> group, double score) {
+    Candidate survivor = group.stream()
+        .min(Comparator.comparing((Candidate candidate) -> candidate.userId() == null)
+            .thenComparing(Candidate::contactId))
+        .orElseThrow();
+    List<Long> duplicateIds = new ArrayList<>();
+    List<Long> skippedIds = new ArrayList<>();
+    group.stream()
+        .filter(candidate -> candidate != survivor)
+        .sorted(Comparator.comparing(Candidate::contactId))
+        .forEach(candidate -> (candidate.userId() != null ? skippedIds : duplicateIds).add(candidate.contactId()));
+    return new Group(survivor.contactId(), duplicateIds, skippedIds, score);
+  }
+
+  /**
+   * Обход корзин из двух и более контактов в отсортированных ключах.
+   * Корзины крупнее maxBucketSize пропускаются и запоминаются
+   */
+  private void forEachBucket(long[] sortedKeys, int count, BucketConsumer consumer) {
+    for (int from = 0, to; from < count; from = to) {
+      long bucket = sortedKeys[from] >>> INDEX_BITS;
+      to = from + 1;
+      while (to < count && sortedKeys[to] >>> INDEX_BITS == bucket) {
+        to++;
+      }
+      if (to - from > maxBucketSize) {
+        oversizedBuckets.add(bucket);
+      } else if (to - from > 1) {
+        consumer.accept(from, to);
+      }
+    }
+  }
+
+  /**
+   * 64-битный хеш FNV-1a значения с перемешиванием старших битов; номер
+   * поля входит в хеш, чтобы email и телефон не попадали в одну корзину
+   */
+  private static long bucketKey(String value, int field, int index) {
+    long hash = 0xcbf29ce484222325L ^ field;
+    for (int i = 0; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash & ~INDEX_MASK | index;
+  }
+
+  /**
+   * Тройки ФИО по возрастанию, как в поисковом индексе
+   */
+  private static long[] nameGrams(long[][] names, List<Candidate> candidates, int i) {
+    if (names[i] == null) {
+      names[i] = ContactSearchIndex.grams(Collections.singletonList(candidates.get(i).fullName())).stream()
+          .mapToLong(Long::longValue)
+          .sorted()
+          .toArray();
+    }
+    return names[i];
+  }
+
+  /**
+   * Доля общих троек (коэффициент Жаккара)
+   */
+  private static double similarity(long[] first, long[] second) {
+    if (first.length == 0 || second.length == 0) {
+      return 0;
+    }
+    int common = 0;
+    for (int i = 0, j = 0; i < first.length && j < second.length;) {
+      if (first[i] == second[j]) {
+        common++;
+        i++;
+        j++;
+      } else if (first[i] < second[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return (double) common / (first.length + second.length - common);
+  }
+
+  private static int find(int[] parents, int i) {
+    while (parents[i] != i) {
+      parents[i] = parents[parents[i]];
+      i = parents[i];
+    }
+    return i;
+  }
+
+  @FunctionalInterface
+  private interface BucketConsumer {
+    void accept(int from, int to);
+  }
+}
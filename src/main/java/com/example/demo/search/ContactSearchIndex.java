@@ -0,0 +1,341 @@
+package com.example.demo.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Нечеткий поиск контактов по триграммам ФИО, телефона и email.
+ * Каждое слово дополняется пробелами по краям и делится на тройки символов,
+ * для каждой тройки хранится возрастающий список номеров документов. Запрос
+ * делится так же, документы ранжируются по доле совпавших троек, поэтому
+ * опечатка в одной букве оставляет контакт в результатах.
+ *
+ * Индекс изменяется на месте: измененный контакт добавляется новым
+ * документом, а старый документ помечается удаленным. Длина каждого поля
+ * ограничена, поэтому память растет линейно с числом контактов; удаленные
+ * документы освобождаются полным перестроением
+ */
+public final class ContactSearchIndex {
+
+  /**
+   * Контакт для индексации
+   */
+  public record Entry(Long contactId, String fullName, String phoneNumber, String email) {
+  }
+
+  /**
+   * Найденный контакт и доля совпавших с запросом троек символов
+   */
+  public record Hit(Long contactId, double score) {
+  }
+
+  // Минимальная доля совпавших троек запроса
+  private static final double MIN_SIMILARITY = 0.5;
+  // Сколько символов каждого поля индексируется
+  private static final int MAX_FIELD_LENGTH = 64;
+  // Доля документов-кандидатов, начиная с которой документы обходятся подряд
+  private static final int DENSE_DIVISOR = 16;
+  // Сколько повторений одной тройки различается
+  private static final int MAX_GRAM_REPEATS = 8;
+  private static final Locale RUSSIAN = Locale.forLanguageTag("ru");
+  private static final Pattern PHONE = Pattern.compile("[+\\d\\s()\\-]*\\d[+\\d\\s()\\-]*");
+  private static final Pattern NON_DIGITS = Pattern.compile("\\D");
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Map<Long, IntList> postings = new HashMap<>();
+  private final Map<Long, Integer> documents = new HashMap<>();
+  private long[] contactIds = new long[1024];
+  private short[] gramCounts = new short[1024];
+  private final BitSet removed = new BitSet();
+  private int documentCount;
+
+  /**
+   * Построение индекса по контактам
+   */
+  public static ContactSearchIndex build(Iterable<Entry> entries) {
+    ContactSearchIndex index = new ContactSearchIndex();
+    entries.forEach(index::put);
+    return index;
+  }
+
+  /**
+   * Добавление или замена контакта
+   */
+  public void put(Entry entry) {
+    lock.writeLock().lock();
+    try {
+      removeDocument(entry.contactId());
+      addDocument(entry);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Удаление контакта
+   */
+  public void remove(Long contactId) {
+    lock.writeLock().lock();
+    try {
+      removeDocument(contactId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Количество контактов в индексе
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Доля удаленных документов, которые еще занимают память
+   */
+  public double removedRatio() {
+    lock.readLock().lock();
+    try {
+      return documentCount == 0 ? 0 : (double) removed.cardinality() / documentCount;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Поиск контактов
+   *
+   * @return не больше limit контактов по убыванию сходства; при равном
+   *         сходстве выше контакт с более коротким текстом
+   */
+  public List<Hit> search(String query, int limit) {
+    long[] queryGrams = grams(List.of(query)).stream().mapToLong(Long::longValue).toArray();
+    if (queryGrams.length == 0 || limit <= 0) {
+      return List.of();
+    }
+    int minMatches = Math.max(1, (int) Math.ceil(queryGrams.length * MIN_SIMILARITY));
+
+    lock.readLock().lock();
+    try {
+      IntList[] lists = new IntList[queryGrams.length];
+      for (int g = 0; g < queryGrams.length; g++) {
+        IntList docs = postings.get(queryGrams[g]);
+        lists[g] = docs != null ? docs : IntList.EMPTY;
+      }
+      Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+      // Подходящий документ есть хотя бы в одном из самых редких списков,
+      // иначе он не набрал бы minMatches совпадений. Если таких документов
+      // много, все документы дешевле обойти подряд
+      int rare = queryGrams.length - minMatches + 1;
+      long rarePostings = 0;
+      for (int g = 0; g < rare; g++) {
+        rarePostings += lists[g].size;
+      }
+      boolean dense = rarePostings > documentCount / DENSE_DIVISOR;
+
+      // Запрос короче MAX_FIELD_LENGTH, поэтому совпадений меньше 128
+      byte[] matches = new byte[documentCount];
+      IntList candidates = dense ? null : new IntList();
+      for (int g = 0; g < rare; g++) {
+        IntList docs = lists[g];
+        if (dense) {
+          for (int i = 0; i < docs.size; i++) {
+            matches[docs.values[i]]++;
+          }
+        } else {
+          for (int i = 0; i < docs.size; i++) {
+            if (matches[docs.values[i]]++ == 0) {
+              candidates.add(docs.values[i]);
+            }
+          }
+        }
+      }
+      // В частых списках ищутся только кандидаты: двоичным поиском, если
+      // кандидатов мало, иначе проходом по списку
+      for (int g = rare; g < queryGrams.length; g++) {
+        IntList docs = lists[g];
+        if (!dense && (long) candidates.size * 32 < docs.size) {
+          for (int i = 0; i < candidates.size; i++) {
+            if (Arrays.binarySearch(docs.values, 0, docs.size, candidates.values[i]) >= 0) {
+              matches[candidates.values[i]]++;
+            }
+          }
+        } else {
+          for (int i = 0; i < docs.size; i++) {
+            int doc = docs.values[i];
+            matches[doc] += (byte) (matches[doc] > 0 ? 1 : 0);
+          }
+        }
+      }
+      for (int doc = removed.nextSetBit(0); doc >= 0 && doc < documentCount; doc = removed.nextSetBit(doc + 1)) {
+        matches[doc] = 0;
+      }
+
+      // Порог совпадений, при котором набирается limit контактов: документы
+      // ниже порога не попадают в очередь
+      int[] histogram = new int[queryGrams.length + 1];
+      int scanned = dense ? documentCount : candidates.size;
+      for (int i = 0; i < scanned; i++) {
+        histogram[matches[dense ? i : candidates.values[i]]]++;
+      }
+      int threshold = queryGrams.length;
+      for (int found = histogram[threshold]; found < limit && threshold > minMatches; found += histogram[threshold]) {
+        threshold--;
+      }
+
+      // Худший из лучших найденных - в голове очереди
+      PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, (first, second) -> compare(matches, first, second));
+      int worst = -1;
+      for (int i = 0; i < scanned; i++) {
+        int doc = dense ? i : candidates.values[i];
+        if (matches[doc] < threshold || worst >= 0 && compare(matches, doc, worst) <= 0) {
+          continue;
+        }
+        best.add(doc);
+        if (best.size() > limit) {
+          best.poll();
+        }
+        if (best.size() == limit) {
+          worst = best.peek();
+        }
+      }
+
+      List<Hit> hits = new ArrayList<>(best.size());
+      while (!best.isEmpty()) {
+        int doc = best.poll();
+        hits.add(new Hit(contactIds[doc], (double) matches[doc] / queryGrams.length));
+      }
+      return hits.reversed();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Сравнение документов: больше совпадений, затем меньше троек в документе,
+   * затем меньший ID контакта
+   */
+  private int compare(byte[] matches, int first, int second) {
+    if (matches[first] != matches[second]) {
+      return Integer.compare(matches[first], matches[second]);
+    }
+    if (gramCounts[first] != gramCounts[second]) {
+      return Integer.compare(gramCounts[second], gramCounts[first]);
+    }
+    return Long.compare(contactIds[second], contactIds[first]);
+  }
+
+  private void addDocument(Entry entry) {
+    Set<Long> entryGrams = grams(Arrays.asList(entry.fullName(), normalizePhone(entry.phoneNumber()), entry.email()));
+    if (documentCount == contactIds.length) {
+      contactIds = Arrays.copyOf(contactIds, documentCount * 2);
+      gramCounts = Arrays.copyOf(gramCounts, documentCount * 2);
+    }
+    int doc = documentCount++;
+    contactIds[doc] = entry.contactId();
+    gramCounts[doc] = (short) Math.min(entryGrams.size(), Short.MAX_VALUE);
+    for (long gram : entryGrams) {
+      postings.computeIfAbsent(gram, key -> new IntList()).add(doc);
+    }
+    documents.put(entry.contactId(), doc);
+  }
+
+  private void removeDocument(Long contactId) {
+    Integer doc = documents.remove(contactId);
+    if (doc != null) {
+      removed.set(doc);
+    }
+  }
+
+  /**
+   * Тройки символов слов текста, каждая упакована в long. Повтор тройки в
+   * одном слове хранится как отдельная тройка (номер повтора в старших
+   * битах), поэтому "user777777" ближе к запросу "user777777", чем "user7777"
+   */
+  static Set<Long> grams(List<String> texts) {
+    Set<Long> result = new LinkedHashSet<>();
+    for (String text : texts) {
+      if (text == null) {
+        continue;
+      }
+      String normalized = normalize(text);
+      int start = -1;
+      for (int i = 0; i <= normalized.length(); i++) {
+        boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+        if (letter && start < 0) {
+          start = i;
+        } else if (!letter && start >= 0) {
+          addWordGrams("  " + normalized.substring(start, i) + " ", result);
+          start = -1;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static void addWordGrams(String word, Set<Long> result) {
+    Map<Long, Integer> repeats = new HashMap<>();
+    for (int g = 0; g + 3 <= word.length(); g++) {
+      long gram = ((long) word.charAt(g) << 32) | ((long) word.charAt(g + 1) << 16) | word.charAt(g + 2);
+      int repeat = repeats.merge(gram, 1, Integer::sum) - 1;
+      if (repeat < MAX_GRAM_REPEATS) {
+        result.add(gram | (long) repeat << 48);
+      }
+    }
+  }
+
+  private static String normalize(String text) {
+    String limited = text.length() > MAX_FIELD_LENGTH ? text.substring(0, MAX_FIELD_LENGTH) : text;
+    String lower = limited.toLowerCase(RUSSIAN).replace('ё', 'е');
+    // Номер телефона в запросе с пробелами, скобками и дефисами - одно слово из цифр
+    return PHONE.matcher(lower).matches() ? normalizePhone(lower) : lower;
+  }
+
+  /**
+   * Только цифры номера; российский номер с 8 в начале приводится к +7
+   */
+  static String normalizePhone(String phone) {
+    if (phone == null) {
+      return null;
+    }
+    String digits = NON_DIGITS.matcher(phone).replaceAll("");
+    return digits.length() == 11 && digits.charAt(0) == '8' ? "7" + digits.substring(1) : digits;
+  }
+
+  /**
+   * Растущий массив int без упаковки значений
+   */
+  private static final class IntList {
+
+    static final IntList EMPTY = new IntList();
+
+    private int[] values = new int[4];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+  }
+}
@@ -0,0 +1,424 @@
+package com.example.demo.search;
+
+import java.text.Collator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import com.example.demo.dto.TourSearchCriteria;
+import com.example.demo.dto.TourSearchResult;
+import com.example.demo.dto.TourSummaryDto;
+import com.example.demo.utils.RussianTextAnalyzer;
+
+/**
+ * Неизменяемый снимок поискового индекса туров.
+ * Туры пронумерованы по возрастанию ID. Для текста хранятся списки туров по
+ * основам слов, для точных фильтров - битовые множества по значениям, для
+ * диапазонов и сортировки - заранее отсортированные порядки туров. Запрос
+ * сводится к операциям над BitSet и обходу готового порядка, поэтому время
+ * ответа почти не зависит от числа туров
+ */
+public final class TourSearchIndex {
+
+  public static final String FACET_COUNTRY = "country";
+  public static final String FACET_SEASON = "season";
+  public static final String FACET_TYPE = "type";
+  public static final String FACET_REGISTRATION_CLOSED = "registrationClosed";
+
+  private static final int DEFAULT_PAGE_SIZE = 20;
+  private static final int MAX_PAGE_SIZE = 100;
+
+  private final Entry[] entries;
+  private final Map<Long, Integer> positions;
+  private final int[] availableSlots;
+
+  private final String[] terms;
+  private final int[][] postings;
+
+  private final Map<String, Map<String, BitSet>> facets;
+
+  private final int[] byPrice;
+  // Значения, по которым отсортированы порядки (даты - в днях от 1970-01-01)
+  private final double[] sortedPrices;
+  private final int[] byStartDate;
+  private final double[] sortedStartDays;
+  private final int[] byDuration;
+  private final double[] sortedDurations;
+  private final int[] byName;
+
+  /**
+   * Тур в индексе: краткая информация и основы слов названия и описания
+   */
+  public record Entry(TourSummaryDto tour, String[] terms) {
+
+    /**
+     * Разбор текста тура для индексации
+     */
+    public static Entry of(TourSummaryDto tour, String description) {
+      List<String> stems = RussianTextAnalyzer.analyze(tour.getName());
+      stems.addAll(RussianTextAnalyzer.analyze(description));
+      return new Entry(tour, stems.stream().distinct().toArray(String[]::new));
+    }
+  }
+
+  private TourSearchIndex(Entry[] entries, int[] availableSlots, TourSearchIndex structure) {
+    this.entries = entries;
+    this.availableSlots = availableSlots;
+    this.positions = structure.positions;
+    this.terms = structure.terms;
+    this.postings = structure.postings;
+    this.facets = structure.facets;
+    this.byPrice = structure.byPrice;
+    this.sortedPrices = structure.sortedPrices;
+    this.byStartDate = structure.byStartDate;
+    this.sortedStartDays = structure.sortedStartDays;
+    this.byDuration = structure.byDuration;
+    this.sortedDurations = structure.sortedDurations;
+    this.byName = structure.byName;
+  }
+
+  private TourSearchIndex(Collection<Entry> source) {
+    this.entries = source.stream()
+        .sorted(Comparator.comparing(entry -> entry.tour().getId()))
+        .toArray(Entry[]::new);
+    int count = entries.length;
+
+    this.positions = new HashMap<>(count * 2);
+    this.availableSlots = new int[count];
+    for (int i = 0; i < count; i++) {
+      positions.put(entries[i].tour().getId(), i);
+      Integer slots = entries[i].tour().getAvailableSlots();
+      availableSlots[i] = slots != null ? slots : 0;
+    }
+
+    // Текст: основа слова -> номера туров по возрастанию
+    TreeMap<String, List<Integer>> termDocs = new TreeMap<>();
+    for (int i = 0; i < count; i++) {
+      for (String term : entries[i].terms()) {
+        termDocs.computeIfAbsent(term, key -> new ArrayList<>()).add(i);
+      }
+    }
+    this.terms = termDocs.keySet().toArray(String[]::new);
+    this.postings = termDocs.values().stream()
+        .map(docs -> docs.stream().mapToInt(Integer::intValue).toArray())
+        .toArray(int[][]::new);
+
+    // Точные фильтры
+    this.facets = new LinkedHashMap<>();
+    facets.put(FACET_COUNTRY, facet(tour -> tour.getCountry()));
+    facets.put(FACET_SEASON, facet(tour -> tour.getSeason() != null ? tour.getSeason().name() : null));
+    facets.put(FACET_TYPE, facet(tour -> tour.getType()));
+    facets.put(FACET_REGISTRATION_CLOSED, facet(tour -> String.valueOf(Boolean.TRUE.equals(tour.getIsRegistrationClosed()))));
+
+    // Диапазоны и сортировка
+    double[] prices = new double[count];
+    long[] startDays = new long[count];
+    int[] durations = new int[count];
+    for (int i = 0; i < count; i++) {
+      TourSummaryDto tour = entries[i].tour();
+      prices[i] = tour.getPrice() != null ? tour.getPrice() : 0;
+      startDays[i] = tour.getStartDate() != null ? tour.getStartDate().toLocalDate().toEpochDay() : Long.MIN_VALUE;
+      durations[i] = tour.getDuration() != null ? tour.getDuration() : 0;
+    }
+    this.byPrice = order(count, Comparator.comparingDouble(i -> prices[i]));
+    this.sortedPrices = Arrays.stream(byPrice).mapToDouble(i -> prices[i]).toArray();
+    this.byStartDate = order(count, Comparator.comparingLong(i -> startDays[i]));
+    this.sortedStartDays = Arrays.stream(byStartDate).mapToDouble(i -> startDays[i]).toArray();
+    this.byDuration = order(count, Comparator.comparingInt(i -> durations[i]));
+    this.sortedDurations = Arrays.stream(byDuration).mapToDouble(i -> durations[i]).toArray();
+    Collator collator = Collator.getInstance(Locale.forLanguageTag("ru"));
+    this.byName = order(count, Comparator.comparing(i -> entries[i].tour().getName(),
+        Comparator.nullsLast(collator::compare)));
+  }
+
+  /**
+   * Построение индекса по турам
+   */
+  public static TourSearchIndex build(Collection<Entry> entries) {
+    return new TourSearchIndex(entries);
+  }
+
+  /**
+   * Новый индекс с замененными и удаленными турами (null в changes - тур удален)
+   */
+  public TourSearchIndex withChanges(Map<Long, Entry> changes) {
+    Map<Long, Entry> merged = new HashMap<>(entries.length + changes.size());
+    for (int i = 0; i < entries.length; i++) {
+      Entry entry = entries[i];
+      merged.put(entry.tour().getId(), new Entry(withSlots(entry.tour(), availableSlots[i]), entry.terms()));
+    }
+    changes.forEach((id, entry) -> {
+      if (entry == null) {
+        merged.remove(id);
+      } else {
+        merged.put(id, entry);
+      }
+    });
+    return new TourSearchIndex(merged.values());
+  }
+
+  /**
+   * Новый индекс с актуальным количеством свободных мест. Структура индекса
+   * не перестраивается
+   */
+  public TourSearchIndex withAvailableSlots(Map<Long, Integer> slots) {
+    int[] updated = availableSlots.clone();
+    slots.forEach((id, value) -> {
+      Integer position = positions.get(id);
+      if (position != null && value != null) {
+        updated[position] = value;
+      }
+    });
+    return new TourSearchIndex(entries, updated, this);
+  }
+
+  /**
+   * Количество туров в индексе
+   */
+  public int size() {
+    return entries.length;
+  }
+
+  /**
+   * Поиск туров по критериям
+   */
+  public TourSearchResult search(TourSearchCriteria criteria) {
+    int count = entries.length;
+    int page = criteria.getPage() != null ? Math.max(0, criteria.getPage()) : 0;
+    int size = criteria.getSize() != null ? Math.min(Math.max(1, criteria.getSize()), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+
+    // Текст и диапазоны
+    BitSet base = new BitSet(count);
+    base.set(0, count);
+    for (String stem : RussianTextAnalyzer.analyze(criteria.getQ())) {
+      base.and(matchPrefix(stem));
+    }
+    if (criteria.getMinPrice() != null || criteria.getMaxPrice() != null) {
+      base.and(range(byPrice, lowerBound(sortedPrices, criteria.getMinPrice()),
+          upperBound(sortedPrices, criteria.getMaxPrice())));
+    }
+    if (criteria.getStartFrom() != null || criteria.getStartTo() != null) {
+      base.and(range(byStartDate, lowerBound(sortedStartDays, epochDay(criteria.getStartFrom())),
+          upperBound(sortedStartDays, epochDay(criteria.getStartTo()))));
+    }
+    if (criteria.getMinDuration() != null || criteria.getMaxDuration() != null) {
+      base.and(range(byDuration, lowerBound(sortedDurations, toDouble(criteria.getMinDuration())),
+          upperBound(sortedDurations, toDouble(criteria.getMaxDuration()))));
+    }
+
+    // Точные фильтры: значения одного поля объединяются, поля пересекаются
+    Map<String, BitSet> filters = new LinkedHashMap<>();
+    addFilter(filters, FACET_COUNTRY, criteria.getCountry());
+    addFilter(filters, FACET_SEASON, criteria.getSeason() != null
+        ? criteria.getSeason().stream().map(Enum::name).toList()
+        : null);
+    addFilter(filters, FACET_TYPE, criteria.getType());
+    addFilter(filters, FACET_REGISTRATION_CLOSED, criteria.getRegistrationClosed() != null
+        ? List.of(criteria.getRegistrationClosed().toString())
+        : null);
+
+    BitSet matches = (BitSet) base.clone();
+    filters.values().forEach(matches::and);
+
+    return TourSearchResult.builder()
+        .total(matches.cardinality())
+        .page(page)
+        .size(size)
+        .items(page(matches, criteria.getSort(), page, size))
+        .facets(facetCounts(base, filters))
+        .build();
+  }
+
+  private Map<String, BitSet> facet(Function<TourSummaryDto, String> value) {
+    Map<String, BitSet> values = new TreeMap<>();
+    for (int i = 0; i < entries.length; i++) {
+      String key = value.apply(entries[i].tour());
+      if (key != null) {
+        values.computeIfAbsent(key, k -> new BitSet(entries.length)).set(i);
+      }
+    }
+    return values;
+  }
+
+  private void addFilter(Map<String, BitSet> filters, String field, List<String> values) {
+    if (values == null || values.isEmpty()) {
+      return;
+    }
+    BitSet filter = new BitSet(entries.length);
+    Map<String, BitSet> facetValues = facets.get(field);
+    for (String value : values) {
+      BitSet docs = facetValues.get(value);
+      if (docs != null) {
+        filter.or(docs);
+      }
+    }
+    filters.put(field, filter);
+  }
+
+  /**
+   * Количество туров по значениям каждого поля. Для поля учитываются все
+   * фильтры, кроме его собственного, чтобы было видно, сколько туров даст
+   * выбор другого значения
+   */
+  private Map<String, Map<String, Integer>> facetCounts(BitSet base, Map<String, BitSet> filters) {
+    Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+    facets.forEach((field, values) -> {
+      BitSet scope = (BitSet) base.clone();
+      filters.forEach((filterField, filter) -> {
+        if (!filterField.equals(field)) {
+          scope.and(filter);
+        }
+      });
+      Map<String, Integer> fieldCounts = new LinkedHashMap<>();
+      values.forEach((value, docs) -> {
+        BitSet intersection = (BitSet) docs.clone();
+        intersection.and(scope);
+        int cardinality = intersection.cardinality();
+        if (cardinality > 0) {
+          fieldCounts.put(value, cardinality);
+        }
+      });
+      counts.put(field, fieldCounts);
+    });
+    return counts;
+  }
+
+  /**
+   * Туры, основа хотя бы одного слова которых начинается с указанной строки
+   */
+  private BitSet matchPrefix(String prefix) {
+    BitSet docs = new BitSet(entries.length);
+    int from = Arrays.binarySearch(terms, prefix);
+    if (from < 0) {
+      from = -from - 1;
+    }
+    for (int t = from; t < terms.length && terms[t].startsWith(prefix); t++) {
+      for (int doc : postings[t]) {
+        docs.set(doc);
+      }
+    }
+    return docs;
+  }
+
+  private List<TourSummaryDto> page(BitSet matches, String sort, int page, int size) {
+    boolean descending = sort != null && sort.startsWith("-");
+    String field = sort == null ? "id" : (descending ? sort.substring(1) : sort);
+    int[] order = switch (field) {
+      case "price" -> byPrice;
+      case "startDate" -> byStartDate;
+      case "duration" -> byDuration;
+      case "name" -> byName;
+      case "id" -> null;
+      default -> throw new IllegalArgumentException("Неизвестное поле сортировки: " + field);
+    };
+
+    List<TourSummaryDto> items = new ArrayList<>(size);
+    int skip = page * size;
+    int count = entries.length;
+    for (int k = 0; k < count && items.size() < size; k++) {
+      int index = descending ? count - 1 - k : k;
+      int doc = order != null ? order[index] : index;
+      if (!matches.get(doc)) {
+        continue;
+      }
+      if (skip > 0) {
+        skip--;
+        continue;
+      }
+      items.add(withSlots(entries[doc].tour(), availableSlots[doc]));
+    }
+    return items;
+  }
+
+  private BitSet range(int[] order, int from, int to) {
+    BitSet docs = new BitSet(entries.length);
+    for (int i = from; i < to; i++) {
+      docs.set(order[i]);
+    }
+    return docs;
+  }
+
+  private static int[] order(int count, Comparator<Integer> comparator) {
+    return IntStream.range(0, count).boxed().sorted(comparator).mapToInt(Integer::intValue).toArray();
+  }
+
+  private static Double epochDay(LocalDate date) {
+    return date != null ? (double) date.toEpochDay() : null;
+  }
+
+  private static Double toDouble(Integer value) {
+    return value != null ? value.doubleValue() : null;
+  }
+
+  // Первая позиция со значением >= min (0, если min не задан)
+  private static int lowerBound(double[] values, Double min) {
+    if (min == null) {
+      return 0;
+    }
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (values[mid] < min) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  // Первая позиция со значением > max (длина массива, если max не задан)
+  private static int upperBound(double[] values, Double max) {
+    if (max == null) {
+      return values.length;
+    }
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (values[mid] <= max) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static TourSummaryDto withSlots(TourSummaryDto tour, int availableSlots) {
+    return TourSummaryDto.builder()
+        .id(tour.getId())
+        .name(tour.getName())
+        .country(tour.getCountry())
+        .season(tour.getSeason())
+        .type(tour.getType())
+        .startDate(tour.getStartDate())
+        .endDate(tour.getEndDate())
+        .duration(tour.getDuration())
+        .price(tour.getPrice())
+        .totalSlots(tour.getTotalSlots())
+        .availableSlots(availableSlots)
+        .isRegistrationClosed(tour.getIsRegistrationClosed())
+        .imageName(tour.getImageName())
+        .imageType(tour.getImageType())
+        .imageSize(tour.getImageSize())
+        .imageUrl(tour.getImageUrl())
+        .fileName(tour.getFileName())
+        .fileType(tour.getFileType())
+        .fileSize(tour.getFileSize())
+        .fileUrl(tour.getFileUrl())
+        .build();
+  }
+}
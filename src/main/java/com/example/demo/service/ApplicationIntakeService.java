@@ -0,0 +1,234 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.ApplicationDto;
+import com.example.demo.dto.ApplicationIntakeDto;
+import com.example.demo.dto.ApplicationIntakeDto.Status;
+import com.example.demo.dto.WaitlistEntryDto;
+import com.example.demo.repository.TourRepository;
+import com.example.demo.utils.ExpiringLruCache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Асинхронный прием заявок для пиковой нагрузки.
+ * Запрос только проверяется и ставится в ограниченную очередь, поэтому не
+ * держит соединение с БД на время бронирования. Один обработчик забирает из
+ * очереди партии, группирует их по туру и создает заявки каждого тура в одной
+ * транзакции с одним UPDATE мест. Если партия не создалась целиком, ее заявки
+ * создаются по одной. Ошибка при обработке партии завершает с ошибкой только
+ * ее заявки; если обработчик все же остановился, он запускается заново, а
+ * пока он не работает, новые заявки не принимаются. Состояние обработки
+ * хранится в памяти ограниченное время; заявки, оставшиеся в очереди при
+ * остановке приложения, теряются
+ */
+@Slf4j
+@Service
+public class ApplicationIntakeService {
+
+  private final ApplicationService applicationService;
+  private final WaitlistService waitlistService;
+  private final TourRepository tourRepository;
+
+  private final BlockingQueue<IntakeRequest> queue;
+  private final ExpiringLruCache<String, ApplicationIntakeDto> statuses;
+  private final int batchSize;
+  private volatile Thread worker;
+  private volatile boolean running = true;
+
+  public ApplicationIntakeService(ApplicationService applicationService, WaitlistService waitlistService,
+      TourRepository tourRepository,
+      @Value("${intake.queue-capacity:10000}") int queueCapacity,
+      @Value("${intake.batch-size:100}") int batchSize,
+      @Value("${intake.status-cache-size:100000}") int statusCacheSize,
+      @Value("${intake.status-ttl-minutes:60}") long statusTtlMinutes) {
+    this.applicationService = applicationService;
+    this.waitlistService = waitlistService;
+    this.tourRepository = tourRepository;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.batchSize = batchSize;
+    this.statuses = new ExpiringLruCache<>(statusCacheSize, TimeUnit.MINUTES.toMillis(statusTtlMinutes));
+  }
+
+  @PostConstruct
+  public void start() {
+    startWorker();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    worker.interrupt();
+    if (!queue.isEmpty()) {
+      log.warn("Остановка приема заявок: не обработано {} заявок", queue.size());
+    }
+  }
+
+  /**
+   * Прием заявки в очередь
+   *
+   * @param waitlist ставить ли заявителя в лист ожидания, если мест нет
+   * @throws IntakeQueueFullException если очередь заполнена
+   * @throws IntakeStoppedException   если обработчик очереди не работает
+   */
+  public ApplicationIntakeDto submit(ApplicationDto applicationDto, boolean waitlist) {
+    Thread current = worker;
+    if (!running || current == null || !current.isAlive()) {
+      throw new IntakeStoppedException("Обработчик очереди заявок не работает");
+    }
+    if (!tourRepository.existsById(applicationDto.getTourId())) {
+      throw new EntityNotFoundException("Тур с ID " + applicationDto.getTourId() + " не найден");
+    }
+    ApplicationIntakeDto status = ApplicationIntakeDto.builder()
+        .trackingId(UUID.randomUUID().toString())
+        .status(Status.QUEUED)
+        .tourId(applicationDto.getTourId())
+        .submittedAt(LocalDateTime.now())
+        .build();
+    statuses.put(status.getTrackingId(), status);
+    if (!queue.offer(new IntakeRequest(status.getTrackingId(), applicationDto, waitlist))) {
+      statuses.put(status.getTrackingId(), status.toBuilder()
+          .status(Status.FAILED)
+          .message("Очередь заявок заполнена")
+          .completedAt(LocalDateTime.now())
+          .build());
+      throw new IntakeQueueFullException("Очередь заявок заполнена");
+    }
+    return status;
+  }
+
+  /**
+   * Состояние обработки заявки
+   */
+  public ApplicationIntakeDto getStatus(String trackingId) {
+    ApplicationIntakeDto status = statuses.get(trackingId);
+    if (status == null) {
+      throw new EntityNotFoundException("Заявка с идентификатором " + trackingId + " не найдена");
+    }
+    return status;
+  }
+
+  private synchronized void startWorker() {
+    Thread thread = new Thread(this::processQueue, "application-intake");
+    thread.setDaemon(true);
+    thread.setUncaughtExceptionHandler((stopped, e) -> {
+      log.error("Обработчик очереди заявок остановился с ошибкой", e);
+      if (running) {
+        startWorker();
+      }
+    });
+    worker = thread;
+    thread.start();
+  }
+
+  private void processQueue() {
+    List<IntakeRequest> batch = new ArrayList<>(batchSize);
+    while (running) {
+      try {
+        IntakeRequest first = queue.poll(1, TimeUnit.SECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        Map<Long, List<IntakeRequest>> byTour = batch.stream()
+            .collect(Collectors.groupingBy(request -> request.application().getTourId(), LinkedHashMap::new,
+                Collectors.toList()));
+        byTour.forEach(this::processTour);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Throwable e) {
+        log.error("Ошибка обработки партии заявок: {}", e.getMessage(), e);
+        batch.forEach(request -> complete(request, Status.FAILED, null, null, e.getMessage()));
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void processTour(Long tourId, List<IntakeRequest> requests) {
+    List<ApplicationDto> created;
+    try {
+      created = applicationService.createApplicationsBatch(tourId,
+          requests.stream().map(IntakeRequest::application).toList());
+    } catch (RuntimeException e) {
+      log.warn("Партия из {} заявок на тур {} не создана, заявки создаются по одной: {}",
+          requests.size(), tourId, e.getMessage());
+      requests.forEach(this::processSingle);
+      return;
+    }
+    for (int i = 0; i < requests.size(); i++) {
+      if (i < created.size()) {
+        complete(requests.get(i), Status.CREATED, created.get(i).getId(), null, null);
+      } else {
+        handleNoSlots(requests.get(i));
+      }
+    }
+  }
+
+  private void processSingle(IntakeRequest request) {
+    try {
+      ApplicationDto application = applicationService.createApplication(request.application());
+      complete(request, Status.CREATED, application.getId(), null, null);
+    } catch (NoAvailableSlotsException e) {
+      handleNoSlots(request);
+    } catch (IllegalArgumentException | IllegalStateException | EntityNotFoundException e) {
+      complete(request, Status.FAILED, null, null, e.getMessage());
+    } catch (RuntimeException e) {
+      log.warn("Не удалось создать заявку {}: {}", request.trackingId(), e.getMessage());
+      complete(request, Status.FAILED, null, null, "Не удалось создать заявку");
+    }
+  }
+
+  private void handleNoSlots(IntakeRequest request) {
+    if (!request.waitlist()) {
+      complete(request, Status.REJECTED, null, null, "В туре нет доступных мест");
+      return;
+    }
+    try {
+      WaitlistEntryDto entry = waitlistService.join(request.application());
+      if (entry.getApplicationId() != null) {
+        complete(request, Status.CREATED, entry.getApplicationId(), entry.getId(), null);
+      } else {
+        complete(request, Status.WAITLISTED, null, entry.getId(), null);
+      }
+    } catch (RuntimeException e) {
+      complete(request, Status.FAILED, null, null, e.getMessage());
+    }
+  }
+
+  private void complete(IntakeRequest request, Status status, Long applicationId, Long waitlistEntryId,
+      String message) {
+    ApplicationIntakeDto current = statuses.get(request.trackingId());
+    ApplicationIntakeDto.ApplicationIntakeDtoBuilder builder = current != null
+        ? current.toBuilder()
+        : ApplicationIntakeDto.builder().trackingId(request.trackingId()).tourId(request.application().getTourId());
+    statuses.put(request.trackingId(), builder
+        .status(status)
+        .applicationId(applicationId)
+        .waitlistEntryId(waitlistEntryId)
+        .message(message)
+        .completedAt(LocalDateTime.now())
+        .build());
+  }
+
+  private record IntakeRequest(String trackingId, ApplicationDto application, boolean waitlist) {
+  }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.service;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.models.Application;
+import com.example.demo.repository.ApplicationSearchRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Фоновое заполнение full_name_search для заявок, созданных до появления
+ * поиска по началу ФИО. Выполняется один раз после запуска в отдельном
+ * потоке; заявки обходятся по возрастанию ID партиями, каждая партия
+ * записывается одним пакетом UPDATE. ФИО приводится к нижнему регистру в
+ * Java, а не функцией lower() БД, результат которой для кириллицы зависит от
+ * локали базы
+ */
+@Slf4j
+@Component
+public class ApplicationSearchBackfillJob {
+
+  private final ApplicationSearchRepository applicationSearchRepository;
+  private final int batchSize;
+
+  private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "application-search-backfill");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public ApplicationSearchBackfillJob(ApplicationSearchRepository applicationSearchRepository,
+      @Value("${applications.search.backfill-batch-size:500}") int batchSize) {
+    this.applicationSearchRepository = applicationSearchRepository;
+    this.batchSize = batchSize;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void startOnReady() {
+    worker.execute(this::backfill);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    worker.shutdownNow();
+  }
+
+  /**
+   * Заполнение full_name_search всех заявок, где оно пусто
+   *
+   * @return количество обработанных заявок
+   */
+  public int backfill() {
+    int updated = 0;
+    long lastId = 0;
+    try {
+      List<ApplicationSearchRepository.Entry> batch;
+      while (!Thread.currentThread().isInterrupted()
+          && !(batch = applicationSearchRepository.findWithoutFullNameSearch(lastId, batchSize)).isEmpty()) {
+        applicationSearchRepository.updateFullNameSearch(batch.stream()
+            .map(entry -> new ApplicationSearchRepository.Entry(entry.id(),
+                Application.normalizeFullName(entry.fullName())))
+            .toList());
+        lastId = batch.get(batch.size() - 1).id();
+        updated += batch.size();
+      }
+    } catch (RuntimeException e) {
+      log.warn("Заполнение ФИО для поиска прервано после заявки с ID {}: {}", lastId, e.getMessage());
+    }
+    if (updated > 0) {
+      log.info("Заполнено ФИО для поиска в {} заявках", updated);
+    }
+    return updated;
+  }
+}
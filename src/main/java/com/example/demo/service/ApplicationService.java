@@ -1,23 +1,38 @@
 package com.example.demo.service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.dto.ApplicationDto;
+import com.example.demo.dto.ApplicationListItemDto;
+import com.example.demo.dto.ApplicationSearchCriteria;
 import com.example.demo.dto.ContactDto;
+import com.example.demo.dto.GroupApplicationDto;
+import com.example.demo.dto.KeysetPage;
+import com.example.demo.dto.StatusUpdateResultDto;
+import com.example.demo.dto.StatusUpdateResultDto.Outcome;
+import com.example.demo.dto.TravellerDto;
+import com.example.demo.events.ContactChangedEvent;
 import com.example.demo.models.Application;
 import com.example.demo.models.ApplicationStatus;
 import com.example.demo.models.ClientTour;
 import com.example.demo.models.Contact;
-import com.example.demo.models.Tour;
 import com.example.demo.models.User;
 import com.example.demo.repository.ApplicationRepository;
 import com.example.demo.repository.ClientTourRepository;
 import com.example.demo.repository.ContactRepository;
-import com.example.demo.repository.TourRepository;
+import com.example.demo.repository.KeysetQuery;
+import com.example.demo.repository.KeysetRepository;
 import com.example.demo.repository.UserRepository;
 
 import jakarta.persistence.EntityNotFoundException;
@@ -27,30 +42,98 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class ApplicationService {
 
+  // Максимальное количество заявок в одном массовом изменении статуса
+  private static final int MAX_BULK_STATUS_UPDATE = 1000;
+  // Максимальное количество участников групповой заявки
+  private static final int MAX_GROUP_SIZE = 50;
+
   private final ApplicationRepository applicationRepository;
-  private final TourRepository tourRepository;
   private final UserRepository userRepository;
   private final ContactRepository contactRepository;
   private final ClientTourRepository clientTourRepository;
+  private final SeatReservationService seatReservationService;
+  private final KeysetRepository keysetRepository;
+  private final ApplicationEventPublisher eventPublisher;
+
+  /**
+   * Получение списка всех заявок.
+   * Заявки выбираются одним запросом вместе с краткими сведениями о туре,
+   * контакте и связи клиент-тур, сущности туров не загружаются
+   */
+  @Transactional(readOnly = true)
+  public List<ApplicationListItemDto> getAllApplications() {
+    return applicationRepository.findAllListItems();
+  }
 
   /**
-   * Получение списка всех заявок
+   * Получение страницы заявок с сортировкой по id или createdAt
    */
   @Transactional(readOnly = true)
-  public List<ApplicationDto> getAllApplications() {
-    return applicationRepository.findAllWithDetails().stream()
-        .map(this::convertToDto)
-        .collect(Collectors.toList());
+  public KeysetPage<ApplicationListItemDto> getApplicationsPage(String sort, String cursor, Integer limit) {
+    KeysetQuery<ApplicationListItemDto> query = KeysetQuery.<ApplicationListItemDto>builder()
+        .entityType(Application.class)
+        .alias("a")
+        .select(ApplicationRepository.LIST_ITEM_SELECT)
+        .from(ApplicationRepository.LIST_ITEM_FROM)
+        .resultType(ApplicationListItemDto.class)
+        .sortFields(Set.of("id", "createdAt"))
+        .build();
+    return keysetRepository.findPage(query, sort, cursor, limit);
+  }
+
+  /**
+   * Поиск заявок по статусу, туру, почте, началу ФИО и дате создания с
+   * постраничным выводом. Каждому сочетанию фильтра и сортировки по дате
+   * создания соответствует составной индекс таблицы applications
+   */
+  @Transactional(readOnly = true)
+  public KeysetPage<ApplicationListItemDto> searchApplications(ApplicationSearchCriteria criteria) {
+    KeysetQuery.KeysetQueryBuilder<ApplicationListItemDto> query = KeysetQuery.<ApplicationListItemDto>builder()
+        .entityType(Application.class)
+        .alias("a")
+        .select(ApplicationRepository.LIST_ITEM_SELECT)
+        .from(ApplicationRepository.LIST_ITEM_FROM)
+        .resultType(ApplicationListItemDto.class)
+        .sortFields(Set.of("id", "createdAt", "updatedAt"));
+
+    List<String> conditions = new ArrayList<>();
+    if (criteria.getStatus() != null && !criteria.getStatus().isEmpty()) {
+      conditions.add("a.status IN :status");
+      query.parameter("status", criteria.getStatus());
+    }
+    if (criteria.getTourId() != null) {
+      conditions.add("a.tourId = :tourId");
+      query.parameter("tourId", criteria.getTourId());
+    }
+    if (criteria.getEmail() != null && !criteria.getEmail().isBlank()) {
+      conditions.add("a.email = :email");
+      query.parameter("email", criteria.getEmail().trim());
+    }
+    String fullName = Application.normalizeFullName(criteria.getFullName());
+    if (fullName != null && !fullName.isEmpty()) {
+      conditions.add("a.fullNameSearch LIKE :fullName ESCAPE '\\'");
+      query.parameter("fullName", fullName.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+    }
+    if (criteria.getCreatedFrom() != null) {
+      conditions.add("a.createdAt >= :createdFrom");
+      query.parameter("createdFrom", criteria.getCreatedFrom().atStartOfDay());
+    }
+    if (criteria.getCreatedTo() != null) {
+      conditions.add("a.createdAt < :createdTo");
+      query.parameter("createdTo", criteria.getCreatedTo().plusDays(1).atStartOfDay());
+    }
+    if (!conditions.isEmpty()) {
+      query.where(String.join(" AND ", conditions));
+    }
+    return keysetRepository.findPage(query.build(), criteria.getSort(), criteria.getCursor(), criteria.getLimit());
   }
 
   /**
    * Получение списка всех заявок по почте
    */
   @Transactional(readOnly = true)
-  public List<ApplicationDto> getAllApplicationsByEmail(String email) {
-    return applicationRepository.findAllByEmail(email).stream()
-        .map(this::convertToDto)
-        .collect(Collectors.toList());
+  public List<ApplicationListItemDto> getAllApplicationsByEmail(String email) {
+    return applicationRepository.findListItemsByEmail(email);
   }
 
   /**
@@ -69,22 +152,27 @@ public class ApplicationService {
    * - Создает запись в Contact, если еще нет контакта с такой почтой
    * - Уменьшает количество доступных мест в туре на 1
    * - Создает связь между контактом и туром в ClientTour
+   * Если мест нет, до выбрасывания NoAvailableSlotsException ничего не
+   * записывается, поэтому внешняя транзакция не помечается к откату
    */
-  @Transactional
+  @Transactional(noRollbackFor = NoAvailableSlotsException.class)
   public ApplicationDto createApplication(ApplicationDto applicationDto) {
-    // Проверяем существование тура и получаем его
-    Tour tour = tourRepository.findById(applicationDto.getTourId())
-        .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + applicationDto.getTourId() + " не найден"));
-
-    // Проверяем доступность мест в туре
-    if (tour.getAvailableSlots() <= 0) {
-      throw new IllegalStateException("В туре нет доступных мест");
-    }
-
-    // Уменьшаем количество доступных мест в туре на 1
-    tour.setAvailableSlots(tour.getAvailableSlots() - 1);
-    tourRepository.save(tour);
+    // Атомарно занимаем место в туре (без загрузки сущности тура)
+    seatReservationService.reserve(applicationDto.getTourId(), "В туре нет доступных мест");
+    return createApplicationForReservedSeat(applicationDto);
+  }
 
+  /**
+   * Создание заявки, место для которой уже занято в текущей транзакции
+   * (используется листом ожидания при передаче освободившегося места).
+   * Связь клиент-тур уникальна для пары контакт-тур: неактивная связь,
+   * оставшаяся после отклоненной или отмененной заявки, переводится на новую
+   * заявку
+   *
+   * @throws IllegalStateException если контакт уже записан на тур
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public ApplicationDto createApplicationForReservedSeat(ApplicationDto applicationDto) {
     // Проверяем существование пользователя с указанным email
     User user = userRepository.findByEmail(applicationDto.getEmail()).orElse(null);
     if (user != null) {
@@ -110,6 +198,13 @@ public class ApplicationService {
           .build();
 
       contact = contactRepository.save(contact);
+      eventPublisher.publishEvent(new ContactChangedEvent(contact.getId()));
+    }
+
+    ClientTour clientTour = clientTourRepository.findByContactIdAndTourId(contact.getId(), applicationDto.getTourId())
+        .orElse(null);
+    if (clientTour != null && Boolean.TRUE.equals(clientTour.getIsActive())) {
+      throw new IllegalStateException("Контакт с почтой " + applicationDto.getEmail() + " уже записан на этот тур");
     }
 
     // Создаем заявку
@@ -118,19 +213,148 @@ public class ApplicationService {
     application.setContact(contact);
     Application savedApplication = applicationRepository.save(application);
 
-    // Создаем связь между контактом и туром
-    ClientTour clientTour = ClientTour.builder()
-        .contactId(contact.getId())
-        .tourId(tour.getId())
-        .applicationId(savedApplication.getId())
-        .isActive(true)
-        .build();
-
+    // Создаем связь между контактом и туром или активируем прежнюю
+    if (clientTour == null) {
+      clientTour = ClientTour.builder()
+          .contactId(contact.getId())
+          .tourId(applicationDto.getTourId())
+          .build();
+    }
+    clientTour.setApplicationId(savedApplication.getId());
+    clientTour.setIsActive(true);
     clientTourRepository.save(clientTour);
 
     return convertToDto(savedApplication);
   }
 
+  /**
+   * Признак того, что контакт с указанной почтой записан на тур (связь
+   * клиент-тур активна)
+   */
+  @Transactional(readOnly = true)
+  public boolean isEnrolled(Long tourId, String email) {
+    return contactRepository.findByEmail(email)
+        .flatMap(contact -> clientTourRepository.findByContactIdAndTourId(contact.getId(), tourId))
+        .map(clientTour -> Boolean.TRUE.equals(clientTour.getIsActive()))
+        .orElse(false);
+  }
+
+  /**
+   * Создание партии заявок на один тур в одной транзакции.
+   * Места занимаются одним UPDATE - сколько есть, но не больше размера
+   * партии; заявки создаются в порядке списка, пока хватает мест
+   *
+   * @return созданные заявки; заявителям после последней из них мест не
+   *         хватило
+   */
+  @Transactional
+  public List<ApplicationDto> createApplicationsBatch(Long tourId, List<ApplicationDto> applicationDtos) {
+    int seats = seatReservationService.reserveUpTo(tourId, applicationDtos.size());
+    List<ApplicationDto> created = new ArrayList<>(seats);
+    for (ApplicationDto applicationDto : applicationDtos.subList(0, seats)) {
+      applicationDto.setTourId(tourId);
+      created.add(createApplicationForReservedSeat(applicationDto));
+    }
+    return created;
+  }
+
+  /**
+   * Групповая заявка: по заявке на каждого участника.
+   * Места для всей группы занимаются одним условным UPDATE, контакты и
+   * пользователи ищутся одним запросом на всю группу. Если мест не хватает,
+   * кто-то из участников уже записан на тур или любая вставка не удалась,
+   * не создается ни одной заявки
+   */
+  @Transactional
+  public List<ApplicationDto> createGroupApplication(GroupApplicationDto groupDto) {
+    List<TravellerDto> travellers = groupDto.getTravellers();
+    if (travellers.size() > MAX_GROUP_SIZE) {
+      throw new IllegalArgumentException("В группе не может быть больше " + MAX_GROUP_SIZE + " участников");
+    }
+    // Контакт ищется по почте и записывается на тур только один раз
+    Set<String> emails = new LinkedHashSet<>();
+    travellers.forEach(traveller -> emails.add(traveller.getEmail()));
+    if (emails.size() < travellers.size()) {
+      throw new IllegalArgumentException("У каждого участника группы должна быть своя почта");
+    }
+    Long tourId = groupDto.getTourId();
+    Map<String, Contact> contactsByEmail = new HashMap<>();
+    contactRepository.findAllByEmailIn(emails).forEach(contact -> contactsByEmail.putIfAbsent(contact.getEmail(), contact));
+    // Неактивные связи, оставшиеся после отклоненных или отмененных заявок,
+    // переводятся на новые заявки, как в createApplicationForReservedSeat
+    Map<Long, ClientTour> inactiveByContactId = new HashMap<>();
+    if (!contactsByEmail.isEmpty()) {
+      for (ClientTour clientTour : clientTourRepository.findByTourIdAndContactIdIn(tourId,
+          contactsByEmail.values().stream().map(Contact::getId).toList())) {
+        if (Boolean.TRUE.equals(clientTour.getIsActive())) {
+          throw new IllegalStateException("Один из участников группы уже записан на этот тур");
+        }
+        inactiveByContactId.put(clientTour.getContactId(), clientTour);
+      }
+    }
+
+    seatReservationService.reserve(tourId, travellers.size(),
+        "В туре нет " + travellers.size() + " свободных мест");
+
+    Map<String, User> usersByEmail = new HashMap<>();
+    userRepository.findAllByEmailIn(emails).forEach(user -> usersByEmail.put(user.getEmail(), user));
+
+    List<Contact> newContacts = new ArrayList<>();
+    for (TravellerDto traveller : travellers) {
+      if (!contactsByEmail.containsKey(traveller.getEmail())) {
+        Contact contact = Contact.builder()
+            .fullName(traveller.getFullName())
+            .phoneNumber(traveller.getPhoneNumber())
+            .email(traveller.getEmail())
+            .ageGroup(traveller.getAgeGroup())
+            .gender(traveller.getGender())
+            .discountPercent(0)
+            .isClient(false)
+            .user(usersByEmail.get(traveller.getEmail()))
+            .build();
+        contactsByEmail.put(traveller.getEmail(), contact);
+        newContacts.add(contact);
+      }
+    }
+    contactRepository.saveAll(newContacts);
+    newContacts.forEach(contact -> eventPublisher.publishEvent(new ContactChangedEvent(contact.getId())));
+
+    List<Application> applications = new ArrayList<>();
+    for (TravellerDto traveller : travellers) {
+      Contact contact = contactsByEmail.get(traveller.getEmail());
+      User user = usersByEmail.get(traveller.getEmail());
+      Application application = Application.builder()
+          .fullName(traveller.getFullName())
+          .phoneNumber(traveller.getPhoneNumber())
+          .email(traveller.getEmail())
+          .tourId(tourId)
+          .userId(user != null ? user.getId() : null)
+          .contactId(contact.getId())
+          .status(ApplicationStatus.PENDING)
+          .build();
+      application.setContact(contact);
+      applications.add(application);
+    }
+    List<Application> savedApplications = applicationRepository.saveAll(applications);
+
+    List<ClientTour> clientTours = new ArrayList<>();
+    for (Application application : savedApplications) {
+      ClientTour clientTour = inactiveByContactId.get(application.getContactId());
+      if (clientTour == null) {
+        clientTour = ClientTour.builder()
+            .contactId(application.getContactId())
+            .tourId(tourId)
+            .build();
+      }
+      clientTour.setApplicationId(application.getId());
+      clientTour.setIsActive(true);
+      clientTours.add(clientTour);
+    }
+    clientTourRepository.saveAll(clientTours);
+
+    return savedApplications.stream().map(this::convertToDto).toList();
+  }
+
   /**
    * Обновление существующей заявки
    */
@@ -157,16 +381,15 @@ public class ApplicationService {
     Application application = applicationRepository.findById(id)
         .orElseThrow(() -> new EntityNotFoundException("Заявка с ID " + id + " не найдена"));
 
-    // Получаем тур и увеличиваем количество доступных мест
-    Tour tour = tourRepository.findById(application.getTourId())
-        .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + application.getTourId() + " не найден"));
-
-    tour.setAvailableSlots(tour.getAvailableSlots() + 1);
-    tourRepository.save(tour);
-
-    // Находим и удаляем связь в ClientTour, если она была создана по этой заявке
+    // Находим и удаляем связь в ClientTour, если она была создана по этой заявке.
+    // Место возвращается, только если связь его занимала
     clientTourRepository.findByApplicationId(application.getId())
-        .ifPresent(clientTourRepository::delete);
+        .ifPresent(clientTour -> {
+          if (Boolean.TRUE.equals(clientTour.getIsActive())) {
+            seatReservationService.release(application.getTourId());
+          }
+          clientTourRepository.delete(clientTour);
+        });
 
     // Удаляем саму заявку
     applicationRepository.deleteById(id);
@@ -186,16 +409,10 @@ public class ApplicationService {
     // Обновляем статус
     application.setStatus(status);
 
-    // Если заявка была отклонена (REJECTED) и раньше была в другом статусе,
-    // нужно вернуть место в туре и деактивировать связь клиент-тур
-    if ((status == ApplicationStatus.REJECTED && previousStatus != ApplicationStatus.REJECTED)
-        || (status == ApplicationStatus.CANCELLED)) {
-      // Получаем тур и увеличиваем количество доступных мест
-      Tour tour = tourRepository.findById(application.getTourId())
-          .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + application.getTourId() + " не найден"));
-
-      tour.setAvailableSlots(tour.getAvailableSlots() + 1);
-      tourRepository.save(tour);
+    // Если заявка отклонена (REJECTED) или отменена (CANCELLED), а раньше
+    // занимала место, нужно вернуть место в туре и деактивировать связь клиент-тур
+    if (holdsSeat(previousStatus) && !holdsSeat(status)) {
+      seatReservationService.release(application.getTourId());
 
       // Находим и деактивируем связь в ClientTour, если она была создана по этой
       // заявке
@@ -206,22 +423,11 @@ public class ApplicationService {
           });
     }
 
-    // Если заявка была восстановлена из отклоненного статуса в APPROVED или
-    // PENDING,
+    // Если заявка была восстановлена в APPROVED или PENDING,
     // нужно занять место в туре и активировать связь клиент-тур
-    if ((status == ApplicationStatus.APPROVED || status == ApplicationStatus.PENDING)
-        && previousStatus == ApplicationStatus.REJECTED) {
-      // Получаем тур и проверяем наличие мест
-      Tour tour = tourRepository.findById(application.getTourId())
-          .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + application.getTourId() + " не найден"));
-
-      if (tour.getAvailableSlots() <= 0) {
-        throw new IllegalStateException("В туре нет доступных мест для изменения статуса заявки");
-      }
-
-      // Уменьшаем количество доступных мест
-      tour.setAvailableSlots(tour.getAvailableSlots() - 1);
-      tourRepository.save(tour);
+    if (!holdsSeat(previousStatus) && holdsSeat(status)) {
+      seatReservationService.reserve(application.getTourId(),
+          "В туре нет доступных мест для изменения статуса заявки");
 
       // Находим и активируем связь в ClientTour, если она была создана по этой заявке
       clientTourRepository.findByApplicationId(application.getId())
@@ -235,6 +441,113 @@ public class ApplicationService {
     return convertToDto(updatedApplication);
   }
 
+  /**
+   * Массовое изменение статуса заявок по тем же правилам, что и
+   * updateApplicationStatus. Заявки блокируются одним запросом, места в
+   * каждом туре меняются одним UPDATE на суммарную величину, статусы заявок и
+   * активность связей клиент-тур обновляются одним UPDATE на каждое изменение.
+   * Если в туре не хватает мест для всех восстанавливаемых заявок, они
+   * остаются в прежнем статусе с результатом NO_SLOTS
+   *
+   * @return результат по каждой заявке в порядке переданных ID
+   */
+  @Transactional
+  public List<StatusUpdateResultDto> updateApplicationStatuses(List<Long> ids, ApplicationStatus status) {
+    LinkedHashSet<Long> uniqueIds = new LinkedHashSet<>(ids);
+    uniqueIds.remove(null);
+    if (uniqueIds.size() > MAX_BULK_STATUS_UPDATE) {
+      throw new IllegalArgumentException(
+          "За один запрос можно изменить статус не более " + MAX_BULK_STATUS_UPDATE + " заявок");
+    }
+
+    Map<Long, Application> applications = new HashMap<>();
+    applicationRepository.findAllByIdForUpdate(uniqueIds)
+        .forEach(application -> applications.put(application.getId(), application));
+
+    Map<Long, StatusUpdateResultDto> results = new HashMap<>();
+    List<Long> updatedIds = new ArrayList<>();
+    Map<Long, List<Long>> releasingByTour = new HashMap<>();
+    Map<Long, List<Long>> restoringByTour = new HashMap<>();
+    for (Long id : uniqueIds) {
+      Application application = applications.get(id);
+      if (application == null) {
+        results.put(id, statusResult(id, Outcome.NOT_FOUND, null, null, "Заявка не найдена"));
+        continue;
+      }
+      ApplicationStatus previousStatus = application.getStatus();
+      if (previousStatus == status) {
+        results.put(id, statusResult(id, Outcome.UNCHANGED, previousStatus, status, null));
+        continue;
+      }
+      results.put(id, statusResult(id, Outcome.UPDATED, previousStatus, status, null));
+      updatedIds.add(id);
+      if (holdsSeat(previousStatus) && !holdsSeat(status)) {
+        releasingByTour.computeIfAbsent(application.getTourId(), tourId -> new ArrayList<>()).add(id);
+      } else if (!holdsSeat(previousStatus) && holdsSeat(status)) {
+        restoringByTour.computeIfAbsent(application.getTourId(), tourId -> new ArrayList<>()).add(id);
+      }
+    }
+
+    // Одно изменение количества мест на тур
+    List<Long> releasedIds = new ArrayList<>();
+    List<Long> restoredIds = new ArrayList<>();
+    Set<Long> tourIds = new LinkedHashSet<>(releasingByTour.keySet());
+    tourIds.addAll(restoringByTour.keySet());
+    for (Long tourId : tourIds) {
+      List<Long> releasing = releasingByTour.getOrDefault(tourId, List.of());
+      List<Long> restoring = restoringByTour.getOrDefault(tourId, List.of());
+      int delta = releasing.size() - restoring.size();
+      if (delta > 0) {
+        seatReservationService.release(tourId, delta);
+      } else if (delta < 0 && !seatReservationService.tryReserve(tourId, -delta)) {
+        if (!releasing.isEmpty()) {
+          seatReservationService.release(tourId, releasing.size());
+        }
+        for (Long id : restoring) {
+          StatusUpdateResultDto result = results.get(id);
+          result.setOutcome(Outcome.NO_SLOTS);
+          result.setStatus(result.getPreviousStatus());
+          result.setMessage("В туре нет доступных мест для изменения статуса заявки");
+          updatedIds.remove(id);
+        }
+        restoring = List.of();
+      }
+      releasedIds.addAll(releasing);
+      restoredIds.addAll(restoring);
+    }
+
+    LocalDateTime now = LocalDateTime.now();
+    if (!updatedIds.isEmpty()) {
+      applicationRepository.updateStatuses(updatedIds, status, now);
+    }
+    if (!releasedIds.isEmpty()) {
+      clientTourRepository.updateActiveByApplicationIds(releasedIds, false, now);
+    }
+    if (!restoredIds.isEmpty()) {
+      clientTourRepository.updateActiveByApplicationIds(restoredIds, true, now);
+    }
+
+    return uniqueIds.stream().map(results::get).toList();
+  }
+
+  private StatusUpdateResultDto statusResult(Long id, Outcome outcome, ApplicationStatus previousStatus,
+      ApplicationStatus status, String message) {
+    return StatusUpdateResultDto.builder()
+        .id(id)
+        .outcome(outcome)
+        .previousStatus(previousStatus)
+        .status(status)
+        .message(message)
+        .build();
+  }
+
+  /**
+   * Занимает ли заявка в данном статусе место в туре
+   */
+  private boolean holdsSeat(ApplicationStatus status) {
+    return status != ApplicationStatus.REJECTED && status != ApplicationStatus.CANCELLED;
+  }
+
   /**
    * Конвертация Entity в DTO
    */
@@ -1,17 +1,25 @@
 package com.example.demo.service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.dto.ClientTourDto;
+import com.example.demo.dto.KeysetPage;
+import com.example.demo.dto.TourTransferDto;
+import com.example.demo.dto.TourTransferResultDto;
+import com.example.demo.dto.TransferConflictDto;
 import com.example.demo.models.ClientTour;
-import com.example.demo.models.Contact;
-import com.example.demo.models.Tour;
 import com.example.demo.repository.ClientTourRepository;
+import com.example.demo.repository.ClientTourTransferRepository;
 import com.example.demo.repository.ContactRepository;
+import com.example.demo.repository.KeysetQuery;
+import com.example.demo.repository.KeysetRepository;
 import com.example.demo.repository.TourRepository;
 
 import jakarta.persistence.EntityNotFoundException;
@@ -24,15 +32,32 @@ public class ClientTourService {
   private final ClientTourRepository clientTourRepository;
   private final ContactRepository contactRepository;
   private final TourRepository tourRepository;
+  private final SeatReservationService seatReservationService;
+  private final KeysetRepository keysetRepository;
+  private final ClientTourTransferRepository clientTourTransferRepository;
 
   /**
    * Получение списка всех связей клиент-тур
    */
   @Transactional(readOnly = true)
   public List<ClientTourDto> getAllClientTours() {
-    return clientTourRepository.findAll().stream()
-        .map(this::convertToDto)
-        .collect(Collectors.toList());
+    return clientTourRepository.findAllDetails();
+  }
+
+  /**
+   * Получение страницы связей клиент-тур с сортировкой по id или createdAt
+   */
+  @Transactional(readOnly = true)
+  public KeysetPage<ClientTourDto> getClientToursPage(String sort, String cursor, Integer limit) {
+    KeysetQuery<ClientTourDto> query = KeysetQuery.<ClientTourDto>builder()
+        .entityType(ClientTour.class)
+        .alias("ct")
+        .select(ClientTourRepository.DETAILS_SELECT)
+        .from(ClientTourRepository.DETAILS_FROM)
+        .resultType(ClientTourDto.class)
+        .sortFields(Set.of("id", "createdAt"))
+        .build();
+    return keysetRepository.findPage(query, sort, cursor, limit);
   }
 
   /**
@@ -40,9 +65,7 @@ public class ClientTourService {
    */
   @Transactional(readOnly = true)
   public List<ClientTourDto> getAllActiveClientToursWithDetails() {
-    return clientTourRepository.findAllActiveWithDetails().stream()
-        .map(this::convertToDto)
-        .collect(Collectors.toList());
+    return clientTourRepository.findAllActiveDetails();
   }
 
   /**
@@ -50,9 +73,8 @@ public class ClientTourService {
    */
   @Transactional(readOnly = true)
   public ClientTourDto getClientTourById(Long id) {
-    ClientTour clientTour = clientTourRepository.findByIdWithDetails(id)
+    return clientTourRepository.findDetailsById(id)
         .orElseThrow(() -> new EntityNotFoundException("Связь клиент-тур с ID " + id + " не найдена"));
-    return convertToDto(clientTour);
   }
 
   /**
@@ -63,9 +85,7 @@ public class ClientTourService {
     if (!contactRepository.existsById(contactId)) {
       throw new EntityNotFoundException("Контакт с ID " + contactId + " не найден");
     }
-    return clientTourRepository.findByContactId(contactId).stream()
-        .map(this::convertToDto)
-        .collect(Collectors.toList());
+    return clientTourRepository.findDetailsByContactId(contactId);
   }
 
   /**
@@ -76,9 +96,7 @@ public class ClientTourService {
     if (!tourRepository.existsById(tourId)) {
       throw new EntityNotFoundException("Тур с ID " + tourId + " не найден");
     }
-    return clientTourRepository.findByTourId(tourId).stream()
-        .map(this::convertToDto)
-        .collect(Collectors.toList());
+    return clientTourRepository.findDetailsByTourId(tourId);
   }
 
   /**
@@ -87,12 +105,9 @@ public class ClientTourService {
   @Transactional
   public ClientTourDto createClientTour(ClientTourDto clientTourDto) {
     // Проверяем существование контакта
-    Contact contact = contactRepository.findById(clientTourDto.getContactId())
-        .orElseThrow(() -> new EntityNotFoundException("Контакт с ID " + clientTourDto.getContactId() + " не найден"));
-
-    // Проверяем существование тура
-    Tour tour = tourRepository.findById(clientTourDto.getTourId())
-        .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + clientTourDto.getTourId() + " не найден"));
+    if (!contactRepository.existsById(clientTourDto.getContactId())) {
+      throw new EntityNotFoundException("Контакт с ID " + clientTourDto.getContactId() + " не найден");
+    }
 
     // Проверяем, что такой связи еще нет
     if (clientTourRepository.findByContactIdAndTourId(clientTourDto.getContactId(), clientTourDto.getTourId())
@@ -101,20 +116,103 @@ public class ClientTourService {
           " и туром ID " + clientTourDto.getTourId() + " уже существует");
     }
 
-    // Проверяем доступность мест в туре
-    if (tour.getAvailableSlots() <= 0) {
-      throw new IllegalStateException("В туре нет доступных мест");
-    }
-
-    // Уменьшаем количество доступных мест в туре
-    tour.setAvailableSlots(tour.getAvailableSlots() - 1);
-    tourRepository.save(tour);
-
     // Создаем связь
     ClientTour clientTour = convertToEntity(clientTourDto);
+
+    // Занимаем место в туре, если связь активна
+    if (clientTour.getIsActive()) {
+      seatReservationService.reserve(clientTour.getTourId(), "В туре нет доступных мест");
+    } else if (!tourRepository.existsById(clientTour.getTourId())) {
+      throw new EntityNotFoundException("Тур с ID " + clientTour.getTourId() + " не найден");
+    }
+
     ClientTour savedClientTour = clientTourRepository.save(clientTour);
 
-    return convertToDto(savedClientTour);
+    return getClientTourById(savedClientTour.getId());
+  }
+
+  /**
+   * Перенос клиентов из одного тура в другой (например, при отмене даты
+   * выезда). Места в новом туре проверяются и занимаются один раз на всех
+   * активных клиентов, связи переносятся одним UPDATE, счетчики мест обоих
+   * туров меняются на общее количество. Связи контактов, уже записанных на
+   * новый тур, и связи не из исходного тура не переносятся и попадают в
+   * список конфликтов
+   *
+   * @throws NoAvailableSlotsException если в новом туре не хватает мест на
+   *                                   всех переносимых активных клиентов
+   */
+  @Transactional
+  public TourTransferResultDto transferClients(TourTransferDto request) {
+    Long sourceTourId = request.getSourceTourId();
+    Long targetTourId = request.getTargetTourId();
+    if (sourceTourId.equals(targetTourId)) {
+      throw new IllegalArgumentException("Исходный и новый тур совпадают");
+    }
+    for (Long tourId : List.of(sourceTourId, targetTourId)) {
+      if (!tourRepository.existsById(tourId)) {
+        throw new EntityNotFoundException("Тур с ID " + tourId + " не найден");
+      }
+    }
+    Set<Long> requestedIds = request.getClientTourIds() != null
+        ? new LinkedHashSet<>(request.getClientTourIds())
+        : null;
+
+    List<TransferConflictDto> conflicts = new ArrayList<>();
+    List<Long> movableIds = new ArrayList<>();
+    int seats = 0;
+    Set<Long> foundIds = new HashSet<>();
+    for (ClientTourTransferRepository.Candidate candidate : clientTourTransferRepository.lockCandidates(sourceTourId,
+        targetTourId, requestedIds)) {
+      foundIds.add(candidate.id());
+      if (candidate.inTargetTour()) {
+        conflicts.add(TransferConflictDto.builder()
+            .clientTourId(candidate.id())
+            .contactId(candidate.contactId())
+            .reason(TransferConflictDto.Reason.ALREADY_IN_TARGET_TOUR)
+            .build());
+      } else {
+        movableIds.add(candidate.id());
+        seats += candidate.active() ? 1 : 0;
+      }
+    }
+    if (requestedIds != null) {
+      requestedIds.stream()
+          .filter(id -> !foundIds.contains(id))
+          .forEach(id -> conflicts.add(TransferConflictDto.builder()
+              .clientTourId(id)
+              .reason(TransferConflictDto.Reason.NOT_IN_SOURCE_TOUR)
+              .build()));
+    }
+
+    List<Long> movedIds = new ArrayList<>();
+    int movedSeats = 0;
+    if (!movableIds.isEmpty()) {
+      if (seats > 0) {
+        seatReservationService.reserve(targetTourId, seats,
+            "В туре с ID " + targetTourId + " недостаточно мест для переноса " + seats + " клиентов");
+      }
+      for (ClientTourTransferRepository.Moved moved : clientTourTransferRepository.moveToTour(sourceTourId,
+          targetTourId, movableIds)) {
+        movedIds.add(moved.id());
+        movedSeats += moved.active() ? 1 : 0;
+      }
+      if (movedSeats > 0) {
+        seatReservationService.release(sourceTourId, movedSeats);
+      }
+      if (seats > movedSeats) {
+        // Контакт записался на новый тур параллельно, лишние места возвращаются
+        seatReservationService.release(targetTourId, seats - movedSeats);
+      }
+    }
+
+    return TourTransferResultDto.builder()
+        .sourceTourId(sourceTourId)
+        .targetTourId(targetTourId)
+        .movedIds(movedIds)
+        .movedSeats(movedSeats)
+        .conflicts(conflicts)
+        .build();
   }
 
   /**
@@ -125,26 +223,21 @@ public class ClientTourService {
     ClientTour existingClientTour = clientTourRepository.findById(id)
         .orElseThrow(() -> new EntityNotFoundException("Связь клиент-тур с ID " + id + " не найдена"));
 
-    // Проверяем, не изменился ли тур, если да - обновляем доступные места
-    if (!existingClientTour.getTourId().equals(clientTourDto.getTourId()) &&
-        clientTourDto.getTourId() != null) {
-
-      // Возвращаем место в старом туре
-      Tour oldTour = tourRepository.findById(existingClientTour.getTourId())
-          .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + existingClientTour.getTourId() + " не найден"));
-      oldTour.setAvailableSlots(oldTour.getAvailableSlots() + 1);
-      tourRepository.save(oldTour);
-
-      // Занимаем место в новом туре
-      Tour newTour = tourRepository.findById(clientTourDto.getTourId())
-          .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + clientTourDto.getTourId() + " не найден"));
+    Long oldTourId = existingClientTour.getTourId();
+    Long newTourId = clientTourDto.getTourId() != null ? clientTourDto.getTourId() : oldTourId;
+    boolean wasActive = Boolean.TRUE.equals(existingClientTour.getIsActive());
+    boolean willBeActive = clientTourDto.getIsActive() != null ? clientTourDto.getIsActive() : wasActive;
+    boolean tourChanged = !oldTourId.equals(newTourId);
 
-      if (newTour.getAvailableSlots() <= 0) {
-        throw new IllegalStateException("В новом туре нет доступных мест");
-      }
+    // Занимаем место в новом туре, если связь начинает занимать в нем место
+    if (willBeActive && (tourChanged || !wasActive)) {
+      seatReservationService.reserve(newTourId,
+          tourChanged ? "В новом туре нет доступных мест" : "В туре нет доступных мест для активации связи");
+    }
 
-      newTour.setAvailableSlots(newTour.getAvailableSlots() - 1);
-      tourRepository.save(newTour);
+    // Возвращаем место в старом туре, если связь его больше не занимает
+    if (wasActive && (tourChanged || !willBeActive)) {
+      seatReservationService.release(oldTourId);
     }
 
     // Обновляем только разрешенные поля
@@ -152,20 +245,16 @@ public class ClientTourService {
       existingClientTour.setContactId(clientTourDto.getContactId());
     }
 
-    if (clientTourDto.getTourId() != null) {
-      existingClientTour.setTourId(clientTourDto.getTourId());
-    }
+    existingClientTour.setTourId(newTourId);
 
     if (clientTourDto.getApplicationId() != null) {
       existingClientTour.setApplicationId(clientTourDto.getApplicationId());
     }
 
-    if (clientTourDto.getIsActive() != null) {
-      existingClientTour.setIsActive(clientTourDto.getIsActive());
-    }
+    existingClientTour.setIsActive(willBeActive);
 
     ClientTour updatedClientTour = clientTourRepository.save(existingClientTour);
-    return convertToDto(updatedClientTour);
+    return getClientTourById(updatedClientTour.getId());
   }
 
   /**
@@ -176,12 +265,10 @@ public class ClientTourService {
     ClientTour clientTour = clientTourRepository.findById(id)
         .orElseThrow(() -> new EntityNotFoundException("Связь клиент-тур с ID " + id + " не найдена"));
 
-    // Возвращаем место в туре
-    Tour tour = tourRepository.findById(clientTour.getTourId())
-        .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + clientTour.getTourId() + " не найден"));
-
-    tour.setAvailableSlots(tour.getAvailableSlots() + 1);
-    tourRepository.save(tour);
+    // Возвращаем место в туре, если связь его занимала
+    if (Boolean.TRUE.equals(clientTour.getIsActive())) {
+      seatReservationService.release(clientTour.getTourId());
+    }
 
     // Удаляем связь
     clientTourRepository.deleteById(id);
@@ -195,58 +282,19 @@ public class ClientTourService {
     ClientTour clientTour = clientTourRepository.findById(id)
         .orElseThrow(() -> new EntityNotFoundException("Связь клиент-тур с ID " + id + " не найдена"));
 
-    // Если меняем активность с false на true, проверяем наличие мест
+    // Если меняем активность с false на true, занимаем место в туре
     if (isActive && !clientTour.getIsActive()) {
-      Tour tour = tourRepository.findById(clientTour.getTourId())
-          .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + clientTour.getTourId() + " не найден"));
-
-      if (tour.getAvailableSlots() <= 0) {
-        throw new IllegalStateException("В туре нет доступных мест для активации связи");
-      }
-
-      // Занимаем место в туре
-      tour.setAvailableSlots(tour.getAvailableSlots() - 1);
-      tourRepository.save(tour);
+      seatReservationService.reserve(clientTour.getTourId(), "В туре нет доступных мест для активации связи");
     }
 
     // Если меняем активность с true на false, освобождаем место
     if (!isActive && clientTour.getIsActive()) {
-      Tour tour = tourRepository.findById(clientTour.getTourId())
-          .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + clientTour.getTourId() + " не найден"));
-
-      tour.setAvailableSlots(tour.getAvailableSlots() + 1);
-      tourRepository.save(tour);
+      seatReservationService.release(clientTour.getTourId());
     }
 
     clientTour.setIsActive(isActive);
     ClientTour updatedClientTour = clientTourRepository.save(clientTour);
-    return convertToDto(updatedClientTour);
-  }
-
-  /**
-   * Конвертация Entity в DTO
-   */
-  private ClientTourDto convertToDto(ClientTour clientTour) {
-    ClientTourDto dto = ClientTourDto.builder()
-        .id(clientTour.getId())
-        .contactId(clientTour.getContactId())
-        .tourId(clientTour.getTourId())
-        .applicationId(clientTour.getApplicationId())
-        .isActive(clientTour.getIsActive())
-        .createdAt(clientTour.getCreatedAt())
-        .updatedAt(clientTour.getUpdatedAt())
-        .build();
-
-    // Добавляем информацию о клиенте и туре, если они загружены
-    if (clientTour.getContact() != null) {
-      dto.setContactFullName(clientTour.getContact().getFullName());
-    }
-
-    if (clientTour.getTour() != null) {
-      dto.setTourName(clientTour.getTour().getName());
-    }
-
-    return dto;
+    return getClientTourById(updatedClientTour.getId());
   }
 
   /**
@@ -0,0 +1,227 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.dto.ContactDedupReportDto;
+import com.example.demo.dto.ContactMergeGroupDto;
+import com.example.demo.events.ContactChangedEvent;
+import com.example.demo.repository.ContactDedupRepository;
+import com.example.demo.search.ContactDuplicateFinder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Поиск и слияние дубликатов контактов.
+ * Заявка привязывается к контакту по точному email, поэтому один человек
+ * может оказаться в нескольких контактах с разным регистром email или
+ * форматом телефона. Email и телефоны всех контактов читаются курсором и
+ * раскладываются по корзинам в памяти, полностью загружаются только
+ * контакты из общих корзин. Слияние выполняется партиями групп, каждая
+ * партия - в своей транзакции
+ */
+@Slf4j
+@Service
+public class ContactDedupService {
+
+  private final ContactDedupRepository contactDedupRepository;
+  private final ApplicationEventPublisher eventPublisher;
+  private final TransactionTemplate transactionTemplate;
+  private final ReentrantLock running = new ReentrantLock();
+
+  @Value("${contacts.dedup.auto-merge:false}")
+  private boolean autoMerge;
+
+  @Value("${contacts.dedup.min-score:0.7}")
+  private double minScore;
+
+  @Value("${contacts.dedup.max-bucket-size:50}")
+  private int maxBucketSize;
+
+  @Value("${contacts.dedup.merge-batch-size:500}")
+  private int mergeBatchSize;
+
+  @Value("${contacts.dedup.max-reported:1000}")
+  private int maxReported;
+
+  private volatile ContactDedupReportDto lastReport;
+
+  public ContactDedupService(ContactDedupRepository contactDedupRepository, ApplicationEventPublisher eventPublisher,
+      PlatformTransactionManager transactionManager) {
+    this.contactDedupRepository = contactDedupRepository;
+    this.eventPublisher = eventPublisher;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Результат последнего запуска (null, если поиск еще не выполнялся)
+   */
+  public ContactDedupReportDto getLastReport() {
+    return lastReport;
+  }
+
+  /**
+   * Плановый запуск: без contacts.dedup.auto-merge дубликаты только ищутся
+   */
+  @Scheduled(initialDelayString = "${contacts.dedup.initial-delay-ms:600000}", fixedDelayString = "${contacts.dedup.interval-ms:86400000}")
+  public void scheduledRun() {
+    try {
+      run(!autoMerge);
+    } catch (IllegalStateException e) {
+      log.info("Плановый поиск дубликатов контактов пропущен: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Поиск и, если это не пробный запуск, слияние дубликатов контактов
+   *
+   * @param dryRun только найти дубликаты и вернуть отчет
+   * @throws IllegalStateException если поиск уже выполняется
+   */
+  public ContactDedupReportDto run(boolean dryRun) {
+    if (!running.tryLock()) {
+      throw new IllegalStateException("Поиск дубликатов контактов уже выполняется");
+    }
+    try {
+      return doRun(dryRun);
+    } finally {
+      running.unlock();
+    }
+  }
+
+  private ContactDedupReportDto doRun(boolean dryRun) {
+    LocalDateTime startedAt = LocalDateTime.now();
+    long start = System.nanoTime();
+    long checkedContacts = contactDedupRepository.countContacts();
+    ContactDuplicateFinder finder = new ContactDuplicateFinder(minScore, maxBucketSize);
+    contactDedupRepository.collectKeys(finder);
+    List<ContactDuplicateFinder.Candidate> candidates =
+        contactDedupRepository.findCandidates(finder.candidateIds());
+    List<ContactDuplicateFinder.Group> groups = finder.findGroups(candidates);
+
+    List<ContactMergeGroupDto> results = new ArrayList<>(groups.size());
+    int mergedCount = 0;
+    for (int from = 0; from < groups.size(); from += mergeBatchSize) {
+      List<ContactDuplicateFinder.Group> batch = groups.subList(from, Math.min(from + mergeBatchSize, groups.size()));
+      if (dryRun) {
+        results.addAll(resolve(batch, contactDedupRepository.findTourIds(contactIds(batch)), null));
+        continue;
+      }
+      try {
+        List<ContactMergeGroupDto> merged = transactionTemplate.execute(status -> mergeBatch(batch));
+        results.addAll(merged);
+        mergedCount += merged.stream().mapToInt(group -> group.getDuplicateIds().size()).sum();
+      } catch (RuntimeException e) {
+        // Партия откатывается целиком, ее дубликаты будут слиты при следующем запуске
+        log.warn("Не удалось слить партию дубликатов контактов с {} по {}: {}",
+            batch.get(0).survivorId(), batch.get(batch.size() - 1).survivorId(), e.getMessage());
+        results.addAll(resolve(batch, Collections.emptyMap(), null));
+      }
+    }
+
+    ContactDedupReportDto report = ContactDedupReportDto.builder()
+        .startedAt(startedAt)
+        .durationMs((System.nanoTime() - start) / 1_000_000)
+        .dryRun(dryRun)
+        .checkedContacts(checkedContacts)
+        .candidateContacts(candidates.size())
+        .oversizedBuckets(finder.getOversizedBuckets())
+        .groupCount(results.size())
+        .duplicateCount(results.stream().mapToInt(group -> group.getDuplicateIds().size()).sum())
+        .mergedCount(mergedCount)
+        .skippedCount(results.stream().mapToInt(group -> group.getSkippedIds().size()).sum())
+        .groups(new ArrayList<>(results.subList(0, Math.min(maxReported, results.size()))))
+        .build();
+    lastReport = report;
+    log.info("Дубликаты контактов{}: проверено {}, кандидатов {}, групп {}, дубликатов {}, слито {}, пропущено {} за {} мс",
+        dryRun ? " (пробный запуск)" : "", checkedContacts, candidates.size(), report.getGroupCount(),
+        report.getDuplicateCount(), mergedCount, report.getSkippedCount(), report.getDurationMs());
+    return report;
+  }
+
+  /**
+   * Слияние партии групп. Контакты блокируются, затем группы проверяются
+   * заново: контакт мог быть удален или записан на тур после поиска
+   */
+  private List<ContactMergeGroupDto> mergeBatch(List<ContactDuplicateFinder.Group> batch) {
+    Set<Long> existing = contactDedupRepository.lockContacts(contactIds(batch));
+    List<ContactMergeGroupDto> resolved = resolve(batch, contactDedupRepository.findTourIds(existing), existing);
+    Map<Long, Long> survivorIds = new HashMap<>();
+    resolved.forEach(group -> group.getDuplicateIds().forEach(id -> survivorIds.put(id, group.getSurvivorId())));
+    if (survivorIds.isEmpty()) {
+      return resolved;
+    }
+    contactDedupRepository.merge(survivorIds);
+    for (ContactMergeGroupDto group : resolved) {
+      if (!group.getDuplicateIds().isEmpty()) {
+        group.setMerged(true);
+        eventPublisher.publishEvent(new ContactChangedEvent(group.getSurvivorId()));
+        group.getDuplicateIds().forEach(id -> eventPublisher.publishEvent(new ContactChangedEvent(id)));
+      }
+    }
+    return resolved;
+  }
+
+  /**
+   * Группы для отчета и слияния. Дубликат, записанный на тот же тур, что и
+   * остающийся контакт или уже принятый дубликат, не сливается: связь
+   * клиент-тур уникальна для пары контакт-тур
+   *
+   * @param existing существующие контакты или null - не проверять
+   */
+  private List<ContactMergeGroupDto> resolve(List<ContactDuplicateFinder.Group> batch, Map<Long, Set<Long>> tourIds,
+      Set<Long> existing) {
+    List<ContactMergeGroupDto> resolved = new ArrayList<>(batch.size());
+    for (ContactDuplicateFinder.Group group : batch) {
+      List<Long> duplicateIds = new ArrayList<>();
+      List<Long> skippedIds = new ArrayList<>(group.skippedIds());
+      if (existing != null && !existing.contains(group.survivorId())) {
+        skippedIds.addAll(group.duplicateIds());
+      } else {
+        Set<Long> takenTours = new HashSet<>(tourIds.getOrDefault(group.survivorId(), Set.of()));
+        for (Long duplicateId : group.duplicateIds()) {
+          if (existing != null && !existing.contains(duplicateId)) {
+            continue;
+          }
+          Set<Long> duplicateTours = tourIds.getOrDefault(duplicateId, Set.of());
+          if (Collections.disjoint(takenTours, duplicateTours)) {
+            takenTours.addAll(duplicateTours);
+            duplicateIds.add(duplicateId);
+          } else {
+            skippedIds.add(duplicateId);
+          }
+        }
+      }
+      resolved.add(ContactMergeGroupDto.builder()
+          .survivorId(group.survivorId())
+          .duplicateIds(duplicateIds)
+          .skippedIds(skippedIds)
+          .score(group.score())
+          .build());
+    }
+    return resolved;
+  }
+
+  private static List<Long> contactIds(List<ContactDuplicateFinder.Group> batch) {
+    List<Long> contactIds = new ArrayList<>();
+    for (ContactDuplicateFinder.Group group : batch) {
+      contactIds.add(group.survivorId());
+      contactIds.addAll(group.duplicateIds());
+    }
+    return contactIds;
+  }
+}
@@ -0,0 +1,149 @@
+package com.example.demo.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.events.ContactChangedEvent;
+import com.example.demo.repository.ContactSearchRepository;
+import com.example.demo.search.ContactSearchIndex;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сервис нечеткого поиска контактов по индексу в памяти.
+ * Индекс строится из БД в фоновом потоке при старте, после фиксации
+ * изменений контакта обновляется на месте и периодически строится заново,
+ * чтобы освободить память удаленных документов и учесть изменения в обход
+ * сервисов. Пока индекс не построен после запуска, запросы ждут его не
+ * дольше search.ready-timeout-ms, а затем получают
+ * SearchIndexNotReadyException
+ */
+@Slf4j
+@Service
+public class ContactSearchService {
+
+  // При такой доле удаленных документов индекс перестраивается досрочно
+  private static final double MAX_REMOVED_RATIO = 0.25;
+
+  private final ContactSearchRepository contactSearchRepository;
+  private final int maxLimit;
+  private final long readyTimeoutMs;
+
+  private final Set<Long> pendingContactIds = ConcurrentHashMap.newKeySet();
+  private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "contact-search-indexer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final CountDownLatch ready = new CountDownLatch(1);
+
+  private volatile ContactSearchIndex index;
+
+  public ContactSearchService(ContactSearchRepository contactSearchRepository,
+      @Value("${contacts.search.max-limit:100}") int maxLimit,
+      @Value("${search.ready-timeout-ms:5000}") long readyTimeoutMs) {
+    this.contactSearchRepository = contactSearchRepository;
+    this.maxLimit = maxLimit;
+    this.readyTimeoutMs = readyTimeoutMs;
+  }
+
+  /**
+   * ID найденных контактов по убыванию сходства с запросом
+   *
+   * @throws IllegalArgumentException при недопустимом размере результата
+   * @throws SearchIndexNotReadyException если индекс еще не построен
+   */
+  public List<Long> search(String query, int limit) {
+    if (limit < 1 || limit > maxLimit) {
+      throw new IllegalArgumentException("Размер результата должен быть от 1 до " + maxLimit);
+    }
+    ContactSearchIndex current = index;
+    if (current == null) {
+      current = awaitIndex();
+    }
+    return current.search(query, limit).stream().map(ContactSearchIndex.Hit::contactId).toList();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void buildOnStartup() {
+    indexer.execute(this::buildIndex);
+  }
+
+  /**
+   * Полное построение индекса из БД
+   */
+  @Scheduled(initialDelayString = "${contacts.search.rebuild-interval-ms:3600000}", fixedDelayString = "${contacts.search.rebuild-interval-ms:3600000}")
+  public void rebuild() {
+    buildIndex();
+  }
+
+  private synchronized ContactSearchIndex buildIndex() {
+    long startedAt = System.nanoTime();
+    // Контакты добавляются по мере чтения, без промежуточного списка
+    ContactSearchIndex built = new ContactSearchIndex();
+    contactSearchRepository.forEachEntry(built::put);
+    index = built;
+    ready.countDown();
+    log.info("Поисковый индекс контактов построен: {} контактов за {} мс", built.size(),
+        (System.nanoTime() - startedAt) / 1_000_000);
+    return built;
+  }
+
+  private ContactSearchIndex awaitIndex() {
+    try {
+      ready.await(readyTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    ContactSearchIndex current = index;
+    if (current == null) {
+      throw new SearchIndexNotReadyException("Поисковый индекс контактов еще не построен");
+    }
+    return current;
+  }
+
+  /**
+   * Постановка измененного контакта в очередь на переиндексацию после
+   * фиксации транзакции
+   */
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onContactChanged(ContactChangedEvent event) {
+    if (pendingContactIds.add(event.getContactId())) {
+      indexer.execute(this::applyPendingChanges);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    indexer.shutdownNow();
+  }
+
+  private synchronized void applyPendingChanges() {
+    if (pendingContactIds.isEmpty() || index == null) {
+      return;
+    }
+    for (Long contactId : List.copyOf(pendingContactIds)) {
+      pendingContactIds.remove(contactId);
+      contactSearchRepository.findEntry(contactId)
+          .ifPresentOrElse(index::put, () -> index.remove(contactId));
+    }
+    if (index.removedRatio() > MAX_REMOVED_RATIO) {
+      buildIndex();
+    }
+  }
+}
@@ -1,19 +1,29 @@
 package com.example.demo.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.dto.ContactDto;
+import com.example.demo.dto.KeysetPage;
 import com.example.demo.dto.UserInfoDto;
+import com.example.demo.events.ContactChangedEvent;
 import com.example.demo.models.AgeGroup;
 import com.example.demo.models.Contact;
 import com.example.demo.models.Gender;
 import com.example.demo.models.User;
 import com.example.demo.models.UserRole;
 import com.example.demo.repository.ContactRepository;
+import com.example.demo.repository.KeysetQuery;
+import com.example.demo.repository.KeysetRepository;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.utils.PasswordGenerator;
 
@@ -28,6 +38,9 @@ public class ContactService {
   private final UserRepository userRepository;
   private final PasswordEncoder passwordEncoder;
   private final EmailService emailService;
+  private final KeysetRepository keysetRepository;
+  private final ContactSearchService contactSearchService;
+  private final ApplicationEventPublisher eventPublisher;
 
   /**
    * Создает контакт из данных пользователя
@@ -52,7 +65,9 @@ public class ContactService {
         .discountPercent(0)
         .build();
 
-    return contactRepository.save(contact);
+    Contact saved = contactRepository.save(contact);
+    eventPublisher.publishEvent(new ContactChangedEvent(saved.getId()));
+    return saved;
   }
 
   public Contact getContactByUserId(Long id) {
@@ -61,7 +76,26 @@ public class ContactService {
   }
 
   public Contact updateContact(Contact contact) {
-    return contactRepository.save(contact);
+    Contact saved = contactRepository.save(contact);
+    eventPublisher.publishEvent(new ContactChangedEvent(saved.getId()));
+    return saved;
+  }
+
+  /**
+   * Нечеткий поиск контактов по ФИО, телефону и email.
+   * Контакты возвращаются по убыванию сходства с запросом
+   */
+  @Transactional(readOnly = true)
+  public List<ContactDto> searchContacts(String query, int limit) {
+    List<Long> ids = contactSearchService.search(query, limit);
+    Map<Long, Contact> contacts = contactRepository.findAllById(ids).stream()
+        .collect(Collectors.toMap(Contact::getId, Function.identity()));
+    // Контакт, удаленный после построения индекса, пропускается
+    return ids.stream()
+        .map(contacts::get)
+        .filter(Objects::nonNull)
+        .map(this::convertToDto)
+        .collect(Collectors.toList());
   }
 
   public List<ContactDto> getAllContacts() {
@@ -70,6 +104,15 @@ public class ContactService {
         .collect(Collectors.toList());
   }
 
+  /**
+   * Получает страницу контактов с сортировкой по id или createdAt
+   */
+  @Transactional(readOnly = true)
+  public KeysetPage<ContactDto> getContactsPage(String sort, String cursor, Integer limit) {
+    return keysetRepository.findPage(contactsQuery(null), sort, cursor, limit)
+        .map(this::convertToDto);
+  }
+
   public UserInfoDto createUserFromContact(ContactDto contactDto) {
     // Получаем существующий контакт
     Contact contact = contactRepository.findById(contactDto.getId())
@@ -124,6 +167,7 @@ public class ContactService {
 
   public ContactDto createContact(ContactDto contactDto) {
     Contact contact = contactRepository.save(convertToEntity(contactDto));
+    eventPublisher.publishEvent(new ContactChangedEvent(contact.getId()));
     return convertToDto(contact);
   }
 
@@ -131,6 +175,7 @@ public class ContactService {
     Contact contact = contactRepository.findById(id)
         .orElseThrow(() -> new EntityNotFoundException("Контакт с ID " + id + " не найден"));
     contact = contactRepository.save(convertToEntity(contactDto));
+    eventPublisher.publishEvent(new ContactChangedEvent(contact.getId()));
     return convertToDto(contact);
   }
 
@@ -182,4 +227,25 @@ public class ContactService {
         .map(this::convertToDto)
         .collect(Collectors.toList());
   }
+
+  /**
+   * Получает страницу контактов без связанного пользователя
+   */
+  @Transactional(readOnly = true)
+  public KeysetPage<ContactDto> getOrphanedContactsPage(String sort, String cursor, Integer limit) {
+    return keysetRepository.findPage(contactsQuery("c.user IS NULL"), sort, cursor, limit)
+        .map(this::convertToDto);
+  }
+
+  private KeysetQuery<Contact> contactsQuery(String where) {
+    return KeysetQuery.<Contact>builder()
+        .entityType(Contact.class)
+        .alias("c")
+        .select("SELECT c")
+        .from("FROM Contact c")
+        .where(where)
+        .resultType(Contact.class)
+        .sortFields(Set.of("id", "createdAt"))
+        .build();
+  }
 }
\ No newline at end of file
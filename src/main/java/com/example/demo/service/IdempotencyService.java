@@ -0,0 +1,187 @@
+package com.example.demo.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.models.IdempotencyRecord;
+import com.example.demo.repository.IdempotencyRepository;
+import com.example.demo.utils.ExpiringLruCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Поддержка заголовка Idempotency-Key для создающих запросов.
+ * Первый запрос с ключом занимает его в таблице idempotency_keys и после
+ * успешного выполнения сохраняет ответ; повторы с тем же ключом получают
+ * сохраненный ответ без повторного бронирования. Недавние ответы держатся в
+ * кэше в памяти, таблица нужна для повторов после перезапуска и с других
+ * экземпляров. Неуспешные ответы не сохраняются - ключ освобождается, и
+ * клиент может повторить запрос. Ключ занимается с арендой: если ответ не
+ * сохранен за idempotency.lease-seconds (экземпляр упал во время
+ * выполнения), тот же запрос может занять ключ заново. Запрос выполняется в
+ * одной транзакции с сохранением ответа, поэтому бронирование фиксируется
+ * только вместе с ответом: если экземпляр упал до фиксации или аренду за это
+ * время перехватил повтор, бронирование откатывается
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  private static final int MAX_KEY_LENGTH = 255;
+
+  private final IdempotencyRepository idempotencyRepository;
+  private final ObjectMapper objectMapper;
+  private final ExpiringLruCache<String, StoredResponse> responses;
+  private final Duration ttl;
+  private final Duration lease;
+  private final TransactionTemplate transactionTemplate;
+
+  public IdempotencyService(IdempotencyRepository idempotencyRepository, ObjectMapper objectMapper,
+      PlatformTransactionManager transactionManager,
+      @Value("${idempotency.cache-size:10000}") int cacheSize,
+      @Value("${idempotency.ttl-hours:24}") long ttlHours,
+      @Value("${idempotency.lease-seconds:60}") long leaseSeconds) {
+    this.idempotencyRepository = idempotencyRepository;
+    this.objectMapper = objectMapper;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.ttl = Duration.ofHours(ttlHours);
+    this.lease = Duration.ofSeconds(leaseSeconds);
+    this.responses = new ExpiringLruCache<>(cacheSize, ttl.toMillis());
+  }
+
+  /**
+   * Выполняет запрос не больше одного раза для ключа.
+   * Повтор ключа с другим запросом отклоняется (422), повтор во время
+   * выполнения первого запроса - 409
+   *
+   * @param scope   операция, к которой относится ключ
+   * @param request данные запроса, по которым сравниваются повторы
+   * @param action  выполнение запроса
+   */
+  public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      return ResponseEntity.badRequest().build();
+    }
+    String requestHash = hash(request);
+    String cacheKey = scope + '\n' + key;
+
+    StoredResponse cached = responses.get(cacheKey);
+    if (cached != null) {
+      return replay(cached, requestHash);
+    }
+
+    // Время занятия ключа служит и отметкой владельца: в БД оно хранится с
+    // точностью до микросекунд
+    LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    if (idempotencyRepository.claim(scope, key, requestHash, claimedAt) == 0
+        && idempotencyRepository.reclaim(scope, key, requestHash, claimedAt, claimedAt.minus(lease)) == 0) {
+      IdempotencyRecord record = idempotencyRepository.findByScopeAndIdempotencyKey(scope, key).orElse(null);
+      if (record == null || record.getResponseStatus() == null) {
+        // Первый запрос еще выполняется или только что освободил ключ
+        return record != null && !record.getRequestHash().equals(requestHash)
+            ? ResponseEntity.unprocessableEntity().build()
+            : ResponseEntity.status(HttpStatus.CONFLICT).build();
+      }
+      StoredResponse stored = new StoredResponse(record.getRequestHash(), record.getResponseStatus(),
+          record.getResponseBody());
+      responses.put(cacheKey, stored);
+      return replay(stored, requestHash);
+    }
+
+    // Ответ сохраняется в транзакции запроса; неуспешный запрос откатывается,
+    // а ключ освобождается уже после отката
+    StoredResponse[] completed = new StoredResponse[1];
+    ResponseEntity<?> response;
+    try {
+      response = transactionTemplate.execute(status -> {
+        ResponseEntity<?> result = action.get();
+        if (!result.getStatusCode().is2xxSuccessful()) {
+          status.setRollbackOnly();
+          return result;
+        }
+        StoredResponse stored = new StoredResponse(requestHash, result.getStatusCode().value(),
+            toJson(result.getBody()));
+        if (idempotencyRepository.complete(scope, key, claimedAt, stored.status(), stored.body()) == 0) {
+          // Ключ занят повтором запроса - он и выполнит бронирование
+          log.warn("Аренда ключа идемпотентности {} для {} истекла до завершения запроса", key, scope);
+          status.setRollbackOnly();
+          return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        completed[0] = stored;
+        return result;
+      });
+    } catch (RuntimeException e) {
+      idempotencyRepository.release(scope, key, claimedAt);
+      throw e;
+    }
+    if (completed[0] == null) {
+      idempotencyRepository.release(scope, key, claimedAt);
+      return response;
+    }
+    responses.put(cacheKey, completed[0]);
+    return response;
+  }
+
+  /**
+   * Удаление ключей старше срока хранения
+   */
+  @Scheduled(initialDelayString = "${idempotency.cleanup-interval-ms:3600000}", fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+  public void deleteExpired() {
+    int deleted = idempotencyRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+    if (deleted > 0) {
+      log.info("Удалено ключей идемпотентности: {}", deleted);
+    }
+  }
+
+  private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+    if (!stored.requestHash().equals(requestHash)) {
+      return ResponseEntity.unprocessableEntity().build();
+    }
+    ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status()).header(REPLAYED_HEADER, "true");
+    if (stored.body() == null) {
+      return builder.build();
+    }
+    return builder.contentType(MediaType.APPLICATION_JSON).body(stored.body());
+  }
+
+  private String hash(Object request) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request)));
+    } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Не удалось вычислить хеш запроса", e);
+    }
+  }
+
+  private String toJson(Object body) {
+    if (body == null) {
+      return null;
+    }
+    try {
+      return objectMapper.writeValueAsString(body);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Не удалось сохранить ответ на запрос", e);
+    }
+  }
+
+  private record StoredResponse(String requestHash, int status, String body) {
+  }
+}
@@ -0,0 +1,333 @@
+package com.example.demo.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.models.TourImageVariant;
+import com.example.demo.repository.TourImageVariantRepository;
+import com.example.demo.repository.TourMediaRepository;
+import com.example.demo.storage.BlobStore;
+import com.example.demo.storage.StoredBlob;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сервис уменьшенных копий изображений туров.
+ * Копии фиксированных ширин создаются средствами ImageIO на ограниченном пуле
+ * потоков сразу после загрузки изображения, а для изображений, загруженных
+ * раньше, - при первом запросе. Копии хранятся в хранилище файлов и
+ * привязаны к ключу исходного изображения, поэтому при его замене старые копии
+ * просто перестают использоваться
+ */
+@Slf4j
+@Service
+public class ImageVariantService {
+
+  private static final float JPEG_QUALITY = 0.85f;
+
+  private final BlobStore blobStore;
+  private final TourImageVariantRepository variantRepository;
+  private final TourMediaRepository tourMediaRepository;
+  private final List<Integer> widths;
+  private final long maxSourcePixels;
+  private final long generationTimeoutMillis;
+  private final ThreadPoolExecutor executor;
+
+  // Идущие генерации по ключу исходного изображения
+  private final ConcurrentMap<String, CompletableFuture<Map<Integer, TourImageVariant>>> inFlight = new ConcurrentHashMap<>();
+
+  public ImageVariantService(BlobStore blobStore, TourImageVariantRepository variantRepository,
+      TourMediaRepository tourMediaRepository,
+      @Value("${media.image.variant-widths:160,480,1024}") List<Integer> widths,
+      @Value("${media.image.max-source-pixels:50000000}") long maxSourcePixels,
+      @Value("${media.image.generation-timeout-ms:5000}") long generationTimeoutMillis,
+      @Value("${media.image.workers:2}") int workers,
+      @Value("${media.image.queue-capacity:100}") int queueCapacity) {
+    this.blobStore = blobStore;
+    this.variantRepository = variantRepository;
+    this.tourMediaRepository = tourMediaRepository;
+    this.widths = widths.stream().sorted().distinct().toList();
+    this.maxSourcePixels = maxSourcePixels;
+    this.generationTimeoutMillis = generationTimeoutMillis;
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+          Thread thread = new Thread(runnable, "image-variant-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Ширина копии для запрошенного размера: наименьшая из доступных, не меньше
+   * запрошенной, или наибольшая доступная
+   */
+  public int resolveWidth(int requestedWidth) {
+    return widths.stream()
+        .filter(width -> width >= requestedWidth)
+        .findFirst()
+        .orElse(widths.get(widths.size() - 1));
+  }
+
+  /**
+   * Получение копии изображения указанной ширины.
+   * Если копии еще нет, она создается; пустой результат, если создание не
+   * уложилось в таймаут или пул перегружен - тогда отдается оригинал
+   */
+  public Optional<TourImageVariant> getVariant(String sourceKey, int width) {
+    Optional<TourImageVariant> existing = variantRepository.findBySourceKeyAndWidth(sourceKey, width);
+    if (existing.isPresent()) {
+      return existing;
+    }
+    try {
+      return Optional.ofNullable(generate(sourceKey).get(generationTimeoutMillis, TimeUnit.MILLISECONDS).get(width));
+    } catch (TimeoutException e) {
+      log.debug("Копия {} шириной {} еще создается", sourceKey, width);
+      return Optional.empty();
+    } catch (ExecutionException e) {
+      log.warn("Не удалось создать копии изображения {}: {}", sourceKey, e.getCause().getMessage());
+      return Optional.empty();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Запуск создания копий после фиксации текущей транзакции
+   */
+  public void generateAfterCommit(String sourceKey) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      generate(sourceKey);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        generate(sourceKey);
+      }
+    });
+  }
+
+  /**
+   * Удаление копий изображения, которое больше не используется.
+   * Вызывается после фиксации транзакции удаления, поэтому выполняется в
+   * отдельной транзакции
+   */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public void deleteVariants(String sourceKey) {
+    List<TourImageVariant> variants = variantRepository.findBySourceKey(sourceKey);
+    if (variants.isEmpty()) {
+      return;
+    }
+    variantRepository.deleteBySourceKey(sourceKey);
+    for (TourImageVariant variant : variants) {
+      if (variant.isOriginal() || !tourMediaRepository.tryLockKey(variant.getBlobKey())
+          || tourMediaRepository.countKeyReferences(variant.getBlobKey()) > 0) {
+        continue;
+      }
+      try {
+        blobStore.delete(variant.getBlobKey());
+      } catch (IOException e) {
+        log.warn("Не удалось удалить копию {} из хранилища: {}", variant.getBlobKey(), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Создание недостающих копий изображения на пуле потоков. Параллельные
+   * запросы одного изображения ждут одну и ту же генерацию
+   */
+  private CompletableFuture<Map<Integer, TourImageVariant>> generate(String sourceKey) {
+    CompletableFuture<Map<Integer, TourImageVariant>> future = new CompletableFuture<>();
+    CompletableFuture<Map<Integer, TourImageVariant>> running = inFlight.putIfAbsent(sourceKey, future);
+    if (running != null) {
+      return running;
+    }
+    try {
+      executor.execute(() -> {
+        try {
+          future.complete(createVariants(sourceKey));
+        } catch (Exception e) {
+          future.completeExceptionally(e);
+        } finally {
+          inFlight.remove(sourceKey, future);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      inFlight.remove(sourceKey, future);
+      future.completeExceptionally(new IOException("Очередь создания копий изображений переполнена"));
+    }
+    return future;
+  }
+
+  private Map<Integer, TourImageVariant> createVariants(String sourceKey) throws IOException {
+    Map<Integer, TourImageVariant> result = new HashMap<>();
+    variantRepository.findBySourceKey(sourceKey).forEach(variant -> result.put(variant.getWidth(), variant));
+    List<Integer> missing = widths.stream().filter(width -> !result.containsKey(width)).toList();
+    if (missing.isEmpty()) {
+      return result;
+    }
+
+    SourceImage source = readSource(sourceKey, missing.get(missing.size() - 1));
+    for (int width : missing) {
+      TourImageVariant variant;
+      if (source == null || source.width() <= width) {
+        // Уменьшать нечего - по этому размеру отдается оригинал
+        variant = TourImageVariant.builder().sourceKey(sourceKey).width(width).blobKey(sourceKey).build();
+      } else {
+        variant = storeVariant(sourceKey, width, source);
+      }
+      result.put(width, save(variant));
+    }
+    log.debug("Созданы копии изображения {}: {}", sourceKey, missing);
+    return result;
+  }
+
+  private TourImageVariant save(TourImageVariant variant) {
+    try {
+      return variantRepository.save(variant);
+    } catch (DataIntegrityViolationException e) {
+      // Копию уже сохранил другой экземпляр приложения
+      return variantRepository.findBySourceKeyAndWidth(variant.getSourceKey(), variant.getWidth()).orElseThrow(() -> e);
+    }
+  }
+
+  private TourImageVariant storeVariant(String sourceKey, int width, SourceImage source) throws IOException {
+    boolean hasAlpha = source.image().getColorModel().hasAlpha();
+    BufferedImage scaled = scale(source.image(), width, hasAlpha);
+    String contentType = hasAlpha ? "image/png" : "image/jpeg";
+
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    if (hasAlpha) {
+      ImageIO.write(scaled, "png", encoded);
+    } else {
+      writeJpeg(scaled, encoded);
+    }
+    StoredBlob blob = blobStore.put(new ByteArrayInputStream(encoded.toByteArray()));
+    return TourImageVariant.builder()
+        .sourceKey(sourceKey)
+        .width(width)
+        .blobKey(blob.getKey())
+        .contentType(contentType)
+        .size(blob.getSize())
+        .build();
+  }
+
+  /**
+   * Чтение исходного изображения. Большие изображения читаются с
+   * прореживанием пикселей, чтобы не декодировать в память полный размер.
+   * null, если формат не поддерживается ImageIO или изображение слишком
+   * большое
+   */
+  private SourceImage readSource(String sourceKey, int largestWidth) throws IOException {
+    try (InputStream in = blobStore.open(sourceKey, 0);
+        ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+      Iterator<ImageReader> readers = imageInput != null ? ImageIO.getImageReaders(imageInput) : null;
+      if (readers == null || !readers.hasNext()) {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(imageInput, true, true);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        if ((long) width * height > maxSourcePixels) {
+          log.warn("Изображение {} слишком большое для создания копий: {}x{}", sourceKey, width, height);
+          return null;
+        }
+        ImageReadParam param = reader.getDefaultReadParam();
+        int subsampling = Math.max(1, width / (largestWidth * 2));
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        return new SourceImage(reader.read(0, param), width);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * Уменьшение изображения до указанной ширины с сохранением пропорций.
+   * Уменьшение идет по шагам не больше чем в 2 раза, чтобы билинейная
+   * интерполяция не давала ступенек
+   */
+  private BufferedImage scale(BufferedImage image, int targetWidth, boolean hasAlpha) {
+    int targetHeight = Math.max(1, (int) Math.round((double) image.getHeight() * targetWidth / image.getWidth()));
+    BufferedImage current = image;
+    do {
+      int width = Math.max(targetWidth, current.getWidth() / 2);
+      int height = width == targetWidth ? targetHeight : Math.max(targetHeight, current.getHeight() / 2);
+      BufferedImage next = new BufferedImage(width, height,
+          hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = next.createGraphics();
+      try {
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(current, 0, 0, width, height, null);
+      } finally {
+        graphics.dispose();
+      }
+      current = next;
+    } while (current.getWidth() > targetWidth);
+    return current;
+  }
+
+  private void writeJpeg(BufferedImage image, ByteArrayOutputStream out) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(out)) {
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(JPEG_QUALITY);
+      writer.setOutput(imageOutput);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+  }
+
+  private record SourceImage(BufferedImage image, int width) {
+  }
+}
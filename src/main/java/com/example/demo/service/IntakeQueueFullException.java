@@ -0,0 +1,13 @@
+package com.example.demo.service;
+
+/**
+ * Очередь асинхронного приема заявок заполнена, запрос нужно повторить позже
+ */
+public class IntakeQueueFullException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public IntakeQueueFullException(String message) {
+    super(message);
+  }
+}
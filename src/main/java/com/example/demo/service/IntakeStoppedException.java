@@ -0,0 +1,14 @@
+package com.example.demo.service;
+
+/**
+ * Обработчик очереди асинхронного приема заявок не работает, запрос нужно
+ * повторить позже
+ */
+public class IntakeStoppedException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public IntakeStoppedException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.service;
+
+/**
+ * В туре недостаточно свободных мест
+ */
+public class NoAvailableSlotsException extends IllegalStateException {
+
+  private static final long serialVersionUID = 1L;
+
+  public NoAvailableSlotsException(String message) {
+    super(message);
+  }
+}
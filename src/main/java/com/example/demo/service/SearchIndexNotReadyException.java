@@ -0,0 +1,13 @@
+package com.example.demo.service;
+
+/**
+ * Поисковый индекс еще не построен после запуска, запрос нужно повторить позже
+ */
+public class SearchIndexNotReadyException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public SearchIndexNotReadyException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Фоновое истечение временных броней. Каждый тик колесо таймеров отдает
+ * сработавшие брони, они истекают партиями по batch-size в отдельных
+ * транзакциях. Партия, которую не удалось обработать, повторяется на
+ * следующем тике
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SeatHoldExpiryJob {
+
+  private final SeatHoldTimer seatHoldTimer;
+  private final SeatHoldService seatHoldService;
+
+  @Value("${holds.expiry-batch-size:500}")
+  private int batchSize;
+
+  @Scheduled(fixedDelayString = "${holds.tick-ms:1000}")
+  public void expireDue() {
+    List<Long> holdIds = seatHoldTimer.pollExpired();
+    int expired = 0;
+    for (int from = 0; from < holdIds.size(); from += batchSize) {
+      List<Long> batch = holdIds.subList(from, Math.min(from + batchSize, holdIds.size()));
+      try {
+        expired += seatHoldService.expireHolds(batch);
+      } catch (RuntimeException e) {
+        log.warn("Не удалось завершить {} броней, повтор на следующем тике: {}", batch.size(), e.getMessage());
+        batch.forEach(holdId -> seatHoldTimer.schedule(holdId, LocalDateTime.now()));
+      }
+    }
+    if (expired > 0) {
+      log.info("Истекло броней: {}", expired);
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.dto.ApplicationDto;
+import com.example.demo.dto.SeatHoldDto;
+import com.example.demo.models.ApplicationStatus;
+import com.example.demo.models.SeatHold;
+import com.example.demo.models.SeatHoldStatus;
+import com.example.demo.repository.SeatHoldRepository;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сервис временных броней мест.
+ * Бронь сразу занимает место в туре, поэтому оно не продается другим, пока
+ * клиент заполняет анкету. Подтверждение превращает бронь в заявку без
+ * повторного бронирования, снятие и истечение возвращают место в тур
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SeatHoldService {
+
+  private final SeatHoldRepository seatHoldRepository;
+  private final SeatHoldTimer seatHoldTimer;
+  private final SeatReservationService seatReservationService;
+  private final ApplicationService applicationService;
+
+  @Value("${holds.ttl-seconds:600}")
+  private long ttlSeconds;
+
+  /**
+   * Создание брони места в туре
+   */
+  @Transactional
+  public SeatHoldDto createHold(Long tourId) {
+    seatReservationService.reserve(tourId, "В туре нет доступных мест");
+    SeatHold hold = seatHoldRepository.save(SeatHold.builder()
+        .tourId(tourId)
+        .status(SeatHoldStatus.HELD)
+        .expiresAt(LocalDateTime.now().plusSeconds(ttlSeconds))
+        .build());
+    // Таймер откаченной брони сработает впустую: истекают только брони в
+    // статусе HELD
+    seatHoldTimer.schedule(hold.getId(), hold.getExpiresAt());
+    return convertToDto(hold);
+  }
+
+  /**
+   * Получение брони по идентификатору
+   */
+  @Transactional(readOnly = true)
+  public SeatHoldDto getHold(Long id) {
+    return convertToDto(seatHoldRepository.findById(id)
+        .orElseThrow(() -> new EntityNotFoundException("Бронь с ID " + id + " не найдена")));
+  }
+
+  /**
+   * Подтверждение брони: создает заявку на удерживаемое место
+   */
+  @Transactional
+  public ApplicationDto confirmHold(Long id, ApplicationDto applicationDto) {
+    SeatHold hold = findActiveHold(id);
+    applicationDto.setTourId(hold.getTourId());
+    if (applicationDto.getStatus() == null) {
+      applicationDto.setStatus(ApplicationStatus.PENDING);
+    }
+    ApplicationDto application = applicationService.createApplicationForReservedSeat(applicationDto);
+
+    hold.setStatus(SeatHoldStatus.CONFIRMED);
+    hold.setApplicationId(application.getId());
+    seatHoldRepository.save(hold);
+    return application;
+  }
+
+  /**
+   * Снятие брони: место возвращается в тур
+   */
+  @Transactional
+  public void releaseHold(Long id) {
+    SeatHold hold = findActiveHold(id);
+    hold.setStatus(SeatHoldStatus.RELEASED);
+    seatHoldRepository.saveAndFlush(hold);
+    seatReservationService.release(hold.getTourId());
+  }
+
+  /**
+   * Истечение броней, таймеры которых сработали.
+   * Брони, уже подтвержденные или снятые, пропускаются; места возвращаются
+   * одним UPDATE на тур
+   *
+   * @return количество истекших броней
+   */
+  @Transactional
+  public int expireHolds(Collection<Long> ids) {
+    LocalDateTime now = LocalDateTime.now();
+    List<SeatHold> holds = seatHoldRepository.findAllByIdAndStatusForUpdate(ids, SeatHoldStatus.HELD);
+    List<SeatHold> expired = holds.stream().filter(hold -> !hold.getExpiresAt().isAfter(now)).toList();
+    holds.stream()
+        .filter(hold -> hold.getExpiresAt().isAfter(now))
+        .forEach(hold -> seatHoldTimer.schedule(hold.getId(), hold.getExpiresAt()));
+    if (expired.isEmpty()) {
+      return 0;
+    }
+
+    seatHoldRepository.updateStatuses(expired.stream().map(SeatHold::getId).toList(), SeatHoldStatus.EXPIRED);
+    Map<Long, Long> seatsByTour = expired.stream()
+        .collect(Collectors.groupingBy(SeatHold::getTourId, Collectors.counting()));
+    seatsByTour.forEach((tourId, seats) -> seatReservationService.release(tourId, seats.intValue()));
+    return expired.size();
+  }
+
+  /**
+   * Восстановление таймеров активных броней при запуске
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadTimers() {
+    List<SeatHold> holds = seatHoldRepository.findByStatus(SeatHoldStatus.HELD);
+    holds.forEach(hold -> seatHoldTimer.schedule(hold.getId(), hold.getExpiresAt()));
+    if (!holds.isEmpty()) {
+      log.info("Восстановлены таймеры броней: {}", holds.size());
+    }
+  }
+
+  private SeatHold findActiveHold(Long id) {
+    SeatHold hold = seatHoldRepository.findByIdForUpdate(id)
+        .orElseThrow(() -> new EntityNotFoundException("Бронь с ID " + id + " не найдена"));
+    if (hold.getStatus() != SeatHoldStatus.HELD || !hold.getExpiresAt().isAfter(LocalDateTime.now())) {
+      throw new IllegalStateException("Бронь с ID " + id + " уже недействительна");
+    }
+    return hold;
+  }
+
+  private SeatHoldDto convertToDto(SeatHold hold) {
+    return SeatHoldDto.builder()
+        .id(hold.getId())
+        .tourId(hold.getTourId())
+        .status(hold.getStatus())
+        .expiresAt(hold.getExpiresAt())
+        .applicationId(hold.getApplicationId())
+        .createdAt(hold.getCreatedAt())
+        .build();
+  }
+}
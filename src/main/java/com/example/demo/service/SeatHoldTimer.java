@@ -0,0 +1,43 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.utils.HashedTimingWheel;
+
+/**
+ * Таймеры истечения временных броней. Один таймер на бронь в общем колесе,
+ * без отдельного потока или задачи на каждую бронь
+ */
+@Component
+public class SeatHoldTimer {
+
+  private final HashedTimingWheel<Long> wheel;
+
+  public SeatHoldTimer(@Value("${holds.tick-ms:1000}") long tickMs,
+      @Value("${holds.wheel-size:1024}") int wheelSize) {
+    this.wheel = new HashedTimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+  }
+
+  public void schedule(Long holdId, LocalDateTime expiresAt) {
+    wheel.schedule(holdId, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+  }
+
+  /**
+   * ID броней, время которых истекло с прошлого вызова
+   */
+  public List<Long> pollExpired() {
+    return wheel.advance(System.currentTimeMillis());
+  }
+
+  /**
+   * Количество активных таймеров
+   */
+  public int size() {
+    return wheel.size();
+  }
+}
@@ -0,0 +1,118 @@
+package com.example.demo.service;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.events.SeatsReleasedEvent;
+import com.example.demo.repository.TourRepository;
+import com.example.demo.repository.TourUpdateRepository;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Сервис резервирования мест в турах.
+ * Все изменения availableSlots выполняются одним условным UPDATE без загрузки
+ * сущности Tour, поэтому параллельные бронирования не могут продать лишние
+ * места и не читают изображения и файлы тура. Места популярных туров хранятся
+ * в разделенных счетчиках (SlotShardService); условия UPDATE строки тура
+ * исключают такие туры, поэтому устаревшие сведения о разделении безопасны.
+ */
+@Service
+@RequiredArgsConstructor
+public class SeatReservationService {
+
+  private final TourRepository tourRepository;
+  private final TourUpdateRepository tourUpdateRepository;
+  private final SlotShardService slotShardService;
+  private final ApplicationEventPublisher eventPublisher;
+
+  /**
+   * Пытается занять указанное количество мест в туре
+   *
+   * @return true, если места заняты; false, если мест недостаточно или тур не
+   *         найден
+   */
+  @Transactional
+  public boolean tryReserve(Long tourId, int seats) {
+    if (slotShardService.isSharded(tourId)) {
+      return slotShardService.tryReserve(tourId, seats)
+          || tourRepository.decrementAvailableSlots(tourId, seats) > 0;
+    }
+    return tourRepository.decrementAvailableSlots(tourId, seats) > 0
+        || slotShardService.tryReserve(tourId, seats);
+  }
+
+  /**
+   * Занимает столько свободных мест, сколько есть, но не больше max
+   *
+   * @return количество занятых мест
+   */
+  @Transactional
+  public int reserveUpTo(Long tourId, int max) {
+    if (slotShardService.isSharded(tourId)) {
+      int taken = slotShardService.reserveUpTo(tourId, max);
+      return taken > 0 ? taken : tourUpdateRepository.takeAvailableSlots(tourId, max);
+    }
+    int taken = tourUpdateRepository.takeAvailableSlots(tourId, max);
+    return taken > 0 ? taken : slotShardService.reserveUpTo(tourId, max);
+  }
+
+  /**
+   * Занимает одно место в туре
+   */
+  @Transactional(noRollbackFor = NoAvailableSlotsException.class)
+  public void reserve(Long tourId, String noSlotsMessage) {
+    reserve(tourId, 1, noSlotsMessage);
+  }
+
+  /**
+   * Занимает указанное количество мест в туре.
+   * Если мест недостаточно, выбрасывает NoAvailableSlotsException с переданным
+   * сообщением; внешняя транзакция при этом не помечается к откату, и
+   * вызывающий может, например, поставить заявителя в лист ожидания
+   */
+  @Transactional(noRollbackFor = NoAvailableSlotsException.class)
+  public void reserve(Long tourId, int seats, String noSlotsMessage) {
+    if (tryReserve(tourId, seats)) {
+      return;
+    }
+    if (!tourRepository.existsById(tourId)) {
+      throw new EntityNotFoundException("Тур с ID " + tourId + " не найден");
+    }
+    throw new NoAvailableSlotsException(noSlotsMessage);
+  }
+
+  /**
+   * Возвращает одно место в тур
+   */
+  @Transactional
+  public void release(Long tourId) {
+    release(tourId, 1);
+  }
+
+  /**
+   * Возвращает указанное количество мест в тур.
+   * Освободившиеся места в той же транзакции передаются листу ожидания тура
+   */
+  @Transactional
+  public void release(Long tourId, int seats) {
+    returnToTour(tourId, seats);
+    eventPublisher.publishEvent(new SeatsReleasedEvent(tourId, seats));
+  }
+
+  /**
+   * Возвращает места в тур, не передавая их листу ожидания (место было
+   * закреплено за записью листа ожидания, и ждущих его записей больше нет)
+   */
+  @Transactional
+  public void returnToTour(Long tourId, int seats) {
+    boolean released = slotShardService.isSharded(tourId)
+        ? slotShardService.release(tourId, seats) || tourRepository.incrementAvailableSlots(tourId, seats) > 0
+        : tourRepository.incrementAvailableSlots(tourId, seats) > 0 || slotShardService.release(tourId, seats);
+    if (!released) {
+      throw new EntityNotFoundException("Тур с ID " + tourId + " не найден");
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.dto.SlotMismatchDto;
+import com.example.demo.dto.SlotReconciliationReportDto;
+import com.example.demo.events.SeatsReleasedEvent;
+import com.example.demo.events.TourChangedEvent;
+import com.example.demo.repository.SlotReconciliationRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сверка счетчиков свободных мест туров.
+ * Счетчик меняется во многих местах и может разойтись с фактическими
+ * бронированиями (например, при ручном изменении тура). Сверка находит
+ * расхождения одним запросом по всем турам и, если разрешено, исправляет их
+ * партиями. Тур, забронированный во время сверки, не исправляется и будет
+ * проверен на следующем запуске. Каждая партия исправляется в своей
+ * транзакции, в которой же вернувшиеся места закрепляются за листом ожидания
+ */
+@Slf4j
+@Service
+public class SlotReconciliationService {
+
+  private final SlotReconciliationRepository slotReconciliationRepository;
+  private final ApplicationEventPublisher eventPublisher;
+  private final TransactionTemplate transactionTemplate;
+
+  @Value("${slots.reconciliation.auto-repair:false}")
+  private boolean autoRepair;
+
+  @Value("${slots.reconciliation.repair-batch-size:500}")
+  private int repairBatchSize;
+
+  @Value("${slots.reconciliation.max-reported:1000}")
+  private int maxReported;
+
+  private volatile SlotReconciliationReportDto lastReport;
+
+  public SlotReconciliationService(SlotReconciliationRepository slotReconciliationRepository,
+      ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
+    this.slotReconciliationRepository = slotReconciliationRepository;
+    this.eventPublisher = eventPublisher;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Результат последней сверки (null, если сверка еще не выполнялась)
+   */
+  public SlotReconciliationReportDto getLastReport() {
+    return lastReport;
+  }
+
+  /**
+   * Плановая сверка
+   */
+  @Scheduled(initialDelayString = "${slots.reconciliation.initial-delay-ms:60000}", fixedDelayString = "${slots.reconciliation.interval-ms:300000}")
+  public void scheduledReconcile() {
+    reconcile(autoRepair);
+  }
+
+  /**
+   * Сверка счетчиков свободных мест всех туров
+   *
+   * @param repair исправлять ли найденные расхождения
+   */
+  public SlotReconciliationReportDto reconcile(boolean repair) {
+    LocalDateTime startedAt = LocalDateTime.now();
+    long start = System.nanoTime();
+    long checkedTours = slotReconciliationRepository.countTours();
+    List<SlotMismatchDto> mismatches = slotReconciliationRepository.findMismatches();
+
+    int repairedCount = 0;
+    if (repair) {
+      // Проданный сверх вместимости тур с нулем свободных мест исправить нечем
+      List<SlotMismatchDto> repairable = mismatches.stream()
+          .filter(mismatch -> !Integer.valueOf(Math.max(0, mismatch.getExpectedAvailableSlots()))
+              .equals(mismatch.getAvailableSlots()))
+          .toList();
+      for (int from = 0; from < repairable.size(); from += repairBatchSize) {
+        List<SlotMismatchDto> batch = repairable.subList(from, Math.min(from + repairBatchSize, repairable.size()));
+        try {
+          repairedCount += transactionTemplate.execute(status -> repairBatch(batch));
+        } catch (RuntimeException e) {
+          // Партия откатывается целиком и будет исправлена на следующем запуске
+          batch.forEach(mismatch -> mismatch.setRepaired(false));
+          log.warn("Не удалось исправить партию из {} туров: {}", batch.size(), e.getMessage());
+        }
+      }
+    }
+
+    SlotReconciliationReportDto report = SlotReconciliationReportDto.builder()
+        .startedAt(startedAt)
+        .durationMs((System.nanoTime() - start) / 1_000_000)
+        .checkedTours(checkedTours)
+        .mismatchCount(mismatches.size())
+        .repairedCount(repairedCount)
+        .mismatches(new ArrayList<>(mismatches.subList(0, Math.min(maxReported, mismatches.size()))))
+        .build();
+    lastReport = report;
+
+    if (!mismatches.isEmpty()) {
+      log.warn("Сверка мест: проверено туров {}, расхождений {}, исправлено {} за {} мс",
+          checkedTours, mismatches.size(), repairedCount, report.getDurationMs());
+    } else {
+      log.debug("Сверка мест: проверено туров {}, расхождений нет, {} мс", checkedTours, report.getDurationMs());
+    }
+    return report;
+  }
+
+  /**
+   * Исправление партии туров в текущей транзакции
+   *
+   * @return количество исправленных туров
+   */
+  private int repairBatch(List<SlotMismatchDto> batch) {
+    boolean[] repaired = slotReconciliationRepository.repair(batch);
+    int repairedCount = 0;
+    for (int i = 0; i < batch.size(); i++) {
+      if (repaired[i]) {
+        repairedCount++;
+        batch.get(i).setRepaired(true);
+        onRepaired(batch.get(i));
+      }
+    }
+    return repairedCount;
+  }
+
+  private void onRepaired(SlotMismatchDto mismatch) {
+    eventPublisher.publishEvent(new TourChangedEvent(mismatch.getTourId()));
+    int freed = Math.max(0, mismatch.getExpectedAvailableSlots())
+        - (mismatch.getAvailableSlots() != null ? mismatch.getAvailableSlots() : 0);
+    if (freed > 0) {
+      // Вернувшиеся места закрепляются за листом ожидания тура в этой же
+      // транзакции, заявки создаются после ее фиксации
+      eventPublisher.publishEvent(new SeatsReleasedEvent(mismatch.getTourId(), freed));
+    }
+  }
+}
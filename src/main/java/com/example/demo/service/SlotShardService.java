@@ -0,0 +1,231 @@
+package com.example.demo.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.repository.SlotShardRepository;
+import com.example.demo.repository.TourRepository;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Разделенные счетчики мест популярных туров.
+ * Свободные места такого тура хранятся в нескольких строках tour_slot_shards:
+ * бронирование занимает место в случайном счетчике, а если он пуст - в
+ * соседних, поэтому параллельные бронирования не выстраиваются в очередь за
+ * блокировкой одной строки. Поле tours.available_slots раз в
+ * slots.shards.sync-interval-ms обновляется суммой счетчиков и служит только
+ * для чтения. Список разделенных туров в памяти - лишь подсказка: SQL-запросы
+ * сами проверяют, разделен ли тур
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SlotShardService {
+
+  // Наибольшее количество счетчиков одного тура
+  public static final int MAX_SHARDS = 64;
+
+  private final SlotShardRepository slotShardRepository;
+  private final TourRepository tourRepository;
+
+  private final Map<Long, Integer> shardCounts = new ConcurrentHashMap<>();
+
+  /**
+   * Вероятно ли, что места тура хранятся в разделенных счетчиках
+   */
+  public boolean isSharded(Long tourId) {
+    return shardCounts.containsKey(tourId);
+  }
+
+  /**
+   * Количество счетчиков мест тура (1 - тур не разделен)
+   */
+  public int getShardCount(Long tourId) {
+    if (!tourRepository.existsById(tourId)) {
+      throw new EntityNotFoundException("Тур с ID " + tourId + " не найден");
+    }
+    Integer shards = slotShardRepository.findShardCount(tourId);
+    return shards != null ? shards : 1;
+  }
+
+  /**
+   * Пытается занять места в счетчиках тура: сначала в случайном, затем по
+   * очереди в остальных. Если ни в одном счетчике мест не хватает, а в сумме
+   * хватает, места собираются из нескольких счетчиков под блокировкой всех
+   *
+   * @return false, если мест недостаточно или тур не разделен
+   */
+  @Transactional
+  public boolean tryReserve(Long tourId, int seats) {
+    Integer shards = shardCount(tourId);
+    if (shards == null) {
+      return false;
+    }
+    int first = ThreadLocalRandom.current().nextInt(shards);
+    for (int i = 0; i < shards; i++) {
+      if (slotShardRepository.decrement(tourId, (first + i) % shards, seats)) {
+        return true;
+      }
+    }
+    return seats > 1 && takeFromAll(tourId, seats, false) == seats;
+  }
+
+  /**
+   * Занимает столько свободных мест, сколько есть, но не больше max
+   */
+  @Transactional
+  public int reserveUpTo(Long tourId, int max) {
+    if (shardCount(tourId) == null) {
+      return 0;
+    }
+    return takeFromAll(tourId, max, true);
+  }
+
+  /**
+   * Возвращает места в случайный счетчик тура
+   *
+   * @return false, если тур не разделен
+   */
+  @Transactional
+  public boolean release(Long tourId, int seats) {
+    Integer shards = shardCount(tourId);
+    return shards != null
+        && slotShardRepository.increment(tourId, ThreadLocalRandom.current().nextInt(shards), seats);
+  }
+
+  /**
+   * Включение, изменение или отключение разделенных счетчиков тура.
+   * Текущие свободные места собираются вместе и заново делятся поровну
+   *
+   * @param shardCount количество счетчиков; 1 или null - один счетчик в туре
+   */
+  @Transactional
+  public void configure(Long tourId, Integer shardCount) {
+    if (shardCount != null && (shardCount < 1 || shardCount > MAX_SHARDS)) {
+      throw new IllegalArgumentException("Количество счетчиков должно быть от 1 до " + MAX_SHARDS);
+    }
+    Integer normalized = shardCount == null || shardCount == 1 ? null : shardCount;
+    // Счетчики блокируются раньше строки тура - в том же порядке, что и при
+    // обновлении суммы
+    int shardedSlots = slotShardRepository.lockShards(tourId).stream().mapToInt(shard -> shard[1]).sum();
+    Integer tourSlots = slotShardRepository.lockTourSlots(tourId);
+    if (tourSlots == null) {
+      throw new EntityNotFoundException("Тур с ID " + tourId + " не найден");
+    }
+    int available = slotShardRepository.findShardCount(tourId) != null ? shardedSlots : tourSlots;
+    slotShardRepository.replaceShards(tourId, normalized, available);
+    afterCommit(() -> {
+      if (normalized == null) {
+        shardCounts.remove(tourId);
+      } else {
+        shardCounts.put(tourId, normalized);
+      }
+    });
+    log.info("Счетчики мест тура {}: {}, свободно мест: {}", tourId, normalized != null ? normalized : 1, available);
+  }
+
+  /**
+   * Собирает места разделенного тура в строку тура и блокирует счетчики до
+   * конца транзакции. Используется перед изменением мест в самой строке тура
+   *
+   * @return true, если тур разделен
+   */
+  @Transactional
+  public boolean collapse(Long tourId) {
+    List<int[]> shards = slotShardRepository.lockShards(tourId);
+    if (shards.isEmpty()) {
+      return false;
+    }
+    slotShardRepository.lockTourSlots(tourId);
+    slotShardRepository.replaceShards(tourId, shards.size(), shards.stream().mapToInt(shard -> shard[1]).sum());
+    return true;
+  }
+
+  /**
+   * Делит места из строки тура между его счетчиками после изменения строки
+   */
+  @Transactional
+  public void spread(Long tourId) {
+    Integer shards = slotShardRepository.findShardCount(tourId);
+    Integer tourSlots = slotShardRepository.lockTourSlots(tourId);
+    if (shards != null && tourSlots != null) {
+      slotShardRepository.replaceShards(tourId, shards, tourSlots);
+    }
+  }
+
+  /**
+   * Обновление tours.available_slots суммой счетчиков
+   */
+  @Scheduled(fixedDelayString = "${slots.shards.sync-interval-ms:1000}")
+  public void syncTotals() {
+    for (Long tourId : shardCounts.keySet()) {
+      try {
+        slotShardRepository.syncTotal(tourId);
+      } catch (RuntimeException e) {
+        log.warn("Не удалось обновить свободные места тура {}: {}", tourId, e.getMessage());
+      }
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadShardCounts() {
+    shardCounts.putAll(slotShardRepository.findAllShardCounts());
+  }
+
+  private Integer shardCount(Long tourId) {
+    Integer shards = shardCounts.get(tourId);
+    return shards != null ? shards : slotShardRepository.findShardCount(tourId);
+  }
+
+  /**
+   * Собирает места из всех счетчиков тура по порядку
+   *
+   * @param partial можно ли занять меньше мест, чем запрошено
+   * @return количество занятых мест
+   */
+  private int takeFromAll(Long tourId, int seats, boolean partial) {
+    List<int[]> shards = slotShardRepository.lockShards(tourId);
+    int available = shards.stream().mapToInt(shard -> shard[1]).sum();
+    if (!partial && available < seats) {
+      return 0;
+    }
+    int remaining = Math.min(seats, available);
+    for (int[] shard : shards) {
+      if (remaining == 0) {
+        break;
+      }
+      int taken = Math.min(remaining, shard[1]);
+      if (taken > 0) {
+        slotShardRepository.setShardSlots(tourId, shard[0], shard[1] - taken);
+        remaining -= taken;
+      }
+    }
+    return Math.min(seats, available);
+  }
+
+  private void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.models.TourMediaKind;
+import com.example.demo.repository.TourMediaRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Фоновый перенос изображений и файлов туров из BYTEA-колонок таблицы tours
+ * в хранилище файлов. За один запуск переносится не больше batch-size медиа
+ * каждого вида, каждый тур переключается отдельным UPDATE. Туры обходятся по
+ * возрастанию ID, поэтому ошибка переноса одного тура не блокирует остальные -
+ * он будет повторен на следующем проходе
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TourMediaMigrationJob {
+
+  private final TourMediaService tourMediaService;
+  private final TourMediaRepository tourMediaRepository;
+
+  @Value("${media.migration.enabled:true}")
+  private boolean enabled;
+
+  @Value("${media.migration.batch-size:20}")
+  private int batchSize;
+
+  // Последний обработанный ID тура для каждого вида медиа
+  private final Map<TourMediaKind, Long> lastTourIds = new EnumMap<>(TourMediaKind.class);
+
+  /**
+   * Перенос очередной партии медиа
+   */
+  @Scheduled(initialDelayString = "${media.migration.initial-delay-ms:30000}", fixedDelayString = "${media.migration.delay-ms:60000}")
+  public void migrateBatch() {
+    if (!enabled || !tourMediaService.isBlobStoreEnabled()) {
+      return;
+    }
+    for (TourMediaKind kind : TourMediaKind.values()) {
+      List<Long> tourIds = tourMediaRepository.findIdsWithData(kind, lastTourIds.getOrDefault(kind, 0L), batchSize);
+      // Проход завершен - следующий начнется сначала
+      lastTourIds.put(kind, tourIds.isEmpty() ? 0L : tourIds.get(tourIds.size() - 1));
+      int migrated = 0;
+      for (Long tourId : tourIds) {
+        try {
+          if (tourMediaService.migrateToBlobStore(tourId, kind)) {
+            migrated++;
+          }
+        } catch (IOException | RuntimeException e) {
+          log.warn("Не удалось перенести {} тура с ID {} в хранилище: {}", kind, tourId, e.getMessage());
+        }
+      }
+      if (migrated > 0) {
+        log.info("Перенесено в хранилище {}: {} из {}", kind, migrated, tourIds.size());
+      }
+    }
+  }
+}
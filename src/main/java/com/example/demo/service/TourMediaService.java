@@ -0,0 +1,367 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.demo.dto.TourMediaInfo;
+import com.example.demo.models.TourMediaKind;
+import com.example.demo.repository.TourMediaRepository;
+import com.example.demo.storage.BlobStore;
+import com.example.demo.storage.BlobTooLargeException;
+import com.example.demo.storage.StoredBlob;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сервис хранения и выдачи изображений и файлов туров.
+ * Новые медиа сохраняются в хранилище файлов (media.storage.type=local) или в
+ * BYTEA-колонки таблицы tours (media.storage.type=database). Чтение
+ * поддерживает оба варианта, поэтому туры, еще не перенесенные в хранилище,
+ * продолжают отдаваться из таблицы. Данные из таблицы передаются клиенту
+ * частями по CHUNK_SIZE байт, поэтому на один запрос в памяти находится не
+ * больше одной части независимо от размера файла.
+ * Одинаковые загрузки хранятся один раз, поэтому данные удаляются только
+ * при отсутствии ссылок. Транзакция, ссылающаяся на данные, держит на их ключ
+ * разделяемую блокировку, а удаление выполняется в отдельной транзакции под
+ * исключительной: данные, на которые ссылается незафиксированная загрузка,
+ * не удаляются
+ */
+@Slf4j
+@Service
+public class TourMediaService {
+
+  static final int CHUNK_SIZE = 256 * 1024;
+  private static final String STORAGE_LOCAL = "local";
+  private static final int MAX_PUT_ATTEMPTS = 3;
+
+  private final TourMediaRepository tourMediaRepository;
+  private final BlobStore blobStore;
+  private final ImageVariantService imageVariantService;
+  private final TransactionTemplate transactionTemplate;
+
+  @Value("${media.storage.type:local}")
+  private String storageType;
+
+  @Value("${media.upload.max-image-size:20MB}")
+  private DataSize maxImageSize;
+
+  @Value("${media.upload.max-file-size:100MB}")
+  private DataSize maxFileSize;
+
+  public TourMediaService(TourMediaRepository tourMediaRepository, BlobStore blobStore,
+      ImageVariantService imageVariantService, PlatformTransactionManager transactionManager) {
+    this.tourMediaRepository = tourMediaRepository;
+    this.blobStore = blobStore;
+    this.imageVariantService = imageVariantService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /**
+   * Получение метаданных изображения или файла тура
+   */
+  public TourMediaInfo getMediaInfo(Long tourId, TourMediaKind kind) {
+    TourMediaInfo info = tourMediaRepository.findInfo(tourId, kind)
+        .filter(this::isAvailable)
+        .orElseThrow(() -> new EntityNotFoundException(
+            (kind == TourMediaKind.IMAGE ? "Изображение" : "Файл") + " тура с ID " + tourId + " не найден"));
+    info.setEtag(buildEtag(info, kind));
+    return info;
+  }
+
+  /**
+   * Получение метаданных изображения тура, уменьшенного до указанной ширины.
+   * Копии есть только у изображений из хранилища файлов; если копию получить
+   * нельзя, возвращается оригинал
+   */
+  public TourMediaInfo getImageInfo(Long tourId, Integer width) {
+    TourMediaInfo info = getMediaInfo(tourId, TourMediaKind.IMAGE);
+    if (width == null || width <= 0 || info.getBlobKey() == null) {
+      return info;
+    }
+    imageVariantService.getVariant(info.getBlobKey(), imageVariantService.resolveWidth(width))
+        .filter(variant -> !variant.isOriginal() && blobStore.exists(variant.getBlobKey()))
+        .ifPresent(variant -> {
+          info.setBlobKey(variant.getBlobKey());
+          info.setContentType(variant.getContentType());
+          info.setSize(variant.getSize());
+          info.setEtag("\"" + variant.getBlobKey() + "\"");
+        });
+    return info;
+  }
+
+  /**
+   * Запись диапазона байт [start, start + length) медиа тура в поток
+   */
+  public void writeMedia(TourMediaInfo media, long start, long length, OutputStream out) throws IOException {
+    if (media.getBlobKey() != null) {
+      blobStore.transferTo(media.getBlobKey(), start, length, Channels.newChannel(out));
+    } else {
+      writeFromDatabase(media, start, length, out);
+    }
+    out.flush();
+  }
+
+  /**
+   * Файл медиа на локальном диске, если медиа хранится в хранилище файлов.
+   * Такой файл может быть передан клиенту сервером без копирования через
+   * приложение
+   */
+  public Optional<Path> getLocalFile(TourMediaInfo media) {
+    return media.getBlobKey() != null ? blobStore.localPath(media.getBlobKey()) : Optional.empty();
+  }
+
+  /**
+   * Сохранение изображения или файла тура вместо текущего.
+   * Загрузка читается потоком из временного файла multipart-запроса и не
+   * копируется в память целиком. Если размер больше допустимого для вида
+   * медиа, выбрасывается BlobTooLargeException. При откате транзакции
+   * записанные данные удаляются, если на них нет других ссылок, прежние
+   * данные удаляются только после фиксации
+   */
+  @Transactional(rollbackFor = IOException.class)
+  public void storeMedia(Long tourId, TourMediaKind kind, MultipartFile file) throws IOException {
+    long maxSize = (kind == TourMediaKind.IMAGE ? maxImageSize : maxFileSize).toBytes();
+    if (file.getSize() > maxSize) {
+      throw new BlobTooLargeException(maxSize);
+    }
+    String previousKey = tourMediaRepository.findKey(tourId, kind).orElse(null);
+    int updated;
+    if (STORAGE_LOCAL.equals(storageType)) {
+      StoredBlob blob = putReferenced(file, maxSize);
+      deleteAfterRollback(blob.getKey());
+      updated = tourMediaRepository.updateBlobReference(tourId, kind, blob.getKey(), blob.getSize(),
+          file.getOriginalFilename(), file.getContentType());
+      if (updated > 0 && kind == TourMediaKind.IMAGE) {
+        imageVariantService.generateAfterCommit(blob.getKey());
+      }
+    } else {
+      try (InputStream in = file.getInputStream()) {
+        updated = tourMediaRepository.updateData(tourId, kind, in, file.getSize(),
+            file.getOriginalFilename(), file.getContentType());
+      }
+    }
+    if (updated == 0) {
+      throw new EntityNotFoundException("Тур с ID " + tourId + " не найден");
+    }
+    releaseAfterCommit(previousKey);
+  }
+
+  /**
+   * Освобождение данных тура в хранилище файлов перед удалением тура.
+   * Данные удаляются после фиксации транзакции, если на них больше нет ссылок
+   */
+  @Transactional
+  public void releaseMedia(Long tourId) {
+    for (TourMediaKind kind : TourMediaKind.values()) {
+      tourMediaRepository.findKey(tourId, kind).ifPresent(this::releaseAfterCommit);
+    }
+  }
+
+  /**
+   * Перенос медиа тура из BYTEA-колонки в хранилище файлов
+   *
+   * @return true, если медиа перенесено; false, если оно было изменено или
+   *         удалено во время переноса
+   */
+  public boolean migrateToBlobStore(Long tourId, TourMediaKind kind) throws IOException {
+    StoredBlob blob;
+    try (InputStream in = new DatabaseMediaInputStream(tourId, kind)) {
+      blob = blobStore.put(in);
+    }
+    // Если данные успели удалить как неиспользуемые, перенос повторится при
+    // следующем проходе
+    Boolean migrated = transactionTemplate.execute(status -> lockReferenced(blob.getKey())
+        && tourMediaRepository.completeMigration(tourId, kind, blob.getKey(), blob.getSize()) > 0);
+    if (Boolean.TRUE.equals(migrated)) {
+      return true;
+    }
+    deleteIfUnreferenced(blob.getKey());
+    return false;
+  }
+
+  /**
+   * Признак того, что новые медиа сохраняются в хранилище файлов
+   */
+  public boolean isBlobStoreEnabled() {
+    return STORAGE_LOCAL.equals(storageType);
+  }
+
+  private boolean isAvailable(TourMediaInfo info) {
+    if (info.getBlobKey() == null || blobStore.exists(info.getBlobKey())) {
+      return true;
+    }
+    log.error("Данные {} тура с ID {} отсутствуют в хранилище", info.getBlobKey(), info.getTourId());
+    return false;
+  }
+
+  /**
+   * Каждая часть читается только из той версии строки, по которой построены
+   * размер и ETag ответа: если тур изменился во время передачи, она
+   * прерывается, а не склеивает части разных файлов
+   */
+  private void writeFromDatabase(TourMediaInfo media, long start, long length, OutputStream out)
+      throws IOException {
+    long position = start;
+    long end = start + length;
+    while (position < end) {
+      int chunkLength = (int) Math.min(CHUNK_SIZE, end - position);
+      byte[] chunk = tourMediaRepository.readChunk(media.getTourId(), media.getKind(), media.getUpdatedAt(),
+          position, chunkLength);
+      if (chunk.length == 0) {
+        // Медиа было заменено или удалено во время передачи
+        throw new IOException("Медиа тура с ID " + media.getTourId() + " изменилось во время передачи");
+      }
+      out.write(chunk);
+      position += chunk.length;
+    }
+  }
+
+  /**
+   * Сохранение загрузки в хранилище с блокировкой ее ключа до конца текущей
+   * транзакции. Совпавшие по содержимому данные могли быть удалены как
+   * неиспользуемые до получения блокировки - тогда загрузка сохраняется заново
+   */
+  private StoredBlob putReferenced(MultipartFile file, long maxSize) throws IOException {
+    for (int attempt = 1; attempt <= MAX_PUT_ATTEMPTS; attempt++) {
+      StoredBlob blob;
+      try (InputStream in = file.getInputStream()) {
+        blob = blobStore.put(in, maxSize);
+      }
+      if (lockReferenced(blob.getKey())) {
+        return blob;
+      }
+    }
+    throw new IOException("Не удалось сохранить " + file.getOriginalFilename() + " в хранилище");
+  }
+
+  private boolean lockReferenced(String key) {
+    tourMediaRepository.lockKeyShared(key);
+    return blobStore.exists(key);
+  }
+
+  private void deleteAfterRollback(String key) {
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        if (status != STATUS_COMMITTED) {
+          deleteIfUnreferenced(key);
+        }
+      }
+    });
+  }
+
+  private void releaseAfterCommit(String key) {
+    if (key == null) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      deleteIfUnreferenced(key);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        deleteIfUnreferenced(key);
+      }
+    });
+  }
+
+  /**
+   * Удаление данных без ссылок. Выполняется в отдельной транзакции: вызывается
+   * после завершения транзакции, которая убрала ссылку. Если на ключ ссылается
+   * незафиксированная загрузка, удаление пропускается - при откате она удалит
+   * данные сама
+   */
+  private void deleteIfUnreferenced(String key) {
+    Boolean deleted = transactionTemplate.execute(status -> {
+      if (!tourMediaRepository.tryLockKey(key) || tourMediaRepository.countKeyReferences(key) > 0) {
+        return false;
+      }
+      try {
+        blobStore.delete(key);
+        return true;
+      } catch (IOException e) {
+        log.warn("Не удалось удалить данные {} из хранилища: {}", key, e.getMessage());
+        return false;
+      }
+    });
+    if (Boolean.TRUE.equals(deleted)) {
+      imageVariantService.deleteVariants(key);
+    }
+  }
+
+  private String buildEtag(TourMediaInfo info, TourMediaKind kind) {
+    if (info.getBlobKey() != null) {
+      // Ключ хранилища - хеш содержимого, поэтому он и есть версия
+      return "\"" + info.getBlobKey() + "\"";
+    }
+    long version = info.getUpdatedAt() != null ? info.getUpdatedAt().toInstant(ZoneOffset.UTC).toEpochMilli() : 0;
+    return "\"" + info.getTourId() + "-" + kind.name().toLowerCase() + "-" + info.getSize() + "-"
+        + Long.toHexString(version) + "\"";
+  }
+
+  /**
+   * Поток чтения медиа из BYTEA-колонки частями по CHUNK_SIZE байт
+   */
+  private class DatabaseMediaInputStream extends InputStream {
+
+    private final Long tourId;
+    private final TourMediaKind kind;
+    private byte[] chunk = new byte[0];
+    private int chunkPosition;
+    private long offset;
+    private boolean finished;
+
+    DatabaseMediaInputStream(Long tourId, TourMediaKind kind) {
+      this.tourId = tourId;
+      this.kind = kind;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (chunkPosition == chunk.length) {
+        if (finished) {
+          return -1;
+        }
+        chunk = tourMediaRepository.readChunk(tourId, kind, offset, CHUNK_SIZE);
+        chunkPosition = 0;
+        offset += chunk.length;
+        finished = chunk.length < CHUNK_SIZE;
+        if (chunk.length == 0) {
+          return -1;
+        }
+      }
+      int count = Math.min(len, chunk.length - chunkPosition);
+      System.arraycopy(chunk, chunkPosition, buffer, off, count);
+      chunkPosition += count;
+      return count;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.demo.dto.RosterEntryDto;
+import com.example.demo.repository.RosterRepository;
+import com.example.demo.repository.TourRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Выгрузка списка участников тура в CSV или JSON Lines.
+ * Строки читаются курсором и сразу записываются в ответ, поэтому память не
+ * зависит от количества участников
+ */
+@Service
+public class TourRosterService {
+
+  @Getter
+  @RequiredArgsConstructor
+  public enum Format {
+    CSV("text/csv;charset=UTF-8", "csv"),
+    JSONL("application/x-ndjson", "jsonl");
+
+    private final String contentType;
+    private final String extension;
+  }
+
+  // Номер телефона или число: формулой в Excel не выполняется, поэтому
+  // выгружается без апострофа
+  private static final Pattern PLAIN_NUMBER = Pattern.compile("^\\+?[\\d\\s()\\-]+$");
+  private static final List<String> CSV_HEADER = List.of("client_tour_id", "contact_id", "full_name",
+      "phone_number", "email", "age_group", "gender", "discount_percent", "application_id", "application_status");
+
+  private final RosterRepository rosterRepository;
+  private final TourRepository tourRepository;
+  private final ObjectMapper objectMapper;
+  private final TransactionTemplate transactionTemplate;
+
+  public TourRosterService(RosterRepository rosterRepository, TourRepository tourRepository,
+      ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+    this.rosterRepository = rosterRepository;
+    this.tourRepository = tourRepository;
+    this.objectMapper = objectMapper;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+  }
+
+  /**
+   * Тело ответа со списком активных участников тура. Тур проверяется сразу,
+   * а строки читаются уже при записи ответа
+   */
+  public StreamingResponseBody exportRoster(Long tourId, Format format) {
+    if (!tourRepository.existsById(tourId)) {
+      throw new EntityNotFoundException("Тур с ID " + tourId + " не найден");
+    }
+    return outputStream -> {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+      if (format == Format.CSV) {
+        // BOM нужен, чтобы Excel открыл кириллицу в UTF-8
+        writer.write('\uFEFF');
+        writeCsvLine(writer, CSV_HEADER);
+      }
+      try {
+        transactionTemplate.executeWithoutResult(status -> rosterRepository.forEachActiveParticipant(tourId,
+            entry -> {
+              try {
+                if (format == Format.CSV) {
+                  writeCsvLine(writer, toCsv(entry));
+                } else {
+                  writer.write(objectMapper.writeValueAsString(entry));
+                  writer.write('\n');
+                }
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            }));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      writer.flush();
+    };
+  }
+
+  private List<String> toCsv(RosterEntryDto entry) {
+    return Stream.of(entry.getClientTourId(), entry.getContactId(), entry.getFullName(),
+        entry.getPhoneNumber(), entry.getEmail(), entry.getAgeGroup(), entry.getGender(),
+        entry.getDiscountPercent(), entry.getApplicationId(), entry.getApplicationStatus())
+        .map(value -> Objects.toString(value, ""))
+        .toList();
+  }
+
+  private void writeCsvLine(Writer writer, List<String> values) throws IOException {
+    writer.write(values.stream().map(TourRosterService::escapeCsv).collect(Collectors.joining(",")));
+    writer.write("\r\n");
+  }
+
+  /**
+   * Значение в кавычках, если в нем есть запятая, кавычка или перевод строки.
+   * Значения приходят из публичной формы заявки, поэтому перед начинающимися с
+   * =, +, -, @, табуляции или возврата каретки ставится апостроф, чтобы Excel
+   * не выполнил их как формулу. Номера телефонов и числа вроде +79001234567
+   * выгружаются как есть
+   */
+  private static String escapeCsv(String value) {
+    if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0
+        && !PLAIN_NUMBER.matcher(value).matches()) {
+      value = "'" + value;
+    }
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
@@ -0,0 +1,160 @@
+package com.example.demo.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.dto.TourSearchCriteria;
+import com.example.demo.dto.TourSearchResult;
+import com.example.demo.events.TourChangedEvent;
+import com.example.demo.repository.TourRepository;
+import com.example.demo.repository.TourSearchRepository;
+import com.example.demo.search.TourSearchIndex;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сервис поиска туров по индексу в памяти.
+ * Индекс строится из БД при старте, после фиксации изменений тура
+ * перестраивается в фоновом потоке (несколько изменений подряд применяются
+ * одним перестроением) и периодически строится заново целиком. Количество
+ * свободных мест меняется при каждом бронировании, поэтому оно обновляется
+ * отдельно и чаще, без перестроения структуры индекса. Пока индекс строится
+ * после запуска, запросы ждут его не дольше search.ready-timeout-ms, а затем
+ * получают SearchIndexNotReadyException - индекс не строится в потоке запроса
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TourSearchService {
+
+  private final TourRepository tourRepository;
+  private final TourSearchRepository tourSearchRepository;
+  private final TourService tourService;
+
+  private final Set<Long> pendingTourIds = ConcurrentHashMap.newKeySet();
+  private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "tour-search-indexer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final CountDownLatch ready = new CountDownLatch(1);
+
+  @Value("${search.ready-timeout-ms:5000}")
+  private long readyTimeoutMs;
+
+  private volatile TourSearchIndex index;
+
+  /**
+   * Поиск туров
+   *
+   * @throws SearchIndexNotReadyException если индекс еще не построен
+   */
+  public TourSearchResult search(TourSearchCriteria criteria) {
+    TourSearchIndex current = index;
+    if (current == null) {
+      current = awaitIndex();
+    }
+    return current.search(criteria);
+  }
+
+  /**
+   * Полное построение индекса из БД
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(initialDelayString = "${search.rebuild-interval-ms:600000}", fixedDelayString = "${search.rebuild-interval-ms:600000}")
+  public void rebuild() {
+    buildIndex();
+  }
+
+  private synchronized void buildIndex() {
+    long startedAt = System.nanoTime();
+    Map<Long, String> descriptions = tourSearchRepository.findAllDescriptions();
+    List<TourSearchIndex.Entry> entries = tourService.getAllTours().stream()
+        .map(tour -> TourSearchIndex.Entry.of(tour, descriptions.get(tour.getId())))
+        .toList();
+    index = TourSearchIndex.build(entries);
+    ready.countDown();
+    log.info("Поисковый индекс туров построен: {} туров за {} мс", entries.size(),
+        (System.nanoTime() - startedAt) / 1_000_000);
+  }
+
+  private TourSearchIndex awaitIndex() {
+    try {
+      ready.await(readyTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    TourSearchIndex current = index;
+    if (current == null) {
+      throw new SearchIndexNotReadyException("Поисковый индекс туров еще не построен");
+    }
+    return current;
+  }
+
+  /**
+   * Обновление количества свободных мест в индексе
+   */
+  @Scheduled(initialDelayString = "${search.slots-refresh-interval-ms:10000}", fixedDelayString = "${search.slots-refresh-interval-ms:10000}")
+  public synchronized void refreshAvailableSlots() {
+    if (index != null) {
+      index = index.withAvailableSlots(tourSearchRepository.findAllAvailableSlots());
+    }
+  }
+
+  /**
+   * Постановка измененного тура в очередь на переиндексацию после фиксации
+   * транзакции
+   */
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onTourChanged(TourChangedEvent event) {
+    if (pendingTourIds.add(event.getTourId())) {
+      indexer.execute(this::applyPendingChanges);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    indexer.shutdownNow();
+  }
+
+  private synchronized void applyPendingChanges() {
+    if (pendingTourIds.isEmpty() || index == null) {
+      return;
+    }
+    Map<Long, TourSearchIndex.Entry> changes = new HashMap<>();
+    for (Long tourId : List.copyOf(pendingTourIds)) {
+      pendingTourIds.remove(tourId);
+      changes.put(tourId, loadEntry(tourId));
+    }
+    index = index.withChanges(changes);
+    log.debug("Поисковый индекс обновлен для туров {}", changes.keySet());
+  }
+
+  // null, если тур удален
+  private TourSearchIndex.Entry loadEntry(Long tourId) {
+    return tourRepository.findSummaryById(tourId)
+        .map(tour -> {
+          tourService.fillMediaUrls(tour);
+          return TourSearchIndex.Entry.of(tour, tourSearchRepository.findDescription(tourId).orElse(null));
+        })
+        .orElse(null);
+  }
+}
@@ -1,67 +1,212 @@
 package com.example.demo.service;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
 
+import com.example.demo.dto.KeysetPage;
+import com.example.demo.dto.TourDetailsDto;
 import com.example.demo.dto.TourDto;
+import com.example.demo.dto.TourSummaryDto;
+import com.example.demo.events.SeatsReleasedEvent;
+import com.example.demo.events.TourChangedEvent;
+import com.example.demo.models.Season;
 import com.example.demo.models.Tour;
+import com.example.demo.models.TourMediaKind;
+import com.example.demo.repository.KeysetQuery;
+import com.example.demo.repository.KeysetRepository;
 import com.example.demo.repository.TourRepository;
+import com.example.demo.repository.TourUpdateRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class TourService {
 
   private final TourRepository tourRepository;
+  private final TourMediaService tourMediaService;
+  private final TourUpdateRepository tourUpdateRepository;
+  private final ObjectMapper objectMapper;
+  private final ApplicationEventPublisher eventPublisher;
+  private final KeysetRepository keysetRepository;
+  private final SlotShardService slotShardService;
+
+  @Value("${server.servlet.context-path:}")
+  private String contextPath;
 
   /**
-   * Получение списка всех туров
+   * Получение списка всех туров для каталога.
+   * Изображения и файлы не загружаются, вместо них возвращаются ссылки и
+   * размеры
    */
   @Transactional(readOnly = true)
-  public List<TourDto> getAllTours() {
-    return tourRepository.findAll().stream()
-        .map(this::convertToDto)
-        .collect(Collectors.toList());
+  public List<TourSummaryDto> getAllTours() {
+    List<TourSummaryDto> tours = tourRepository.findAllSummaries();
+    tours.forEach(this::fillMediaUrls);
+    return tours;
+  }
+
+  /**
+   * Получение страницы каталога туров с сортировкой по id, createdAt,
+   * startDate или price
+   */
+  @Transactional(readOnly = true)
+  public KeysetPage<TourSummaryDto> getToursPage(String sort, String cursor, Integer limit) {
+    KeysetQuery<TourSummaryDto> query = KeysetQuery.<TourSummaryDto>builder()
+        .entityType(Tour.class)
+        .alias("t")
+        .select("SELECT new com.example.demo.dto.TourSummaryDto(t.id, t.name, t.country, t.season, t.type, "
+            + "t.startDate, t.endDate, t.duration, t.price, t.totalSlots, t.availableSlots, t.isRegistrationClosed, "
+            + "t.imageName, t.imageType, t.imageSize, "
+            + "t.fileName, t.fileType, t.fileSize)")
+        .from("FROM Tour t")
+        .resultType(TourSummaryDto.class)
+        .sortFields(Set.of("id", "createdAt", "startDate", "price"))
+        .build();
+    KeysetPage<TourSummaryDto> page = keysetRepository.findPage(query, sort, cursor, limit);
+    page.getItems().forEach(this::fillMediaUrls);
+    return page;
   }
 
   /**
-   * Получение тура по идентификатору
+   * Получение тура по идентификатору.
+   * Изображение и файл не загружаются, вместо них возвращаются ссылки и размеры
    */
   @Transactional(readOnly = true)
-  public TourDto getTourById(Long id) {
-    Tour tour = tourRepository.findById(id)
+  public TourDetailsDto getTourById(Long id) {
+    TourDetailsDto tour = tourRepository.findDetailsById(id)
         .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + id + " не найден"));
-    return convertToDto(tour);
+    fillMediaUrls(tour);
+    return tour;
   }
 
   /**
-   * Создание нового тура
+   * Создание нового тура вместе с изображением и файлом, если они переданы
    */
-  @Transactional
-  public TourDto createTour(TourDto tourDto) {
-    Tour tour = convertToEntity(tourDto);
-    Tour savedTour = tourRepository.save(tour);
-    return convertToDto(savedTour);
+  @Transactional(rollbackFor = IOException.class)
+  public TourDetailsDto createTour(TourDto tourDto, MultipartFile imageFile, MultipartFile descFile)
+      throws IOException {
+    Tour savedTour = tourRepository.saveAndFlush(convertToEntity(tourDto));
+    storeMedia(savedTour.getId(), imageFile, descFile);
+    eventPublisher.publishEvent(new TourChangedEvent(savedTour.getId()));
+    // Медиа записывается в обход Hibernate - ответ читается проекцией без блобов
+    return getTourById(savedTour.getId());
   }
 
   /**
-   * Обновление существующего тура
+   * Обновление существующего тура.
+   * Скалярные поля обновляются одним UPDATE без загрузки сущности, изображение
+   * и файл заменяются, только если переданы новые. Количество свободных мест
+   * из запроса не записывается - оно меняется только бронированиями и при
+   * изменении общего количества мест сдвигается на ту же величину
+   */
+  @Transactional(rollbackFor = IOException.class)
+  public TourSummaryDto updateTour(Long id, TourDto tourDto, MultipartFile imageFile, MultipartFile descFile)
+      throws IOException {
+    if (tourDto.getEndDate().isBefore(tourDto.getStartDate())) {
+      throw new IllegalArgumentException("Дата окончания тура не может быть раньше даты начала");
+    }
+    Map<String, Object> columns = new LinkedHashMap<>();
+    columns.put("name", tourDto.getName());
+    columns.put("description", tourDto.getDescription());
+    columns.put("country", tourDto.getCountry());
+    columns.put("season", tourDto.getSeason().name());
+    columns.put("type", tourDto.getType());
+    columns.put("start_date", tourDto.getStartDate());
+    columns.put("end_date", tourDto.getEndDate());
+    if (tourDto.getTotalSlots() != null) {
+      columns.put("total_slots", tourDto.getTotalSlots());
+    }
+    columns.put("is_registration_closed", Boolean.TRUE.equals(tourDto.getIsRegistrationClosed()));
+    columns.put("price", tourDto.getPrice());
+    // Места разделенного тура на время обновления собираются в строку тура
+    boolean sharded = slotShardService.collapse(id);
+    if (tourUpdateRepository.updateColumns(id, columns) == 0) {
+      if (!tourRepository.existsById(id)) {
+        throw new EntityNotFoundException("Тур с ID " + id + " не найден");
+      }
+      throw new IllegalStateException("Изменение невозможно: занятых мест больше нового количества мест");
+    }
+    if (sharded) {
+      slotShardService.spread(id);
+    }
+    storeMedia(id, imageFile, descFile);
+    if (columns.containsKey("total_slots")) {
+      // При увеличении количества мест новые места сразу передаются листу
+      // ожидания тура
+      eventPublisher.publishEvent(new SeatsReleasedEvent(id, 0));
+    }
+    eventPublisher.publishEvent(new TourChangedEvent(id));
+    TourSummaryDto tour = tourRepository.findSummaryById(id)
+        .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + id + " не найден"));
+    fillMediaUrls(tour);
+    return tour;
+  }
+
+  /**
+   * Частичное обновление тура по JSON Merge Patch (RFC 7396).
+   * Меняются только переданные скалярные поля одним UPDATE; изображение и
+   * файл не читаются и не перезаписываются
    */
   @Transactional
-  public TourDto updateTour(Long id, TourDto tourDto) {
-    if (!tourRepository.existsById(id)) {
-      throw new EntityNotFoundException("Тур с ID " + id + " не найден");
+  public TourSummaryDto patchTour(Long id, JsonNode patch) {
+    Map<String, Object> columns = toColumns(patch);
+    boolean slotsChanged = columns.containsKey("total_slots") || columns.containsKey("available_slots");
+    boolean sharded = slotsChanged && slotShardService.collapse(id);
+    if (!columns.isEmpty() && tourUpdateRepository.updateColumns(id, columns) == 0) {
+      if (!tourRepository.existsById(id)) {
+        throw new EntityNotFoundException("Тур с ID " + id + " не найден");
+      }
+      throw new IllegalStateException(
+          "Изменение невозможно: дата окончания раньше даты начала или занятых мест больше нового количества мест");
+    }
+    if (sharded) {
+      slotShardService.spread(id);
+    }
+    if (columns.containsKey("total_slots")) {
+      // При увеличении количества мест новые места сразу передаются листу
+      // ожидания тура
+      eventPublisher.publishEvent(new SeatsReleasedEvent(id, 0));
     }
+    if (!columns.isEmpty()) {
+      eventPublisher.publishEvent(new TourChangedEvent(id));
+    }
+    TourSummaryDto tour = tourRepository.findSummaryById(id)
+        .orElseThrow(() -> new EntityNotFoundException("Тур с ID " + id + " не найден"));
+    fillMediaUrls(tour);
+    return tour;
+  }
 
-    Tour tour = convertToEntity(tourDto);
-    tour.setId(id);
-    Tour updatedTour = tourRepository.save(tour);
-    return convertToDto(updatedTour);
+  /**
+   * Замена изображения или файла тура
+   */
+  @Transactional(rollbackFor = IOException.class)
+  public void replaceMedia(Long id, TourMediaKind kind, MultipartFile file) throws IOException {
+    if (file == null || file.isEmpty()) {
+      throw new IllegalArgumentException("Файл не передан");
+    }
+    tourMediaService.storeMedia(id, kind, file);
+    eventPublisher.publishEvent(new TourChangedEvent(id));
   }
 
   /**
@@ -72,33 +217,108 @@ public class TourService {
     if (!tourRepository.existsById(id)) {
       throw new EntityNotFoundException("Тур с ID " + id + " не найден");
     }
+    tourMediaService.releaseMedia(id);
+    slotShardService.configure(id, null);
     tourRepository.deleteById(id);
+    eventPublisher.publishEvent(new TourChangedEvent(id));
   }
 
   /**
-   * Конвертация Entity в DTO
+   * Заполнение размеров медиа для туров, созданных до появления колонок
+   * image_size и file_size. Выполняется до построения поискового индекса
    */
-  private TourDto convertToDto(Tour tour) {
-    return TourDto.builder()
-        .id(tour.getId())
-        .name(tour.getName())
-        .description(tour.getDescription())
-        .country(tour.getCountry())
-        .season(tour.getSeason())
-        .type(tour.getType())
-        .imageData(tour.getImageData())
-        .imageName(tour.getImageName())
-        .imageType(tour.getImageType())
-        .fileData(tour.getFileData())
-        .fileName(tour.getFileName())
-        .fileType(tour.getFileType())
-        .startDate(tour.getStartDate())
-        .endDate(tour.getEndDate())
-        .totalSlots(tour.getTotalSlots())
-        .availableSlots(tour.getAvailableSlots())
-        .isRegistrationClosed(tour.getIsRegistrationClosed())
-        .price(tour.getPrice())
-        .build();
+  @Order(0)
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfillMediaSizes() {
+    int updated = tourRepository.backfillMediaSizes();
+    if (updated > 0) {
+      log.info("Заполнены размеры изображений и файлов для {} туров", updated);
+    }
+  }
+
+  /**
+   * Сохраняет переданные изображение и файл тура
+   */
+  private void storeMedia(Long tourId, MultipartFile imageFile, MultipartFile descFile) throws IOException {
+    if (imageFile != null && !imageFile.isEmpty()) {
+      tourMediaService.storeMedia(tourId, TourMediaKind.IMAGE, imageFile);
+    }
+    if (descFile != null && !descFile.isEmpty()) {
+      tourMediaService.storeMedia(tourId, TourMediaKind.FILE, descFile);
+    }
+  }
+
+  /**
+   * Проверяет поля merge patch и переводит их в значения колонок таблицы
+   * tours. null для обязательного поля, неизвестное поле или количество
+   * свободных мест (оно меняется только бронированиями) - ошибка
+   */
+  private Map<String, Object> toColumns(JsonNode patch) {
+    if (patch == null || !patch.isObject()) {
+      throw new IllegalArgumentException("Тело запроса должно быть JSON-объектом");
+    }
+    Map<String, Object> columns = new LinkedHashMap<>();
+    Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+    while (fields.hasNext()) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      String name = field.getKey();
+      JsonNode value = field.getValue();
+      if (value.isNull()) {
+        throw new IllegalArgumentException("Поле " + name + " не может быть пустым");
+      }
+      switch (name) {
+        case "id" -> {
+          // Идентификатор берется из пути
+        }
+        case "name", "description", "country", "type" -> {
+          if (!value.isTextual() || value.asText().isBlank()) {
+            throw new IllegalArgumentException("Поле " + name + " должно быть непустой строкой");
+          }
+          columns.put(name, value.asText());
+        }
+        case "season" -> columns.put("season", Season.valueOf(value.asText()).name());
+        case "startDate" -> columns.put("start_date", objectMapper.convertValue(value, LocalDateTime.class));
+        case "endDate" -> columns.put("end_date", objectMapper.convertValue(value, LocalDateTime.class));
+        case "totalSlots" -> {
+          if (!value.canConvertToInt() || value.asInt() < 1) {
+            throw new IllegalArgumentException("Общее количество мест должно быть положительным");
+          }
+          columns.put("total_slots", value.asInt());
+        }
+        case "price" -> {
+          if (!value.isNumber() || value.asDouble() < 0) {
+            throw new IllegalArgumentException("Цена тура не может быть отрицательной");
+          }
+          columns.put("price", value.asDouble());
+        }
+        case "isRegistrationClosed" -> {
+          if (!value.isBoolean()) {
+            throw new IllegalArgumentException("Поле isRegistrationClosed должно быть true или false");
+          }
+          columns.put("is_registration_closed", value.asBoolean());
+        }
+        case "availableSlots" -> throw new IllegalArgumentException(
+            "Количество свободных мест меняется только бронированиями");
+        default -> throw new IllegalArgumentException("Поле " + name + " нельзя изменить через PATCH");
+      }
+    }
+    if (columns.get("start_date") instanceof LocalDateTime startDate
+        && columns.get("end_date") instanceof LocalDateTime endDate && endDate.isBefore(startDate)) {
+      throw new IllegalArgumentException("Дата окончания тура не может быть раньше даты начала");
+    }
+    return columns;
+  }
+
+  /**
+   * Заполняет ссылки на изображение и файл тура, если они есть
+   */
+  void fillMediaUrls(TourSummaryDto tour) {
+    if (tour.getImageSize() != null) {
+      tour.setImageUrl(contextPath + "/tours/" + tour.getId() + "/image");
+    }
+    if (tour.getFileSize() != null) {
+      tour.setFileUrl(contextPath + "/tours/" + tour.getId() + "/file");
+    }
   }
 
   /**
@@ -112,10 +332,8 @@ public class TourService {
         .country(tourDto.getCountry())
         .season(tourDto.getSeason())
         .type(tourDto.getType())
-        .imageData(tourDto.getImageData())
         .imageName(tourDto.getImageName())
         .imageType(tourDto.getImageType())
-        .fileData(tourDto.getFileData())
         .fileName(tourDto.getFileName())
         .fileType(tourDto.getFileType())
         .startDate(tourDto.getStartDate())
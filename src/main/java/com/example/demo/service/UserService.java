@@ -1,12 +1,14 @@
 package com.example.demo.service;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.demo.dto.KeysetPage;
 import com.example.demo.dto.UserInfoDto;
 import com.example.demo.models.AgeGroup;
 import com.example.demo.models.Contact;
@@ -14,6 +16,8 @@ import com.example.demo.models.Gender;
 import com.example.demo.models.User;
 import com.example.demo.models.UserRole;
 import com.example.demo.repository.ContactRepository;
+import com.example.demo.repository.KeysetQuery;
+import com.example.demo.repository.KeysetRepository;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.repository.ApplicationRepository;
 import com.example.demo.utils.PasswordGenerator;
@@ -30,6 +34,7 @@ public class UserService {
   private final EmailService emailService;
   private final ContactRepository contactRepository;
   private final ApplicationRepository applicationRepository;
+  private final KeysetRepository keysetRepository;
 
   @Transactional
   public UserInfoDto updateUser(Long id, UserInfoDto userInfo) {
@@ -66,6 +71,25 @@ public class UserService {
         .collect(Collectors.toList());
   }
 
+  /**
+   * Страница пользователей с указанной ролью с сортировкой по id или createdAt
+   */
+  @Transactional(readOnly = true)
+  public KeysetPage<UserInfoDto> getUsersPage(UserRole role, String sort, String cursor, Integer limit) {
+    KeysetQuery<User> query = KeysetQuery.<User>builder()
+        .entityType(User.class)
+        .alias("u")
+        .select("SELECT u")
+        .from("FROM User u")
+        .where("u.role = :role")
+        .parameter("role", role)
+        .resultType(User.class)
+        .sortFields(Set.of("id", "createdAt"))
+        .build();
+    return keysetRepository.findPage(query, sort, cursor, limit)
+        .map(this::convertToDto);
+  }
+
   @Transactional
   public UserInfoDto createEmployee(UserInfoDto userInfo) {
     // Генерируем пароль
@@ -0,0 +1,61 @@
+package com.example.demo.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.dto.TourSummaryDto;
+import com.example.demo.events.WaitlistPromotedEvent;
+import com.example.demo.repository.TourRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Уведомление заявителей из листа ожидания о выделенном месте.
+ * Письмо ставится в очередь только после фиксации транзакции, поэтому
+ * откат не приводит к ложному уведомлению, а почтовый сервер не задерживает
+ * освобождение места
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WaitlistNotificationService {
+
+  private final EmailService emailService;
+  private final TourRepository tourRepository;
+
+  private final ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "waitlist-notifier");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onWaitlistPromoted(WaitlistPromotedEvent event) {
+    sender.execute(() -> notify(event));
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    sender.shutdown();
+  }
+
+  private void notify(WaitlistPromotedEvent event) {
+    try {
+      String tourName = tourRepository.findSummaryById(event.getTourId())
+          .map(TourSummaryDto::getName)
+          .orElse("тур #" + event.getTourId());
+      emailService.sendEmail(event.getEmail(), "Освободилось место в туре",
+          "Здравствуйте, " + event.getFullName() + "!\n\n"
+              + "В туре \"" + tourName + "\" освободилось место, и мы оформили для вас заявку №"
+              + event.getApplicationId() + ". Менеджер свяжется с вами для подтверждения.");
+    } catch (Exception e) {
+      log.error("Не удалось уведомить запись листа ожидания {}: {}", event.getEntryId(), e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.models.WaitlistEntry;
+
+/**
+ * Копия очередей листа ожидания в памяти: ID ожидающих записей каждого тура
+ * в порядке постановки. Позволяет при освобождении места не обращаться к БД,
+ * если тур никто не ждет. Источником истины остается таблица tour_waitlist:
+ * перед выделением места запись блокируется и ее статус проверяется заново.
+ * Изменения применяются только после фиксации транзакции
+ */
+@Component
+public class WaitlistQueue {
+
+  private final Map<Long, NavigableSet<Long>> waitingByTour = new ConcurrentHashMap<>();
+
+  /**
+   * ID ожидающих записей тура в порядке очереди
+   */
+  public List<Long> waiting(Long tourId) {
+    NavigableSet<Long> entryIds = waitingByTour.get(tourId);
+    return entryIds == null ? List.of() : List.copyOf(entryIds);
+  }
+
+  /**
+   * Заполнение очередей записями из БД
+   */
+  public void load(List<WaitlistEntry> entries) {
+    waitingByTour.clear();
+    entries.forEach(entry -> add(entry.getTourId(), entry.getId()));
+  }
+
+  public void addAfterCommit(Long tourId, Long entryId) {
+    afterCommit(() -> add(tourId, entryId));
+  }
+
+  public void removeAfterCommit(Long tourId, Long entryId) {
+    afterCommit(() -> remove(tourId, entryId));
+  }
+
+  private void add(Long tourId, Long entryId) {
+    waitingByTour.computeIfAbsent(tourId, id -> new ConcurrentSkipListSet<>()).add(entryId);
+  }
+
+  private void remove(Long tourId, Long entryId) {
+    waitingByTour.computeIfPresent(tourId, (id, entryIds) -> {
+      entryIds.remove(entryId);
+      return entryIds.isEmpty() ? null : entryIds;
+    });
+  }
+
+  private void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+}
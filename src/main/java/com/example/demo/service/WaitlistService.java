@@ -0,0 +1,359 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.dto.ApplicationDto;
+import com.example.demo.dto.WaitlistEntryDto;
+import com.example.demo.events.SeatsReleasedEvent;
+import com.example.demo.events.WaitlistPromotedEvent;
+import com.example.demo.models.ApplicationStatus;
+import com.example.demo.models.WaitlistEntry;
+import com.example.demo.models.WaitlistStatus;
+import com.example.demo.repository.TourRepository;
+import com.example.demo.repository.WaitlistRepository;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сервис листа ожидания туров.
+ * Заявители, которым не хватило мест, встают в очередь тура. Освободившиеся
+ * места закрепляются за первыми записями очереди в той же транзакции, которая
+ * их освободила, и списываются со счетчика тура, поэтому прямые заявки не
+ * могут занять их раньше ожидающих. Заявки для записей с закрепленными
+ * местами создаются после фиксации, каждая в своей транзакции: если создать
+ * заявку для записи не удалось, ее место переходит следующей записи, а сама
+ * запись остается в очереди. Уведомление отправляется после фиксации
+ */
+@Slf4j
+@Service
+public class WaitlistService {
+
+  private enum Promotion {
+    PROMOTED, // Заявка создана
+    SKIPPED, // Запись уже не ожидает места
+    NO_SEATS // Свободных мест нет
+  }
+
+  private final WaitlistRepository waitlistRepository;
+  private final WaitlistQueue waitlistQueue;
+  private final TourRepository tourRepository;
+  private final SeatReservationService seatReservationService;
+  private final ApplicationService applicationService;
+  private final ApplicationEventPublisher eventPublisher;
+  private final TransactionTemplate transactionTemplate;
+
+  public WaitlistService(WaitlistRepository waitlistRepository, WaitlistQueue waitlistQueue,
+      TourRepository tourRepository, SeatReservationService seatReservationService,
+      ApplicationService applicationService, ApplicationEventPublisher eventPublisher,
+      PlatformTransactionManager transactionManager) {
+    this.waitlistRepository = waitlistRepository;
+    this.waitlistQueue = waitlistQueue;
+    this.tourRepository = tourRepository;
+    this.seatReservationService = seatReservationService;
+    this.applicationService = applicationService;
+    this.eventPublisher = eventPublisher;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /**
+   * Постановка заявителя в лист ожидания тура.
+   * Если очередь пуста и место успело освободиться, заявка создается сразу
+   *
+   * @throws IllegalStateException если заявитель уже записан на тур или стоит
+   *                               в его листе ожидания
+   */
+  @Transactional
+  public WaitlistEntryDto join(ApplicationDto applicationDto) {
+    Long tourId = applicationDto.getTourId();
+    if (!tourRepository.existsById(tourId)) {
+      throw new EntityNotFoundException("Тур с ID " + tourId + " не найден");
+    }
+    if (applicationService.isEnrolled(tourId, applicationDto.getEmail())) {
+      throw new IllegalStateException("Заявитель с почтой " + applicationDto.getEmail() + " уже записан на тур");
+    }
+    if (waitlistRepository.existsByTourIdAndEmailIgnoreCaseAndStatus(tourId, applicationDto.getEmail(),
+        WaitlistStatus.WAITING)) {
+      throw new IllegalStateException("Заявитель с почтой " + applicationDto.getEmail()
+          + " уже в листе ожидания тура");
+    }
+
+    WaitlistEntry entry = waitlistRepository.save(WaitlistEntry.builder()
+        .tourId(tourId)
+        .fullName(applicationDto.getFullName())
+        .phoneNumber(applicationDto.getPhoneNumber())
+        .email(applicationDto.getEmail())
+        .ageGroup(applicationDto.getAgeGroup())
+        .gender(applicationDto.getGender())
+        .status(WaitlistStatus.WAITING)
+        .build());
+
+    // Место могло освободиться после неудачной попытки бронирования, когда
+    // очередь еще была пуста и передавать его было некому
+    long position = positionOf(entry);
+    if (position == 1 && seatReservationService.tryReserve(tourId, 1)) {
+      promote(entry);
+      return convertToDto(entry);
+    }
+    waitlistQueue.addAfterCommit(tourId, entry.getId());
+    WaitlistEntryDto dto = convertToDto(entry);
+    dto.setPosition(position);
+    return dto;
+  }
+
+  /**
+   * Закрепление освободившихся мест за первыми ожидающими записями тура в
+   * транзакции, которая их освободила. Если количество мест неизвестно (0),
+   * закрепляются все свободные места тура
+   */
+  @EventListener
+  public void holdReleasedSeats(SeatsReleasedEvent event) {
+    Long tourId = event.getTourId();
+    int held = 0;
+    for (Long entryId : waitlistQueue.waiting(tourId)) {
+      if (event.getSeats() > 0 && held == event.getSeats()) {
+        break;
+      }
+      Optional<WaitlistEntry> found = waitlistRepository.findByIdAndStatusForUpdate(entryId, WaitlistStatus.WAITING);
+      if (found.isEmpty() || found.get().isSeatHeld()) {
+        continue;
+      }
+      if (!seatReservationService.tryReserve(tourId, 1)) {
+        break;
+      }
+      found.get().setSeatHeld(true);
+      // Освобождающая транзакция может дальше очистить контекст
+      // персистентности UPDATE-запросами, поэтому запись сохраняется сразу
+      waitlistRepository.saveAndFlush(found.get());
+      held++;
+    }
+  }
+
+  /**
+   * Создание заявок для записей с закрепленными местами после фиксации
+   * транзакции, которая освободила места
+   */
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onSeatsReleased(SeatsReleasedEvent event) {
+    promoteWaiting(event.getTourId());
+  }
+
+  /**
+   * Выделение мест тура ожидающим в порядке очереди, каждой записи - в
+   * отдельной транзакции. Записи с закрепленными местами получают их, прочие -
+   * свободные места тура, пока они есть
+   *
+   * @return количество созданных заявок
+   */
+  public int promoteWaiting(Long tourId) {
+    int promoted = 0;
+    boolean freeSeats = true;
+    for (Long entryId : waitlistQueue.waiting(tourId)) {
+      boolean takeFreeSeat = freeSeats;
+      Promotion result;
+      try {
+        result = transactionTemplate.execute(status -> promoteEntry(tourId, entryId, takeFreeSeat));
+      } catch (RuntimeException e) {
+        log.warn("Не удалось выделить место в туре {} записи листа ожидания {}: {}", tourId, entryId,
+            e.getMessage());
+        passHeldSeatAfterFailure(tourId, entryId);
+        continue;
+      }
+      if (result == Promotion.NO_SEATS) {
+        // Дальше в очереди могут быть записи с закрепленными местами
+        freeSeats = false;
+      }
+      if (result == Promotion.PROMOTED) {
+        promoted++;
+      }
+    }
+    return promoted;
+  }
+
+  /**
+   * Записи листа ожидания тура в порядке очереди
+   */
+  @Transactional(readOnly = true)
+  public List<WaitlistEntryDto> getWaitlist(Long tourId) {
+    List<WaitlistEntry> entries = waitlistRepository.findByTourIdAndStatusOrderById(tourId, WaitlistStatus.WAITING);
+    return IntStream.range(0, entries.size())
+        .mapToObj(index -> {
+          WaitlistEntryDto dto = convertToDto(entries.get(index));
+          dto.setPosition(index + 1L);
+          return dto;
+        })
+        .toList();
+  }
+
+  /**
+   * Запись листа ожидания по идентификатору
+   */
+  @Transactional(readOnly = true)
+  public WaitlistEntryDto getEntry(Long id) {
+    WaitlistEntry entry = waitlistRepository.findById(id)
+        .orElseThrow(() -> new EntityNotFoundException("Запись листа ожидания с ID " + id + " не найдена"));
+    WaitlistEntryDto dto = convertToDto(entry);
+    if (entry.getStatus() == WaitlistStatus.WAITING) {
+      dto.setPosition(positionOf(entry));
+    }
+    return dto;
+  }
+
+  /**
+   * Отмена ожидающей записи
+   */
+  @Transactional
+  public void cancel(Long id) {
+    WaitlistEntry entry = waitlistRepository.findByIdAndStatusForUpdate(id, WaitlistStatus.WAITING)
+        .orElseThrow(() -> new EntityNotFoundException("Ожидающая запись листа ожидания с ID " + id + " не найдена"));
+    entry.setStatus(WaitlistStatus.CANCELLED);
+    boolean seatHeld = entry.isSeatHeld();
+    entry.setSeatHeld(false);
+    waitlistRepository.save(entry);
+    waitlistQueue.removeAfterCommit(entry.getTourId(), entry.getId());
+    if (seatHeld) {
+      // Закрепленное место достается следующей записи очереди
+      seatReservationService.release(entry.getTourId(), 1);
+    }
+  }
+
+  /**
+   * Загрузка очередей в память при запуске. Записи, места для которых были
+   * закреплены, но заявки не созданы до остановки, продвигаются сразу
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadQueues() {
+    List<WaitlistEntry> waiting = waitlistRepository.findByStatusOrderById(WaitlistStatus.WAITING);
+    waitlistQueue.load(waiting);
+    if (!waiting.isEmpty()) {
+      log.info("Загружен лист ожидания: {} записей", waiting.size());
+    }
+    waiting.stream()
+        .filter(WaitlistEntry::isSeatHeld)
+        .map(WaitlistEntry::getTourId)
+        .distinct()
+        .forEach(this::promoteWaiting);
+  }
+
+  /**
+   * Передача закрепленного места записи, для которой не удалось создать
+   * заявку, следующей записи очереди
+   */
+  private void passHeldSeatAfterFailure(Long tourId, Long entryId) {
+    try {
+      transactionTemplate.executeWithoutResult(status -> waitlistRepository
+          .findByIdAndStatusForUpdate(entryId, WaitlistStatus.WAITING)
+          .filter(WaitlistEntry::isSeatHeld)
+          .ifPresent(entry -> {
+            entry.setSeatHeld(false);
+            waitlistRepository.save(entry);
+            passSeatAfter(tourId, entryId);
+          }));
+    } catch (RuntimeException e) {
+      log.warn("Не удалось передать место в туре {} от записи листа ожидания {}: {}", tourId, entryId,
+          e.getMessage());
+    }
+  }
+
+  /**
+   * Закрепляет место за следующей после указанной записью без места или,
+   * если таких нет, возвращает его в тур
+   */
+  private void passSeatAfter(Long tourId, Long entryId) {
+    waitlistRepository.findFirstByTourIdAndStatusAndSeatHeldFalseAndIdGreaterThanOrderById(tourId,
+        WaitlistStatus.WAITING, entryId)
+        .ifPresentOrElse(next -> {
+          next.setSeatHeld(true);
+          waitlistRepository.save(next);
+        }, () -> seatReservationService.returnToTour(tourId, 1));
+  }
+
+  private Promotion promoteEntry(Long tourId, Long entryId, boolean takeFreeSeat) {
+    // Запись могла быть отменена или уже получить место в другой транзакции
+    Optional<WaitlistEntry> found = waitlistRepository.findByIdAndStatusForUpdate(entryId, WaitlistStatus.WAITING);
+    if (found.isEmpty()) {
+      return Promotion.SKIPPED;
+    }
+    WaitlistEntry entry = found.get();
+    if (applicationService.isEnrolled(tourId, entry.getEmail())) {
+      // Заявитель записался на тур, не дожидаясь очереди
+      entry.setStatus(WaitlistStatus.CANCELLED);
+      boolean seatHeld = entry.isSeatHeld();
+      entry.setSeatHeld(false);
+      waitlistRepository.save(entry);
+      waitlistQueue.removeAfterCommit(tourId, entryId);
+      if (seatHeld) {
+        passSeatAfter(tourId, entryId);
+      }
+      log.info("Запись листа ожидания {} отменена: заявитель уже записан на тур {}", entryId, tourId);
+      return Promotion.SKIPPED;
+    }
+    if (!entry.isSeatHeld() && (!takeFreeSeat || !seatReservationService.tryReserve(tourId, 1))) {
+      return Promotion.NO_SEATS;
+    }
+    promote(entry);
+    return Promotion.PROMOTED;
+  }
+
+  /**
+   * Создает заявку для записи, место для которой уже занято
+   */
+  private void promote(WaitlistEntry entry) {
+    ApplicationDto application = applicationService.createApplicationForReservedSeat(ApplicationDto.builder()
+        .fullName(entry.getFullName())
+        .phoneNumber(entry.getPhoneNumber())
+        .email(entry.getEmail())
+        .tourId(entry.getTourId())
+        .ageGroup(entry.getAgeGroup())
+        .gender(entry.getGender())
+        .status(ApplicationStatus.PENDING)
+        .build());
+
+    entry.setStatus(WaitlistStatus.PROMOTED);
+    entry.setSeatHeld(false);
+    entry.setApplicationId(application.getId());
+    entry.setPromotedAt(LocalDateTime.now());
+    // Сразу записываем в БД: последующие UPDATE-запросы в той же транзакции
+    // могут очистить контекст персистентности
+    waitlistRepository.saveAndFlush(entry);
+    waitlistQueue.removeAfterCommit(entry.getTourId(), entry.getId());
+
+    log.info("Место в туре {} выделено записи листа ожидания {}, создана заявка {}",
+        entry.getTourId(), entry.getId(), application.getId());
+    eventPublisher.publishEvent(new WaitlistPromotedEvent(entry.getId(), application.getId(),
+        entry.getTourId(), entry.getEmail(), entry.getFullName()));
+  }
+
+  private long positionOf(WaitlistEntry entry) {
+    return waitlistRepository.countByTourIdAndStatusAndIdLessThan(entry.getTourId(), WaitlistStatus.WAITING,
+        entry.getId()) + 1;
+  }
+
+  private WaitlistEntryDto convertToDto(WaitlistEntry entry) {
+    return WaitlistEntryDto.builder()
+        .id(entry.getId())
+        .tourId(entry.getTourId())
+        .fullName(entry.getFullName())
+        .email(entry.getEmail())
+        .status(entry.getStatus())
+        .applicationId(entry.getApplicationId())
+        .createdAt(entry.getCreatedAt())
+        .promotedAt(entry.getPromotedAt())
+        .build();
+  }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Хранилище двоичных данных (изображений и файлов туров).
+ * Данные адресуются ключом, который возвращает хранилище при сохранении
+ */
+public interface BlobStore {
+
+  /**
+   * Сохраняет данные из потока и возвращает ключ и размер сохраненных данных.
+   * Одинаковое содержимое сохраняется один раз и получает один и тот же ключ
+   */
+  default StoredBlob put(InputStream content) throws IOException {
+    return put(content, Long.MAX_VALUE);
+  }
+
+  /**
+   * Сохраняет данные из потока, если их размер не больше maxSize байт.
+   * Иначе выбрасывает BlobTooLargeException и ничего не сохраняет
+   */
+  StoredBlob put(InputStream content, long maxSize) throws IOException;
+
+  /**
+   * Открывает поток для чтения данных начиная с указанного смещения
+   */
+  InputStream open(String key, long offset) throws IOException;
+
+  /**
+   * Передает count байт данных начиная с position в канал
+   */
+  default void transferTo(String key, long position, long count, WritableByteChannel target) throws IOException {
+    try (InputStream in = open(key, position)) {
+      byte[] buffer = new byte[(int) Math.min(64 * 1024, Math.max(count, 1))];
+      long remaining = count;
+      while (remaining > 0) {
+        int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (read == -1) {
+          throw new IOException("Данные " + key + " короче ожидаемого размера");
+        }
+        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+        while (chunk.hasRemaining()) {
+          target.write(chunk);
+        }
+        remaining -= read;
+      }
+    }
+  }
+
+  /**
+   * Путь к файлу с данными, если хранилище держит их на локальном диске.
+   * Такой файл может быть отдан сервером напрямую (sendfile)
+   */
+  default Optional<Path> localPath(String key) {
+    return Optional.empty();
+  }
+
+  /**
+   * Проверяет наличие данных с указанным ключом
+   */
+  boolean exists(String key);
+
+  /**
+   * Удаляет данные с указанным ключом, если они есть
+   */
+  void delete(String key) throws IOException;
+}
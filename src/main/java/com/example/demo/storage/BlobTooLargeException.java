@@ -0,0 +1,23 @@
+package com.example.demo.storage;
+
+import java.io.IOException;
+
+/**
+ * Данные превышают допустимый размер. Сохранение прерывается, как только
+ * лимит превышен, поэтому остаток потока не читается
+ */
+public class BlobTooLargeException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long maxSize;
+
+  public BlobTooLargeException(long maxSize) {
+    super("Размер данных превышает допустимые " + maxSize + " байт");
+    this.maxSize = maxSize;
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+}
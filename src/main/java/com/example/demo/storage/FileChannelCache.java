@@ -0,0 +1,118 @@
+package com.example.demo.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * LRU-кэш открытых файловых каналов.
+ * Один канал используется параллельными загрузками одновременно: чтение идет
+ * с явной позицией, поэтому общая позиция канала не меняется. Канал,
+ * вытесненный из кэша, закрывается после завершения последней загрузки
+ */
+@Slf4j
+class FileChannelCache {
+
+  private final int maxOpenFiles;
+  private final LinkedHashMap<Path, Entry> entries;
+
+  FileChannelCache(int maxOpenFiles) {
+    this.maxOpenFiles = maxOpenFiles;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+        if (size() <= FileChannelCache.this.maxOpenFiles) {
+          return false;
+        }
+        eldest.getValue().evict();
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Захватывает канал файла. Handle необходимо закрыть после использования
+   */
+  synchronized Handle acquire(Path path) throws IOException {
+    Entry entry = entries.get(path);
+    if (entry == null) {
+      entry = new Entry(FileChannel.open(path, StandardOpenOption.READ));
+      entries.put(path, entry);
+    }
+    entry.references++;
+    return new Handle(entry);
+  }
+
+  /**
+   * Убирает файл из кэша, например перед его удалением
+   */
+  synchronized void invalidate(Path path) {
+    Entry entry = entries.remove(path);
+    if (entry != null) {
+      entry.evict();
+    }
+  }
+
+  private synchronized void release(Entry entry) {
+    entry.references--;
+    if (entry.evicted && entry.references == 0) {
+      entry.close();
+    }
+  }
+
+  /**
+   * Захваченный канал файла
+   */
+  final class Handle implements AutoCloseable {
+
+    private final Entry entry;
+    private boolean released;
+
+    private Handle(Entry entry) {
+      this.entry = entry;
+    }
+
+    FileChannel channel() {
+      return entry.channel;
+    }
+
+    @Override
+    public void close() {
+      if (!released) {
+        released = true;
+        release(entry);
+      }
+    }
+  }
+
+  private static final class Entry {
+
+    private final FileChannel channel;
+    private int references;
+    private boolean evicted;
+
+    private Entry(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    private void evict() {
+      evicted = true;
+      if (references == 0) {
+        close();
+      }
+    }
+
+    private void close() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        log.warn("Не удалось закрыть файловый канал: {}", e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Хранилище на локальном диске с адресацией по содержимому.
+ * Ключ - SHA-256 данных в hex, файл лежит в root/ab/cd/abcd..., поэтому
+ * одинаковые загрузки хранятся один раз. Данные копируются из потока буфером
+ * фиксированного размера, а хеш считается по ходу записи, поэтому размер
+ * загрузки не влияет на потребление памяти. Запись идет во временный файл,
+ * который после fsync атомарно переименовывается в итоговый. Записанные файлы
+ * не изменяются, поэтому открытые каналы чтения кэшируются
+ */
+@Slf4j
+@Component
+public class LocalFileBlobStore implements BlobStore {
+
+  private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Path root;
+  private final Path tmpDir;
+  private final FileChannelCache channelCache;
+
+  public LocalFileBlobStore(@Value("${media.storage.local.root:data/media}") String root,
+      @Value("${media.storage.local.max-open-files:256}") int maxOpenFiles) throws IOException {
+    Files.createDirectories(Paths.get(root));
+    // Реальный путь нужен для sendfile: Tomcat принимает только канонические пути
+    this.root = Paths.get(root).toRealPath();
+    this.tmpDir = this.root.resolve("tmp");
+    this.channelCache = new FileChannelCache(maxOpenFiles);
+    Files.createDirectories(tmpDir);
+    log.info("Локальное хранилище медиа: {}", this.root);
+  }
+
+  @Override
+  public StoredBlob put(InputStream content, long maxSize) throws IOException {
+    MessageDigest digest = sha256();
+    Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+    try {
+      long size = 0;
+      try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+        OutputStream out = Channels.newOutputStream(channel);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+          digest.update(buffer, 0, read);
+          out.write(buffer, 0, read);
+          size += read;
+          if (size > maxSize) {
+            throw new BlobTooLargeException(maxSize);
+          }
+        }
+        channel.force(true);
+      }
+
+      String key = HexFormat.of().formatHex(digest.digest());
+      Path target = resolve(key);
+      if (Files.exists(target)) {
+        // Такое содержимое уже сохранено
+        log.debug("Данные {} уже есть в хранилище", key);
+      } else {
+        Files.createDirectories(target.getParent());
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+      }
+      return new StoredBlob(key, size);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  @Override
+  public InputStream open(String key, long offset) throws IOException {
+    FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+    try {
+      channel.position(offset);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return Channels.newInputStream(channel);
+  }
+
+  @Override
+  public void transferTo(String key, long position, long count, WritableByteChannel target) throws IOException {
+    try (FileChannelCache.Handle handle = channelCache.acquire(resolve(key))) {
+      FileChannel channel = handle.channel();
+      long transferred = 0;
+      while (transferred < count) {
+        long sent = channel.transferTo(position + transferred, count - transferred, target);
+        if (sent <= 0 && position + transferred >= channel.size()) {
+          throw new IOException("Данные " + key + " короче ожидаемого размера");
+        }
+        transferred += sent;
+      }
+    }
+  }
+
+  @Override
+  public Optional<Path> localPath(String key) {
+    return Optional.of(resolve(key));
+  }
+
+  @Override
+  public boolean exists(String key) {
+    return Files.isRegularFile(resolve(key));
+  }
+
+  @Override
+  public void delete(String key) throws IOException {
+    Path path = resolve(key);
+    channelCache.invalidate(path);
+    Files.deleteIfExists(path);
+  }
+
+  private Path resolve(String key) {
+    if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+      throw new IllegalArgumentException("Некорректный ключ хранилища: " + key);
+    }
+    return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 недоступен", e);
+    }
+  }
+}
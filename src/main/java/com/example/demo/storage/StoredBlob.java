@@ -0,0 +1,16 @@
+package com.example.demo.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Результат сохранения данных в хранилище
+ */
+@Data
+@AllArgsConstructor
+public class StoredBlob {
+
+  private String key;
+
+  private long size;
+}
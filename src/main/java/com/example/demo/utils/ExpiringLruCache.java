@@ -0,0 +1,48 @@
+package com.example.demo.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Потокобезопасный кэш ограниченного размера: при переполнении вытесняется
+ * запись, к которой дольше всего не обращались, записи старше ttlMs
+ * считаются отсутствующими
+ */
+public class ExpiringLruCache<K, V> {
+
+  private final long ttlMs;
+  private final Map<K, Entry<V>> entries;
+
+  public ExpiringLruCache(int maxSize, long ttlMs) {
+    this.ttlMs = ttlMs;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (System.currentTimeMillis() - entry.createdAt() > ttlMs) {
+      entries.remove(key);
+      return null;
+    }
+    return entry.value();
+  }
+
+  public synchronized void put(K key, V value) {
+    entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private record Entry<V>(V value, long createdAt) {
+  }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Хешированное колесо таймеров.
+ * Время делится на тики длиной tickMs, таймер попадает в ячейку колеса по
+ * номеру своего тика. Добавление таймера стоит O(1), продвижение на тик
+ * просматривает только одну ячейку, поэтому стоимость истечения не зависит от
+ * общего числа таймеров, если колесо охватывает типичное время жизни таймера.
+ * Таймеры не отменяются: владелец сам проверяет, актуален ли сработавший
+ * таймер
+ */
+public class HashedTimingWheel<T> {
+
+  private final long tickMs;
+  private final int mask;
+  private final List<ArrayDeque<Timeout<T>>> buckets;
+
+  // Следующий необработанный тик
+  private long currentTick;
+  private int size;
+
+  /**
+   * @param tickMs    длина тика в миллисекундах
+   * @param wheelSize количество ячеек, степень двойки
+   * @param nowMillis текущее время
+   */
+  public HashedTimingWheel(long tickMs, int wheelSize, long nowMillis) {
+    if (tickMs <= 0) {
+      throw new IllegalArgumentException("Длина тика должна быть положительной");
+    }
+    if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+      throw new IllegalArgumentException("Размер колеса должен быть степенью двойки");
+    }
+    this.tickMs = tickMs;
+    this.mask = wheelSize - 1;
+    this.buckets = new ArrayList<>(wheelSize);
+    for (int i = 0; i < wheelSize; i++) {
+      buckets.add(new ArrayDeque<>());
+    }
+    this.currentTick = Math.floorDiv(nowMillis, tickMs);
+  }
+
+  /**
+   * Добавляет таймер, срабатывающий не раньше указанного момента
+   */
+  public synchronized void schedule(T item, long deadlineMillis) {
+    // Просроченный таймер сработает на ближайшем тике
+    long tick = Math.max(Math.ceilDiv(deadlineMillis, tickMs), currentTick);
+    buckets.get((int) (tick & mask)).add(new Timeout<>(item, tick));
+    size++;
+  }
+
+  /**
+   * Продвигает колесо до указанного момента
+   *
+   * @return сработавшие таймеры
+   */
+  public synchronized List<T> advance(long nowMillis) {
+    long targetTick = Math.floorDiv(nowMillis, tickMs);
+    List<T> expired = new ArrayList<>();
+    if (targetTick < currentTick) {
+      return expired;
+    }
+    // При пропуске больше оборота каждая ячейка просматривается один раз
+    long lastTick = Math.min(targetTick, currentTick + mask);
+    for (long tick = currentTick; tick <= lastTick; tick++) {
+      Iterator<Timeout<T>> iterator = buckets.get((int) (tick & mask)).iterator();
+      while (iterator.hasNext()) {
+        Timeout<T> timeout = iterator.next();
+        // В ячейке остаются таймеры следующих оборотов колеса
+        if (timeout.tick() <= targetTick) {
+          expired.add(timeout.item());
+          iterator.remove();
+        }
+      }
+    }
+    currentTick = targetTick + 1;
+    size -= expired.size();
+    return expired;
+  }
+
+  /**
+   * Количество ожидающих таймеров
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  private record Timeout<T>(T item, long tick) {
+  }
+}
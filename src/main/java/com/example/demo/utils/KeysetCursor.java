@@ -0,0 +1,46 @@
+package com.example.demo.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Курсор постраничного вывода: поле и направление сортировки, значение ключа
+ * и ID последней выданной записи. Клиенту передается непрозрачной строкой
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+
+  private final String field;
+  private final boolean descending;
+  private final String value;
+  private final Long id;
+
+  public String encode() {
+    String raw = field + "\n" + (descending ? "desc" : "asc") + "\n" + value + "\n" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static KeysetCursor decode(String cursor) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = raw.split("\n", -1);
+      if (parts.length != 4 || !(parts[1].equals("asc") || parts[1].equals("desc"))) {
+        throw new IllegalArgumentException("Некорректный курсор");
+      }
+      return new KeysetCursor(parts[0], parts[1].equals("desc"), parts[2], Long.valueOf(parts[3]));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Некорректный курсор", e);
+    }
+  }
+
+  /**
+   * Сортировка в формате параметра sort ("price", "-price")
+   */
+  public String getSort() {
+    return descending ? "-" + field : field;
+  }
+}
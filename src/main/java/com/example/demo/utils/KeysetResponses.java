@@ -0,0 +1,35 @@
+package com.example.demo.utils;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+
+import com.example.demo.dto.KeysetPage;
+
+/**
+ * Ответы списочных эндпоинтов при постраничном выводе: тело - массив записей
+ * страницы, курсор следующей страницы - в заголовке X-Next-Cursor
+ */
+public final class KeysetResponses {
+
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+  private KeysetResponses() {
+  }
+
+  /**
+   * Запрошен ли постраничный вывод. Без параметров эндпоинты, как и раньше,
+   * возвращают весь список
+   */
+  public static boolean isRequested(String sort, String cursor, Integer limit) {
+    return sort != null || cursor != null || limit != null;
+  }
+
+  public static <T> ResponseEntity<List<T>> ok(KeysetPage<T> page) {
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (page.getNextCursor() != null) {
+      response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+    }
+    return response.body(page.getItems());
+  }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Утилитарный класс для разбора текста при поиске.
+ * Текст приводится к нижнему регистру (ё заменяется на е), делится на слова,
+ * а у русских слов отбрасываются типичные окончания, чтобы "турция",
+ * "турции" и "турцию" давали одну основу
+ */
+public class RussianTextAnalyzer {
+
+  private static final Locale RUSSIAN = Locale.forLanguageTag("ru");
+
+  // Окончания отсортированы по убыванию длины: отбрасывается самое длинное
+  private static final String[] ENDINGS = {
+      "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "иях", "ией",
+      "ов", "ев", "ей", "ий", "ый", "ой", "ая", "яя", "ое", "ее", "ые", "ие", "ых", "их", "ом", "ем",
+      "ам", "ям", "ах", "ях", "ую", "юю", "ию", "ия", "ии", "ью",
+      "а", "я", "о", "е", "ы", "и", "у", "ю", "ь", "й" };
+
+  private static final int MIN_STEM_LENGTH = 3;
+
+  private RussianTextAnalyzer() {
+  }
+
+  /**
+   * Разбивает текст на основы слов
+   *
+   * @param text исходный текст, может быть null
+   * @return основы слов в порядке появления в тексте
+   */
+  public static List<String> analyze(String text) {
+    List<String> stems = new ArrayList<>();
+    if (text == null || text.isEmpty()) {
+      return stems;
+    }
+    String normalized = text.toLowerCase(RUSSIAN).replace('ё', 'е');
+    int start = -1;
+    for (int i = 0; i <= normalized.length(); i++) {
+      boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+      if (letter && start < 0) {
+        start = i;
+      } else if (!letter && start >= 0) {
+        stems.add(stem(normalized.substring(start, i)));
+        start = -1;
+      }
+    }
+    return stems;
+  }
+
+  /**
+   * Отбрасывает окончание русского слова. Слова на латинице и короткие
+   * слова не изменяются
+   */
+  public static String stem(String word) {
+    if (word.length() <= MIN_STEM_LENGTH || !isCyrillic(word.charAt(word.length() - 1))) {
+      return word;
+    }
+    for (String ending : ENDINGS) {
+      if (word.endsWith(ending) && word.length() - ending.length() >= MIN_STEM_LENGTH) {
+        return word.substring(0, word.length() - ending.length());
+      }
+    }
+    return word;
+  }
+
+  private static boolean isCyrillic(char c) {
+    return Character.UnicodeBlock.of(c) == Character.UnicodeBlock.CYRILLIC;
+  }
+}
@@ -0,0 +1,10 @@
+-- Выполняется при каждом запуске после обновления схемы Hibernate, поэтому
+-- все команды должны быть повторяемыми
+
+-- Поиск заявок по началу ФИО (full_name_search LIKE 'начало%'). Класс
+-- операторов varchar_pattern_ops позволяет использовать индекс для LIKE
+-- независимо от сопоставления колонки и базы. Прежний индекс без него
+-- удаляется
+DROP INDEX IF EXISTS idx_applications_full_name_search;
+CREATE INDEX IF NOT EXISTS idx_applications_full_name_pattern
+    ON applications (full_name_search varchar_pattern_ops, id);
@@ -0,0 +1,129 @@
+package com.example.demo.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class ContactDuplicateFinderTest {
+
+  private static final double MIN_SCORE = 0.7;
+  private static final int MAX_BUCKET_SIZE = 50;
+  private static final int BENCHMARK_CONTACTS = 1_000_000;
+  private static final int DUPLICATE_EVERY = 50;
+  private static final double MAX_SECONDS = 10;
+
+  private final ContactDuplicateFinder finder = new ContactDuplicateFinder(MIN_SCORE, MAX_BUCKET_SIZE);
+
+  @Test
+  void mergesEmailCaseAndPhoneFormat() {
+    List<ContactDuplicateFinder.Group> groups = finder.findGroups(List.of(
+        candidate(5, "Иванов Иван", "+7 (900) 123-45-67", "Ivan@Mail.ru", null),
+        candidate(2, "Иванов Иван", "89001234567", " ivan@mail.ru", null),
+        candidate(9, "Иванов  Иван", "8 900 123 45 67", "other@mail.ru", null),
+        candidate(12, "Иванов Иван Иванович", "8 900 123 45 67", "ivanovich@mail.ru", null)));
+
+    assertEquals(1, groups.size());
+    assertEquals(2L, groups.get(0).survivorId());
+    assertEquals(List.of(5L, 9L), groups.get(0).duplicateIds());
+    assertTrue(groups.get(0).score() >= MIN_SCORE);
+  }
+
+  @Test
+  void keepsRelativesSharingEmailAndPhone() {
+    List<ContactDuplicateFinder.Group> groups = finder.findGroups(List.of(
+        candidate(1, "Иванов Иван", "+79001234567", "family@mail.ru", null),
+        candidate(2, "Иванова Мария", "+79001234567", "family@mail.ru", null)));
+
+    assertTrue(groups.isEmpty());
+  }
+
+  @Test
+  void keepsContactWithUserAndSkipsOtherUsers() {
+    List<ContactDuplicateFinder.Group> groups = finder.findGroups(List.of(
+        candidate(1, "Петров Петр", "+79001112233", "petrov@mail.ru", null),
+        candidate(2, "Петров Петр", "+79001112233", "Petrov@mail.ru", 10L),
+        candidate(3, "Петров Петр", "+79001112233", "PETROV@mail.ru", 11L)));
+
+    assertEquals(1, groups.size());
+    assertEquals(2L, groups.get(0).survivorId());
+    assertEquals(List.of(1L), groups.get(0).duplicateIds());
+    assertEquals(List.of(3L), groups.get(0).skippedIds());
+  }
+
+  @Test
+  void ignoresPlaceholderPhones() {
+    List<ContactDuplicateFinder.Candidate> candidates = new ArrayList<>();
+    for (long id = 1; id <= MAX_BUCKET_SIZE + 1; id++) {
+      candidates.add(candidate(id, "Сидоров Сергей", "+7 000 000-00-00", "sidorov" + id + "@mail.ru", null));
+    }
+    candidates.add(candidate(100, "Сидоров Сергей", "0", "a@mail.ru", null));
+    candidates.add(candidate(101, "Сидоров Сергей", "0", "b@mail.ru", null));
+
+    assertTrue(finder.findGroups(candidates).isEmpty());
+    assertEquals(1, finder.getOversizedBuckets());
+  }
+
+  @Test
+  void selectsOnlyContactsSharingKeys() {
+    int contacts = 10_000;
+    List<ContactDuplicateFinder.Group> groups = findDuplicates(generate(contacts), contacts);
+
+    assertEquals(contacts / DUPLICATE_EVERY, groups.size());
+  }
+
+  @Test
+  @Tag("benchmark")
+  void findsDuplicatesAmongMillionContactsQuickly() {
+    List<ContactDuplicateFinder.Candidate> contacts = generate(BENCHMARK_CONTACTS);
+
+    long startedAt = System.nanoTime();
+    List<ContactDuplicateFinder.Group> groups = findDuplicates(contacts, BENCHMARK_CONTACTS);
+    double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+
+    assertEquals(BENCHMARK_CONTACTS / DUPLICATE_EVERY, groups.size());
+    assertTrue(seconds < MAX_SECONDS, "Поиск занял " + seconds + " с");
+  }
+
+  /**
+   * Контакты с уникальными ФИО, почтой и телефоном; каждый DUPLICATE_EVERY-й
+   * записан повторно с другим регистром email и форматом телефона
+   */
+  private static List<ContactDuplicateFinder.Candidate> generate(int count) {
+    List<ContactDuplicateFinder.Candidate> contacts = new ArrayList<>();
+    for (long id = 1; id <= count; id++) {
+      String name = "Клиент " + Long.toString(id * 7919, 36);
+      contacts.add(candidate(id, name, String.format("+7900%07d", id), "client" + id + "@mail.ru", null));
+      if (id % DUPLICATE_EVERY == 0) {
+        contacts.add(candidate(count + id, name, String.format("8 (900) %07d", id), "Client" + id + "@Mail.ru", null));
+      }
+    }
+    return contacts;
+  }
+
+  /**
+   * Отбор кандидатов по ключам и поиск групп среди них, как при плановом
+   * запуске
+   */
+  private List<ContactDuplicateFinder.Group> findDuplicates(List<ContactDuplicateFinder.Candidate> contacts,
+      int count) {
+    contacts.forEach(contact -> finder.addKeys(contact.contactId(), contact.email(), contact.phoneNumber()));
+    List<Long> candidateIds = finder.candidateIds();
+    // Отбор идет по хешам, редкие совпадения хешей дают лишних кандидатов
+    assertTrue(candidateIds.size() >= 2 * count / DUPLICATE_EVERY);
+    assertTrue(candidateIds.size() < 2 * count / DUPLICATE_EVERY + 100, "Кандидатов: " + candidateIds.size());
+    Set<Long> selected = new HashSet<>(candidateIds);
+    return finder.findGroups(contacts.stream().filter(contact -> selected.contains(contact.contactId())).toList());
+  }
+
+  private static ContactDuplicateFinder.Candidate candidate(long id, String fullName, String phoneNumber, String email,
+      Long userId) {
+    return new ContactDuplicateFinder.Candidate(id, fullName, phoneNumber, email, userId);
+  }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class ContactSearchIndexTest {
+
+  private static final int CONTACTS = 10_000;
+  private static final int BENCHMARK_CONTACTS = 1_000_000;
+  private static final double MAX_AVERAGE_MS = 50;
+  private static final String[] LAST_NAMES = { "Иванов", "Петров", "Сидоров", "Смирнов", "Кузнецов", "Попов",
+      "Васильев", "Соколов", "Михайлов", "Новиков", "Федоров", "Морозов", "Волков", "Алексеев", "Лебедев" };
+  private static final String[] FIRST_NAMES = { "Иван", "Петр", "Сергей", "Андрей", "Алексей", "Дмитрий",
+      "Михаил", "Николай", "Павел", "Олег" };
+  private static final String[] DOMAINS = { "mail.ru", "gmail.com", "yandex.ru", "example.com" };
+
+  private static ContactSearchIndex index;
+
+  @BeforeAll
+  static void buildIndex() {
+    index = generate(CONTACTS);
+  }
+
+  @Test
+  void findsNamesWithTypos() {
+    assertEquals(CONTACTS + 1L, first("Констанция Бонасье"));
+    assertEquals(CONTACTS + 1L, first("Констанцыя Бонасъе"));
+    assertEquals(CONTACTS + 1L, first("бонасье"));
+  }
+
+  @Test
+  void findsPhonesInAnyFormat() {
+    assertEquals(CONTACTS + 1L, first("+7 912 555-01-02"));
+    assertEquals(CONTACTS + 1L, first("89125550102"));
+    assertEquals(1_234L, first("+7 (900) 000-12-34"));
+  }
+
+  @Test
+  void findsEmails() {
+    assertEquals(CONTACTS + 1L, first("constance@louvre.fr"));
+    assertEquals(7_777L, first("user7777"));
+  }
+
+  @Test
+  void updatesAndRemovalsAreVisibleImmediately() {
+    ContactSearchIndex small = ContactSearchIndex.build(List.of(
+        new ContactSearchIndex.Entry(1L, "Арамис", "+79000000001", "aramis@example.com"),
+        new ContactSearchIndex.Entry(2L, "Портос", "+79000000002", "porthos@example.com")));
+
+    small.put(new ContactSearchIndex.Entry(1L, "Атос", "+79000000001", "athos@example.com"));
+    small.remove(2L);
+
+    assertEquals(List.of(1L), ids(small.search("атос", 10)));
+    assertTrue(small.search("арамис", 10).isEmpty());
+    assertTrue(small.search("портос", 10).isEmpty());
+    assertEquals(1, small.size());
+  }
+
+  @Test
+  @Tag("benchmark")
+  void searchIsFastOnMillionContacts() {
+    // Индекс миллиона контактов занимает около 300 МБ кучи
+    ContactSearchIndex large = generate(BENCHMARK_CONTACTS);
+    String[] queries = { "Иванов Сергей", "Смирнв", "user42", "+7 900 000-12-34", "Констанция", "gmail" };
+    int rounds = 20;
+    // Прогрев JIT
+    for (int round = 0; round < rounds; round++) {
+      for (String query : queries) {
+        large.search(query, 20);
+      }
+    }
+    long startedAt = System.nanoTime();
+    for (int round = 0; round < rounds; round++) {
+      for (String query : queries) {
+        assertTrue(large.search(query, 20).size() > 0, query);
+      }
+    }
+    double averageMs = (System.nanoTime() - startedAt) / 1_000_000.0 / (rounds * queries.length);
+    // Полный перебор миллиона контактов с подсчетом похожести занимает сотни
+    // миллисекунд на запрос
+    assertTrue(averageMs < MAX_AVERAGE_MS, "Среднее время поиска " + averageMs + " мс");
+  }
+
+  /**
+   * Индекс из заданного количества контактов с повторяющимися ФИО и контакта
+   * с ID contacts + 1 и уникальными ФИО, телефоном и почтой
+   */
+  private static ContactSearchIndex generate(int contacts) {
+    Random random = new Random(1);
+    ContactSearchIndex generated = new ContactSearchIndex();
+    for (long id = 1; id <= contacts; id++) {
+      String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+      String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+      generated.put(new ContactSearchIndex.Entry(id, lastName + " " + firstName,
+          String.format("+7900%07d", id), "user" + id + "@" + DOMAINS[random.nextInt(DOMAINS.length)]));
+    }
+    generated.put(new ContactSearchIndex.Entry(contacts + 1L, "Констанция Бонасье", "8 (912) 555-01-02",
+        "constance@louvre.fr"));
+    return generated;
+  }
+
+  private static Long first(String query) {
+    List<ContactSearchIndex.Hit> hits = index.search(query, 5);
+    return hits.isEmpty() ? null : hits.get(0).contactId();
+  }
+
+  private static List<Long> ids(List<ContactSearchIndex.Hit> hits) {
+    return hits.stream().map(ContactSearchIndex.Hit::contactId).toList();
+  }
+}
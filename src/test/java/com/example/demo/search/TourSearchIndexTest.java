@@ -0,0 +1,146 @@
+package com.example.demo.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.TourSearchCriteria;
+import com.example.demo.dto.TourSearchResult;
+import com.example.demo.dto.TourSummaryDto;
+import com.example.demo.models.Season;
+
+class TourSearchIndexTest {
+
+  private static final int TOURS = 100_000;
+  private static final String[] COUNTRIES = { "Турция", "Египет", "Италия", "Грузия", "Таиланд" };
+  private static final String[] TYPES = { "BEACH", "EXCURSION", "SKI", "CRUISE" };
+  private static final String[] WORDS = { "пляжный отдых", "горные лыжи", "экскурсии по городам",
+      "морской круиз", "винные дегустации" };
+
+  private static TourSearchIndex index;
+
+  @BeforeAll
+  static void buildIndex() {
+    Random random = new Random(1);
+    List<TourSearchIndex.Entry> entries = new ArrayList<>(TOURS);
+    for (long id = 1; id <= TOURS; id++) {
+      LocalDateTime start = LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365)).atStartOfDay();
+      int duration = 3 + random.nextInt(12);
+      TourSummaryDto tour = TourSummaryDto.builder()
+          .id(id)
+          .name("Тур " + id)
+          .country(COUNTRIES[(int) (id % COUNTRIES.length)])
+          .season(Season.values()[random.nextInt(Season.values().length)])
+          .type(TYPES[random.nextInt(TYPES.length)])
+          .startDate(start)
+          .endDate(start.plusDays(duration - 1))
+          .duration(duration)
+          .price(1000.0 + random.nextInt(100_000))
+          .totalSlots(30)
+          .availableSlots(random.nextInt(31))
+          .isRegistrationClosed(id % 10 == 0)
+          .build();
+      entries.add(TourSearchIndex.Entry.of(tour, WORDS[random.nextInt(WORDS.length)]));
+    }
+    index = TourSearchIndex.build(entries);
+  }
+
+  @Test
+  void filtersSortingAndFacets() {
+    TourSearchCriteria criteria = TourSearchCriteria.builder()
+        .q("пляжного")
+        .country(List.of("Турция", "Египет"))
+        .minPrice(20_000.0)
+        .maxPrice(60_000.0)
+        .startFrom(LocalDate.of(2025, 6, 1))
+        .startTo(LocalDate.of(2025, 8, 31))
+        .sort("-price")
+        .build();
+
+    TourSearchResult result = index.search(criteria);
+
+    assertTrue(result.getTotal() > 0);
+    double previousPrice = Double.MAX_VALUE;
+    for (TourSummaryDto tour : result.getItems()) {
+      assertTrue(List.of("Турция", "Египет").contains(tour.getCountry()));
+      assertTrue(tour.getPrice() >= 20_000.0 && tour.getPrice() <= 60_000.0);
+      assertTrue(tour.getPrice() <= previousPrice);
+      previousPrice = tour.getPrice();
+    }
+    Map<String, Integer> countries = result.getFacets().get(TourSearchIndex.FACET_COUNTRY);
+    assertEquals(result.getTotal(), countries.getOrDefault("Турция", 0) + countries.getOrDefault("Египет", 0));
+    // Фильтр по стране не ограничивает фасет по стране
+    assertTrue(countries.containsKey("Италия"));
+  }
+
+  @Test
+  void changesProduceNewSnapshot() {
+    TourSummaryDto tour = TourSummaryDto.builder()
+        .id(TOURS + 1L)
+        .name("Сафари в Кении")
+        .country("Кения")
+        .season(Season.SUMMER)
+        .type("SAFARI")
+        .startDate(LocalDateTime.of(2025, 7, 1, 0, 0))
+        .endDate(LocalDateTime.of(2025, 7, 10, 0, 0))
+        .duration(10)
+        .price(150_000.0)
+        .totalSlots(10)
+        .availableSlots(10)
+        .isRegistrationClosed(false)
+        .build();
+    Map<Long, TourSearchIndex.Entry> changes = new HashMap<>();
+    changes.put(TOURS + 1L, TourSearchIndex.Entry.of(tour, "Наблюдение за животными"));
+    changes.put(1L, null);
+
+    TourSearchIndex updated = index.withChanges(changes);
+
+    assertEquals(TOURS, updated.size());
+    assertEquals(1, updated.search(TourSearchCriteria.builder().q("сафари").build()).getTotal());
+    assertEquals(0, index.search(TourSearchCriteria.builder().q("сафари").build()).getTotal());
+
+    TourSearchIndex withSlots = updated.withAvailableSlots(Map.of(TOURS + 1L, 3));
+    assertEquals(3, withSlots.search(TourSearchCriteria.builder().q("кения").build())
+        .getItems().get(0).getAvailableSlots());
+  }
+
+  @Test
+  void unknownSortIsRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> index.search(TourSearchCriteria.builder().sort("rating").build()));
+  }
+
+  @Test
+  @Tag("benchmark")
+  void typicalQueriesAnswerQuickly() {
+    List<TourSearchCriteria> queries = List.of(
+        TourSearchCriteria.builder().country(List.of("Италия")).sort("price").build(),
+        TourSearchCriteria.builder().q("экскурсии").season(List.of(Season.SUMMER)).build(),
+        TourSearchCriteria.builder().minDuration(7).maxDuration(10).type(List.of("BEACH")).sort("-startDate").build(),
+        TourSearchCriteria.builder().registrationClosed(false).minPrice(50_000.0).page(3).build());
+    for (int i = 0; i < 200; i++) {
+      queries.forEach(index::search);
+    }
+
+    int iterations = 1000;
+    long startedAt = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      queries.forEach(index::search);
+    }
+    double averageMs = (System.nanoTime() - startedAt) / 1_000_000.0 / (iterations * queries.size());
+    // Порог с запасом для медленных CI-машин
+    assertTrue(averageMs < 20, "Среднее время запроса " + averageMs + " мс");
+  }
+}
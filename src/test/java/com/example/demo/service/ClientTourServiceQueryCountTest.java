@@ -0,0 +1,146 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.dto.ClientTourDto;
+import com.example.demo.models.AgeGroup;
+import com.example.demo.models.ClientTour;
+import com.example.demo.models.Contact;
+import com.example.demo.models.Gender;
+import com.example.demo.models.Season;
+import com.example.demo.models.Tour;
+import com.example.demo.repository.ClientTourRepository;
+import com.example.demo.repository.ContactRepository;
+import com.example.demo.repository.TourRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ClientTourServiceQueryCountTest {
+
+  private static final int SMALL_TOUR = 3;
+  private static final int LARGE_TOUR = 40;
+
+  @Autowired
+  private ClientTourService clientTourService;
+
+  @Autowired
+  private ClientTourRepository clientTourRepository;
+
+  @Autowired
+  private ContactRepository contactRepository;
+
+  @Autowired
+  private TourRepository tourRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private final List<Long> tourIds = new ArrayList<>();
+  private final List<Long> contactIds = new ArrayList<>();
+  private Statistics statistics;
+
+  @BeforeEach
+  void setUp() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    tourIds.forEach(tourId -> clientTourRepository.deleteAll(clientTourRepository.findByTourId(tourId)));
+    contactRepository.deleteAllById(contactIds);
+    tourRepository.deleteAllById(tourIds);
+  }
+
+  @Test
+  void tourListingUsesFixedStatementCount() {
+    Long smallTour = createTour(SMALL_TOUR);
+    Long largeTour = createTour(LARGE_TOUR);
+
+    long smallStatements = countStatements(() -> assertEquals(SMALL_TOUR,
+        withNames(clientTourService.getClientToursByTourId(smallTour))));
+    long largeStatements = countStatements(() -> assertEquals(LARGE_TOUR,
+        withNames(clientTourService.getClientToursByTourId(largeTour))));
+
+    assertEquals(smallStatements, largeStatements);
+    // Проверка существования тура и сам список
+    assertTrue(largeStatements <= 2, "Запросов: " + largeStatements);
+  }
+
+  @Test
+  void contactListingUsesFixedStatementCount() {
+    Long tourId = createTour(LARGE_TOUR);
+    Long contactId = contactIds.get(contactIds.size() - 1);
+
+    long statements = countStatements(() -> assertEquals(1,
+        withNames(clientTourService.getClientToursByContactId(contactId))));
+    long allStatements = countStatements(() -> assertTrue(
+        withNames(clientTourService.getAllClientTours().stream()
+            .filter(clientTour -> clientTour.getTourId().equals(tourId)).toList()) == LARGE_TOUR));
+
+    assertTrue(statements <= 2, "Запросов: " + statements);
+    assertEquals(1, allStatements);
+  }
+
+  private long countStatements(Runnable action) {
+    statistics.clear();
+    action.run();
+    return statistics.getPrepareStatementCount();
+  }
+
+  /**
+   * Количество связей, у которых заполнены имя контакта и название тура
+   */
+  private int withNames(List<ClientTourDto> clientTours) {
+    return (int) clientTours.stream()
+        .filter(clientTour -> clientTour.getContactFullName() != null && clientTour.getTourName() != null)
+        .count();
+  }
+
+  private Long createTour(int clients) {
+    Long tourId = tourRepository.save(Tour.builder()
+        .name("Тур для проверки количества запросов")
+        .description("Тур для проверки загрузки связей клиент-тур")
+        .country("Турция")
+        .season(Season.SUMMER)
+        .type("BEACH")
+        .startDate(LocalDateTime.now().plusMonths(1))
+        .endDate(LocalDateTime.now().plusMonths(1).plusDays(7))
+        .totalSlots(clients)
+        .availableSlots(0)
+        .price(1000.0)
+        .isRegistrationClosed(false)
+        .build()).getId();
+    tourIds.add(tourId);
+
+    List<ClientTour> clientTours = new ArrayList<>();
+    for (int i = 0; i < clients; i++) {
+      Long contactId = contactRepository.save(Contact.builder()
+          .fullName("Клиент " + i)
+          .phoneNumber("+7900000" + String.format("%04d", i))
+          .email("query-count-" + tourId + "-" + i + "@example.com")
+          .ageGroup(AgeGroup.AGE_26_35)
+          .gender(Gender.MALE)
+          .discountPercent(0)
+          .isClient(true)
+          .build()).getId();
+      contactIds.add(contactId);
+      clientTours.add(ClientTour.builder().contactId(contactId).tourId(tourId).isActive(true).build());
+    }
+    clientTourRepository.saveAll(clientTours);
+    return tourId;
+  }
+}
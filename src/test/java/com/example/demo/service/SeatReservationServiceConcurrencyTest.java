@@ -0,0 +1,119 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.models.Season;
+import com.example.demo.models.Tour;
+import com.example.demo.repository.TourRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@SpringBootTest
+class SeatReservationServiceConcurrencyTest {
+
+  private static final int CAPACITY = 500;
+  private static final int BOOKINGS = 5000;
+  private static final int THREADS = 64;
+
+  @Autowired
+  private SeatReservationService seatReservationService;
+
+  @Autowired
+  private TourRepository tourRepository;
+
+  private Long tourId;
+
+  @AfterEach
+  void cleanUp() {
+    if (tourId != null) {
+      tourRepository.deleteById(tourId);
+    }
+  }
+
+  @Test
+  void parallelBookingsNeverOversell() throws Exception {
+    createTour();
+
+    book();
+
+    assertEquals(0, tourRepository.findById(tourId).orElseThrow().getAvailableSlots());
+  }
+
+  @Test
+  @Tag("benchmark")
+  void bookingThroughput() throws Exception {
+    createTour();
+
+    double rate = book();
+    log.info("Бронирований в секунду: {} ({} попыток на {} мест из {} потоков)", Math.round(rate), BOOKINGS,
+        CAPACITY, THREADS);
+  }
+
+  private void createTour() {
+    tourId = tourRepository.save(Tour.builder()
+        .name("Нагрузочный тур")
+        .description("Тур для проверки параллельного бронирования")
+        .country("Турция")
+        .season(Season.SUMMER)
+        .type("BEACH")
+        .startDate(LocalDateTime.now().plusMonths(1))
+        .endDate(LocalDateTime.now().plusMonths(1).plusDays(7))
+        .totalSlots(CAPACITY)
+        .availableSlots(CAPACITY)
+        .price(1000.0)
+        .isRegistrationClosed(false)
+        .build()).getId();
+  }
+
+  /**
+   * Бронирует места тура из THREADS потоков и проверяет, что продано ровно
+   * CAPACITY мест
+   *
+   * @return бронирований в секунду
+   */
+  private double book() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger successes = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>(BOOKINGS);
+
+    for (int i = 0; i < BOOKINGS; i++) {
+      futures.add(executor.submit(() -> {
+        start.await();
+        if (seatReservationService.tryReserve(tourId, 1)) {
+          successes.incrementAndGet();
+        }
+        return null;
+      }));
+    }
+
+    long startedAt = System.nanoTime();
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long elapsedNanos = System.nanoTime() - startedAt;
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertEquals(CAPACITY, successes.get());
+    return BOOKINGS / (elapsedNanos / 1_000_000_000.0);
+  }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.dto.ApplicationDto;
+import com.example.demo.dto.WaitlistEntryDto;
+import com.example.demo.models.Season;
+import com.example.demo.models.Tour;
+import com.example.demo.models.WaitlistStatus;
+import com.example.demo.repository.TourRepository;
+
+@SpringBootTest
+class SlotReconciliationServiceTest {
+
+  private static final String EMAIL = "reconciliation-waitlist@example.com";
+
+  @Autowired
+  private SlotReconciliationService slotReconciliationService;
+
+  @Autowired
+  private WaitlistService waitlistService;
+
+  @Autowired
+  private TourRepository tourRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private Long tourId;
+
+  @AfterEach
+  void cleanUp() {
+    if (tourId != null) {
+      jdbcTemplate.update("DELETE FROM tour_waitlist WHERE tour_id = ?", tourId);
+      jdbcTemplate.update("DELETE FROM client_tours WHERE tour_id = ?", tourId);
+      jdbcTemplate.update("DELETE FROM applications WHERE tour_id = ?", tourId);
+      jdbcTemplate.update("DELETE FROM contacts WHERE email = ?", EMAIL);
+      tourRepository.deleteById(tourId);
+    }
+  }
+
+  @Test
+  void repairedSeatsGoToWaitlist() {
+    // Место свободно, но счетчик ушел в ноль
+    tourId = tourRepository.save(Tour.builder()
+        .name("Тур со сбившимся счетчиком")
+        .description("Тур для проверки передачи исправленных мест листу ожидания")
+        .country("Турция")
+        .season(Season.SUMMER)
+        .type("BEACH")
+        .startDate(LocalDateTime.now().plusMonths(1))
+        .endDate(LocalDateTime.now().plusMonths(1).plusDays(7))
+        .totalSlots(1)
+        .availableSlots(0)
+        .price(1000.0)
+        .isRegistrationClosed(false)
+        .build()).getId();
+    WaitlistEntryDto entry = waitlistService.join(ApplicationDto.builder()
+        .fullName("Ожидающий Клиент")
+        .phoneNumber("+79000000000")
+        .email(EMAIL)
+        .tourId(tourId)
+        .build());
+    assertEquals(WaitlistStatus.WAITING, entry.getStatus());
+
+    slotReconciliationService.reconcile(true);
+
+    WaitlistEntryDto promoted = waitlistService.getEntry(entry.getId());
+    assertEquals(WaitlistStatus.PROMOTED, promoted.getStatus());
+    assertNotNull(promoted.getApplicationId());
+    assertEquals(0, tourRepository.findById(tourId).orElseThrow().getAvailableSlots());
+  }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.models.Season;
+import com.example.demo.models.Tour;
+import com.example.demo.repository.TourRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@SpringBootTest
+class SlotShardBenchmarkTest {
+
+  private static final int CAPACITY = 2000;
+  private static final int BOOKINGS = 4000;
+  private static final int THREADS = 200;
+  private static final int SHARDS = 16;
+
+  @Autowired
+  private SeatReservationService seatReservationService;
+
+  @Autowired
+  private SlotShardService slotShardService;
+
+  @Autowired
+  private TourRepository tourRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private final List<Long> tourIds = new ArrayList<>();
+
+  @AfterEach
+  void cleanUp() {
+    for (Long tourId : tourIds) {
+      slotShardService.configure(tourId, null);
+      tourRepository.deleteById(tourId);
+    }
+  }
+
+  @Test
+  void shardedToursNeverOversell() throws Exception {
+    Long singleRowTour = createTour("Тур с одним счетчиком");
+    Long shardedTour = createTour("Тур с разделенными счетчиками");
+    slotShardService.configure(shardedTour, SHARDS);
+
+    book(singleRowTour);
+    book(shardedTour);
+
+    assertEquals(0, tourRepository.findById(singleRowTour).orElseThrow().getAvailableSlots());
+    assertEquals(0, jdbcTemplate.queryForObject(
+        "SELECT sum(available_slots) FROM tour_slot_shards WHERE tour_id = ?", Integer.class, shardedTour));
+  }
+
+  @Test
+  @Tag("benchmark")
+  void shardedToursBookFasterThanSingleRow() throws Exception {
+    Long singleRowTour = createTour("Тур с одним счетчиком");
+    Long shardedTour = createTour("Тур с разделенными счетчиками");
+    slotShardService.configure(shardedTour, SHARDS);
+
+    double singleRowRate = book(singleRowTour);
+    double shardedRate = book(shardedTour);
+    log.info("Бронирований в секунду: один счетчик {}, {} счетчиков {} ({}x)", Math.round(singleRowRate), SHARDS,
+        Math.round(shardedRate), String.format("%.2f", shardedRate / singleRowRate));
+  }
+
+  private Long createTour(String name) {
+    Long tourId = tourRepository.save(Tour.builder()
+        .name(name)
+        .description("Тур для сравнения пропускной способности бронирования")
+        .country("Турция")
+        .season(Season.SUMMER)
+        .type("BEACH")
+        .startDate(LocalDateTime.now().plusMonths(1))
+        .endDate(LocalDateTime.now().plusMonths(1).plusDays(7))
+        .totalSlots(CAPACITY)
+        .availableSlots(CAPACITY)
+        .price(1000.0)
+        .isRegistrationClosed(false)
+        .build()).getId();
+    tourIds.add(tourId);
+    return tourId;
+  }
+
+  /**
+   * Бронирует места тура из THREADS потоков и проверяет, что продано ровно
+   * CAPACITY мест
+   *
+   * @return бронирований в секунду
+   */
+  private double book(Long tourId) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger successes = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>(BOOKINGS);
+
+    for (int i = 0; i < BOOKINGS; i++) {
+      futures.add(executor.submit(() -> {
+        start.await();
+        if (seatReservationService.tryReserve(tourId, 1)) {
+          successes.incrementAndGet();
+        }
+        return null;
+      }));
+    }
+
+    long startedAt = System.nanoTime();
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long elapsedNanos = System.nanoTime() - startedAt;
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertEquals(CAPACITY, successes.get());
+    return BOOKINGS / (elapsedNanos / 1_000_000_000.0);
+  }
+}
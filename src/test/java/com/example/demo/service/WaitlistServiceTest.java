@@ -0,0 +1,171 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.dto.ApplicationDto;
+import com.example.demo.dto.WaitlistEntryDto;
+import com.example.demo.events.SeatsReleasedEvent;
+import com.example.demo.models.Season;
+import com.example.demo.models.Tour;
+import com.example.demo.models.WaitlistEntry;
+import com.example.demo.models.WaitlistStatus;
+import com.example.demo.repository.TourRepository;
+import com.example.demo.repository.WaitlistRepository;
+
+@SpringBootTest
+class WaitlistServiceTest {
+
+  private static final String FIRST_EMAIL = "waitlist-first@example.com";
+  private static final String SECOND_EMAIL = "waitlist-second@example.com";
+  // Не проходит проверку @Email, поэтому заявку для записи создать нельзя
+  private static final String INVALID_EMAIL = "не-почта";
+
+  @Autowired
+  private WaitlistService waitlistService;
+
+  @Autowired
+  private SeatReservationService seatReservationService;
+
+  @Autowired
+  private WaitlistRepository waitlistRepository;
+
+  @Autowired
+  private TourRepository tourRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private Long tourId;
+
+  @BeforeEach
+  void createFullTour() {
+    tourId = tourRepository.save(Tour.builder()
+        .name("Тур с листом ожидания")
+        .description("Тур для проверки передачи мест листу ожидания")
+        .country("Турция")
+        .season(Season.SUMMER)
+        .type("BEACH")
+        .startDate(LocalDateTime.now().plusMonths(1))
+        .endDate(LocalDateTime.now().plusMonths(1).plusDays(7))
+        .totalSlots(1)
+        .availableSlots(0)
+        .price(1000.0)
+        .isRegistrationClosed(false)
+        .build()).getId();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    jdbcTemplate.update("DELETE FROM tour_waitlist WHERE tour_id = ?", tourId);
+    jdbcTemplate.update("DELETE FROM client_tours WHERE tour_id = ?", tourId);
+    jdbcTemplate.update("DELETE FROM applications WHERE tour_id = ?", tourId);
+    jdbcTemplate.update("DELETE FROM contacts WHERE email IN (?, ?, ?)", FIRST_EMAIL, SECOND_EMAIL, INVALID_EMAIL);
+    tourRepository.deleteById(tourId);
+  }
+
+  @Test
+  void releasedSeatIsHeldForQueueHead() throws Exception {
+    WaitlistEntryDto entry = join("Первый Ожидающий", FIRST_EMAIL);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    Future<Boolean> booking = new TransactionTemplate(transactionManager).execute(status -> {
+      seatReservationService.release(tourId, 1);
+      // Прямое бронирование ждет фиксации освобождающей транзакции
+      Future<Boolean> direct = executor.submit(() -> seatReservationService.tryReserve(tourId, 1));
+      assertThrows(TimeoutException.class, () -> direct.get(500, TimeUnit.MILLISECONDS));
+      return direct;
+    });
+
+    assertFalse(booking.get(10, TimeUnit.SECONDS));
+    executor.shutdown();
+    WaitlistEntryDto promoted = waitlistService.getEntry(entry.getId());
+    assertEquals(WaitlistStatus.PROMOTED, promoted.getStatus());
+    assertNotNull(promoted.getApplicationId());
+    assertEquals(0, availableSlots());
+  }
+
+  @Test
+  void failedPromotionPassesSeatToNextEntry() {
+    WaitlistEntryDto failing = join("Ожидающий С Ошибкой", INVALID_EMAIL);
+    WaitlistEntryDto next = join("Второй Ожидающий", SECOND_EMAIL);
+
+    seatReservationService.release(tourId, 1);
+
+    WaitlistEntry failed = waitlistRepository.findById(failing.getId()).orElseThrow();
+    assertEquals(WaitlistStatus.WAITING, failed.getStatus());
+    assertFalse(failed.isSeatHeld());
+    assertEquals(WaitlistStatus.PROMOTED, waitlistService.getEntry(next.getId()).getStatus());
+    assertEquals(0, availableSlots());
+  }
+
+  @Test
+  void cancelPassesHeldSeatToNextEntry() {
+    WaitlistEntryDto first = join("Первый Ожидающий", FIRST_EMAIL);
+    WaitlistEntryDto second = join("Второй Ожидающий", SECOND_EMAIL);
+    // Место закреплено за первой записью, заявка для нее еще не создана
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      seatReservationService.returnToTour(tourId, 1);
+      waitlistService.holdReleasedSeats(new SeatsReleasedEvent(tourId, 1));
+    });
+    assertTrue(waitlistRepository.findById(first.getId()).orElseThrow().isSeatHeld());
+
+    waitlistService.cancel(first.getId());
+
+    assertEquals(WaitlistStatus.CANCELLED, waitlistService.getEntry(first.getId()).getStatus());
+    assertEquals(WaitlistStatus.PROMOTED, waitlistService.getEntry(second.getId()).getStatus());
+    assertEquals(0, availableSlots());
+  }
+
+  @Test
+  void heldEntriesArePromotedOnStartup() {
+    WaitlistEntryDto entry = join("Первый Ожидающий", FIRST_EMAIL);
+    // Место закреплено и списано со счетчика, но приложение остановилось до
+    // создания заявки
+    jdbcTemplate.update("UPDATE tour_waitlist SET seat_held = true WHERE id = ?", entry.getId());
+
+    waitlistService.loadQueues();
+
+    WaitlistEntryDto promoted = waitlistService.getEntry(entry.getId());
+    assertEquals(WaitlistStatus.PROMOTED, promoted.getStatus());
+    assertNotNull(promoted.getApplicationId());
+    assertEquals(0, availableSlots());
+  }
+
+  private WaitlistEntryDto join(String fullName, String email) {
+    WaitlistEntryDto entry = waitlistService.join(ApplicationDto.builder()
+        .fullName(fullName)
+        .phoneNumber("+79000000000")
+        .email(email)
+        .tourId(tourId)
+        .build());
+    assertEquals(WaitlistStatus.WAITING, entry.getStatus());
+    return entry;
+  }
+
+  private int availableSlots() {
+    return tourRepository.findById(tourId).orElseThrow().getAvailableSlots();
+  }
+}
@@ -0,0 +1,228 @@
+package com.example.demo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LocalFileBlobStoreTest {
+
+  private static final long UPLOAD_SIZE = 8L * 1024 * 1024;
+  private static final long LARGE_UPLOAD_SIZE = 50L * 1024 * 1024;
+  // Сколько прочитанных, но еще не записанных на диск байт допускается
+  private static final long MAX_BUFFERED = 256 * 1024;
+  private static final int UPLOADS = 16;
+  private static final int THREADS = 8;
+
+  @TempDir
+  Path root;
+
+  private LocalFileBlobStore blobStore;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    blobStore = new LocalFileBlobStore(root.toString(), 16);
+  }
+
+  @Test
+  void uploadIsWrittenToDiskWhileReading() throws IOException {
+    StreamingContractInputStream content = new StreamingContractInputStream(UPLOAD_SIZE, 1, root.resolve("tmp"));
+
+    StoredBlob blob = blobStore.put(content);
+
+    assertEquals(UPLOAD_SIZE, blob.getSize());
+    assertTrue(content.reads > UPLOAD_SIZE / MAX_BUFFERED, "Чтений: " + content.reads);
+  }
+
+  @Test
+  void concurrentUploadsAreWrittenToDiskWhileReading() throws Exception {
+    uploadConcurrently(UPLOAD_SIZE);
+  }
+
+  @Test
+  @Tag("benchmark")
+  void largeConcurrentUploadsAreWrittenToDiskWhileReading() throws Exception {
+    uploadConcurrently(LARGE_UPLOAD_SIZE);
+  }
+
+  @Test
+  void identicalUploadsAreStoredOnce() throws IOException {
+    StoredBlob first = blobStore.put(new GeneratedInputStream(1024 * 1024, 42));
+    StoredBlob second = blobStore.put(new GeneratedInputStream(1024 * 1024, 42));
+
+    assertEquals(first.getKey(), second.getKey());
+    assertEquals(1, countStoredFiles());
+  }
+
+  @Test
+  void oversizedUploadIsRejectedWithoutLeftovers() throws IOException {
+    assertThrows(BlobTooLargeException.class,
+        () -> blobStore.put(new GeneratedInputStream(2 * 1024 * 1024, 7), 1024 * 1024));
+
+    assertEquals(0, countStoredFiles());
+    try (Stream<Path> tmpFiles = Files.list(root.resolve("tmp"))) {
+      assertEquals(0, tmpFiles.count());
+    }
+  }
+
+  /**
+   * UPLOADS загрузок из THREADS потоков; каждая проверяет, что держит в
+   * памяти не больше одного буфера
+   */
+  private void uploadConcurrently(long size) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<StoredBlob>> futures = new ArrayList<>();
+    for (int i = 0; i < UPLOADS; i++) {
+      long seed = i + 1;
+      futures.add(executor.submit(() -> {
+        StoredBlob blob = blobStore.put(new StreamingContractInputStream(size, seed, root.resolve("tmp")), size);
+        // Освобождаем место на диске, содержимое уже проверено размером
+        blobStore.delete(blob.getKey());
+        return blob;
+      }));
+    }
+    for (Future<StoredBlob> future : futures) {
+      assertEquals(size, future.get().getSize());
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  private long countStoredFiles() throws IOException {
+    try (Stream<Path> files = Files.walk(root)) {
+      return files.filter(Files::isRegularFile).filter(path -> !path.startsWith(root.resolve("tmp"))).count();
+    }
+  }
+
+  /**
+   * Поток, который перед каждым чтением проверяет, что ранее выданные им
+   * данные уже записаны во временный файл его загрузки, а не накапливаются в
+   * памяти. Файл загрузки находится среди временных файлов хранилища по
+   * первым выданным байтам. Хранилище пишет в него в том же потоке, который
+   * вызывает read, поэтому выданные и записанные байты сверяются без гонок с
+   * параллельными загрузками
+   */
+  private static class StreamingContractInputStream extends GeneratedInputStream {
+
+    private static final int PREFIX_LENGTH = 16;
+
+    private final Path tmpDir;
+    private final byte[] prefix = new byte[PREFIX_LENGTH];
+    private long delivered;
+    private Path uploadFile;
+    private int reads;
+
+    StreamingContractInputStream(long size, long seed, Path tmpDir) {
+      super(size, seed);
+      this.tmpDir = tmpDir;
+    }
+
+    @Override
+    public int read(byte[] buffer, int off, int len) {
+      assertTrue(len <= MAX_BUFFERED, "Запрошено " + len + " байт за одно чтение");
+      long written = writtenBytes();
+      assertTrue(delivered - written <= MAX_BUFFERED, "Выдано " + delivered + " байт, записано на диск " + written);
+      reads++;
+      int count = super.read(buffer, off, len);
+      if (count > 0) {
+        if (delivered < PREFIX_LENGTH) {
+          int copied = (int) Math.min(count, PREFIX_LENGTH - delivered);
+          System.arraycopy(buffer, off, prefix, (int) delivered, copied);
+        }
+        delivered += count;
+      }
+      return count;
+    }
+
+    private long writtenBytes() {
+      try {
+        if (uploadFile == null) {
+          uploadFile = findUploadFile();
+        }
+        return uploadFile != null ? Files.size(uploadFile) : 0;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private Path findUploadFile() throws IOException {
+      if (delivered < PREFIX_LENGTH) {
+        return null;
+      }
+      try (Stream<Path> files = Files.list(tmpDir)) {
+        for (Path file : files.toList()) {
+          try (InputStream in = Files.newInputStream(file)) {
+            if (Arrays.equals(prefix, in.readNBytes(PREFIX_LENGTH))) {
+              return file;
+            }
+          } catch (NoSuchFileException e) {
+            // Файл завершенной загрузки уже перенесен в хранилище
+          }
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Поток псевдослучайных данных заданного размера, не хранящий их в памяти
+   */
+  private static class GeneratedInputStream extends InputStream {
+
+    private long remaining;
+    private long state;
+
+    GeneratedInputStream(long size, long seed) {
+      this.remaining = size;
+      this.state = seed;
+    }
+
+    @Override
+    public int read() {
+      if (remaining == 0) {
+        return -1;
+      }
+      remaining--;
+      return (int) (next() & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] buffer, int off, int len) {
+      if (remaining == 0) {
+        return -1;
+      }
+      int count = (int) Math.min(len, remaining);
+      for (int i = 0; i < count; i++) {
+        buffer[off + i] = (byte) next();
+      }
+      remaining -= count;
+      return count;
+    }
+
+    private long next() {
+      state ^= state << 13;
+      state ^= state >>> 7;
+      state ^= state << 17;
+      return state;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class HashedTimingWheelTest {
+
+  private static final long TICK_MS = 1000;
+  private static final int WHEEL_SIZE = 1024;
+  private static final int HOLDS = 50_000;
+  private static final long TTL_MS = 600_000;
+
+  @Test
+  void timersFireOnTimeAndNeverEarly() {
+    long start = 1_000_000_000L;
+    HashedTimingWheel<Long> wheel = new HashedTimingWheel<>(TICK_MS, WHEEL_SIZE, start);
+    Random random = new Random(1);
+    long[] deadlines = new long[HOLDS];
+    for (int i = 0; i < HOLDS; i++) {
+      // Брони создаются в течение первых 10 минут
+      deadlines[i] = start + random.nextInt(600_000) + TTL_MS;
+      wheel.schedule((long) i, deadlines[i]);
+    }
+    assertEquals(HOLDS, wheel.size());
+
+    Set<Long> fired = new HashSet<>();
+    for (long now = start; now <= start + 2 * TTL_MS + TICK_MS; now += TICK_MS) {
+      List<Long> expired = wheel.advance(now);
+      for (Long id : expired) {
+        long deadline = deadlines[id.intValue()];
+        assertTrue(deadline <= now, "Таймер " + id + " сработал раньше срока");
+        assertTrue(now - deadline < TICK_MS, "Таймер " + id + " сработал с опозданием");
+        assertTrue(fired.add(id), "Таймер " + id + " сработал повторно");
+      }
+    }
+    assertEquals(HOLDS, fired.size());
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  void overdueTimersFireOnNextTick() {
+    HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK_MS, 16, 100_000);
+    wheel.advance(110_000);
+    wheel.schedule("overdue", 50_000);
+
+    assertEquals(List.of("overdue"), wheel.advance(111_000));
+  }
+
+  @Test
+  void timersBeyondOneRevolutionWaitForTheirRound() {
+    HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK_MS, 16, 0);
+    wheel.schedule("later", 20_000);
+
+    assertTrue(wheel.advance(19_000).isEmpty());
+    assertEquals(List.of("later"), wheel.advance(20_000));
+  }
+
+  @Test
+  void longPauseExpiresEverythingDue() {
+    HashedTimingWheel<Integer> wheel = new HashedTimingWheel<>(TICK_MS, 16, 0);
+    for (int i = 1; i <= 100; i++) {
+      wheel.schedule(i, i * TICK_MS);
+    }
+
+    assertEquals(50, wheel.advance(50_000).size());
+    assertEquals(50, wheel.advance(500_000).size());
+  }
+}